@@ -0,0 +1,31 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
+import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContainerCollectionResolverBenchmark {
+
+    @Benchmark
+    public Map<String, ContainerService> getServices(SymfonyProjectState state) {
+        return ReadAction.compute(() -> ContainerCollectionResolver.getServices(state.getProject()));
+    }
+
+    @Benchmark
+    public boolean hasServiceNames(SymfonyProjectState state) {
+        return ReadAction.compute(() -> ContainerCollectionResolver.hasServiceNames(state.getProject(), "app.service_" + (state.services / 2)));
+    }
+}
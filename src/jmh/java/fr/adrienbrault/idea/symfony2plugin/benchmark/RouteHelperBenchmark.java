@@ -0,0 +1,41 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.openapi.application.ReadAction;
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#getAllRoutes
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RouteHelperBenchmark {
+
+    @Benchmark
+    public Map<String, Route> getAllRoutes(SymfonyProjectState state) {
+        return ReadAction.compute(() -> RouteHelper.getAllRoutes(state.getProject()));
+    }
+
+    @Benchmark
+    public List<LookupElement> getRoutesLookupElements(SymfonyProjectState state) {
+        return ReadAction.compute(() -> RouteHelper.getRoutesLookupElements(state.getProject()));
+    }
+
+    @Benchmark
+    public Collection<Route> matchUrl(SymfonyProjectState state) {
+        return ReadAction.compute(() -> RouteEngine.getInstance(state.getProject()).match("http://127.0.0.1:8000/app/1500/12?foo=bar"));
+    }
+}
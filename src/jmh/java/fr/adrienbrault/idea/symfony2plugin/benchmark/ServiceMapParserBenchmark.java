@@ -0,0 +1,39 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMapParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a compiled container; needs no IDE environment
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.dic.ServiceMapParser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ServiceMapParserBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int services;
+
+    private byte[] container;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        container = SymfonyFixtureGenerator.createContainerXml(services).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ServiceMap parse() throws Exception {
+        return new ServiceMapParser().parse(new ByteArrayInputStream(container));
+    }
+}
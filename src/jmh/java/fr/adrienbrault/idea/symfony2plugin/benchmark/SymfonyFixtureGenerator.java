@@ -0,0 +1,168 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Generates Symfony project files of a given size; content is stable for the same size, so runs are comparable
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyFixtureGenerator {
+
+    /**
+     * Files are split in chunks, like bundles do, so index lookups need to merge values of several files
+     */
+    public static final int ITEMS_PER_FILE = 500;
+
+    @NotNull
+    public static String createServicesYaml(int offset, int count) {
+        StringBuilder content = new StringBuilder("parameters:\n");
+
+        for (int i = offset; i < offset + count; i++) {
+            content.append("    app.service_").append(i).append(".class: App\\Service\\Service").append(i).append("\n");
+        }
+
+        content.append("\nservices:\n");
+
+        for (int i = offset; i < offset + count; i++) {
+            content.append("    app.service_").append(i).append(":\n");
+
+            // mix of parameter and direct class values, aliases and decorations
+            if(i % 2 == 0) {
+                content.append("        class: '%app.service_").append(i).append(".class%'\n");
+            } else {
+                content.append("        class: App\\Service\\Service").append(i).append("\n");
+            }
+
+            if(i % 10 == 0) {
+                content.append("        public: false\n");
+            }
+
+            if(i % 25 == 0 && i > 0) {
+                content.append("        decorates: app.service_").append(i - 1).append("\n");
+            }
+
+            if(i % 50 == 0) {
+                content.append("    app.alias_").append(i).append(":\n");
+                content.append("        alias: app.service_").append(i).append("\n");
+            }
+        }
+
+        return content.toString();
+    }
+
+    @NotNull
+    public static String createRoutesYaml(int offset, int count) {
+        StringBuilder content = new StringBuilder();
+
+        for (int i = offset; i < offset + count; i++) {
+            content.append("app_route_").append(i).append(":\n");
+            content.append("    path: /app/").append(i).append("/{id}\n");
+            content.append("    defaults: { _controller: App\\Controller\\Controller").append(i % 100).append("::action").append(i).append("Action }\n");
+
+            if(i % 3 == 0) {
+                content.append("    methods: [GET, POST]\n");
+            }
+
+            content.append("\n");
+        }
+
+        return content.toString();
+    }
+
+    @NotNull
+    public static String createTwigTemplate(int i) {
+        return "{% extends 'base.html.twig' %}\n" +
+            "{% block body %}\n" +
+            "    {{ include('partials/partial_" + (i % 50) + ".html.twig') }}\n" +
+            "    {{ app_" + i + "|app_filter_" + (i % 50) + " }}\n" +
+            "{% endblock %}\n";
+    }
+
+    /**
+     * Twig stubs for \Twig\Extension\AbstractExtension, \Twig\TwigFilter and \Twig\TwigFunction
+     */
+    @NotNull
+    public static String createTwigStubs() {
+        return "<?php\n" +
+            "namespace Twig\\Extension { interface ExtensionInterface {} abstract class AbstractExtension implements ExtensionInterface {} }\n" +
+            "namespace Twig { class TwigFilter {} class TwigFunction {} class TwigTest {} }\n";
+    }
+
+    @NotNull
+    public static String createTwigExtension(int i, int filters) {
+        StringBuilder content = new StringBuilder("<?php\n" +
+            "namespace App\\Twig;\n\n" +
+            "use Twig\\Extension\\AbstractExtension;\n" +
+            "use Twig\\TwigFilter;\n" +
+            "use Twig\\TwigFunction;\n\n" +
+            "class AppExtension" + i + " extends AbstractExtension\n" +
+            "{\n" +
+            "    public function getFilters()\n" +
+            "    {\n" +
+            "        return [\n"
+        );
+
+        for (int f = 0; f < filters; f++) {
+            content.append("            new TwigFilter('app_filter_").append(i).append("_").append(f).append("', [$this, 'filter").append(f).append("']),\n");
+        }
+
+        content.append("        ];\n    }\n\n    public function getFunctions()\n    {\n        return [\n");
+
+        for (int f = 0; f < filters; f++) {
+            content.append("            new TwigFunction('app_function_").append(i).append("_").append(f).append("', [$this, 'function").append(f).append("']),\n");
+        }
+
+        content.append("        ];\n    }\n");
+
+        for (int f = 0; f < filters; f++) {
+            content.append("\n    public function filter").append(f).append("($value) {}\n");
+            content.append("    public function function").append(f).append("($value) {}\n");
+        }
+
+        content.append("}\n");
+
+        return content.toString();
+    }
+
+    /**
+     * Compiled container as it is dumped by Symfony into "var/cache/dev/*Container.xml"
+     */
+    @NotNull
+    public static String createContainerXml(int count) {
+        StringBuilder content = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<container xmlns=\"http://symfony.com/schema/dic/services\">\n" +
+            "  <parameters>\n"
+        );
+
+        for (int i = 0; i < count; i++) {
+            content.append("    <parameter key=\"app.parameter_").append(i).append("\">value_").append(i).append("</parameter>\n");
+        }
+
+        content.append("  </parameters>\n  <services>\n");
+
+        for (int i = 0; i < count; i++) {
+            content.append("    <service id=\"app.service_").append(i).append("\" class=\"App\\Service\\Service").append(i).append("\"");
+
+            if(i % 10 == 0) {
+                content.append(" public=\"false\"");
+            }
+
+            content.append(">\n");
+
+            if(i % 20 == 0) {
+                content.append("      <tag name=\"kernel.event_listener\" event=\"kernel.request\" method=\"onKernelRequest\"/>\n");
+            }
+
+            content.append("    </service>\n");
+
+            if(i % 50 == 0) {
+                content.append("    <service id=\"app.alias_").append(i).append("\" alias=\"app.service_").append(i).append("\"/>\n");
+            }
+        }
+
+        content.append("  </services>\n</container>\n");
+
+        return content.toString();
+    }
+}
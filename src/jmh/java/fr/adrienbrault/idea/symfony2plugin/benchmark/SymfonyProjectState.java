@@ -0,0 +1,148 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.PsiTestUtil;
+import com.intellij.testFramework.builders.EmptyModuleFixtureBuilder;
+import com.intellij.testFramework.fixtures.IdeaProjectTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.TestFixtureBuilder;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalFileIndexCache;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
+import org.apache.commons.lang.RandomStringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Project on disk with generated services, routes, templates and Twig extensions.
+ *
+ * "warm" measures a repeated lookup without any change in between, "cold" drops all caches before every invocation:
+ * the global PSI modification count, the Symfony modification trackers and the snapshots of the index caches.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+@State(Scope.Benchmark)
+public class SymfonyProjectState {
+
+    @Param({"1000", "10000"})
+    public int services;
+
+    @Param({"1000"})
+    public int routes;
+
+    @Param({"1000"})
+    public int templates;
+
+    @Param({"50"})
+    public int twigExtensions;
+
+    @Param({"warm", "cold"})
+    public String cache;
+
+    private IdeaProjectTestFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EdtTestUtil.runInEdtAndWait(() -> {
+            TestFixtureBuilder<IdeaProjectTestFixture> builder = IdeaTestFixtureFactory.getFixtureFactory()
+                .createFixtureBuilder(RandomStringUtils.randomAlphanumeric(20));
+
+            builder.addModule(EmptyModuleFixtureBuilder.class);
+
+            fixture = builder.getFixture();
+            fixture.setUp();
+
+            // files outside of a content root are not indexed
+            Module module = ModuleManager.getInstance(getProject()).getModules()[0];
+            PsiTestUtil.addContentRoot(module, getProject().getBaseDir());
+
+            Settings settings = Settings.getInstance(getProject());
+            settings.pluginEnabled = true;
+            settings.twigNamespaces.add(new TwigNamespaceSetting(TwigUtil.MAIN, "templates", true, TwigUtil.NamespaceType.ADD_PATH, true));
+
+            WriteAction.runAndWait(this::createFiles);
+        });
+
+        DumbService.getInstance(getProject()).waitForSmartMode();
+
+        ReadAction.run(() -> {
+            assertNotEmpty("services", ContainerCollectionResolver.getServiceNames(getProject()).size());
+            assertNotEmpty("routes", RouteHelper.getAllRoutes(getProject()).size());
+            assertNotEmpty("templates", TwigUtil.getTemplateMap(getProject()).size());
+        });
+    }
+
+    @Setup(Level.Invocation)
+    public void invalidate() {
+        if("cold".equals(cache)) {
+            EdtTestUtil.runInEdtAndWait(() -> WriteAction.runAndWait(() -> {
+                ((PsiModificationTrackerImpl) PsiManager.getInstance(getProject()).getModificationTracker()).incCounter();
+
+                // most caches dont depend on the global PSI count anymore
+                SymfonyModificationTrackers.incModificationCount(getProject());
+                IncrementalFileIndexCache.invalidate(getProject());
+            }));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        EdtTestUtil.runInEdtAndWait(() -> fixture.tearDown());
+        fixture = null;
+    }
+
+    @NotNull
+    public Project getProject() {
+        return fixture.getProject();
+    }
+
+    private static void assertNotEmpty(@NotNull String name, int size) {
+        if(size == 0) {
+            throw new IllegalStateException("Benchmark project without indexed " + name);
+        }
+    }
+
+    private void createFiles() throws IOException {
+        for (int i = 0; i < services; i += SymfonyFixtureGenerator.ITEMS_PER_FILE) {
+            createFile("config/services/services_" + i + ".yml", SymfonyFixtureGenerator.createServicesYaml(i, Math.min(SymfonyFixtureGenerator.ITEMS_PER_FILE, services - i)));
+        }
+
+        for (int i = 0; i < routes; i += SymfonyFixtureGenerator.ITEMS_PER_FILE) {
+            createFile("config/routes/routes_" + i + ".yml", SymfonyFixtureGenerator.createRoutesYaml(i, Math.min(SymfonyFixtureGenerator.ITEMS_PER_FILE, routes - i)));
+        }
+
+        for (int i = 0; i < templates; i++) {
+            createFile("templates/app/" + (i % 20) + "/template_" + i + ".html.twig", SymfonyFixtureGenerator.createTwigTemplate(i));
+        }
+
+        createFile("vendor/twig/twig/stubs.php", SymfonyFixtureGenerator.createTwigStubs());
+        for (int i = 0; i < twigExtensions; i++) {
+            createFile("src/Twig/AppExtension" + i + ".php", SymfonyFixtureGenerator.createTwigExtension(i, 10));
+        }
+    }
+
+    private void createFile(@NotNull String path, @NotNull String content) throws IOException {
+        int slash = path.lastIndexOf('/');
+
+        VirtualFile directory = VfsUtil.createDirectoryIfMissing(getProject().getBaseDir(), path.substring(0, slash));
+        VirtualFile file = directory.createChildData(this, path.substring(slash + 1));
+        file.setBinaryContent(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
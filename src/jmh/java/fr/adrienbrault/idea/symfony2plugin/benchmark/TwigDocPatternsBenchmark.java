@@ -0,0 +1,140 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Regular expressions against the hand written scanner for Twig doc comments; one invocation handles the comments
+ * of a generated corpus similar to real templates: mostly prose, commented out markup and some type hints
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TwigDocPatternsBenchmark {
+
+    private static final String[] COMMENTS = {
+        "{# @var user \\App\\Entity\\User #}",
+        "{# @var \\App\\Entity\\Product[] products #}",
+        "{# product \\App\\Entity\\Product #}",
+        "{# @see @App/layout/base.html.twig #}",
+        "{# @Controller App\\Controller\\DefaultController::index #}",
+        "{# todo: remove after the redesign is live #}",
+        "{# <div class=\"sidebar\">{{ render(controller('App\\\\Controller\\\\SidebarController::show')) }}</div> #}",
+        "{#\n    @var form \\Symfony\\Component\\Form\\FormView\n    @var entity \\App\\Entity\\Order\n#}",
+        "{#\n This file is part of the Symfony package.\n\n (c) Fabien Potencier <fabien@symfony.com>\n\n For the full copyright and license information, please view the LICENSE\n file that was distributed with this source code.\n#}",
+    };
+
+    @Param({"1000"})
+    public int comments;
+
+    private List<String> corpus;
+
+    private Pattern[] typeDocPatterns;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        corpus = new ArrayList<>();
+        for (int i = 0; i < comments; i++) {
+            // prose and markup are far more common than type hints
+            corpus.add(COMMENTS[random.nextInt(10) < 6 ? 5 + random.nextInt(4) : random.nextInt(5)]);
+        }
+
+        typeDocPatterns = new Pattern[TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE.length];
+        for (int i = 0; i < typeDocPatterns.length; i++) {
+            typeDocPatterns[i] = Pattern.compile(TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE[i]);
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> inlineDocRegex() {
+        Map<String, String> variables = new HashMap<>();
+
+        for (String comment : corpus) {
+            for (Pattern pattern : TwigTypeResolveUtil.INLINE_DOC_REGEX) {
+                Matcher matcher = pattern.matcher(comment);
+                while (matcher.find()) {
+                    variables.put(matcher.group("var"), matcher.group("class"));
+                }
+            }
+        }
+
+        return variables;
+    }
+
+    @Benchmark
+    public Map<String, String> inlineDocScanner() {
+        Map<String, String> variables = new HashMap<>();
+
+        for (String comment : corpus) {
+            TwigDocPatterns.visitInlineDocVariables(comment, variables::put);
+        }
+
+        return variables;
+    }
+
+    /**
+     * Former behaviour of the navigation and completion patterns: compiled on every call
+     */
+    @Benchmark
+    public int typeDocRegexCompiledPerCall() {
+        int matches = 0;
+
+        for (String comment : corpus) {
+            for (String pattern : TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE) {
+                if(Pattern.compile(pattern).matcher(comment).matches()) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    @Benchmark
+    public int typeDocRegexPrecompiled() {
+        int matches = 0;
+
+        for (String comment : corpus) {
+            for (Pattern pattern : typeDocPatterns) {
+                if(pattern.matcher(comment).matches()) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    @Benchmark
+    public int typeDocScanner() {
+        int matches = 0;
+
+        for (String comment : corpus) {
+            if(TwigDocPatterns.isTypeDoc(comment)) {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+}
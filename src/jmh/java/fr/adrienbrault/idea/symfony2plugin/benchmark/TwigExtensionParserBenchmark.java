@@ -0,0 +1,31 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TwigExtensionParserBenchmark {
+
+    @Benchmark
+    public Map<String, TwigExtension> getFilters(SymfonyProjectState state) {
+        return ReadAction.compute(() -> new TwigExtensionParser(state.getProject()).getFilters());
+    }
+
+    @Benchmark
+    public Map<String, TwigExtension> getFunctions(SymfonyProjectState state) {
+        return ReadAction.compute(() -> new TwigExtensionParser(state.getProject()).getFunctions());
+    }
+}
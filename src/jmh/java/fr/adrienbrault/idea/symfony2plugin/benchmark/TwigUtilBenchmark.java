@@ -0,0 +1,32 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.vfs.VirtualFile;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil#getTemplateMap
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TwigUtilBenchmark {
+
+    @Benchmark
+    public Map<String, Set<VirtualFile>> getTemplateMap(SymfonyProjectState state) {
+        return ReadAction.compute(() -> TwigUtil.getTemplateMap(state.getProject()));
+    }
+
+    @Benchmark
+    public Map<String, Set<VirtualFile>> getTemplateMapWithPhp(SymfonyProjectState state) {
+        return ReadAction.compute(() -> TwigUtil.getTemplateMap(state.getProject(), true));
+    }
+}
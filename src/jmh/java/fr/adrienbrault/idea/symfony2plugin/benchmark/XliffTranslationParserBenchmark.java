@@ -0,0 +1,115 @@
+package fr.adrienbrault.idea.symfony2plugin.benchmark;
+
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser;
+import org.apache.commons.lang.StringUtils;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.*;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translation keys of a generated xliff file: the former DOM and XPath extraction against the streaming parser.
+ * Allocations are reported with the gc profiler: "./gradlew jmh -Pjmh.include=Xliff -Pjmh.prof=gc"
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XliffTranslationParserBenchmark {
+
+    private static final String[] XLIFF_XPATH = {
+        "//xliff/file/body/trans-unit/source",
+        "//xliff/file/group/unit/segment/source",
+        "//xliff/file/unit/segment/source"
+    };
+
+    @Param({"500"})
+    public int units;
+
+    @Param({"1.2", "2.0"})
+    public String version;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        StringBuilder xliff = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+
+        if("1.2".equals(version)) {
+            xliff.append("<xliff xmlns=\"urn:oasis:names:tc:xliff:document:1.2\" version=\"1.2\">\n")
+                .append("  <file source-language=\"en\" target-language=\"de\" datatype=\"plaintext\" original=\"file.ext\">\n")
+                .append("    <body>\n");
+
+            for (int i = 0; i < units; i++) {
+                xliff.append("      <trans-unit id=\"").append(i).append("\" resname=\"form.field_").append(i).append(".label\">\n")
+                    .append("        <source>This value should be %limit% characters long for field ").append(i).append(".</source>\n")
+                    .append("        <target>Dieser Wert sollte {{ limit }} Zeichen lang sein.</target>\n")
+                    .append("      </trans-unit>\n");
+            }
+
+            xliff.append("    </body>\n  </file>\n</xliff>\n");
+        } else {
+            xliff.append("<xliff xmlns=\"urn:oasis:names:tc:xliff:document:2.0\" version=\"2.0\" srcLang=\"en\" trgLang=\"de\">\n")
+                .append("  <file id=\"messages.de\">\n");
+
+            for (int i = 0; i < units; i++) {
+                xliff.append("    <unit id=\"").append(i).append("\">\n")
+                    .append("      <segment>\n")
+                    .append("        <source>form.field_").append(i).append(".label</source>\n")
+                    .append("        <target>Dieser Wert sollte {limit} Zeichen lang sein.</target>\n")
+                    .append("      </segment>\n")
+                    .append("    </unit>\n");
+            }
+
+            xliff.append("  </file>\n</xliff>\n");
+        }
+
+        content = xliff.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Former indexer: DOM of the whole file and one XPath evaluation per xliff version
+     */
+    @Benchmark
+    public Set<String> dom() throws Exception {
+        Set<String> keys = new HashSet<>();
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(content));
+
+        for (String xpath : XLIFF_XPATH) {
+            NodeList nodeList = (NodeList) XPathFactory.newInstance().newXPath().compile(xpath).evaluate(document, XPathConstants.NODESET);
+
+            for (int i = 0; i < nodeList.getLength(); i++) {
+                Node node = nodeList.item(i);
+                if(StringUtils.isNotBlank(node.getTextContent())) {
+                    keys.add(node.getTextContent());
+                }
+
+                NamedNodeMap attributes = node.getParentNode().getAttributes();
+                Node resname = attributes != null ? attributes.getNamedItem("resname") : null;
+                if(resname != null && StringUtils.isNotBlank(resname.getTextContent())) {
+                    keys.add(resname.getTextContent());
+                }
+            }
+        }
+
+        return keys;
+    }
+
+    @Benchmark
+    public Set<String> stax() {
+        return XliffTranslationParser.getKeys(new ByteArrayInputStream(content));
+    }
+}
@@ -51,6 +51,11 @@ public class Settings implements PersistentStateComponent<Settings> {
 
     public boolean remoteDevFileScheduler = false;
 
+    /**
+     * Parallel tasks to precompute models after indexing; "0" disables the warm-up
+     */
+    public int warmupConcurrency = 2;
+
     public boolean pluginEnabled = false;
 
     public boolean objectSignatureTypeProvider = false;
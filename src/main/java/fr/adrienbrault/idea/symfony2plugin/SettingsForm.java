@@ -12,6 +12,8 @@ import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import fr.adrienbrault.idea.symfony2plugin.stubs.util.IndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
+import fr.adrienbrault.idea.symfony2plugin.util.warmup.SymfonyWarmupScheduler;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.WebDeploymentUtil;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
@@ -53,6 +55,7 @@ public class SettingsForm implements Configurable {
 
     private JButton buttonReindex;
     private JCheckBox enableSchedulerCheckBox;
+    private JSpinner warmupConcurrency;
 
     public SettingsForm(@NotNull final Project project) {
         this.project = project;
@@ -88,6 +91,7 @@ public class SettingsForm implements Configurable {
         directoryToWebReset.addMouseListener(createResetPathButtonMouseListener(directoryToWeb.getTextField(), Settings.DEFAULT_WEB_DIRECTORY));
 
         enableSchedulerCheckBox.setEnabled(WebDeploymentUtil.isEnabled(project));
+        warmupConcurrency.setModel(new SpinnerNumberModel(2, 0, getMaxWarmupConcurrency(), 1));
 
         buttonReindex.addMouseListener(new MouseAdapter() {
             @Override
@@ -106,6 +110,7 @@ public class SettingsForm implements Configurable {
             !pluginEnabled.isSelected() == getSettings().pluginEnabled
             || !pathToTranslationRootTextField.getText().equals(getSettings().pathToTranslation)
             || !enableSchedulerCheckBox.isSelected() == getSettings().remoteDevFileScheduler
+            || (int) warmupConcurrency.getValue() != getSettings().warmupConcurrency
 
             || !codeFoldingPhpRoute.isSelected() == getSettings().codeFoldingPhpRoute
             || !codeFoldingPhpModel.isSelected() == getSettings().codeFoldingPhpModel
@@ -126,6 +131,7 @@ public class SettingsForm implements Configurable {
 
         getSettings().pathToTranslation = pathToTranslationRootTextField.getText();
         getSettings().remoteDevFileScheduler = enableSchedulerCheckBox.isSelected();
+        getSettings().warmupConcurrency = (int) warmupConcurrency.getValue();
 
         getSettings().codeFoldingPhpRoute = codeFoldingPhpRoute.isSelected();
         getSettings().codeFoldingPhpModel = codeFoldingPhpModel.isSelected();
@@ -136,6 +142,8 @@ public class SettingsForm implements Configurable {
 
         getSettings().directoryToApp = directoryToApp.getText();
         getSettings().directoryToWeb = directoryToWeb.getText();
+        SymfonyModificationTrackers.incModificationCount(project);
+        SymfonyWarmupScheduler.schedule(project);
     }
 
     @Override
@@ -147,6 +155,10 @@ public class SettingsForm implements Configurable {
     public void disposeUIResources() {
     }
 
+    private static int getMaxWarmupConcurrency() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
     private Settings getSettings() {
         return Settings.getInstance(project);
     }
@@ -157,6 +169,8 @@ public class SettingsForm implements Configurable {
 
         pathToTranslationRootTextField.setText(getSettings().pathToTranslation);
         enableSchedulerCheckBox.setSelected(getSettings().remoteDevFileScheduler);
+        // eg settings shared with a machine with more cores; the model rejects values out of its bounds
+        warmupConcurrency.setValue(Math.min(Math.max(getSettings().warmupConcurrency, 0), getMaxWarmupConcurrency()));
 
         codeFoldingPhpRoute.setSelected(getSettings().codeFoldingPhpRoute);
         codeFoldingPhpModel.setSelected(getSettings().codeFoldingPhpModel);
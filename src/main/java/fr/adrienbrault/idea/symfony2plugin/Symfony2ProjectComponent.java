@@ -15,9 +15,8 @@ import fr.adrienbrault.idea.symfony2plugin.dic.ContainerFile;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceContainerLoader;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceContainerLoaderParameter;
 import fr.adrienbrault.idea.symfony2plugin.profiler.widget.SymfonyProfilerWidget;
-import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.warmup.SymfonyWarmupScheduler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -58,6 +57,9 @@ public class Symfony2ProjectComponent implements ProjectComponent {
     public void projectOpened() {
         this.checkProject();
 
+        // plugin can be enabled later; the warm-up checks it on every run
+        SymfonyWarmupScheduler.register(this.project);
+
         // attach toolbar popup (right bottom)
         StatusBar statusBar = WindowManager.getInstance().getStatusBar(this.project);
         if(statusBar == null) {
@@ -76,16 +78,6 @@ public class Symfony2ProjectComponent implements ProjectComponent {
 
     }
 
-    public void projectClosed() {
-
-        ServiceXmlParserFactory.cleanInstance(project);
-
-        // clean routing
-        if(RouteHelper.COMPILED_CACHE.containsKey(project)) {
-            RouteHelper.COMPILED_CACHE.remove(project);
-        }
-    }
-
     public static Logger getLogger() {
         return LOG;
     }
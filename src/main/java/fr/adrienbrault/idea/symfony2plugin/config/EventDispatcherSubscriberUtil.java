@@ -5,8 +5,8 @@ import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.*;
 import com.intellij.psi.xml.XmlAttribute;
@@ -16,7 +16,7 @@ import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.HashMap;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIndex;
-import com.jetbrains.php.lang.parser.PhpElementTypes;
+import com.jetbrains.php.lang.PhpFileType;
 import com.jetbrains.php.lang.psi.PhpFile;
 import com.jetbrains.php.lang.psi.elements.*;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
@@ -24,12 +24,17 @@ import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedE
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlEventParser;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
 import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalFileIndexCache;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.DispatcherEvent;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberMethod;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventAnnotationStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventSubscriberClassStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventSubscriberStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.EventSubscriberUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
@@ -46,145 +51,237 @@ import java.util.*;
 public class EventDispatcherSubscriberUtil {
 
     private static final Key<CachedValue<Collection<EventDispatcherSubscribedEvent>>> EVENT_SUBSCRIBERS = new Key<>("SYMFONY_EVENT_SUBSCRIBERS");
-    private static final Key<CachedValue<Set<String>>> EVENT_ANNOTATIONS = new Key<>("SYMFONY_EVENT_ANNOTATIONS");
+    private static final Key<Set<String>> EVENT_ANNOTATIONS = new Key<>("SYMFONY_EVENT_ANNOTATIONS");
+
+    private static final String EVENT_SUBSCRIBER_INTERFACE = "Symfony\\Component\\EventDispatcher\\EventSubscriberInterface";
+
+    private static final Collection<String> TEST_CASES = Arrays.asList("PHPUnit\\Framework\\TestCase", "PHPUnit_Framework_TestCase");
 
     @NotNull
     public static Collection<EventDispatcherSubscribedEvent> getSubscribedEvents(final @NotNull Project project) {
 
         CachedValue<Collection<EventDispatcherSubscribedEvent>> cache = project.getUserData(EVENT_SUBSCRIBERS);
         if (cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                CachedValueProvider.Result.create(getSubscribedEventsProxy(project), PsiModificationTracker.MODIFICATION_COUNT), false
-            );
+            cache = CachedValuesManager.getManager(project).createCachedValue(() -> getSubscribedEventsProxy(project), false);
             project.putUserData(EVENT_SUBSCRIBERS, cache);
         }
 
         return cache.getValue();
     }
 
+    /**
+     * Subscribed events of the index; only event names and method names of constants are resolved here, with one
+     * lookup per constant.
+     *
+     * The index holds every class with an own "getSubscribedEvents" method. They are filtered by implementing the
+     * interface and test classes with the class hierarchy of the EventSubscriberClassStubIndex; so only indexed classes
+     * are visited. Subclasses without an own method get the events of their parent.
+     */
     @NotNull
-    private static Collection<EventDispatcherSubscribedEvent> getSubscribedEventsProxy(@NotNull Project project) {
+    private static CachedValueProvider.Result<Collection<EventDispatcherSubscribedEvent>> getSubscribedEventsProxy(@NotNull Project project) {
 
-        Collection<EventDispatcherSubscribedEvent> events = new ArrayList<>();
+        Set<Object> dependencies = new HashSet<>();
+        dependencies.add(SymfonyModificationTrackers.getEventSubscriberTracker(project));
+
+        // created or deleted files can provide an unresolved constant
+        dependencies.add(SymfonyModificationTrackers.getPhpFileTracker(project));
 
-        // http://symfony.com/doc/current/components/event_dispatcher/introduction.html
-        PhpIndex phpIndex = PhpIndex.getInstance(project);
-        Collection<PhpClass> phpClasses = phpIndex.getAllSubclasses("\\Symfony\\Component\\EventDispatcher\\EventSubscriberInterface");
+        Map<String, List<EventDispatcherSubscribedEvent>> classEvents = new HashMap<>();
 
-        for(PhpClass phpClass: phpClasses) {
+        Map<String, List<List<EventSubscriberMethod>>> values = IncrementalFileIndexCache.getInstance(project, EventSubscriberStubIndex.KEY, PhpFileType.INSTANCE)
+            .getValues();
 
-            if(PhpElementsUtil.isTestClass(phpClass)) {
+        Map<String, String> constants = new HashMap<>();
+
+        for (Map.Entry<String, List<List<EventSubscriberMethod>>> entry : values.entrySet()) {
+            // [FOO::BAR => 'method'] is indexed with the constant signature as key
+            String eventName = getIndexedValue(project, entry.getKey(), constants, dependencies);
+            if(eventName == null) {
                 continue;
             }
 
-            Method method = phpClass.findMethodByName("getSubscribedEvents");
-            if(method != null) {
-                PhpReturn phpReturn = PsiTreeUtil.findChildOfType(method, PhpReturn.class);
-                if(phpReturn != null) {
-                    attachSubscriberEventNames(events, phpClass, phpReturn);
+            for (List<EventSubscriberMethod> methods : entry.getValue()) {
+                for (EventSubscriberMethod method : methods) {
+                    // ['foo' => self::METHOD]
+                    String methodName = method.getMethodName() != null
+                        ? getIndexedValue(project, method.getMethodName(), constants, dependencies)
+                        : null;
+
+                    EventDispatcherSubscribedEvent event = method.getSignature() != null
+                        ? new EventDispatcherSubscribedEvent(eventName, method.getFqnClassName(), methodName, method.getSignature())
+                        : new EventDispatcherSubscribedEvent(eventName, method.getFqnClassName(), methodName);
+
+                    classEvents.computeIfAbsent(method.getFqnClassName(), s -> new ArrayList<>()).add(event.setPriority(method.getPriority()));
                 }
             }
         }
 
-       return events;
+        Collection<EventDispatcherSubscribedEvent> events = new ArrayList<>();
+        if(classEvents.isEmpty()) {
+            return CachedValueProvider.Result.create(events, dependencies.toArray());
+        }
+
+        Map<String, EventSubscriberClass> classes = new HashMap<>();
+        for (Map.Entry<String, List<EventSubscriberClass>> entry : IncrementalFileIndexCache.getInstance(project, EventSubscriberClassStubIndex.KEY, PhpFileType.INSTANCE).getValues().entrySet()) {
+            EventSubscriberClass subscriberClass = ContainerUtil.getFirstItem(entry.getValue());
+            if(subscriberClass != null) {
+                classes.put(entry.getKey(), subscriberClass);
+            }
+        }
+
+        Map<String, Boolean> subscribers = new HashMap<>();
+        for (String fqn : classes.keySet()) {
+            if(!isEventSubscriber(classes, fqn, subscribers, new HashSet<>()) || isTestClass(classes, fqn)) {
+                continue;
+            }
+
+            // own or inherited method
+            String containingClass = getSubscribedEventsClass(classes, fqn);
+            if(containingClass == null) {
+                continue;
+            }
+
+            List<EventDispatcherSubscribedEvent> subscribedEvents = classEvents.get(containingClass);
+            if(subscribedEvents == null) {
+                continue;
+            }
+
+            if(fqn.equals(containingClass)) {
+                events.addAll(subscribedEvents);
+                continue;
+            }
+
+            // inherited method
+            for (EventDispatcherSubscribedEvent event : subscribedEvents) {
+                EventDispatcherSubscribedEvent inherited = event.getSignature() != null
+                    ? new EventDispatcherSubscribedEvent(event.getStringValue(), fqn, event.getMethodName(), event.getSignature())
+                    : new EventDispatcherSubscribedEvent(event.getStringValue(), fqn, event.getMethodName());
+
+                events.add(inherited.setPriority(event.getPriority()));
+            }
+        }
+
+        return CachedValueProvider.Result.create(events, dependencies.toArray());
+    }
+
+    /**
+     * Indexed string or the value of the indexed constant signature "#K#C\Foo\Bar.BAR"; every constant is resolved once
+     */
+    @Nullable
+    private static String getIndexedValue(@NotNull Project project, @NotNull String value, @NotNull Map<String, String> constants, @NotNull Set<Object> dependencies) {
+        if(!value.startsWith("#")) {
+            return value;
+        }
+
+        if(constants.containsKey(value)) {
+            return constants.get(value);
+        }
+
+        String constant = getConstantStringValue(project, value, dependencies);
+        constants.put(value, constant);
+
+        return constant;
     }
 
-    private static void attachSubscriberEventNames(@NotNull Collection<EventDispatcherSubscribedEvent> events, @NotNull PhpClass phpClass, @NotNull PhpReturn phpReturn) {
+    /**
+     * Class or one of its indexed parents implements "EventSubscriberInterface"
+     */
+    private static boolean isEventSubscriber(@NotNull Map<String, EventSubscriberClass> classes, @NotNull String fqn, @NotNull Map<String, Boolean> subscribers, @NotNull Set<String> visiting) {
+        if(EVENT_SUBSCRIBER_INTERFACE.equals(fqn)) {
+            return true;
+        }
 
-        PhpPsiElement array = phpReturn.getFirstPsiChild();
-        if(!(array instanceof ArrayCreationExpression)) {
-            return;
+        Boolean subscriber = subscribers.get(fqn);
+        if(subscriber != null) {
+            return subscriber;
         }
 
-        String presentableFQN = phpClass.getPresentableFQN();
+        EventSubscriberClass subscriberClass = classes.get(fqn);
 
-        Iterable<ArrayHashElement> arrayHashElements = ((ArrayCreationExpression) array).getHashElements();
-        for(ArrayHashElement arrayHashElement: arrayHashElements) {
-            PsiElement arrayKey = arrayHashElement.getKey();
+        // not indexed or a recursive hierarchy
+        if(subscriberClass == null || !visiting.add(fqn)) {
+            return false;
+        }
 
-            PsiElement value = null;
-            // get method name
-            // @TODO: support multiple method names, currently we only use method name if type hint, so first item helps for now
-            Collection<PsiElement> subscriberMethods = getSubscriberMethods(arrayHashElement);
-            if(subscriberMethods.size() > 0) {
-                value = subscriberMethods.iterator().next();
+        boolean result = subscriberClass.getSuperClass() != null && isEventSubscriber(classes, subscriberClass.getSuperClass(), subscribers, visiting);
+        for (String anInterface : subscriberClass.getInterfaces()) {
+            if(result) {
+                break;
             }
 
-            if(arrayKey instanceof StringLiteralExpression) {
-
-                // ['doh' => 'method']
-                events.add(new EventDispatcherSubscribedEvent(
-                    ((StringLiteralExpression) arrayKey).getContents(),
-                    presentableFQN,
-                    PhpElementsUtil.getStringValue(value)
-                ));
-
-            } else if(arrayKey instanceof PhpReference) {
-                String resolvedString = PhpElementsUtil.getStringValue(arrayKey);
-                if(resolvedString != null) {
-
-                    // [FOO::BAR => 'method']
-                    events.add(new EventDispatcherSubscribedEvent(
-                        resolvedString,
-                        presentableFQN,
-                        PhpElementsUtil.getStringValue(value),
-                        ((PhpReference) arrayKey).getSignature())
-                    );
-                }
+            result = isEventSubscriber(classes, anInterface, subscribers, visiting);
+        }
+
+        subscribers.put(fqn, result);
+
+        return result;
+    }
+
+    /**
+     * Nearest indexed class of the parent chain with an own "getSubscribedEvents" method
+     */
+    @Nullable
+    private static String getSubscribedEventsClass(@NotNull Map<String, EventSubscriberClass> classes, @NotNull String fqn) {
+        String current = fqn;
 
+        for (int depth = 0; current != null && depth < 10; depth++) {
+            EventSubscriberClass subscriberClass = classes.get(current);
+            if(subscriberClass == null) {
+                return null;
+            }
+
+            if(subscriberClass.hasSubscribedEventsMethod()) {
+                return current;
             }
 
+            current = subscriberClass.getSuperClass();
         }
 
+        return null;
     }
 
     /**
-     * Extract method name for subscribe
-     *
-     * 'pre.foo1' => 'foo'
-     * 'pre.foo1' => ['onStoreOrder', 0]
-     * 'pre.foo2' => [['onStoreOrder', 0]]
+     * PHPUnit test classes; "Test" and "Tests" namespaces are not indexed at all
      */
-    @NotNull
-    private static Collection<PsiElement> getSubscriberMethods(@NotNull ArrayHashElement arrayHashElement) {
-
-        // support string, constants and array values
-        PhpPsiElement value = arrayHashElement.getValue();
-        if(value == null) {
-            Collections.emptySet();
+    private static boolean isTestClass(@NotNull Map<String, EventSubscriberClass> classes, @NotNull String fqn) {
+        if(fqn.endsWith("Test")) {
+            return true;
         }
 
-        // 'pre.foo' => [...]
-        if(!(value instanceof ArrayCreationExpression)) {
-            return new ArrayList<>(Collections.singletonList(value));
+        String current = classes.containsKey(fqn) ? classes.get(fqn).getSuperClass() : null;
+        for (int depth = 0; current != null && depth < 10; depth++) {
+            if(TEST_CASES.contains(current)) {
+                return true;
+            }
+
+            current = classes.containsKey(current) ? classes.get(current).getSuperClass() : null;
         }
 
-        Collection<PsiElement> psiElements = new HashSet<>();
-
-        // 'pre.foo' => [<caret>]
-        PsiElement firstChild = value.getFirstPsiChild();
-        if(firstChild != null && firstChild.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
-            PhpPsiElement firstPsiChild = ((PhpPsiElement) firstChild).getFirstPsiChild();
-            if(firstPsiChild instanceof StringLiteralExpression) {
-                // 'pre.foo' => ['method']
-                psiElements.add(firstPsiChild);
-            } else if(firstPsiChild instanceof ArrayCreationExpression) {
-
-                // 'pre.foo' => [['method', ...], ['method2', ...]]
-                for (PsiElement psiElement : PsiElementUtils.getChildrenOfTypeAsList(firstPsiChild, PlatformPatterns.psiElement().withElementType(PhpElementTypes.ARRAY_VALUE))) {
-                    if(!(psiElement instanceof PhpPsiElement)) {
-                        continue;
-                    }
+        return false;
+    }
 
-                    PhpPsiElement prioValue = ((PhpPsiElement) psiElement).getFirstPsiChild();
-                    if(prioValue instanceof StringLiteralExpression) {
-                        psiElements.add(prioValue);
-                    }
+    /**
+     * "#K#C\Foo\Bar.BAR" => "foo.bar"; the file of the constant is added as dependency
+     */
+    @Nullable
+    private static String getConstantStringValue(@NotNull Project project, @NotNull String signature, @NotNull Set<Object> dependencies) {
+        for (PhpNamedElement phpNamedElement : PhpIndex.getInstance(project).getBySignature(signature)) {
+            // global constants: "const FOO = 'foo'"
+            String value = phpNamedElement instanceof Constant
+                ? PhpElementsUtil.getStringValue(((Constant) phpNamedElement).getValue())
+                : PhpElementsUtil.getStringValue(phpNamedElement);
+
+            if(value != null) {
+                PsiFile psiFile = phpNamedElement.getContainingFile();
+                if(psiFile != null) {
+                    dependencies.add(psiFile);
                 }
+
+                return value;
             }
         }
 
-        return psiElements;
+        return null;
     }
 
     @NotNull
@@ -1,6 +1,10 @@
 package fr.adrienbrault.idea.symfony2plugin.config.component.parser;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
 import java.util.Map;
@@ -9,7 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class ParameterServiceParser extends AbstractServiceParser {
+public class ParameterServiceParser extends AbstractServiceParser implements ContainerXmlFileParserInterface {
 
     protected Map<String, String> parameterMap = new ConcurrentHashMap<>();
 
@@ -19,7 +23,12 @@ public class ParameterServiceParser extends AbstractServiceParser {
     }
 
     public void parser(final InputStream file) {
-        this.parameterMap.putAll(ParameterServiceCollector.collect(file));
+        parser(ContainerXmlStreamParser.parse(file));
+    }
+
+    @Override
+    public void parser(@NotNull ContainerXmlFile containerFile) {
+        this.parameterMap.putAll(containerFile.getParameters());
     }
 
     public Map<String, String> getParameterMap() {
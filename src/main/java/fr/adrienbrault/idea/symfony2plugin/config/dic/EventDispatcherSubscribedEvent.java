@@ -16,6 +16,7 @@ public class EventDispatcherSubscribedEvent {
 
     private String signature = null;
     private String type = "EventSubscriber";
+    private int priority = 0;
 
     public EventDispatcherSubscribedEvent(@NotNull String stringValue, @NotNull String fqnClassName, @Nullable String methodName) {
         this.stringValue = stringValue;
@@ -54,4 +55,14 @@ public class EventDispatcherSubscribedEvent {
     @Nullable
     public String getMethodName() {
         return methodName;
-    }}
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public EventDispatcherSubscribedEvent setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+}
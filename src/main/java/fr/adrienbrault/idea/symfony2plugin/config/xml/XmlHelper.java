@@ -21,6 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -507,7 +508,7 @@ public class XmlHelper {
                                             }
                                         }
 
-                                        services.put(parameterName.toLowerCase(), parameterValue);
+                                        services.put(parameterName.toLowerCase(Locale.ROOT), parameterValue);
                                     }
 
                                 }
@@ -250,7 +250,7 @@ public class YamlGoToDeclarationHandler implements GotoDeclarationHandler {
 
     @NotNull
     private Collection<PsiElement> serviceGoToDeclaration(@NotNull PsiElement psiElement, @NotNull String serviceId) {
-        serviceId = YamlHelper.trimSpecialSyntaxServiceName(serviceId).toLowerCase();
+        serviceId = YamlHelper.trimSpecialSyntaxServiceName(serviceId).toLowerCase(Locale.ROOT);
 
         String serviceClass = ContainerCollectionResolver.resolveService(psiElement.getProject(), serviceId);
 
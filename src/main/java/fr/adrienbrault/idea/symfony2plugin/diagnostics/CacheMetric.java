@@ -0,0 +1,154 @@
+package fr.adrienbrault.idea.symfony2plugin.diagnostics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one cache: lookups, rebuilds with their duration and the entry count of the last rebuild
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see CacheMetrics
+ */
+public class CacheMetric {
+
+    /**
+     * Upper bounds in milliseconds of the rebuild histogram; last bucket is everything above
+     */
+    public static final long[] HISTOGRAM_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    @NotNull
+    private final String name;
+
+    @NotNull
+    private final LongAdder requests = new LongAdder();
+
+    @NotNull
+    private final LongAdder rebuilds = new LongAdder();
+
+    @NotNull
+    private final LongAdder rebuildNanos = new LongAdder();
+
+    @NotNull
+    private final AtomicLong maxRebuildNanos = new AtomicLong();
+
+    @NotNull
+    private final AtomicLong lastRebuildNanos = new AtomicLong();
+
+    @NotNull
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BOUNDS.length + 1);
+
+    private volatile int entries = -1;
+
+    CacheMetric(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Every lookup of the cache; a lookup which needs a rebuild is additionally counted via "rebuild"
+     */
+    public void request() {
+        requests.increment();
+    }
+
+    /**
+     * @param startNanos "System.nanoTime()" before rebuild
+     * @param entries size of the new value or -1 if unknown
+     * @return duration of this rebuild in ms; "getLastRebuildMillis" can already be overwritten by a concurrent rebuild
+     */
+    public long rebuild(long startNanos, int entries) {
+        long nanos = System.nanoTime() - startNanos;
+
+        rebuilds.increment();
+        rebuildNanos.add(nanos);
+        lastRebuildNanos.set(nanos);
+        maxRebuildNanos.accumulateAndGet(nanos, Math::max);
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BOUNDS.length && millis >= HISTOGRAM_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        histogram.incrementAndGet(bucket);
+
+        if(entries >= 0) {
+            this.entries = entries;
+        }
+
+        return millis;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Rebuilds are misses; also a rebuild without a counted request, eg on warmup, is a miss
+     */
+    public long getMisses() {
+        return rebuilds.sum();
+    }
+
+    public long getHits() {
+        return Math.max(0, getRequests() - getMisses());
+    }
+
+    public long getTotalRebuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(rebuildNanos.sum());
+    }
+
+    public long getAverageRebuildMillis() {
+        long rebuilds = getMisses();
+        return rebuilds == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(rebuildNanos.sum() / rebuilds);
+    }
+
+    public long getMaxRebuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxRebuildNanos.get());
+    }
+
+    public long getLastRebuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastRebuildNanos.get());
+    }
+
+    /**
+     * Entry count after the last rebuild, -1 if not known
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Rebuild count per bucket of "HISTOGRAM_BOUNDS"
+     */
+    @NotNull
+    public long[] getHistogram() {
+        long[] values = new long[histogram.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = histogram.get(i);
+        }
+
+        return values;
+    }
+
+    void reset() {
+        requests.reset();
+        rebuilds.reset();
+        rebuildNanos.reset();
+        maxRebuildNanos.set(0);
+        lastRebuildNanos.set(0);
+        entries = -1;
+
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0);
+        }
+    }
+}
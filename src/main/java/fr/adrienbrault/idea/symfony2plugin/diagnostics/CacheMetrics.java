@@ -0,0 +1,130 @@
+package fr.adrienbrault.idea.symfony2plugin.diagnostics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Application wide registry of cache metrics; some caches are static so metrics are not bound to a project.
+ *
+ * Names are the simple name of the owning class, optional with a qualifier for one of its caches:
+ *
+ * CacheMetrics.get(RouteHelper.class, "compiled").request(); // "RouteHelper:compiled"
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class CacheMetrics {
+
+    private static final ConcurrentMap<String, CacheMetric> METRICS = new ConcurrentHashMap<>();
+
+    @NotNull
+    public static CacheMetric get(@NotNull Class<?> owner) {
+        return get(owner.getSimpleName());
+    }
+
+    /**
+     * @param qualifier one of several caches of the owner, eg the index or parser name
+     */
+    @NotNull
+    public static CacheMetric get(@NotNull Class<?> owner, @NotNull String qualifier) {
+        return get(owner.getSimpleName() + ":" + qualifier);
+    }
+
+    @NotNull
+    public static CacheMetric get(@NotNull String name) {
+        return METRICS.computeIfAbsent(name, CacheMetric::new);
+    }
+
+    /**
+     * All metrics sorted by name
+     */
+    @NotNull
+    public static List<CacheMetric> getMetrics() {
+        List<CacheMetric> metrics = new ArrayList<>(METRICS.values());
+        metrics.sort(Comparator.comparing(CacheMetric::getName));
+
+        return metrics;
+    }
+
+    /**
+     * Entry count of common cache values, -1 if not known
+     */
+    public static int getSize(@Nullable Object value) {
+        if(value instanceof Map) {
+            return ((Map) value).size();
+        } else if(value instanceof Collection) {
+            return ((Collection) value).size();
+        }
+
+        return -1;
+    }
+
+    public static void reset() {
+        for (CacheMetric metric : METRICS.values()) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Plain text table, eg to attach on a bug report
+     */
+    @NotNull
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(String.format("%-60s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+            "cache", "requests", "hits", "misses", "entries", "avg ms", "max ms", "last ms", "total ms"
+        ));
+
+        for (CacheMetric metric : getMetrics()) {
+            builder.append(String.format("%-60s %10d %10d %10d %10s %10d %10d %10d %10d%n",
+                metric.getName(),
+                metric.getRequests(),
+                metric.getHits(),
+                metric.getMisses(),
+                metric.getEntries() < 0 ? "-" : Integer.toString(metric.getEntries()),
+                metric.getAverageRebuildMillis(),
+                metric.getMaxRebuildMillis(),
+                metric.getLastRebuildMillis(),
+                metric.getTotalRebuildMillis()
+            ));
+        }
+
+        builder.append(String.format("%nrebuild histogram (ms)%n"));
+        builder.append(String.format("%-60s", "cache"));
+        for (String label : getHistogramLabels()) {
+            builder.append(String.format(" %8s", label));
+        }
+
+        builder.append(String.format("%n"));
+
+        for (CacheMetric metric : getMetrics()) {
+            builder.append(String.format("%-60s", metric.getName()));
+            for (long value : metric.getHistogram()) {
+                builder.append(String.format(" %8d", value));
+            }
+
+            builder.append(String.format("%n"));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * "<1", "<5", ..., ">=5000"
+     */
+    @NotNull
+    public static List<String> getHistogramLabels() {
+        List<String> labels = new ArrayList<>();
+        for (long bound : CacheMetric.HISTOGRAM_BOUNDS) {
+            labels.add("<" + bound);
+        }
+
+        labels.add(">=" + CacheMetric.HISTOGRAM_BOUNDS[CacheMetric.HISTOGRAM_BOUNDS.length - 1]);
+
+        return labels;
+    }
+}
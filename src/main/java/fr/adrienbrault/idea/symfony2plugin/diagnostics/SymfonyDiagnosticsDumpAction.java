@@ -0,0 +1,38 @@
+package fr.adrienbrault.idea.symfony2plugin.diagnostics;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Copies all cache metrics into the clipboard and the IDE log
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyDiagnosticsDumpAction extends DumbAwareAction {
+
+    public static final String ACTION_ID = "Symfony.DiagnosticsDump";
+
+    public SymfonyDiagnosticsDumpAction() {
+        super("Dump Symfony Cache Metrics", "Copy cache metrics of the Symfony plugin to the clipboard", Symfony2Icons.SYMFONY);
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        String dump = CacheMetrics.dump();
+
+        Symfony2ProjectComponent.getLogger().info("cache metrics:\n" + dump);
+        CopyPasteManager.getInstance().setContents(new StringSelection(dump));
+
+        Project project = event.getData(PlatformDataKeys.PROJECT);
+        Messages.showInfoMessage(project, "Cache metrics copied to clipboard and written to the IDE log", "Symfony Diagnostics");
+    }
+}
@@ -0,0 +1,109 @@
+package fr.adrienbrault.idea.symfony2plugin.diagnostics;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.*;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table of all cache metrics, refreshed while the tool window is visible
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyDiagnosticsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final int REFRESH_INTERVAL = 2000;
+
+    @NotNull
+    private final DefaultTableModel tableModel;
+
+    @NotNull
+    private final Timer timer;
+
+    SymfonyDiagnosticsPanel() {
+        super(true, true);
+
+        List<String> columns = new ArrayList<>(Arrays.asList("Cache", "Requests", "Hits", "Misses", "Entries", "Avg ms", "Max ms", "Last ms", "Total ms"));
+        columns.addAll(CacheMetrics.getHistogramLabels());
+
+        this.tableModel = new DefaultTableModel(columns.toArray(), 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+
+        JBTable table = new JBTable(this.tableModel);
+        table.setAutoCreateRowSorter(true);
+        setContent(new JBScrollPane(table));
+
+        DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new DumbAwareAction("Refresh", "Refresh cache metrics", AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                refresh();
+            }
+        });
+
+        group.add(new DumbAwareAction("Reset", "Reset all cache metrics", AllIcons.Actions.GC) {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e) {
+                CacheMetrics.reset();
+                refresh();
+            }
+        });
+
+        group.add(ActionManager.getInstance().getAction(SymfonyDiagnosticsDumpAction.ACTION_ID));
+
+        setToolbar(ActionManager.getInstance().createActionToolbar("SymfonyDiagnostics", group, true).getComponent());
+
+        this.timer = new Timer(REFRESH_INTERVAL, e -> {
+            if(isShowing()) {
+                refresh();
+            }
+        });
+
+        this.timer.start();
+        refresh();
+    }
+
+    private void refresh() {
+        List<CacheMetric> metrics = CacheMetrics.getMetrics();
+
+        this.tableModel.setRowCount(0);
+        for (CacheMetric metric : metrics) {
+            List<Object> row = new ArrayList<>(Arrays.asList(
+                metric.getName(),
+                metric.getRequests(),
+                metric.getHits(),
+                metric.getMisses(),
+                metric.getEntries() < 0 ? "-" : metric.getEntries(),
+                metric.getAverageRebuildMillis(),
+                metric.getMaxRebuildMillis(),
+                metric.getLastRebuildMillis(),
+                metric.getTotalRebuildMillis()
+            ));
+
+            for (long value : metric.getHistogram()) {
+                row.add(value);
+            }
+
+            this.tableModel.addRow(row.toArray());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.timer.stop();
+    }
+}
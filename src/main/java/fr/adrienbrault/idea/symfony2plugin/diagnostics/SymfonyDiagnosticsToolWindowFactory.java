@@ -0,0 +1,36 @@
+package fr.adrienbrault.idea.symfony2plugin.diagnostics;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * "Symfony Diagnostics" tool window with cache metrics
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyDiagnosticsToolWindowFactory implements ToolWindowFactory, Condition<Project>, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        SymfonyDiagnosticsPanel panel = new SymfonyDiagnosticsPanel();
+
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "Caches", false);
+        content.setDisposer(panel);
+
+        toolWindow.getContentManager().addContent(content);
+        toolWindow.setIcon(Symfony2Icons.SYMFONY_TOOL_WINDOW);
+    }
+
+    @Override
+    public boolean value(Project project) {
+        return Symfony2ProjectComponent.isEnabled(project);
+    }
+}
@@ -2,6 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -14,6 +15,8 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -41,8 +44,7 @@ public class ServiceMapParser {
     public ServiceMap parse(Document document) {
         NodeList servicesNodes = document.getElementsByTagName("service");
 
-        Map<String, ServiceInterface> services = new HashMap<>();
-        Map<String, ServiceInterface> aliases = new HashMap<>();
+        Collection<XmlService> xmlServices = new ArrayList<>();
 
         for (int i = 0; i < servicesNodes.getLength(); i++) {
             Node node = servicesNodes.item(i);
@@ -52,10 +54,23 @@ public class ServiceMapParser {
 
             // invalid service
             XmlService service = XmlService.createFromXml((Element) node);
-            if(service == null) {
-                continue;
+            if(service != null) {
+                xmlServices.add(service);
             }
+        }
+
+        return createServiceMap(xmlServices);
+    }
+
+    /**
+     * Services of a single container file; aliases are resolved against the services of the same file
+     */
+    @NotNull
+    public static ServiceMap createServiceMap(@NotNull Collection<XmlService> xmlServices) {
+        Map<String, ServiceInterface> services = new HashMap<>();
+        Map<String, ServiceInterface> aliases = new HashMap<>();
 
+        for (XmlService service : xmlServices) {
             if(service.getAlias() == null) {
                 services.put(service.getId(), service);
             } else {
@@ -2,8 +2,10 @@ package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedEvent;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -14,7 +16,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlEventParser extends AbstractServiceParser {
+public class XmlEventParser extends AbstractServiceParser implements ContainerXmlFileParserInterface {
 
     protected Map<String, String> list = new ConcurrentHashMap<>();
     protected List<EventDispatcherSubscribedEvent> events = new ArrayList<>();
@@ -25,21 +27,23 @@ public class XmlEventParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
-            return;
-        }
+        parser(ContainerXmlStreamParser.parse(file));
+    }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.list.put(node.getAttribute("event"), node.getAttribute("name"));
-            if(((Element) node.getParentNode()).hasAttribute("class")) {
-                this.events.add(new EventDispatcherSubscribedEvent(node.getAttribute("event"), ((Element) node.getParentNode()).getAttribute("class"), null).setType(node.getAttribute("name")));
+    @Override
+    public void parser(@NotNull ContainerXmlFile containerFile) {
+        for (ContainerXmlFile.Tag tag : containerFile.getTags()) {
+            String event = tag.getEvent();
+            if(event == null) {
+                continue;
             }
 
+            String name = tag.getName() != null ? tag.getName() : "";
+            this.list.put(event, name);
+            if(tag.getServiceClass() != null) {
+                this.events.add(new EventDispatcherSubscribedEvent(event, tag.getServiceClass(), null).setType(name));
+            }
         }
-
     }
 
     public Map<String, String> get() {
@@ -1,17 +1,17 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
 import org.jetbrains.annotations.NotNull;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlServiceParser extends AbstractServiceParser {
+public class XmlServiceParser extends AbstractServiceParser implements ContainerXmlFileParserInterface {
 
     @NotNull
     private ServiceMap serviceMap = new ServiceMap();
@@ -22,14 +22,16 @@ public class XmlServiceParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        try {
-            this.serviceMap = new ServiceMapParser().parse(file);
-        } catch (SAXException | IOException | ParserConfigurationException ignored) {
-        }
+        parser(ContainerXmlStreamParser.parse(file));
+    }
+
+    @Override
+    public void parser(@NotNull ContainerXmlFile containerFile) {
+        this.serviceMap = ServiceMapParser.createServiceMap(containerFile.getServices());
     }
 
     @NotNull
     public ServiceMap getServiceMap() {
         return serviceMap;
     }
-}
\ No newline at end of file
+}
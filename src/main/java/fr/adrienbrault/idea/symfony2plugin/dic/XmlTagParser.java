@@ -1,9 +1,11 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileParserInterface;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -15,7 +17,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlTagParser extends AbstractServiceParser {
+public class XmlTagParser extends AbstractServiceParser implements ContainerXmlFileParserInterface {
 
     protected Set<String> list = new HashSet<>();
     protected Map<String, ArrayList<String>> taggedClasses = new ConcurrentHashMap<>();
@@ -26,25 +28,24 @@ public class XmlTagParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        NodeList nodeList = this.parserer(file);
+        parser(ContainerXmlStreamParser.parse(file));
+    }
 
-        if(nodeList == null) {
-            return;
-        }
+    @Override
+    public void parser(@NotNull ContainerXmlFile containerFile) {
+        for (ContainerXmlFile.Tag tag : containerFile.getTags()) {
+            String tagName = tag.getName();
+            if(tagName == null) {
+                continue;
+            }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String tagName = node.getAttribute("name");
             this.list.add(tagName);
-            Element parentNode = (Element) node.getParentNode();
-            if(parentNode.hasAttribute("class")) {
-                this.addTaggedClass(tagName, parentNode.getAttribute("class"));
+            if(tag.getServiceClass() != null) {
+                this.addTaggedClass(tagName, tag.getServiceClass());
             }
         }
-
     }
 
-
     public Map<String, ArrayList<String>> getTaggedClasses() {
         return taggedClasses;
     }
@@ -0,0 +1,79 @@
+package fr.adrienbrault.idea.symfony2plugin.dic.container;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable set of service ids for existence checks; service ids are case insensitive.
+ *
+ * Ids are stored as sorted lowercase array and answered by binary search, so no ContainerService
+ * or collection of the whole container needs to be created for a yes / no question.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ServiceIdLookup {
+
+    public static final ServiceIdLookup EMPTY = new ServiceIdLookup(new String[0], new String[0]);
+
+    /**
+     * Lowercase ids, sorted
+     */
+    @NotNull
+    private final String[] keys;
+
+    /**
+     * Ids as they were defined; same order as keys
+     */
+    @NotNull
+    private final String[] ids;
+
+    private ServiceIdLookup(@NotNull String[] keys, @NotNull String[] ids) {
+        this.keys = keys;
+        this.ids = ids;
+    }
+
+    @NotNull
+    public static ServiceIdLookup create(@NotNull Collection<Collection<String>> serviceIds) {
+        // first id wins; same as collecting them in order
+        Map<String, String> sorted = new TreeMap<>();
+        for (Collection<String> ids : serviceIds) {
+            for (String id : ids) {
+                if(id != null) {
+                    sorted.putIfAbsent(id.toLowerCase(Locale.ROOT), id);
+                }
+            }
+        }
+
+        if(sorted.size() == 0) {
+            return EMPTY;
+        }
+
+        return new ServiceIdLookup(
+            sorted.keySet().toArray(new String[sorted.size()]),
+            sorted.values().toArray(new String[sorted.size()])
+        );
+    }
+
+    public boolean contains(@NotNull String serviceId) {
+        return Arrays.binarySearch(keys, serviceId.toLowerCase(Locale.ROOT)) >= 0;
+    }
+
+    /**
+     * Case insensitive lookup of the service id, as it was defined
+     */
+    @Nullable
+    public String getId(@NotNull String serviceId) {
+        int index = Arrays.binarySearch(keys, serviceId.toLowerCase(Locale.ROOT));
+        return index >= 0 ? ids[index] : null;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+}
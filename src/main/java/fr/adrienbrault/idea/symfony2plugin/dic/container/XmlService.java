@@ -89,25 +89,34 @@ public class XmlService implements ServiceInterface {
 
     @Nullable
     public static XmlService createFromXml(@NotNull Element node) {
+        return createFromAttributes(
+            node.getAttribute("id"),
+            node.getAttribute("class"),
+            node.getAttribute("public"),
+            node.getAttribute("alias")
+        );
+    }
+
+    /**
+     * Attribute values of a "service" element; missing attributes can be null or empty
+     */
+    @Nullable
+    public static XmlService createFromAttributes(@Nullable String id, @Nullable String className, @Nullable String isPublic, @Nullable String alias) {
         // empty id does not interest us
-        String id = node.getAttribute("id");
         if(StringUtils.isBlank(id)) {
             return null;
         }
 
         XmlService xmlService = new XmlService(id);
 
-        String aClass = node.getAttribute("class");
-        if(StringUtils.isNotBlank(aClass)) {
-            xmlService.className = StringUtils.stripStart(aClass, "\\");
+        if(StringUtils.isNotBlank(className)) {
+            xmlService.className = StringUtils.stripStart(className, "\\");
         }
 
-        String isPublic = node.getAttribute("public");
         if(isPublic != null && "false".equalsIgnoreCase(isPublic)) {
             xmlService.isPublic = false;
         }
 
-        String alias = node.getAttribute("alias");
         if(StringUtils.isNotBlank(alias)) {
             xmlService.alias = alias;
         }
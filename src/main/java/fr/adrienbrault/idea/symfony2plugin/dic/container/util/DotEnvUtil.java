@@ -12,7 +12,7 @@ import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.CachedValue;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
@@ -73,7 +73,7 @@ public class DotEnvUtil {
                     items.add(pair.getFirst())
                 );
 
-                return CachedValueProvider.Result.create(items, PsiModificationTracker.MODIFICATION_COUNT);
+                return CachedValueProvider.Result.create(items, SymfonyModificationTrackers.getDotEnvTracker(project));
                 }, false
             );
             project.putUserData(DOT_ENV_VARIABLE_CACHE, cache);
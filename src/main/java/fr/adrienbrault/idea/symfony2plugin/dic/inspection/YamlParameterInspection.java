@@ -12,6 +12,8 @@ import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Locale;
+
 /**
  * Check if service parameter exists
  *
@@ -49,7 +51,7 @@ public class YamlParameterInspection extends LocalInspectionTool {
         parameterName = parameterName.substring(1, parameterName.length() - 1);
 
         // parameter a always lowercase see #179
-        parameterName = parameterName.toLowerCase();
+        parameterName = parameterName.toLowerCase(Locale.ROOT);
         if (!ContainerCollectionResolver.getParameterNames(psiElement.getProject()).contains(parameterName)) {
             holder.registerProblem(psiElement, "Missing Parameter", ProblemHighlightType.GENERIC_ERROR_OR_WARNING);
         }
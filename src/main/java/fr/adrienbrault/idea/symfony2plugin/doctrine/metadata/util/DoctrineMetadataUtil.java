@@ -37,7 +37,7 @@ import java.util.regex.Pattern;
  */
 public class DoctrineMetadataUtil {
 
-    private static final Key<CachedValue<Set<String>>> CLASS_KEYS = new Key<>("CLASS_KEYS");
+    private static final Key<Set<String>> CLASS_KEYS = new Key<>("CLASS_KEYS");
 
     private static DoctrineMappingDriverInterface[] MAPPING_DRIVERS = new DoctrineMappingDriverInterface[] {
         new DoctrineXmlMappingDriver(),
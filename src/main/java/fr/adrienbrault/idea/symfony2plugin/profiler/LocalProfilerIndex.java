@@ -1,70 +1,123 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler;
 
-import com.intellij.util.containers.ContainerUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
 import fr.adrienbrault.idea.symfony2plugin.profiler.collector.LocalDefaultDataCollector;
 import fr.adrienbrault.idea.symfony2plugin.profiler.collector.LocalMailCollector;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.LocalProfilerRequest;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequestInterface;
-import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ReverseFileLineReader;
+import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerDumpScanner;
+import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerIndexTailReader;
 import fr.adrienbrault.idea.symfony2plugin.profiler.utils.ProfilerUtil;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.Callable;
 
 /**
+ * Profiler requests of a local "index.csv"; instances are reused by the factory, so the file is tailed
+ * and decoded requests are served from a bounded cache on every refresh of the widget
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class LocalProfilerIndex implements ProfilerIndexInterface {
+
+    private static final int REQUEST_LIMIT = 10;
+
+    private static final Set<ProfilerDumpScanner.Field> REQUEST_AND_MAIL_FIELDS = EnumSet.allOf(ProfilerDumpScanner.Field.class);
+
+    @NotNull
+    private final Project project;
+
     @NotNull
     private File file;
 
     @Nullable
     private String baseUrl;
 
-    public LocalProfilerIndex(@NotNull File file) {
-        this.file = file;
+    @NotNull
+    private final ProfilerIndexTailReader reader;
+
+    /**
+     * Hash to decoded request with collector data; profile dumps are immutable after written
+     */
+    @NotNull
+    private final Cache<String, ProfilerRequestInterface> requests = CacheBuilder.newBuilder()
+        .maximumSize(100)
+        .build();
+
+    public LocalProfilerIndex(@NotNull Project project, @NotNull File file) {
+        this(project, file, null);
     }
 
-    public LocalProfilerIndex(@NotNull File file, @Nullable String baseUrl) {
+    public LocalProfilerIndex(@NotNull Project project, @NotNull File file, @Nullable String baseUrl) {
+        this.project = project;
         this.file = file;
         this.baseUrl = baseUrl;
+        this.reader = new ProfilerIndexTailReader(file, REQUEST_LIMIT);
+    }
+
+    /**
+     * Index is build for the given csv file and base url
+     */
+    public boolean isSameIndex(@NotNull File file, @Nullable String baseUrl) {
+        return FileUtil.filesEqual(this.file, file) && Objects.equals(this.baseUrl, baseUrl);
     }
 
     @NotNull
     public List<ProfilerRequestInterface> getRequests() {
-        List<String> lines = new ArrayList<>();
+        List<String> lines;
 
         try {
-            // empty line and end of line need +1
-            ContainerUtil.addAll(lines, new ReverseFileLineReader(this.file, "UTF-8", 11).readLines());
-        } catch (IOException ignored) {
+            lines = this.reader.readLines();
+        } catch (IOException e) {
+            this.reader.reset();
+            return Collections.emptyList();
         }
 
+        List<String[]> rows = new ArrayList<>();
         Collection<Callable<ProfilerRequestInterface>> callable = new ArrayList<>();
 
-        // build thread callable collection
-        lines.stream().filter(StringUtils::isNotBlank).forEachOrdered(line -> {
-
+        for (String line : lines) {
             // we need at least this information for a valid line:
             // "18e6b8,127.0.0.1,GET,http://127.0.0.1:8000/foobar"
             String[] split = line.split(",");
             if (split.length <= 4) {
-                return;
+                continue;
+            }
+
+            rows.add(split);
+
+            if(this.requests.getIfPresent(split[0]) == null) {
+                callable.add(new MyProfilerRequestBuilderCallable(split));
+            }
+        }
+
+        // only requests which are not known yet need to load their profile dump
+        Map<String, ProfilerRequestInterface> decorated = new HashMap<>();
+        if(callable.size() > 0) {
+            for (ProfilerRequestInterface request : ProfilerUtil.getProfilerRequestCollectorDecorated(this.project, callable)) {
+                decorated.put(request.getHash(), request);
             }
+        }
 
-            callable.add(new MyProfilerRequestBuilderCallable(split));
-        });
+        List<ProfilerRequestInterface> profilerRequests = new ArrayList<>();
+        for (String[] split : rows) {
+            ProfilerRequestInterface request = this.requests.getIfPresent(split[0]);
+            if(request == null) {
+                request = decorated.get(split[0]);
+            }
 
-        return ProfilerUtil.getProfilerRequestCollectorDecorated(callable, 15);
+            profilerRequests.add(request != null ? request : new LocalProfilerRequest(split));
+        }
+
+        return profilerRequests;
     }
 
     @Nullable
@@ -79,8 +132,8 @@ public class LocalProfilerIndex implements ProfilerIndexInterface {
 
     @NotNull
     private String getPath(@NotNull String hash) {
-        String[] hashSplit = hash.split("(?<=\\G.{2})");
-        return hashSplit[2] + "/" + hashSplit[1] + "/" + hash;
+        // "18e6b8" => "b8/e6/18e6b8"
+        return hash.substring(4, 6) + "/" + hash.substring(2, 4) + "/" + hash;
     }
 
     @Nullable
@@ -95,28 +148,6 @@ public class LocalProfilerIndex implements ProfilerIndexInterface {
         return file;
     }
 
-    @Nullable
-    private String getContentForHash(@NotNull String hash) {
-        File file = this.getFile(hash);
-        if(file == null) {
-            return  null;
-        }
-
-        StringBuilder content = new StringBuilder();
-
-        try {
-            BufferedReader in = new BufferedReader(new FileReader(file));
-            String str;
-            while ((str = in.readLine()) != null) {
-                content.append(str);
-            }
-            in.close();
-        } catch (IOException ignored) {
-        }
-
-        return content.toString();
-    }
-
     private class MyProfilerRequestBuilderCallable implements Callable<ProfilerRequestInterface> {
         private final String[] split;
 
@@ -126,16 +157,29 @@ public class LocalProfilerIndex implements ProfilerIndexInterface {
 
         @Override
         public ProfilerRequestInterface call() throws Exception {
-            String content = getContentForHash(split[0]);
-            if(content == null) {
+            File file = getFile(split[0]);
+            if(file == null) {
                 return new LocalProfilerRequest(split);
             }
 
-            return new LocalProfilerRequest(
+            // one scan for all request fields and mails; mails need the whole dump, but we are on the profiler executor
+            ProfilerDumpScanner.Result result;
+            try {
+                result = ProfilerDumpScanner.scan(file, REQUEST_AND_MAIL_FIELDS);
+            } catch (IOException e) {
+                return new LocalProfilerRequest(split);
+            }
+
+            LocalProfilerRequest request = new LocalProfilerRequest(
                 split,
-                new LocalDefaultDataCollector(content),
-                new LocalMailCollector(content)
+                new LocalDefaultDataCollector(result),
+                new LocalMailCollector(result)
             );
+
+            // profile dump can be missing on a running request; so only cache completed ones
+            requests.put(request.getHash(), request);
+
+            return request;
         }
     }
 }
@@ -0,0 +1,382 @@
+package fr.adrienbrault.idea.symfony2plugin.profiler;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequestInterface;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Project wide executor for all profiler requests, replaces thread pools which were created per call.
+ *
+ * Http fetches and collector tasks run on two separate bounded executors: collector tasks wait for fetches,
+ * so sharing one pool could starve. Parallel fetches of the same url are merged into one connection.
+ * All waits are bound by timeouts and check the current progress, so a canceled popup or a closed tool window
+ * returns early.
+ *
+ * Callers like the status bar widget or the tool window run their requests for an owner; "cancel" of an owner
+ * only stops its own requests. A shared connection is closed as soon as nobody is waiting for it anymore.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ProfilerRequestService implements Disposable {
+
+    private static final int MAX_CONNECTIONS = 4;
+    private static final int MAX_TASKS = 4;
+
+    private static final int CONNECT_TIMEOUT = 2000;
+    private static final int READ_TIMEOUT = 5000;
+
+    /**
+     * Upper limit to collect the data of all requests of an index
+     */
+    private static final int TASKS_TIMEOUT = 20000;
+
+    @NotNull
+    private final ExecutorService httpExecutor;
+
+    @NotNull
+    private final ExecutorService taskExecutor;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final int tasksTimeout;
+
+    @NotNull
+    private final ConcurrentMap<String, Fetch> inFlight = ContainerUtil.newConcurrentMap();
+
+    @NotNull
+    private final Set<Future<?>> running = ContainerUtil.newConcurrentSet();
+
+    /**
+     * Progress of all running calls of an owner
+     */
+    @NotNull
+    private final ConcurrentMap<Object, Set<ProgressIndicator>> owners = ContainerUtil.newConcurrentMap();
+
+    private volatile boolean disposed = false;
+
+    public ProfilerRequestService() {
+        this(MAX_CONNECTIONS, MAX_TASKS, CONNECT_TIMEOUT, READ_TIMEOUT, TASKS_TIMEOUT);
+    }
+
+    public ProfilerRequestService(int maxConnections, int maxTasks, int connectTimeout, int readTimeout, int tasksTimeout) {
+        this.httpExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Profiler Http", maxConnections);
+        this.taskExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Profiler", maxTasks);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.tasksTimeout = tasksTimeout;
+    }
+
+    @NotNull
+    public static ProfilerRequestService getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, ProfilerRequestService.class);
+    }
+
+    /**
+     * Cancels pending requests of the owner; eg on closing the profiler tool window
+     */
+    public static void cancel(@NotNull Project project, @NotNull Object owner) {
+        if(!project.isDisposed()) {
+            getInstance(project).cancel(owner);
+        }
+    }
+
+    /**
+     * Loads the requests of the index with a cancelable progress; for callers on the EDT
+     *
+     * @param owner eg the widget or tool window, see "cancel"
+     */
+    @NotNull
+    public static List<ProfilerRequestInterface> getRequestsWithProgress(@NotNull Project project, @NotNull ProfilerIndexInterface index, @NotNull Object owner) {
+        ProfilerRequestService service = getInstance(project);
+
+        try {
+            return ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                (ThrowableComputable<List<ProfilerRequestInterface>, RuntimeException>) () -> service.compute(owner, index::getRequests),
+                "Loading Symfony Profiler",
+                true,
+                project
+            );
+        } catch (ProcessCanceledException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Runs the computation in the current progress and binds the progress to the owner
+     */
+    public <T> T compute(@NotNull Object owner, @NotNull Supplier<T> computation) {
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        if(indicator == null) {
+            return computation.get();
+        }
+
+        owners.compute(owner, (o, indicators) -> {
+            Set<ProgressIndicator> set = indicators != null ? indicators : new HashSet<>();
+            set.add(indicator);
+            return set;
+        });
+
+        try {
+            return computation.get();
+        } finally {
+            owners.computeIfPresent(owner, (o, indicators) -> {
+                indicators.remove(indicator);
+                return indicators.isEmpty() ? null : indicators;
+            });
+        }
+    }
+
+    /**
+     * Cancels the running calls of the owner; calls of other owners are not affected
+     */
+    public void cancel(@NotNull Object owner) {
+        Set<ProgressIndicator> indicators = owners.remove(owner);
+        if(indicators == null) {
+            return;
+        }
+
+        for (ProgressIndicator indicator : indicators) {
+            indicator.cancel();
+        }
+    }
+
+    /**
+     * Non-blocking fetch of the url content; a pending fetch of the same url is shared.
+     * It is canceled if it is also requested via "getContent" and the last of these callers stops waiting
+     */
+    @NotNull
+    public CompletableFuture<String> fetch(@NotNull String url) {
+        return getFetch(url).future;
+    }
+
+    /**
+     * Content of the url or "null" on any error, timeout or cancel
+     */
+    @Nullable
+    public String getContent(@NotNull String url) {
+        Fetch fetch = getFetch(url);
+
+        fetch.join();
+        try {
+            return await(fetch.future, System.currentTimeMillis() + connectTimeout + readTimeout);
+        } finally {
+            fetch.leave();
+        }
+    }
+
+    @NotNull
+    private Fetch getFetch(@NotNull String url) {
+        Fetch created = new Fetch();
+        if(disposed) {
+            created.future.cancel(false);
+            return created;
+        }
+
+        Fetch existing = inFlight.putIfAbsent(url, created);
+        if(existing != null) {
+            return existing;
+        }
+
+        running.add(created.future);
+        created.future.whenComplete((s, throwable) -> {
+            inFlight.remove(url, created);
+            running.remove(created.future);
+
+            if(created.future.isCancelled()) {
+                created.disconnect();
+            }
+        });
+
+        try {
+            httpExecutor.execute(() -> {
+                // canceled while queued
+                if(created.future.isDone()) {
+                    return;
+                }
+
+                try {
+                    created.future.complete(request(url, created));
+                } catch (IOException e) {
+                    created.future.completeExceptionally(new UncheckedIOException(e));
+                } catch (Throwable e) {
+                    created.future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            created.future.cancel(false);
+        }
+
+        return created;
+    }
+
+    /**
+     * Runs all tasks on the shared executor and waits for them with one deadline.
+     * Results of failed, timed out or canceled tasks are omitted
+     */
+    @NotNull
+    public <T> List<T> invokeAll(@NotNull Collection<? extends Callable<T>> tasks) {
+        if(disposed || tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Future<T>> futures = new ArrayList<>();
+
+        try {
+            for (Callable<T> task : tasks) {
+                Future<T> future = taskExecutor.submit(task);
+                running.add(future);
+                futures.add(future);
+            }
+
+            long deadline = System.currentTimeMillis() + tasksTimeout;
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                T result = await(future, deadline);
+                if(result != null) {
+                    results.add(result);
+                }
+            }
+
+            return results;
+        } catch (RejectedExecutionException e) {
+            return Collections.emptyList();
+        } finally {
+            // no-op on finished ones; frees the executor from tasks nobody is waiting for, eg a canceled owner
+            for (Future<T> future : futures) {
+                future.cancel(true);
+                running.remove(future);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+
+        for (Set<ProgressIndicator> indicators : owners.values()) {
+            indicators.forEach(ProgressIndicator::cancel);
+        }
+
+        for (Future<?> future : running) {
+            future.cancel(true);
+        }
+
+        for (Fetch fetch : inFlight.values()) {
+            fetch.disconnect();
+        }
+
+        httpExecutor.shutdownNow();
+        taskExecutor.shutdownNow();
+    }
+
+    @Nullable
+    private String request(@NotNull String url, @NotNull Fetch fetch) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+
+        if(connection instanceof HttpURLConnection) {
+            fetch.setConnection((HttpURLConnection) connection);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    @Nullable
+    private static <T> T await(@NotNull Future<T> future, long deadline) {
+        while(true) {
+            // caller progress eg the widget popup was canceled
+            ProgressManager.checkCanceled();
+
+            long timeout = deadline - System.currentTimeMillis();
+            if(timeout <= 0) {
+                return null;
+            }
+
+            try {
+                return future.get(Math.min(timeout, 50), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+            } catch (ExecutionException | CancellationException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * One connection shared by all callers of the same url
+     */
+    private static class Fetch {
+        @NotNull
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        @Nullable
+        private HttpURLConnection connection;
+
+        private int waiters = 0;
+
+        synchronized private void join() {
+            waiters++;
+        }
+
+        /**
+         * Last waiter is gone, eg canceled by its owner: nobody needs the content anymore
+         */
+        private void leave() {
+            synchronized (this) {
+                if(--waiters > 0) {
+                    return;
+                }
+            }
+
+            if(!future.isDone()) {
+                future.cancel(false);
+            }
+        }
+
+        synchronized private void setConnection(@NotNull HttpURLConnection connection) {
+            this.connection = connection;
+
+            // canceled before the connection was opened
+            if(future.isDone()) {
+                connection.disconnect();
+            }
+        }
+
+        synchronized private void disconnect() {
+            if(connection != null) {
+                connection.disconnect();
+                connection = null;
+            }
+        }
+    }
+}
@@ -34,7 +34,12 @@ public class Symfony2WebProfilerForm {
 
     private ProfilerIndexInterface profilerIndex;
 
+    @NotNull
+    private final Project project;
+
     Symfony2WebProfilerForm(@NotNull Project project) {
+        this.project = project;
+
         DefaultListModel listenModel = new DefaultListModel();
         this.list1.setModel(listenModel);
         this.list1.setCellRenderer(new MyLookupCellRenderer());
@@ -106,7 +111,7 @@ public class Symfony2WebProfilerForm {
         DefaultListModel<ProfilerRequestInterface> listModel = (DefaultListModel<ProfilerRequestInterface>) listRequest.getModel();
         listModel.removeAllElements();
 
-        this.profilerIndex.getRequests().forEach(listModel::addElement);
+        ProfilerRequestService.getRequestsWithProgress(this.project, this.profilerIndex, this).forEach(listModel::addElement);
     }
 
     private void renderRequestDetails(@NotNull ProfilerRequestInterface profilerRequest) {
@@ -151,7 +156,7 @@ public class Symfony2WebProfilerForm {
         DefaultListModel<MailMessage> listModel = (DefaultListModel) list1.getModel();
         listModel.removeAllElements();
 
-        for(ProfilerRequestInterface profilerRequest: this.profilerIndex.getRequests()) {
+        for(ProfilerRequestInterface profilerRequest: ProfilerRequestService.getRequestsWithProgress(this.project, this.profilerIndex, this)) {
             MailCollectorInterface collector = profilerRequest.getCollector(MailCollectorInterface.class);
             if(collector == null) {
                 continue;
@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.wm.ex.ToolWindowEx;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentManager;
@@ -20,8 +21,13 @@ class SymfonyWebProfilerPane {
 
     public void setup(ToolWindowEx toolWindow) {
         ContentManager contentManager = toolWindow.getContentManager();
-        Content content = contentManager.getFactory().createContent(new Symfony2WebProfilerForm(this.project).createComponent(), null, true);
+        Symfony2WebProfilerForm form = new Symfony2WebProfilerForm(this.project);
+        Content content = contentManager.getFactory().createContent(form.createComponent(), null, true);
         contentManager.addContent(content);
+
+        // closing the tool window drops its requests which are still loading; the status bar widget keeps its own
+        Disposer.register(content, () -> ProfilerRequestService.cancel(this.project, form));
+
         contentManager.setSelectedContent(content, true);
     }
 }
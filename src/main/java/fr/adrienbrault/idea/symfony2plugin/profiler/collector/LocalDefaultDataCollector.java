@@ -1,67 +1,46 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler.collector;
 
-import org.intellij.lang.annotations.RegExp;
+import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerDumpScanner;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class LocalDefaultDataCollector implements DefaultDataCollectorInterface {
     @Nullable
-    private final String contents;
+    private final String controller;
 
-    public LocalDefaultDataCollector(@Nullable String contents) {
-        this.contents = contents;
-    }
+    @Nullable
+    private final String route;
 
     @Nullable
-    public String getController() {
-        return this.getStringValue(this.contents, "_controller\";s:(\\d+):");
+    private final String template;
+
+    public LocalDefaultDataCollector(@Nullable String contents) {
+        this(contents != null ? ProfilerDumpScanner.scan(contents.getBytes(StandardCharsets.UTF_8), ProfilerDumpScanner.REQUEST_FIELDS) : null);
     }
 
-    @Nullable
-    public String getRoute() {
-        return this.getStringValue(this.contents, "_route\";s:(\\d+):");
+    public LocalDefaultDataCollector(@Nullable ProfilerDumpScanner.Result result) {
+        this.controller = result != null ? result.getController() : null;
+        this.route = result != null ? result.getRoute() : null;
+        this.template = result != null ? result.getTemplate() : null;
     }
 
     @Nullable
-    public String getTemplate() {
-        return this.pregMatch(this.contents, "\"template.twig \\(([^\"]*\\.html\\.\\w{2,4})\\)\"");
+    public String getController() {
+        return this.controller;
     }
 
     @Nullable
-    private String pregMatch(@Nullable String content, @RegExp String regular) {
-        if(content == null) {
-            return null;
-        }
-
-        Matcher matcher = Pattern.compile(regular, Pattern.MULTILINE).matcher(content);
-        if(matcher.find()){
-            return matcher.group(1);
-        }
-
-        return null;
+    public String getRoute() {
+        return this.route;
     }
 
     @Nullable
-    private String getStringValue(@Nullable String content, @RegExp String regular) {
-        if(content == null) {
-            return null;
-        }
-
-        Matcher matcher = Pattern.compile(regular, Pattern.MULTILINE).matcher(content);
-        if(matcher.find()){
-            String domain = matcher.group(1);
-
-            int start = matcher.end();
-            int end = start + Integer.parseInt(domain);
-
-            return content.substring(start + 1, end + 1);
-        }
-
-        return null;
+    public String getTemplate() {
+        return this.template;
     }
 }
@@ -1,7 +1,6 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler.factory;
 
 import com.intellij.openapi.project.Project;
-import fr.adrienbrault.idea.symfony2plugin.profiler.LocalProfilerIndex;
 import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndexInterface;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -20,7 +19,7 @@ class DefaultLocalProfilerFactory extends LocalProfilerFactory {
             return null;
         }
 
-        return new LocalProfilerIndex(csvProfilerFile, null);
+        return getLocalProfilerIndex(project, csvProfilerFile, null);
     }
 
     @Override
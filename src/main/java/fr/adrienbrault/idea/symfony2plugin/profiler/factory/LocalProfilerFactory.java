@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.profiler.factory;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
@@ -17,6 +18,9 @@ import java.io.File;
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class LocalProfilerFactory implements ProfilerFactoryInterface {
+
+    private static final Key<LocalProfilerIndex> LOCAL_PROFILER_INDEX = new Key<>("SYMFONY_LOCAL_PROFILER_INDEX");
+
     @Nullable
     @Override
     public ProfilerIndexInterface createProfilerIndex(@NotNull Project project) {
@@ -34,7 +38,21 @@ public class LocalProfilerFactory implements ProfilerFactoryInterface {
             profilerUrl = profilerLocalUrl;
         }
 
-        return new LocalProfilerIndex(csvIndex, profilerUrl);
+        return getLocalProfilerIndex(project, csvIndex, profilerUrl);
+    }
+
+    /**
+     * Reuse index of the last call, it holds the read position of the csv file and already decoded requests
+     */
+    @NotNull
+    static LocalProfilerIndex getLocalProfilerIndex(@NotNull Project project, @NotNull File csvIndex, @Nullable String baseUrl) {
+        LocalProfilerIndex index = project.getUserData(LOCAL_PROFILER_INDEX);
+        if(index == null || !index.isSameIndex(csvIndex, baseUrl)) {
+            index = new LocalProfilerIndex(project, csvIndex, baseUrl);
+            project.putUserData(LOCAL_PROFILER_INDEX, index);
+        }
+
+        return index;
     }
 
     /**
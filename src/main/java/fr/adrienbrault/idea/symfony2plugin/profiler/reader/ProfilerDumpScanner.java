@@ -0,0 +1,330 @@
+package fr.adrienbrault.idea.symfony2plugin.profiler.reader;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts collector values of a local profiler dump (PHP serialized) in one pass over its bytes.
+ *
+ * Small dumps are read at once, larger ones are memory-mapped window by window, so Doctrine or logger
+ * collectors of several MB never end up on the heap. Scanning stops as soon as all single value fields are found.
+ *
+ * "_controller";s:27:"App\Controller\FooController"
+ * "template.twig (foo/index.html.twig)"
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ProfilerDumpScanner {
+
+    public enum Field {
+        CONTROLLER, ROUTE, TEMPLATE, MAIL
+    }
+
+    /**
+     * Fields of the DefaultDataCollectorInterface
+     */
+    public static final Set<Field> REQUEST_FIELDS = Collections.unmodifiableSet(EnumSet.of(Field.CONTROLLER, Field.ROUTE, Field.TEMPLATE));
+
+    /**
+     * Dumps up to this size are read into memory, larger files are mapped
+     */
+    private static final int HEAP_READ_SIZE = 512 * 1024;
+
+    private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Longer values eg huge mail bodies are truncated
+     */
+    private static final int MAX_VALUE_LENGTH = 1024 * 1024;
+
+    private static final int MAX_TEMPLATE_LENGTH = 1024;
+
+    private static final Pattern TEMPLATE_NAME = Pattern.compile("[^\"]*\\.html\\.\\w{2,4}");
+
+    /**
+     * Markers in order of Field; all are followed by a serialized string "N:"value"" except the template
+     */
+    private static final byte[][] MARKERS = new byte[][] {
+        "_controller\";s:".getBytes(StandardCharsets.ISO_8859_1),
+        "_route\";s:".getBytes(StandardCharsets.ISO_8859_1),
+        "\"template.twig (".getBytes(StandardCharsets.ISO_8859_1),
+        "\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:".getBytes(StandardCharsets.ISO_8859_1),
+    };
+
+    private static final int[][] FAILURES = new int[MARKERS.length][];
+
+    static {
+        for (int i = 0; i < MARKERS.length; i++) {
+            FAILURES[i] = createFailureTable(MARKERS[i]);
+        }
+    }
+
+    @NotNull
+    public static Result scan(@NotNull File file, @NotNull Set<Field> fields) throws IOException {
+        Scanner scanner = new Scanner(fields);
+
+        if(file.length() <= HEAP_READ_SIZE) {
+            scanner.scan(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            return scanner.result;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            for (long position = 0; position < size && !scanner.isDone(); position += MAP_WINDOW_SIZE) {
+                scanner.scan(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_SIZE, size - position)));
+            }
+        }
+
+        return scanner.result;
+    }
+
+    @NotNull
+    public static Result scan(@NotNull byte[] content, @NotNull Set<Field> fields) {
+        Scanner scanner = new Scanner(fields);
+        scanner.scan(ByteBuffer.wrap(content));
+
+        return scanner.result;
+    }
+
+    public static class Result {
+        @Nullable
+        private String controller;
+
+        @Nullable
+        private String route;
+
+        @Nullable
+        private String template;
+
+        @NotNull
+        private final List<String> mails = new ArrayList<>();
+
+        private Result() {
+        }
+
+        @Nullable
+        public String getController() {
+            return controller;
+        }
+
+        @Nullable
+        public String getRoute() {
+            return route;
+        }
+
+        @Nullable
+        public String getTemplate() {
+            return template;
+        }
+
+        /**
+         * Bodies of all Swift mails in order of the dump
+         */
+        @NotNull
+        public List<String> getMails() {
+            return mails;
+        }
+    }
+
+    /**
+     * Byte by byte state machine, so values can span map windows
+     */
+    private static class Scanner {
+
+        private static final int STATE_LENGTH = 0;
+        private static final int STATE_QUOTE = 1;
+        private static final int STATE_VALUE = 2;
+        private static final int STATE_TEMPLATE = 3;
+
+        @NotNull
+        private final Result result = new Result();
+
+        /**
+         * Fields which are still searched, by Field ordinal
+         */
+        @NotNull
+        private final boolean[] pending = new boolean[MARKERS.length];
+
+        @NotNull
+        private final int[] matched = new int[MARKERS.length];
+
+        @NotNull
+        private final ByteArrayOutputStream value = new ByteArrayOutputStream();
+
+        @Nullable
+        private Field capture;
+
+        private int state;
+
+        private long remaining;
+
+        Scanner(@NotNull Set<Field> fields) {
+            for (Field field : fields) {
+                pending[field.ordinal()] = true;
+            }
+        }
+
+        boolean isDone() {
+            if(capture != null) {
+                return false;
+            }
+
+            for (boolean b : pending) {
+                if(b) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        void scan(@NotNull ByteBuffer buffer) {
+            while(buffer.hasRemaining()) {
+                byte b = buffer.get();
+
+                if(capture != null) {
+                    capture(b);
+
+                    // all single values found; there is nothing left to collect
+                    if(capture == null && isDone()) {
+                        return;
+                    }
+
+                    continue;
+                }
+
+                for (int i = 0; i < MARKERS.length; i++) {
+                    if(!pending[i]) {
+                        continue;
+                    }
+
+                    byte[] marker = MARKERS[i];
+
+                    int m = matched[i];
+                    while(m > 0 && marker[m] != b) {
+                        m = FAILURES[i][m - 1];
+                    }
+
+                    if(marker[m] == b) {
+                        m++;
+                    }
+
+                    if(m == marker.length) {
+                        startCapture(Field.values()[i]);
+                        break;
+                    }
+
+                    matched[i] = m;
+                }
+            }
+        }
+
+        private void startCapture(@NotNull Field field) {
+            Arrays.fill(matched, 0);
+
+            capture = field;
+            state = field == Field.TEMPLATE ? STATE_TEMPLATE : STATE_LENGTH;
+            remaining = 0;
+            value.reset();
+        }
+
+        private void capture(byte b) {
+            switch (state) {
+                case STATE_LENGTH:
+                    if(b >= '0' && b <= '9' && remaining < Integer.MAX_VALUE) {
+                        remaining = remaining * 10 + (b - '0');
+                    } else if(b == ':') {
+                        state = STATE_QUOTE;
+                    } else {
+                        capture = null;
+                    }
+                    break;
+                case STATE_QUOTE:
+                    if(b != '"') {
+                        capture = null;
+                    } else if(remaining == 0) {
+                        finish();
+                    } else {
+                        state = STATE_VALUE;
+                    }
+                    break;
+                case STATE_VALUE:
+                    if(value.size() < MAX_VALUE_LENGTH) {
+                        value.write(b);
+                    }
+
+                    if(--remaining == 0) {
+                        finish();
+                    }
+                    break;
+                case STATE_TEMPLATE:
+                    if(b == '"') {
+                        finish();
+                    } else if(value.size() >= MAX_TEMPLATE_LENGTH) {
+                        capture = null;
+                    } else {
+                        value.write(b);
+                    }
+                    break;
+            }
+        }
+
+        private void finish() {
+            Field field = capture;
+            capture = null;
+
+            String contents = new String(value.toByteArray(), StandardCharsets.UTF_8);
+            value.reset();
+
+            if(field == Field.CONTROLLER) {
+                result.controller = contents;
+                pending[field.ordinal()] = false;
+            } else if(field == Field.ROUTE) {
+                result.route = contents;
+                pending[field.ordinal()] = false;
+            } else if(field == Field.TEMPLATE) {
+                // "template.twig (foo.html.twig)"
+                if(contents.endsWith(")")) {
+                    String template = contents.substring(0, contents.length() - 1);
+                    if(TEMPLATE_NAME.matcher(template).matches()) {
+                        result.template = template;
+                        pending[field.ordinal()] = false;
+                    }
+                }
+            } else if(field == Field.MAIL) {
+                result.mails.add(contents);
+            }
+        }
+    }
+
+    @NotNull
+    private static int[] createFailureTable(@NotNull byte[] marker) {
+        int[] failure = new int[marker.length];
+
+        for (int i = 1, k = 0; i < marker.length; i++) {
+            while(k > 0 && marker[i] != marker[k]) {
+                k = failure[k - 1];
+            }
+
+            if(marker[i] == marker[k]) {
+                k++;
+            }
+
+            failure[i] = k;
+        }
+
+        return failure;
+    }
+}
@@ -0,0 +1,118 @@
+package fr.adrienbrault.idea.symfony2plugin.profiler.reader;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Tails the profiler "index.csv": remembers the byte offset of the last read and only
+ * parses lines which were appended since then. Keeps the latest lines, newest first.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ProfilerIndexTailReader {
+
+    /**
+     * Appending more than this is eg a functional test run; only the last lines are relevant, so read them backwards
+     */
+    private static final int MAX_APPEND_SIZE = 64 * 1024;
+
+    @NotNull
+    private final File file;
+
+    private final int limit;
+
+    @NotNull
+    private final Deque<String> lines = new ArrayDeque<>();
+
+    private long offset = -1;
+
+    public ProfilerIndexTailReader(@NotNull File file, int limit) {
+        this.file = file;
+        this.limit = limit;
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Latest non-empty lines, newest first
+     */
+    @NotNull
+    public synchronized List<String> readLines() throws IOException {
+        if(!file.isFile()) {
+            reset();
+            return Collections.emptyList();
+        }
+
+        long length = file.length();
+
+        // first read, or file was purged / rotated by the profiler
+        if(offset < 0 || length < offset || length - offset > MAX_APPEND_SIZE) {
+            readLastLines(length);
+        } else if(length > offset) {
+            readAppendedLines(length);
+        }
+
+        return new ArrayList<>(lines);
+    }
+
+    /**
+     * Drops the read state; next read starts at the end of the file again
+     */
+    public synchronized void reset() {
+        this.lines.clear();
+        this.offset = -1;
+    }
+
+    private void readLastLines(long length) throws IOException {
+        this.lines.clear();
+
+        // empty line and end of line need +1
+        for (String line : new ReverseFileLineReader(file, "UTF-8", limit + 1).readLines()) {
+            if(StringUtils.isNotBlank(line) && this.lines.size() < limit) {
+                this.lines.addLast(line);
+            }
+        }
+
+        this.offset = length;
+    }
+
+    private void readAppendedLines(long length) throws IOException {
+        byte[] bytes = new byte[(int) (length - offset)];
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(offset);
+            randomAccessFile.readFully(bytes);
+        }
+
+        // a line which is currently written is visible on next read
+        int end = bytes.length;
+        while(end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+
+        if(end == 0) {
+            return;
+        }
+
+        this.offset += end;
+
+        for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n")) {
+            if(StringUtils.isNotBlank(line)) {
+                this.lines.addFirst(line);
+            }
+        }
+
+        while(this.lines.size() > limit) {
+            this.lines.removeLast();
+        }
+    }
+}
@@ -11,6 +11,9 @@ import com.intellij.psi.impl.source.html.HtmlFileImpl;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.psi.xml.XmlTagValue;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerRequestService;
 import fr.adrienbrault.idea.symfony2plugin.profiler.collector.HttpDefaultDataCollector;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.HttpProfilerRequest;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequestInterface;
@@ -19,15 +22,11 @@ import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -37,6 +36,13 @@ import java.util.stream.Collectors;
  */
 public class ProfilerUtil {
 
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+
+    /**
+     * "/app_dev.php/", "/app_test.php/"
+     */
+    private static final Pattern FRONT_CONTROLLER = Pattern.compile(".*(/app_[\\w]{2,6}.php)/");
+
     /**
      * Cache for url content
      */
@@ -118,7 +124,7 @@ public class ProfilerUtil {
             for (int i = 0; i < findSubTags.length; i++) {
                 row.put(header.get(i), Pair.create(
                     findSubTags[i],
-                    StringUtils.trim(stripHtmlTags(findSubTags[i].getText().replaceAll("\\n", " "))).replace("\\s+", " ")
+                    StringUtils.trim(stripHtmlTags(findSubTags[i].getText().replace('\n', ' '))).replace("\\s+", " ")
                 ));
             }
 
@@ -159,7 +165,7 @@ public class ProfilerUtil {
             request -> new MyProfilerRequestDecoratedCollectorCallable(project, request)).collect(Collectors.toCollection(ArrayList::new)
         );
 
-        return getProfilerRequestCollectorDecorated(callable, 10);
+        return getProfilerRequestCollectorDecorated(project, callable);
     }
 
     /**
@@ -285,26 +291,15 @@ public class ProfilerUtil {
     @NotNull
     private static String stripHtmlTags(@NotNull String text)
     {
-        return text.replaceAll("<[^>]*>", "");
+        return HTML_TAG.matcher(text).replaceAll("");
     }
 
+    /**
+     * Blocking fetch with timeouts via the shared profiler executor
+     */
     @Nullable
-    public static String getProfilerUrlContent(@NotNull String url) {
-        URLConnection conn;
-        try {
-            conn = new URL(url).openConnection();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-
-        try {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
-                return reader.lines().collect(Collectors.joining("\n"));
-            }
-        } catch (IOException e) {
-            return null;
-        }
+    public static String getProfilerUrlContent(@NotNull Project project, @NotNull String url) {
+        return ProfilerRequestService.getInstance(project).getContent(url);
     }
 
     private static class MyProfilerRequestDecoratedCollectorCallable implements Callable<ProfilerRequestInterface> {
@@ -366,11 +361,20 @@ public class ProfilerUtil {
         }
 
         private String getUrlContent(@NotNull String url) {
+            CacheMetric metric = CacheMetrics.get(ProfilerUtil.class, "REQUEST_CACHE");
+            metric.request();
+
             String contents = REQUEST_CACHE.getIfPresent(url);
 
             if(contents == null) {
-                contents = ProfilerUtil.getProfilerUrlContent(url);
-                REQUEST_CACHE.put(url, contents);
+                long start = System.nanoTime();
+
+                contents = ProfilerUtil.getProfilerUrlContent(project, url);
+                if(contents != null) {
+                    REQUEST_CACHE.put(url, contents);
+                }
+
+                metric.rebuild(start, (int) REQUEST_CACHE.size());
             }
 
             return contents;
@@ -379,30 +383,11 @@ public class ProfilerUtil {
 
     /**
      * Decorated request model with loaded collector data
-     * loads data on multiple thread to be as fast as possible
+     * loads data on the shared profiler executor to be as fast as possible
      */
     @NotNull
-    public static List<ProfilerRequestInterface> getProfilerRequestCollectorDecorated(@NotNull Collection<Callable<ProfilerRequestInterface>> callable, int threads) {
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-
-        List<Future<ProfilerRequestInterface>> futures;
-        try {
-            futures = executor.invokeAll(callable);
-        } catch (InterruptedException e) {
-            return Collections.emptyList();
-        }
-
-        List<ProfilerRequestInterface> requests = new ArrayList<>();
-        for (Future<ProfilerRequestInterface> future : futures) {
-            try {
-                requests.add(future.get());
-            } catch (ExecutionException | InterruptedException ignored) {
-            }
-        }
-
-        executor.shutdown();
-
-        return requests;
+    public static List<ProfilerRequestInterface> getProfilerRequestCollectorDecorated(@NotNull Project project, @NotNull Collection<Callable<ProfilerRequestInterface>> callable) {
+        return ProfilerRequestService.getInstance(project).invokeAll(callable);
     }
 
     /**
@@ -435,7 +420,7 @@ public class ProfilerUtil {
 
         String pathSuffix = "";
         String urlPath = url.getPath();
-        Matcher matcher = Pattern.compile(".*(/app_[\\w]{2,6}.php)/").matcher(urlPath);
+        Matcher matcher = FRONT_CONTROLLER.matcher(urlPath);
         if(matcher.find()){
             pathSuffix = StringUtils.stripEnd(urlPath.substring(0, matcher.end()), "/");
         }
@@ -453,7 +438,7 @@ public class ProfilerUtil {
             URL url = new URL(profilerRequest.getUrl());
             path = url.getPath();
 
-            Matcher matcher = Pattern.compile(".*(/app_[\\w]{2,6}.php)/").matcher(path);
+            Matcher matcher = FRONT_CONTROLLER.matcher(path);
             if(matcher.find()){
                 path = "/" + path.substring(matcher.end());
             }
@@ -7,6 +7,7 @@ import com.intellij.openapi.actionSystem.impl.SimpleDataContext;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.FileEditorManagerEvent;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.popup.ListPopup;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -14,11 +15,15 @@ import com.intellij.openapi.wm.StatusBarWidget;
 import com.intellij.openapi.wm.impl.status.EditorBasedWidget;
 import com.intellij.ui.popup.PopupFactoryImpl;
 import com.intellij.util.Consumer;
+import com.intellij.util.containers.ContainerUtil;
 import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerIndexInterface;
+import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerRequestService;
 import fr.adrienbrault.idea.symfony2plugin.profiler.collector.DefaultDataCollectorInterface;
 import fr.adrienbrault.idea.symfony2plugin.profiler.dict.ProfilerRequestInterface;
 import fr.adrienbrault.idea.symfony2plugin.profiler.factory.ProfilerFactoryUtil;
 import fr.adrienbrault.idea.symfony2plugin.profiler.widget.action.SymfonyProfilerWidgetActions;
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -53,7 +58,7 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
             return actionGroup;
         }
 
-        List<ProfilerRequestInterface> requests = index.getRequests();
+        List<ProfilerRequestInterface> requests = ProfilerRequestService.getRequestsWithProgress(getProject(), index, this);
 
         Collection<AnAction> templateActions = new ArrayList<>();
         Map<String, Integer> templateActionsMap = new HashMap<>();
@@ -77,6 +82,14 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
                 attachProfileItem(controllerActions, controllerActionsMap, collector.getController(), ProfilerTarget.CONTROLLER);
             }
 
+            // no route collected; find it by the request url
+            if((collector == null || collector.getRoute() == null) && !DumbService.isDumb(getProject())) {
+                Route route = ContainerUtil.getFirstItem(RouteEngine.getInstance(getProject()).match(profilerRequest.getUrl()));
+                if(route != null) {
+                    attachProfileItem(routeActions, routeActionsMap, route.getName(), ProfilerTarget.ROUTE);
+                }
+            }
+
             // @TODO: use collector
             //String content = profilerRequest.getContent();
             //if(content != null && content.contains("Swift_Mime_Headers_MailboxHeader")) {
@@ -199,6 +212,17 @@ public class SymfonyProfilerWidget extends EditorBasedWidget implements StatusBa
         update(source.getProject());
     }
 
+    @Override
+    public void dispose() {
+        // dont keep connections open for a widget nobody can see; requests of the tool window are not affected
+        Project project = getProject();
+        if(project != null) {
+            ProfilerRequestService.cancel(project, this);
+        }
+
+        super.dispose();
+    }
+
     public void update(final Project project) {
         ApplicationManager.getApplication().invokeLater(() -> {
             if ((getProject() == null) || getProject().isDisposed()) {
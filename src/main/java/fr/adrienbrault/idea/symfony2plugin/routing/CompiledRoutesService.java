@@ -0,0 +1,310 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutesContainer;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutingFile;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Routes of the compiled UrlGenerator files of the project, eg "var/cache/dev/appDevUrlGenerator.php".
+ *
+ * Files are parsed once with the UrlGeneratorParser and kept until a VFS event touches them or their mtime changed;
+ * the reload runs on a single background thread and bumps the routing tracker when done. Callers always get the
+ * previous routes while a reload is queued. Only the very first load of a file blocks background callers, they all
+ * wait for the same queued task; callers on the EDT never wait, the routes are visible on next access.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class CompiledRoutesService implements BulkFileListener, Disposable {
+
+    /**
+     * Cache directories are often not part of the VFS or written by the PHP process, so not every change has an event;
+     * a stat of every file on every access is too much for completion and highlighting
+     */
+    private static final long MODIFIED_CHECK_INTERVAL = 2000;
+
+    @NotNull
+    private final Project project;
+
+    /**
+     * Loaded files by absolute path; a missing file is an empty container
+     */
+    @NotNull
+    private final ConcurrentMap<String, RoutesContainer> containers = ContainerUtil.newConcurrentMap();
+
+    @NotNull
+    private final ConcurrentMap<String, Future<?>> queued = ContainerUtil.newConcurrentMap();
+
+    /**
+     * Files which were requested before their first load finished without waiting for it, eg on the EDT
+     */
+    @NotNull
+    private final Set<String> requestedWithoutRoutes = ContainerUtil.newConcurrentSet();
+
+    @NotNull
+    private final ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Compiled Routes", 1);
+
+    private volatile long lastModifiedCheck = 0;
+
+    public CompiledRoutesService(@NotNull Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, this);
+    }
+
+    @NotNull
+    public static CompiledRoutesService getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, CompiledRoutesService.class);
+    }
+
+    /**
+     * Routes of all configured files; not modifiable
+     */
+    @NotNull
+    public Map<String, Route> getRoutes() {
+        CacheMetrics.get(CompiledRoutesService.class).request();
+
+        boolean checkModified = isModifiedCheckNeeded();
+
+        Map<String, Route> routes = new HashMap<>();
+
+        for (String path : getFiles()) {
+            RoutesContainer container = containers.get(path);
+
+            if(container == null) {
+                container = awaitFirstLoad(path);
+                if(container == null) {
+                    continue;
+                }
+            } else if(checkModified && container.getLastMod() != new File(path).lastModified()) {
+                // previous routes until the reload is done; a missing file is "0"
+                queue(path);
+            }
+
+            routes.putAll(container.getRoutes());
+        }
+
+        return Collections.unmodifiableMap(routes);
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        Collection<String> paths = containers.keySet();
+        if(paths.isEmpty()) {
+            return;
+        }
+
+        for (VFileEvent event : events) {
+            for (String path : paths) {
+                if(isAffected(event, path)) {
+                    queue(path);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        containers.clear();
+        queued.clear();
+    }
+
+    private boolean isModifiedCheckNeeded() {
+        long now = System.currentTimeMillis();
+        if(now - lastModifiedCheck < MODIFIED_CHECK_INTERVAL) {
+            return false;
+        }
+
+        lastModifiedCheck = now;
+        return true;
+    }
+
+    /**
+     * Waits for the queued load of a file which was never loaded; null on the EDT or if the load was not possible
+     */
+    @Nullable
+    private RoutesContainer awaitFirstLoad(@NotNull String path) {
+        if(ApplicationManager.getApplication().isDispatchThread()) {
+            requestedWithoutRoutes.add(path);
+            queue(path);
+            return null;
+        }
+
+        Future<?> future = queue(path);
+        if(future == null) {
+            return null;
+        }
+
+        while (true) {
+            ProgressManager.checkCanceled();
+
+            try {
+                future.get(50, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException ignored) {
+            } catch (InterruptedException e) {
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException | CancellationException e) {
+                return null;
+            }
+        }
+
+        return containers.get(path);
+    }
+
+    /**
+     * Changed file or one of its parent directories, eg "cache:clear" removes "var/cache/dev"
+     */
+    private static boolean isAffected(@NotNull VFileEvent event, @NotNull String path) {
+        if(FileUtil.isAncestor(event.getPath(), path, false)) {
+            return true;
+        }
+
+        // new path of a move or rename
+        VirtualFile file = event.getFile();
+        return file != null && FileUtil.isAncestor(file.getPath(), path, false);
+    }
+
+    /**
+     * Queues one reload of the file; an already queued or running one is shared
+     */
+    @Nullable
+    private Future<?> queue(@NotNull String path) {
+        Future<?> existing = queued.get(path);
+        if(existing != null) {
+            return existing;
+        }
+
+        FutureTask<?> task = new FutureTask<>(() -> {
+            try {
+                if(project.isDisposed()) {
+                    return;
+                }
+
+                RoutesContainer previous = containers.get(path);
+                load(path);
+
+                // routes of cached models are outdated; not needed for callers which waited for the first load
+                if(previous != null || requestedWithoutRoutes.remove(path)) {
+                    SymfonyModificationTrackers.incRoutingModificationCount(project);
+                }
+            } finally {
+                // a write while parsing is detected with the mtime of the container
+                queued.remove(path);
+            }
+        }, null);
+
+        existing = queued.putIfAbsent(path, task);
+        if(existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queued.remove(path, task);
+            return null;
+        }
+
+        return task;
+    }
+
+    @NotNull
+    private RoutesContainer load(@NotNull String path) {
+        File file = new File(path);
+
+        RoutesContainer container;
+        if(!file.isFile()) {
+            container = new RoutesContainer(0L, Collections.emptyMap());
+        } else {
+            CacheMetric metric = CacheMetrics.get(CompiledRoutesService.class);
+            long start = System.nanoTime();
+
+            // before parsing; a write while parsing is detected on next mtime check
+            long lastModified = file.lastModified();
+
+            Map<String, Route> routes = parse(file);
+            container = new RoutesContainer(lastModified, routes);
+
+            metric.rebuild(start, routes.size());
+            Symfony2ProjectComponent.getLogger().info("update routing: " + path);
+        }
+
+        containers.put(path, container);
+
+        return container;
+    }
+
+    @NotNull
+    private static Map<String, Route> parse(@NotNull File file) {
+        try {
+            return Collections.unmodifiableMap(UrlGeneratorParser.parse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Absolute paths of the configured UrlGenerator files or the defaults
+     */
+    @NotNull
+    private Collection<String> getFiles() {
+        Set<String> files = new HashSet<>();
+
+        // add custom routing files on settings
+        List<RoutingFile> routingFiles = Settings.getInstance(project).routingFiles;
+        if(routingFiles != null) {
+            for (RoutingFile routingFile : routingFiles) {
+                String path = routingFile.getPath();
+                if(StringUtils.isNotBlank(path)) {
+                    files.add(getAbsolutePath(path));
+                }
+            }
+        }
+
+        // add defaults; if user never has changed the settings
+        if(routingFiles == null || routingFiles.size() == 0) {
+            for (String path : Settings.DEFAULT_ROUTES) {
+                files.add(getAbsolutePath(path));
+            }
+        }
+
+        return files;
+    }
+
+    @NotNull
+    private String getAbsolutePath(@NotNull String path) {
+        // Project relative path
+        if (!FileUtil.isAbsolute(path)) {
+            path = project.getBasePath() + "/" + path;
+        }
+
+        return FileUtil.toSystemIndependentName(path);
+    }
+}
@@ -4,9 +4,7 @@ import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
-import com.intellij.openapi.util.io.FileUtil;
-import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -27,16 +25,12 @@ import com.jetbrains.php.refactoring.PhpNameUtil;
 import de.espend.idea.php.annotation.dict.PhpDocCommentAnnotation;
 import de.espend.idea.php.annotation.dict.PhpDocTagAnnotation;
 import de.espend.idea.php.annotation.util.AnnotationUtil;
-import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
-import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoader;
 import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoaderParameter;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ControllerClassOnShortcutReturn;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ServiceRouteContainer;
-import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutesContainer;
-import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutingFile;
-import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.*;
@@ -51,24 +45,19 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.yaml.YAMLUtil;
 import org.jetbrains.yaml.psi.*;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class RouteHelper {
 
-    private static final Key<CachedValue<Map<String, Route>>> ROUTE_CACHE = new Key<>("SYMFONY:ROUTE_CACHE");
-
     public static Set<String> ROUTE_CLASSES = new HashSet<>(Arrays.asList(
         "Sensio\\Bundle\\FrameworkExtraBundle\\Configuration\\Route",
         "Symfony\\Component\\Routing\\Annotation\\Route"
     ));
 
-    public static Map<Project, Map<String, RoutesContainer>> COMPILED_CACHE = new HashMap<>();
-
     private static final ExtensionPointName<RoutingLoader> ROUTING_LOADER = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoader"
     );
@@ -247,79 +236,9 @@ public class RouteHelper {
         return null;
     }
 
-    private static <E> ArrayList<E> makeCollection(Iterable<E> iter) {
-        ArrayList<E> list = new ArrayList<>();
-        for (E item : iter) {
-            list.add(item);
-        }
-        return list;
-    }
-
-    private static String getPath(Project project, String path) {
-        if (!FileUtil.isAbsolute(path)) { // Project relative path
-            path = project.getBasePath() + "/" + path;
-        }
-
-        return path;
-    }
-
     @NotNull
     public static Map<String, Route> getCompiledRoutes(@NotNull Project project) {
-        Set<String> files = new HashSet<>();
-
-        // add custom routing files on settings
-        List<RoutingFile> routingFiles = Settings.getInstance(project).routingFiles;
-        if(routingFiles != null) {
-            for (RoutingFile routingFile : routingFiles) {
-                String path = routingFile.getPath();
-                if(StringUtils.isNotBlank(path)) {
-                    files.add(path);
-                }
-            }
-        }
-
-        // add defaults; if user never has changed the settings
-        if(routingFiles == null || routingFiles.size() == 0) {
-            Collections.addAll(files, Settings.DEFAULT_ROUTES);
-        }
-
-        for(String file: files) {
-
-            File urlGeneratorFile = new File(getPath(project, file));
-            VirtualFile virtualUrlGeneratorFile = VfsUtil.findFileByIoFile(urlGeneratorFile, false);
-            if (virtualUrlGeneratorFile == null || !urlGeneratorFile.exists()) {
-
-                // clean file cache
-                if(COMPILED_CACHE.containsKey(project) && COMPILED_CACHE.get(project).containsKey(file)) {
-                    COMPILED_CACHE.get(project).remove(file);
-                }
-
-            } else {
-
-                if(!COMPILED_CACHE.containsKey(project)) {
-                    COMPILED_CACHE.put(project, new HashMap<>());
-                }
-
-                Long routesLastModified = urlGeneratorFile.lastModified();
-                if(!COMPILED_CACHE.get(project).containsKey(file) || !COMPILED_CACHE.get(project).get(file).getLastMod().equals(routesLastModified)) {
-
-                    COMPILED_CACHE.get(project).put(file, new RoutesContainer(
-                        routesLastModified,
-                        RouteHelper.getRoutesInsideUrlGeneratorFile(project, virtualUrlGeneratorFile)
-                    ));
-
-                    Symfony2ProjectComponent.getLogger().info("update routing: " + urlGeneratorFile.toString());
-                }
-            }
-
-        }
-
-        Map<String, Route> routes = new HashMap<>();
-        if(COMPILED_CACHE.containsKey(project)) {
-            for (RoutesContainer container : COMPILED_CACHE.get(project).values()) {
-                routes.putAll(container.getRoutes());
-            }
-        }
+        Map<String, Route> routes = new HashMap<>(CompiledRoutesService.getInstance(project).getRoutes());
 
         RoutingLoaderParameter parameter = null;
 
@@ -336,178 +255,27 @@ public class RouteHelper {
 
     @NotNull
     public static Map<String, Route> getRoutesInsideUrlGeneratorFile(@NotNull Project project, @NotNull VirtualFile virtualFile) {
-        PsiFile psiFile = PsiElementUtils.virtualFileToPsiFile(project, virtualFile);
-        if(!(psiFile instanceof PhpFile)) {
+        try {
+            return UrlGeneratorParser.parse(VfsUtilCore.loadText(virtualFile));
+        } catch (IOException e) {
             return Collections.emptyMap();
         }
-
-        return getRoutesInsideUrlGeneratorFile(psiFile);
-    }
-
-
-    /**
-     * Temporary or remote files dont support "isInstanceOf", check for string implementation first
-     */
-    private static boolean isRouteClass(@NotNull PhpClass phpClass) {
-        for (ClassReference classReference : phpClass.getExtendsList().getReferenceElements()) {
-            String fqn = classReference.getFQN();
-            if(fqn != null && StringUtils.stripStart(fqn, "\\").equalsIgnoreCase("Symfony\\Component\\Routing\\Generator\\UrlGenerator")) {
-                return true;
-            }
-        }
-
-        for (PhpClass phpInterface : phpClass.getImplementedInterfaces()) {
-            String fqn = phpInterface.getFQN();
-            if( StringUtils.stripStart(fqn, "\\").equalsIgnoreCase("Symfony\\Component\\Routing\\Generator\\UrlGeneratorInterface")) {
-                return true;
-            }
-        }
-
-        return PhpElementsUtil.isInstanceOf(phpClass, "\\Symfony\\Component\\Routing\\Generator\\UrlGeneratorInterface");
     }
 
     @NotNull
     public static Map<String, Route> getRoutesInsideUrlGeneratorFile(@NotNull PsiFile psiFile) {
-
-        Map<String, Route> routes = new HashMap<>();
-
-        // heavy stuff here, to get nested routing array :)
-        // list($variables, $defaults, $requirements, $tokens, $hostTokens)
-        Collection<PhpClass> phpClasses = PsiTreeUtil.findChildrenOfType(psiFile, PhpClass.class);
-        for(PhpClass phpClass: phpClasses) {
-            if(!isRouteClass(phpClass)) {
-                continue;
-            }
-
-            // Symfony < 2.8
-            // static private $declaredRoutes = array(...)
-            for(Field field: phpClass.getFields()) {
-                if(!field.getName().equals("declaredRoutes")) {
-                    continue;
-                }
-
-                PsiElement defaultValue = field.getDefaultValue();
-                if(!(defaultValue instanceof ArrayCreationExpression)) {
-                    continue;
-                }
-
-                collectRoutesOnArrayCreation(routes, (ArrayCreationExpression) defaultValue);
-            }
-
-            // Symfony >= 2.8
-            // if (null === self::$declaredRoutes) {
-            //   self::$declaredRoutes = array()
-            // }
-            Method constructor = phpClass.getConstructor();
-            if(constructor == null) {
-                continue;
-            }
-
-            for (FieldReference fieldReference : PsiTreeUtil.collectElementsOfType(constructor, FieldReference.class)) {
-                String canonicalText = fieldReference.getCanonicalText();
-                if(!"declaredRoutes".equals(canonicalText)) {
-                    continue;
-                }
-
-                PsiElement assignExpression = fieldReference.getParent();
-                if(!(assignExpression instanceof AssignmentExpression)) {
-                    continue;
-                }
-
-                PhpPsiElement value = ((AssignmentExpression) assignExpression).getValue();
-                if(!(value instanceof ArrayCreationExpression)) {
-                    continue;
-                }
-
-                collectRoutesOnArrayCreation(routes, (ArrayCreationExpression) value);
-            }
-        }
-
-        return routes;
-    }
-
-    /**
-     * Collects routes in:
-     *
-     * array(
-     *  _wdt' => array(..)
-     * }
-     *
-     */
-    private static void collectRoutesOnArrayCreation(@NotNull Map<String, Route> routes, @NotNull ArrayCreationExpression defaultValue) {
-        for(ArrayHashElement arrayHashElement: defaultValue.getHashElements()) {
-            PsiElement hashKey = arrayHashElement.getKey();
-            if(!(hashKey instanceof StringLiteralExpression)) {
-                continue;
-            }
-
-            String routeName = ((StringLiteralExpression) hashKey).getContents();
-            if(!isProductionRouteName(routeName)) {
-                continue;
-            }
-
-            routeName = convertLanguageRouteName(routeName);
-            PsiElement hashValue = arrayHashElement.getValue();
-            if(hashValue instanceof ArrayCreationExpression) {
-                routes.put(routeName, convertRouteConfig(routeName, (ArrayCreationExpression) hashValue));
-            }
-        }
-    }
-
-    @NotNull
-    private static Route convertRouteConfig(@NotNull String routeName, @NotNull ArrayCreationExpression hashValue) {
-        List<ArrayHashElement> hashElementCollection = makeCollection(hashValue.getHashElements());
-
-        Set<String> variables = new HashSet<>();
-        if(hashElementCollection.size() >= 1 && hashElementCollection.get(0).getValue() instanceof ArrayCreationExpression) {
-            ArrayCreationExpression value = (ArrayCreationExpression) hashElementCollection.get(0).getValue();
-            if(value != null) {
-                variables.addAll(PhpElementsUtil.getArrayKeyValueMap(value).values());
-            }
-        }
-
-        Map<String, String> defaults = new HashMap<>();
-        if(hashElementCollection.size() >= 2 && hashElementCollection.get(1).getValue() instanceof ArrayCreationExpression) {
-            ArrayCreationExpression value = (ArrayCreationExpression) hashElementCollection.get(1).getValue();
-            if(value != null) {
-                defaults = PhpElementsUtil.getArrayKeyValueMap(value);
-            }
-        }
-
-        Map<String, String>requirements = new HashMap<>();
-        if(hashElementCollection.size() >= 3 && hashElementCollection.get(2).getValue() instanceof ArrayCreationExpression) {
-            ArrayCreationExpression value = (ArrayCreationExpression) hashElementCollection.get(2).getValue();
-            if(value != null) {
-                requirements = PhpElementsUtil.getArrayKeyValueMap(value);
-            }
-        }
-
-        List<Collection<String>> tokens = new ArrayList<>();
-        if(hashElementCollection.size() >= 4 && hashElementCollection.get(3).getValue() instanceof ArrayCreationExpression) {
-            ArrayCreationExpression tokenArray = (ArrayCreationExpression) hashElementCollection.get(3).getValue();
-            if(tokenArray != null) {
-                for(ArrayHashElement tokenArrayConfig: tokenArray.getHashElements()) {
-                    if(tokenArrayConfig.getValue() instanceof ArrayCreationExpression) {
-                        Map<String, String> arrayKeyValueMap = PhpElementsUtil.getArrayKeyValueMap((ArrayCreationExpression) tokenArrayConfig.getValue());
-                        tokens.add(arrayKeyValueMap.values());
-                    }
-                }
-            }
-
-        }
-
-        // hostTokens = 4 need them?
-        return new Route(routeName, variables, defaults, requirements, tokens);
+        return UrlGeneratorParser.parse(psiFile.getViewProvider().getContents());
     }
 
-    private static boolean isProductionRouteName(String routeName) {
+    static boolean isProductionRouteName(@NotNull String routeName) {
         return !routeName.matches("_assetic_[0-9a-z]+[_\\d+]*");
     }
 
     /**
      * support I18nRoutingBundle
      */
-    private static String convertLanguageRouteName(String routeName) {
+    @NotNull
+    static String convertLanguageRouteName(@NotNull String routeName) {
 
         if(routeName.matches("^[a-z]{2}__RG__.*$")) {
             routeName = routeName.replaceAll("^[a-z]{2}+__RG__", "");
@@ -810,15 +578,13 @@ public class RouteHelper {
         ContainerUtil.addIfNotNull(routeNames, RouteHelper.convertMethodToRouteControllerName(method));
         ContainerUtil.addIfNotNull(routeNames, RouteHelper.convertMethodToRouteShortcutControllerName(method));
 
-        Map<String, Route> allRoutes = getAllRoutes(method.getProject());
+        RouteEngine routeEngine = RouteEngine.getInstance(method.getProject());
+        Map<String, Route> allRoutes = routeEngine.getRoutes();
         List<Route> routes = new ArrayList<>();
 
         // resolve indexed routes
-        if(routeNames.size() > 0) {
-            routes.addAll(allRoutes.values().stream()
-                .filter(route -> route.getController() != null && routeNames.contains(route.getController()))
-                .collect(Collectors.toList())
-            );
+        for (String routeName : routeNames) {
+            routes.addAll(routeEngine.getRoutesByController(routeName));
         }
 
         // search for services
@@ -926,11 +692,14 @@ public class RouteHelper {
             // copy, we are not allowed to mod list
             List<String> list = new ArrayList<>(token);
 
-            if(list.size() >= 2 && list.get(1).equals("text")) {
+            // Symfony order: ["text", "/foo"], ["variable", "/", "[^/]++", "foo"]
+            if(list.size() >= 2 && list.get(0).equals("text")) {
+                url = url.concat(list.get(1));
+            } else if(list.size() >= 4 && list.get(0).equals("variable")) {
+                url = url.concat(list.get(1) + "{" + list.get(3) + "}");
+            } else if(list.size() >= 2 && list.get(1).equals("text")) {
                 url = url.concat(list.get(0));
-            }
-
-            if(list.size() >= 4 && list.get(3).equals("variable")) {
+            } else if(list.size() >= 4 && list.get(3).equals("variable")) {
                 url = url.concat(list.get(2) + "{" + list.get(0) + "}");
             }
 
@@ -939,31 +708,12 @@ public class RouteHelper {
         return url.length() == 0 ? null : url;
     }
 
+    /**
+     * Shared lookup elements of all routes; dont modify them
+     */
+    @NotNull
     public static List<LookupElement> getRoutesLookupElements(final @NotNull Project project) {
-
-        Map<String, Route> routes = RouteHelper.getCompiledRoutes(project);
-
-        final List<LookupElement> lookupElements = new ArrayList<>();
-
-        final Set<String> uniqueSet = new HashSet<>();
-        for (Route route : routes.values()) {
-            lookupElements.add(new RouteLookupElement(route));
-            uniqueSet.add(route.getName());
-        }
-
-        for(String routeName: SymfonyProcessors.createResult(project, RoutesStubIndex.KEY, uniqueSet)) {
-            if(uniqueSet.contains(routeName)) {
-                continue;
-            }
-
-            for(StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                lookupElements.add(new RouteLookupElement(new Route(route), true));
-                uniqueSet.add(routeName);
-            }
-        }
-
-        return lookupElements;
-
+        return RouteEngine.getInstance(project).getLookupElements();
     }
 
     @NotNull
@@ -981,39 +731,8 @@ public class RouteHelper {
     }
 
     @NotNull
-    synchronized public static Map<String, Route> getAllRoutes(final @NotNull Project project) {
-        CachedValue<Map<String, Route>> cache = project.getUserData(ROUTE_CACHE);
-
-        if (cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                CachedValueProvider.Result.create(getAllRoutesProxy(project), PsiModificationTracker.MODIFICATION_COUNT),
-                false
-            );
-            project.putUserData(ROUTE_CACHE, cache);
-        }
-
-        return cache.getValue();
-    }
-
-    @NotNull
-    private static Map<String, Route> getAllRoutesProxy(@NotNull Project project) {
-
-        Map<String, Route> routes = new HashMap<>(RouteHelper.getCompiledRoutes(project));
-
-        Set<String> uniqueKeySet = new HashSet<>(routes.keySet());
-
-        for(String routeName: SymfonyProcessors.createResult(project, RoutesStubIndex.KEY, uniqueKeySet)) {
-            if(uniqueKeySet.contains(routeName)) {
-                continue;
-            }
-
-            for(StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                uniqueKeySet.add(routeName);
-                routes.put(routeName, new Route(route));
-            }
-        }
-
-        return routes;
+    public static Map<String, Route> getAllRoutes(final @NotNull Project project) {
+        return RouteEngine.getInstance(project).getRoutes();
     }
 
     /**
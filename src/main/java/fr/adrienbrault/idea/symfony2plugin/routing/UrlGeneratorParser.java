@@ -0,0 +1,122 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import fr.adrienbrault.idea.symfony2plugin.util.PhpArrayLexer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Extracts the routes of a generated UrlGenerator ("appDevUrlGenerator.php") on token level.
+ *
+ * The files are several MB of one PHP array; building PSI for them is expensive, so only the
+ * "$declaredRoutes" assignment is tokenized and read into plain maps.
+ *
+ * static private $declaredRoutes = array('_wdt' => array(...))
+ * self::$declaredRoutes = ['_wdt' => [...]]
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class UrlGeneratorParser {
+
+    private static final String DECLARED_ROUTES = "$declaredRoutes";
+
+    /**
+     * list($variables, $defaults, $requirements, $tokens, $hostTokens)
+     */
+    @NotNull
+    public static Map<String, Route> parse(@NotNull CharSequence content) {
+        Map<String, Route> routes = new HashMap<>();
+
+        String text = content.toString();
+
+        int offset = 0;
+        while((offset = text.indexOf(DECLARED_ROUTES, offset)) >= 0) {
+            offset += DECLARED_ROUTES.length();
+
+            // "$declaredRoutesFoo"
+            if(offset < text.length() && Character.isJavaIdentifierPart(text.charAt(offset))) {
+                continue;
+            }
+
+            PhpArrayLexer lexer = new PhpArrayLexer(text, offset);
+
+            // "null === self::$declaredRoutes", "self::$declaredRoutes === null"
+            if(!lexer.isChar('=')) {
+                continue;
+            }
+
+            lexer.next();
+            if(lexer.isChar('=')) {
+                continue;
+            }
+
+            Object value = lexer.value();
+            if(value instanceof Map) {
+                collectRoutes(routes, (Map<?, ?>) value);
+            }
+
+            offset = lexer.getOffset();
+        }
+
+        return routes;
+    }
+
+    private static void collectRoutes(@NotNull Map<String, Route> routes, @NotNull Map<?, ?> declaredRoutes) {
+        for (Map.Entry<?, ?> entry : declaredRoutes.entrySet()) {
+            String routeName = (String) entry.getKey();
+            if(!RouteHelper.isProductionRouteName(routeName) || !(entry.getValue() instanceof Map)) {
+                continue;
+            }
+
+            routeName = RouteHelper.convertLanguageRouteName(routeName);
+            routes.put(routeName, createRoute(routeName, (Map<?, ?>) entry.getValue()));
+        }
+    }
+
+    @NotNull
+    private static Route createRoute(@NotNull String routeName, @NotNull Map<?, ?> config) {
+        List<Object> values = new ArrayList<>(config.values());
+
+        Set<String> variables = new HashSet<>(getStrings(values, 0).values());
+        Map<String, String> defaults = getStrings(values, 1);
+        Map<String, String> requirements = getStrings(values, 2);
+
+        List<Collection<String>> tokens = new ArrayList<>();
+        if(values.size() > 3 && values.get(3) instanceof Map) {
+            for (Object token : ((Map<?, ?>) values.get(3)).values()) {
+                if(token instanceof Map) {
+                    tokens.add(getStrings((Map<?, ?>) token).values());
+                }
+            }
+        }
+
+        // hostTokens = 4 need them?
+        return new Route(routeName, variables, defaults, requirements, tokens);
+    }
+
+    @NotNull
+    private static Map<String, String> getStrings(@NotNull List<Object> values, int index) {
+        if(values.size() <= index || !(values.get(index) instanceof Map)) {
+            return new HashMap<>();
+        }
+
+        return getStrings((Map<?, ?>) values.get(index));
+    }
+
+    /**
+     * Non blank string values of an array; nested arrays, "null", numbers and constants are dropped
+     */
+    @NotNull
+    private static Map<String, String> getStrings(@NotNull Map<?, ?> array) {
+        Map<String, String> strings = new LinkedHashMap<>();
+
+        for (Map.Entry<?, ?> entry : array.entrySet()) {
+            if(entry.getValue() instanceof String && StringUtils.isNotBlank((String) entry.getValue())) {
+                strings.put((String) entry.getKey(), (String) entry.getValue());
+            }
+        }
+
+        return strings;
+    }
+}
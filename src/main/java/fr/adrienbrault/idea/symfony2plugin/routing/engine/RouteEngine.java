@@ -0,0 +1,165 @@
+package fr.adrienbrault.idea.symfony2plugin.routing.engine;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteLookupElement;
+import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SingleFlightCachedValue;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable lookup structure of all project routes; built once per routing change.
+ *
+ * Paths are stored in a segment trie for "which route matches this url" and controllers are mapped to their routes. Lookup elements are created once and shared by every completion.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class RouteEngine {
+
+    private static final Key<SingleFlightCachedValue<RouteEngine>> ROUTE_ENGINE = new Key<>("SYMFONY:ROUTE_ENGINE");
+
+    /**
+     * "/app_dev.php/foo", "/index.php/foo"
+     */
+    private static final Pattern FRONT_CONTROLLER = Pattern.compile("^/[\\w-]+\\.php(?=/|$)");
+
+    @NotNull
+    private final Map<String, Route> routes;
+
+    @NotNull
+    private final Map<String, Collection<Route>> controllers = new HashMap<>();
+
+    @NotNull
+    private final RoutePathTrie paths = new RoutePathTrie();
+
+    @NotNull
+    private final List<LookupElement> lookupElements;
+
+    /**
+     * @param routes compiled routes
+     * @param weakRoutes indexed routes; a compiled route with the same name wins
+     */
+    public RouteEngine(@NotNull Map<String, Route> routes, @NotNull Map<String, Route> weakRoutes) {
+        Map<String, Route> all = new HashMap<>(weakRoutes);
+        all.putAll(routes);
+
+        List<LookupElement> lookupElements = new ArrayList<>();
+
+        for (Route route : all.values()) {
+            String controller = route.getController();
+            if(controller != null) {
+                controllers.computeIfAbsent(controller, s -> new ArrayList<>()).add(route);
+            }
+
+            String path = RouteHelper.getRouteUrl(route);
+            if(path != null) {
+                paths.add(route, path);
+            }
+
+            lookupElements.add(new RouteLookupElement(route, !routes.containsKey(route.getName())));
+        }
+
+        this.routes = Collections.unmodifiableMap(all);
+        this.lookupElements = Collections.unmodifiableList(lookupElements);
+    }
+
+    @NotNull
+    public static RouteEngine getInstance(@NotNull Project project) {
+        return SingleFlightCachedValue.getInstance(project, ROUTE_ENGINE, SymfonyModificationTrackers.getRoutingTracker(project), () ->
+            create(project)
+        ).getValue();
+    }
+
+    @NotNull
+    private static RouteEngine create(@NotNull Project project) {
+        Map<String, Route> routes = RouteHelper.getCompiledRoutes(project);
+
+        Map<String, Route> weakRoutes = new HashMap<>();
+        for(String routeName: SymfonyProcessors.createResult(project, RoutesStubIndex.KEY, routes.keySet())) {
+            if(routes.containsKey(routeName)) {
+                continue;
+            }
+
+            for(StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
+                weakRoutes.put(routeName, new Route(route));
+            }
+        }
+
+        return new RouteEngine(routes, weakRoutes);
+    }
+
+    /**
+     * All routes by name; not modifiable
+     */
+    @NotNull
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    @Nullable
+    public Route getRoute(@NotNull String name) {
+        return routes.get(name);
+    }
+
+    /**
+     * "Foo\Bar::fooAction", "foo_service:fooAction"
+     */
+    @NotNull
+    public Collection<Route> getRoutesByController(@NotNull String controller) {
+        return Collections.unmodifiableCollection(controllers.getOrDefault(controller, Collections.emptyList()));
+    }
+
+    /**
+     * Routes matching an url or path, most specific first
+     *
+     * "http://localhost/app_dev.php/blog/1?foo=bar", "/blog/1"
+     */
+    @NotNull
+    public Collection<Route> match(@NotNull String url) {
+        return paths.match(getPath(url));
+    }
+
+    /**
+     * Lookup elements of all routes, shared between invocations and so not modifiable.
+     * Decorate them for a custom insert handler
+     */
+    @NotNull
+    public List<LookupElement> getLookupElements() {
+        return lookupElements;
+    }
+
+    /**
+     * "http://localhost/app_dev.php/blog/1?foo=bar#foo" => "/blog/1"
+     */
+    @NotNull
+    static String getPath(@NotNull String url) {
+        String path = url;
+
+        if(path.contains("://")) {
+            try {
+                path = new URL(path).getPath();
+            } catch (MalformedURLException ignored) {
+            }
+        }
+
+        path = StringUtils.substringBefore(StringUtils.substringBefore(path, "#"), "?");
+        path = FRONT_CONTROLLER.matcher(path).replaceFirst("");
+
+        return path.startsWith("/") ? path : "/" + path;
+    }
+}
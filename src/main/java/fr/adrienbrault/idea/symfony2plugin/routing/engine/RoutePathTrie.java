@@ -0,0 +1,205 @@
+package fr.adrienbrault.idea.symfony2plugin.routing.engine;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Route paths split by "/" into a segment tree: static segments are hash lookups, segments with placeholders
+ * are compiled once into a pattern using the requirements of the route.
+ *
+ * "/blog/{page}" => "blog" -> "{page}"
+ * "/blog/{slug}.{_format}" => "blog" -> "([^/]+)\.([^/]+)"
+ *
+ * Trailing placeholders with a default are optional like in the Symfony UrlMatcher: "/blog/{page}" with a default
+ * for "page" also matches "/blog".
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class RoutePathTrie {
+
+    /**
+     * "{page}", "{!page}", "{page<\d+>}", "{page?1}", "{page<\d+>?1}"
+     */
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{!?(\\w+)(?:<(.*?)>)?(\\?[^}]*)?}");
+
+    private static final String DEFAULT_REQUIREMENT = "[^/]+";
+
+    @NotNull
+    private final Node root = new Node();
+
+    public void add(@NotNull Route route, @NotNull String path) {
+        List<String> segments = split(path);
+
+        // a node for every matched segment count; "nodes[0]" is the root
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(root);
+
+        Node node = root;
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+
+            if(!segment.contains("{")) {
+                node = node.statics.computeIfAbsent(segment, s -> new Node());
+                nodes.add(node);
+                continue;
+            }
+
+            Pattern pattern = compileSegment(route, segment);
+            if(pattern == null) {
+                return;
+            }
+
+            // "{path}" with a requirement like ".+" eats all following segments
+            boolean tail = i == segments.size() - 1 && matchesSlash(pattern);
+
+            node = node.getDynamic(pattern, tail);
+            nodes.add(node);
+        }
+
+        int terminal = segments.size();
+        while(terminal > 0 && isOptional(route, segments.get(terminal - 1))) {
+            terminal--;
+        }
+
+        for (int i = terminal; i < nodes.size(); i++) {
+            nodes.get(i).routes.add(route);
+        }
+    }
+
+    /**
+     * Routes which match the path; most specific first: static segments are preferred over placeholders
+     */
+    @NotNull
+    public Collection<Route> match(@NotNull String path) {
+        Set<Route> routes = new LinkedHashSet<>();
+        match(root, split(path), 0, routes);
+        return routes;
+    }
+
+    private static void match(@NotNull Node node, @NotNull List<String> segments, int index, @NotNull Set<Route> routes) {
+        if(index == segments.size()) {
+            routes.addAll(node.routes);
+            return;
+        }
+
+        String segment = segments.get(index);
+
+        Node child = node.statics.get(segment);
+        if(child != null) {
+            match(child, segments, index + 1, routes);
+        }
+
+        for (Dynamic dynamic : node.dynamics) {
+            if(dynamic.tail) {
+                if(dynamic.pattern.matcher(StringUtils.join(segments.subList(index, segments.size()), "/")).matches()) {
+                    routes.addAll(dynamic.node.routes);
+                }
+            } else if(dynamic.pattern.matcher(segment).matches()) {
+                match(dynamic.node, segments, index + 1, routes);
+            }
+        }
+    }
+
+    @Nullable
+    private static Pattern compileSegment(@NotNull Route route, @NotNull String segment) {
+        StringBuilder regex = new StringBuilder();
+
+        Matcher matcher = PLACEHOLDER.matcher(segment);
+
+        int last = 0;
+        while(matcher.find()) {
+            if(matcher.start() > last) {
+                regex.append(Pattern.quote(segment.substring(last, matcher.start())));
+            }
+
+            String requirement = matcher.group(2);
+            if(StringUtils.isBlank(requirement)) {
+                requirement = route.getRequirements().get(matcher.group(1));
+            }
+
+            regex.append("(").append(StringUtils.isNotBlank(requirement) ? requirement : DEFAULT_REQUIREMENT).append(")");
+            last = matcher.end();
+        }
+
+        if(last < segment.length()) {
+            regex.append(Pattern.quote(segment.substring(last)));
+        }
+
+        try {
+            return Pattern.compile(regex.toString());
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesSlash(@NotNull Pattern pattern) {
+        return pattern.pattern().contains(".*") || pattern.pattern().contains(".+");
+    }
+
+    /**
+     * Segment is a single placeholder with a default value
+     */
+    private static boolean isOptional(@NotNull Route route, @NotNull String segment) {
+        Matcher matcher = PLACEHOLDER.matcher(segment);
+        if(!matcher.matches()) {
+            return false;
+        }
+
+        return matcher.group(3) != null || route.getDefaults().containsKey(matcher.group(1));
+    }
+
+    /**
+     * "/foo//bar/" => ["foo", "bar"]
+     */
+    @NotNull
+    private static List<String> split(@NotNull String path) {
+        return Arrays.asList(StringUtils.split(path, "/"));
+    }
+
+    private static class Node {
+        @NotNull
+        private final Map<String, Node> statics = new HashMap<>();
+
+        @NotNull
+        private final List<Dynamic> dynamics = new ArrayList<>();
+
+        @NotNull
+        private final Set<Route> routes = new LinkedHashSet<>();
+
+        @NotNull
+        private Node getDynamic(@NotNull Pattern pattern, boolean tail) {
+            for (Dynamic dynamic : dynamics) {
+                if(dynamic.tail == tail && dynamic.pattern.pattern().equals(pattern.pattern())) {
+                    return dynamic.node;
+                }
+            }
+
+            Dynamic dynamic = new Dynamic(pattern, tail);
+            dynamics.add(dynamic);
+
+            return dynamic.node;
+        }
+    }
+
+    private static class Dynamic {
+        @NotNull
+        private final Pattern pattern;
+
+        private final boolean tail;
+
+        @NotNull
+        private final Node node = new Node();
+
+        private Dynamic(@NotNull Pattern pattern, boolean tail) {
+            this.pattern = pattern;
+            this.tail = tail;
+        }
+    }
+}
@@ -1,22 +1,24 @@
 package fr.adrienbrault.idea.symfony2plugin.stubs;
 
+import com.intellij.ide.highlighter.XmlFileType;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.util.CachedValue;
 import com.intellij.util.indexing.FileBasedIndex;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerParameter;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceIdLookup;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ContainerBuilderCall;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceParameterCollector;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceParameterCollectorParameter;
-import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalFileIndexCache;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerBuilderStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
@@ -25,6 +27,7 @@ import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.YAMLFileType;
 
 import java.util.*;
 
@@ -33,11 +36,7 @@ import java.util.*;
  */
 public class ContainerCollectionResolver {
 
-    private static final Key<CachedValue<Map<String, List<ServiceSerializable>>>> SERVICE_CONTAINER_INDEX = new Key<>("SYMFONY_SERVICE_CONTAINER_INDEX");
-    private static final Key<CachedValue<Map<String, List<String>>>> SERVICE_PARAMETER_INDEX = new Key<>("SERVICE_PARAMETER_INDEX");
-
-    private static final Key<CachedValue<Set<String>>> SERVICE_CONTAINER_INDEX_NAMES = new Key<>("SYMFONY_SERVICE_CONTAINER_INDEX_NAMES");
-    private static final Key<CachedValue<Set<String>>> SERVICE_PARAMETER_INDEX_NAMES = new Key<>("SERVICE_PARAMETER_INDEX_NAMES");
+    private static final Key<ServiceIdLookupCache> SERVICE_ID_LOOKUP = new Key<>("SYMFONY_SERVICE_ID_LOOKUP");
 
     private static final ExtensionPointName<fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector> EXTENSIONS = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector"
@@ -52,8 +51,38 @@ public class ContainerCollectionResolver {
     }
 
     public static boolean hasServiceNames(@NotNull Project project, @NotNull String serviceName) {
-        // @TODO: we dont need a collection here; stop on first match
-        return ServiceCollector.create(project).getNames().contains(serviceName);
+        if(getServiceIdLookup(project).contains(serviceName)) {
+            return true;
+        }
+
+        // extension points only provide a few ids, which are not part of a container generation
+        Set<String> serviceNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        ServiceCollector.collectExtensionIds(project, serviceNames);
+
+        return serviceNames.contains(serviceName);
+    }
+
+    /**
+     * Ids of compiled container and indexed services; rebuild only if one of them has changed
+     */
+    @NotNull
+    private static ServiceIdLookup getServiceIdLookup(@NotNull Project project) {
+        ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap();
+
+        // sync index first: the generation must not be newer than the keys we read after it
+        IncrementalFileIndexCache<ServiceSerializable> indexCache = getServiceIndexCache(project);
+        indexCache.getValues();
+        long indexGeneration = indexCache.getGeneration();
+
+        ServiceIdLookupCache cache = project.getUserData(SERVICE_ID_LOOKUP);
+        if(cache != null && cache.serviceMap == serviceMap && cache.indexGeneration == indexGeneration) {
+            return cache.lookup;
+        }
+
+        ServiceIdLookup lookup = ServiceIdLookup.create(Arrays.asList(serviceMap.getIds(), indexCache.getKeys()));
+        project.putUserData(SERVICE_ID_LOOKUP, new ServiceIdLookupCache(serviceMap, indexGeneration, lookup));
+
+        return lookup;
     }
 
     @Nullable
@@ -128,6 +157,19 @@ public class ContainerCollectionResolver {
         return ParameterCollector.create(project).getNames();
     }
 
+    /**
+     * Indexed services of all yaml and xml files; patched per changed file instead of a rebuild on every PSI change
+     */
+    @NotNull
+    private static IncrementalFileIndexCache<ServiceSerializable> getServiceIndexCache(@NotNull Project project) {
+        return IncrementalFileIndexCache.getInstance(project, ServicesDefinitionStubIndex.KEY, XmlFileType.INSTANCE, YAMLFileType.YML);
+    }
+
+    @NotNull
+    private static IncrementalFileIndexCache<String> getParameterIndexCache(@NotNull Project project) {
+        return IncrementalFileIndexCache.getInstance(project, ContainerParameterStubIndex.KEY, XmlFileType.INSTANCE, YAMLFileType.YML);
+    }
+
     public static class ServiceCollector {
 
         @NotNull
@@ -200,7 +242,7 @@ public class ContainerCollectionResolver {
                 exps.forEach(service -> services.put(service.getId(), new ContainerService(service, null)));
             }
 
-            for (Map.Entry<String, List<ServiceSerializable>> entry : FileIndexCaches.getSetDataCache(project, SERVICE_CONTAINER_INDEX, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
+            for (Map.Entry<String, List<ServiceSerializable>> entry : getServiceIndexCache(project).getValues().entrySet()) {
 
                 // dont work twice on service;
                 // @TODO: to need to optimize this to decorate as much service data as possible
@@ -329,6 +371,18 @@ public class ContainerCollectionResolver {
             );
 
             // Extension points
+            collectExtensionIds(project, serviceNames);
+
+            // index
+            serviceNames.addAll(
+                getServiceIndexCache(project).getKeys()
+            );
+
+            return serviceNames;
+        }
+
+
+        private static void collectExtensionIds(@NotNull Project project, @NotNull Collection<String> serviceNames) {
             ServiceCollectorParameter.Id parameter = null;
             for (fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector collectorEx : EXTENSIONS.getExtensions()) {
                 if(parameter == null) {
@@ -337,16 +391,8 @@ public class ContainerCollectionResolver {
 
                 collectorEx.collectIds(parameter);
             }
-
-            // index
-            serviceNames.addAll(
-                FileIndexCaches.getIndexKeysCache(project, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY)
-            );
-
-            return serviceNames;
         }
 
-
         private ParameterCollector getParameterCollector() {
             return (this.parameterCollector != null) ? this.parameterCollector : (this.parameterCollector = ParameterCollector.create(this.project));
         }
@@ -390,7 +436,7 @@ public class ContainerCollectionResolver {
                 paramOrClassName = paramOrClassName.substring(1, paramOrClassName.length() - 1);
 
                 // parameter is always lower see #179
-                paramOrClassName = paramOrClassName.toLowerCase();
+                paramOrClassName = paramOrClassName.toLowerCase(Locale.ROOT);
 
                 if(this.getParameters().containsKey(paramOrClassName)) {
                     return getParameters().get(paramOrClassName).getValue();
@@ -424,7 +470,7 @@ public class ContainerCollectionResolver {
             }
 
             // index
-            for (Map.Entry<String, List<String>> entry : FileIndexCaches.getStringDataCache(project, SERVICE_PARAMETER_INDEX, SERVICE_PARAMETER_INDEX_NAMES, ContainerParameterStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
+            for (Map.Entry<String, List<String>> entry : getParameterIndexCache(project).getValues().entrySet()) {
                 String parameterName = entry.getKey();
                 // just for secure
                 if(parameterName == null) {
@@ -494,7 +540,7 @@ public class ContainerCollectionResolver {
 
             // index
             parameterNames.addAll(
-                FileIndexCaches.getIndexKeysCache(project, SERVICE_PARAMETER_INDEX_NAMES, ContainerParameterStubIndex.KEY)
+                getParameterIndexCache(project).getKeys()
             );
 
             // setParameter("foo") for ContainerBuilder
@@ -511,4 +557,19 @@ public class ContainerCollectionResolver {
 
     }
 
+    private static class ServiceIdLookupCache {
+        @NotNull
+        private final ServiceMap serviceMap;
+
+        private final long indexGeneration;
+
+        @NotNull
+        private final ServiceIdLookup lookup;
+
+        private ServiceIdLookupCache(@NotNull ServiceMap serviceMap, long indexGeneration, @NotNull ServiceIdLookup lookup) {
+            this.serviceMap = serviceMap;
+            this.indexGeneration = indexGeneration;
+            this.lookup = lookup;
+        }
+    }
 }
@@ -47,7 +47,7 @@ public class ServiceIndexUtil {
 
         final List<VirtualFile> virtualFiles = new ArrayList<>();
 
-        FileBasedIndex.getInstance().getFilesWithKey(ServicesDefinitionStubIndex.KEY, new HashSet<>(Collections.singletonList(serviceName.toLowerCase())), virtualFile -> {
+        FileBasedIndex.getInstance().getFilesWithKey(ServicesDefinitionStubIndex.KEY, new HashSet<>(Collections.singletonList(serviceName.toLowerCase(Locale.ROOT))), virtualFile -> {
             virtualFiles.add(virtualFile);
             return true;
         }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), XmlFileType.INSTANCE, YAMLFileType.YML));
@@ -3,9 +3,6 @@ package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.util.CachedValue;
-import com.intellij.psi.util.CachedValueProvider;
-import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.intellij.util.indexing.ID;
@@ -21,6 +18,8 @@ import java.util.Set;
  * All FileBasedIndex are slow and cross project data, we need them every often
  * Cache values as long nothing globally change in our project.
  *
+ * Keys are only the identity of the cache; values are computed once for all concurrent requesters
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class FileIndexCaches {
@@ -29,76 +28,49 @@ public class FileIndexCaches {
      * @param dataHolderKey Main data to cache
      * @param dataHolderNames Cache extracted name Set
      */
-    static public synchronized <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<T>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
-
-        CachedValue<Map<String, List<T>>> cache = project.getUserData(dataHolderKey);
-
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(() -> {
-                Map<String, List<T>> items = new HashMap<>();
-
-                final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-
-                getIndexKeysCache(project, dataHolderNames, ID).stream().forEach(service ->
-                    items.put(service, fileBasedIndex.getValues(ID, service, scope))
-                );
+    static public <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<?> dataHolderKey, final @NotNull Key<?> dataHolderNames, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
+        return SingleFlightCachedValue.getInstance(project, dataHolderKey, PsiModificationTracker.SERVICE.getInstance(project), () -> {
+            Map<String, List<T>> items = new HashMap<>();
 
-                return CachedValueProvider.Result.create(items, PsiModificationTracker.MODIFICATION_COUNT);
-            }, false);
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
 
-            project.putUserData(dataHolderKey, cache);
-        }
+            getIndexKeysCache(project, dataHolderNames, ID).stream().forEach(service ->
+                items.put(service, fileBasedIndex.getValues(ID, service, scope))
+            );
 
-        return cache.getValue();
+            return items;
+        }).getValue();
     }
 
     /**
      * @param dataHolderKey Main data to cache
      * @param dataHolderNames Cache extracted name Set
      */
-    static public synchronized Map<String, List<String>> getStringDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<String>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, String> ID, @NotNull final GlobalSearchScope scope) {
-
-        CachedValue<Map<String, List<String>>> cache = project.getUserData(dataHolderKey);
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(() -> {
-
-                Map<String, List<String>> strings = new HashMap<>();
-
-                final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-                getIndexKeysCache(project, dataHolderNames, ID).stream().forEach(parameterName -> {
-                    // just for secure
-                    if(parameterName == null) {
-                        return;
-                    }
-
-                    strings.put(parameterName, fileBasedIndex.getValues(ID, parameterName, scope));
-                });
-
-                return CachedValueProvider.Result.create(strings, PsiModificationTracker.MODIFICATION_COUNT);
-            }, false);
-
-            project.putUserData(dataHolderKey, cache);
-        }
-
-        return cache.getValue();
+    static public Map<String, List<String>> getStringDataCache(@NotNull final Project project, @NotNull Key<?> dataHolderKey, final @NotNull Key<?> dataHolderNames, @NotNull final ID<String, String> ID, @NotNull final GlobalSearchScope scope) {
+        return SingleFlightCachedValue.getInstance(project, dataHolderKey, PsiModificationTracker.SERVICE.getInstance(project), () -> {
+            Map<String, List<String>> strings = new HashMap<>();
+
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+            getIndexKeysCache(project, dataHolderNames, ID).stream().forEach(parameterName -> {
+                // just for secure
+                if(parameterName == null) {
+                    return;
+                }
+
+                strings.put(parameterName, fileBasedIndex.getValues(ID, parameterName, scope));
+            });
+
+            return strings;
+        }).getValue();
     }
 
     /**
      * There several methods that just need to check for names, as they also needed for value extraction, so cache them also
      */
-    static public synchronized Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<CachedValue<Set<String>>> dataHolderKey, @NotNull final ID<String, ?> ID) {
-
-        CachedValue<Set<String>> cache = project.getUserData(dataHolderKey);
-
-        if(cache == null) {
-            cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                CachedValueProvider.Result.create(SymfonyProcessors.createResult(project, ID), PsiModificationTracker.MODIFICATION_COUNT), false
-            );
-
-            project.putUserData(dataHolderKey, cache);
-        }
-
-        return cache.getValue();
+    static public Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<?> dataHolderKey, @NotNull final ID<String, ?> ID) {
+        return SingleFlightCachedValue.getInstance(project, dataHolderKey, PsiModificationTracker.SERVICE.getInstance(project), () ->
+            SymfonyProcessors.createResult(project, ID)
+        ).getValue();
     }
 
 }
@@ -0,0 +1,318 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Merged values of a FileBasedIndex over all files, which are patched file by file.
+ *
+ * A global PSI change does not drop the model: only files reported as changed by PSI or VFS events
+ * are read again via "FileBasedIndex.getFileData". A full rebuild is only done on first access,
+ * on project root changes and after indexing finished.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class IncrementalFileIndexCache<T> {
+
+    private static final Key<ConcurrentMap<ID<String, ?>, IncrementalFileIndexCache<?>>> CACHES = new Key<>("SYMFONY_INCREMENTAL_FILE_INDEX_CACHES");
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final ID<String, T> id;
+
+    @NotNull
+    private final Collection<FileType> fileTypes;
+
+    /**
+     * Index values of every file; needed to remove outdated keys of a changed file. Read by change events, so concurrent
+     */
+    @NotNull
+    private final Map<VirtualFile, Map<String, T>> fileValues = new ConcurrentHashMap<>();
+
+    @NotNull
+    private final Map<String, Map<VirtualFile, T>> keyValues = new HashMap<>();
+
+    @NotNull
+    private final Set<VirtualFile> dirtyFiles = ContainerUtil.newConcurrentSet();
+
+    @NotNull
+    private final Set<String> pendingKeys = new HashSet<>();
+
+    @NotNull
+    private volatile Map<String, List<T>> values = Collections.emptyMap();
+
+    /**
+     * Same snapshot as "values" but with the providing file of every value
+     */
+    @NotNull
+    private volatile Map<String, Map<VirtualFile, T>> files = Collections.emptyMap();
+
+    private volatile boolean invalid = true;
+
+    private volatile long rootModificationCount = -1;
+
+    private volatile long generation = 0;
+
+    @NotNull
+    private final CacheMetric metric;
+
+    private IncrementalFileIndexCache(@NotNull Project project, @NotNull ID<String, T> id, @NotNull Collection<FileType> fileTypes) {
+        this.project = project;
+        this.id = id;
+        this.fileTypes = fileTypes;
+        this.metric = CacheMetrics.get(IncrementalFileIndexCache.class, id.getName());
+    }
+
+    /**
+     * @param fileTypes all file types which are provided by the index input filter
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <T> IncrementalFileIndexCache<T> getInstance(@NotNull Project project, @NotNull ID<String, T> id, @NotNull FileType... fileTypes) {
+        ConcurrentMap<ID<String, ?>, IncrementalFileIndexCache<?>> caches = project.getUserData(CACHES);
+        if(caches == null) {
+            ConcurrentMap<ID<String, ?>, IncrementalFileIndexCache<?>> created = ContainerUtil.newConcurrentMap();
+            caches = ((UserDataHolderEx) project).putUserDataIfAbsent(CACHES, created);
+
+            // first cache for this project; attach the listener which feeds all caches with changed files
+            if(caches == created) {
+                IncrementalFileIndexCacheListener.register(project);
+            }
+        }
+
+        return (IncrementalFileIndexCache<T>) caches.computeIfAbsent(id, k -> new IncrementalFileIndexCache<>(project, id, Arrays.asList(fileTypes)));
+    }
+
+    @NotNull
+    static Collection<IncrementalFileIndexCache<?>> getInstances(@NotNull Project project) {
+        ConcurrentMap<ID<String, ?>, IncrementalFileIndexCache<?>> caches = project.getUserData(CACHES);
+        if(caches == null) {
+            return Collections.emptyList();
+        }
+
+        return caches.values();
+    }
+
+    /**
+     * Drops the snapshots of all caches of the project; the next access reads the whole index again
+     */
+    public static void invalidate(@NotNull Project project) {
+        for (IncrementalFileIndexCache<?> cache : getInstances(project)) {
+            cache.markInvalid();
+        }
+    }
+
+    /**
+     * Index key to all its values of the whole project, restricted to the file types of the cache;
+     * the map is an immutable snapshot of the current generation
+     */
+    @NotNull
+    public Map<String, List<T>> getValues() {
+        metric.request();
+
+        if(isUpToDate()) {
+            return this.values;
+        }
+
+        synchronized (this) {
+            long start = System.nanoTime();
+
+            GlobalSearchScope scope = GlobalSearchScope.getScopeRestrictedByFileTypes(
+                GlobalSearchScope.allScope(project),
+                this.fileTypes.toArray(new FileType[0])
+            );
+
+            if(this.invalid || this.rootModificationCount != ProjectRootManager.getInstance(project).getModificationCount()) {
+                rebuild(scope);
+                metric.rebuild(start, this.values.size());
+            } else if(!this.dirtyFiles.isEmpty()) {
+                patch(scope);
+                metric.rebuild(start, this.values.size());
+            }
+
+            return this.values;
+        }
+    }
+
+    @NotNull
+    public Set<String> getKeys() {
+        return getValues().keySet();
+    }
+
+    /**
+     * Files providing the given key with their value; part of the same snapshot as "getValues"
+     */
+    @NotNull
+    public Map<VirtualFile, T> getFileValues(@NotNull String key) {
+        getValues();
+        return this.files.getOrDefault(key, Collections.emptyMap());
+    }
+
+    /**
+     * Increments every time a new snapshot is published; lets depending models rebuild only on real changes
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Known files are always dirty: a renamed file can have lost its file type, eg "services.yml.bak"
+     */
+    void markDirty(@NotNull VirtualFile virtualFile) {
+        if(!this.invalid && (this.fileTypes.contains(virtualFile.getFileType()) || this.fileValues.containsKey(virtualFile))) {
+            this.dirtyFiles.add(virtualFile);
+        }
+    }
+
+    void markInvalid() {
+        this.invalid = true;
+    }
+
+    private boolean isUpToDate() {
+        return !this.invalid
+            && this.dirtyFiles.isEmpty()
+            && this.rootModificationCount == ProjectRootManager.getInstance(project).getModificationCount();
+    }
+
+    private void rebuild(@NotNull GlobalSearchScope scope) {
+        // events during rebuild are already part of the index we are reading now
+        this.dirtyFiles.clear();
+        this.invalid = false;
+
+        long modificationCount = ProjectRootManager.getInstance(project).getModificationCount();
+
+        Map<VirtualFile, Map<String, T>> fileValues = new HashMap<>();
+
+        try {
+            FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+
+            Set<String> keys = new HashSet<>();
+            fileBasedIndex.processAllKeys(id, key -> {
+                keys.add(key);
+                return true;
+            }, project);
+
+            for (String key : keys) {
+                fileBasedIndex.processValues(id, key, null, (virtualFile, value) -> {
+                    fileValues.computeIfAbsent(virtualFile, f -> new HashMap<>()).put(key, value);
+                    return true;
+                }, scope);
+            }
+        } catch (RuntimeException e) {
+            // eg ProcessCanceledException or IndexNotReadyException; next access needs to start over
+            this.invalid = true;
+            throw e;
+        }
+
+        this.fileValues.clear();
+        this.keyValues.clear();
+        this.pendingKeys.clear();
+
+        for (Map.Entry<VirtualFile, Map<String, T>> entry : fileValues.entrySet()) {
+            this.fileValues.put(entry.getKey(), entry.getValue());
+            for (Map.Entry<String, T> value : entry.getValue().entrySet()) {
+                this.keyValues.computeIfAbsent(value.getKey(), k -> new LinkedHashMap<>()).put(entry.getKey(), value.getValue());
+            }
+        }
+
+        Map<String, List<T>> values = new HashMap<>();
+        Map<String, Map<VirtualFile, T>> files = new HashMap<>();
+        for (Map.Entry<String, Map<VirtualFile, T>> entry : this.keyValues.entrySet()) {
+            values.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue().values())));
+            files.put(entry.getKey(), Collections.unmodifiableMap(new LinkedHashMap<>(entry.getValue())));
+        }
+
+        this.rootModificationCount = modificationCount;
+        publish(values, files);
+    }
+
+    private void patch(@NotNull GlobalSearchScope scope) {
+        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+
+        try {
+            for (VirtualFile virtualFile : new ArrayList<>(this.dirtyFiles)) {
+                // remove before reading: a change event during the read marks the file dirty again
+                this.dirtyFiles.remove(virtualFile);
+
+                Map<String, T> fileData = Collections.emptyMap();
+                try {
+                    if(virtualFile.isValid() && scope.contains(virtualFile)) {
+                        fileData = fileBasedIndex.getFileData(id, virtualFile, project);
+                    }
+                } catch (RuntimeException e) {
+                    // on cancel the file stays dirty and the model untouched
+                    this.dirtyFiles.add(virtualFile);
+                    throw e;
+                }
+
+                Map<String, T> previous = this.fileValues.remove(virtualFile);
+                if(previous != null) {
+                    for (String key : previous.keySet()) {
+                        Map<VirtualFile, T> values = this.keyValues.get(key);
+                        if(values != null) {
+                            values.remove(virtualFile);
+                            if(values.isEmpty()) {
+                                this.keyValues.remove(key);
+                            }
+                        }
+
+                        this.pendingKeys.add(key);
+                    }
+                }
+
+                if(fileData.isEmpty()) {
+                    continue;
+                }
+
+                this.fileValues.put(virtualFile, new HashMap<>(fileData));
+                for (Map.Entry<String, T> entry : fileData.entrySet()) {
+                    this.keyValues.computeIfAbsent(entry.getKey(), k -> new LinkedHashMap<>()).put(virtualFile, entry.getValue());
+                    this.pendingKeys.add(entry.getKey());
+                }
+            }
+        } finally {
+            // files which are already applied must be visible, also if we were canceled
+            if(!this.pendingKeys.isEmpty()) {
+                Map<String, List<T>> values = new HashMap<>(this.values);
+                Map<String, Map<VirtualFile, T>> files = new HashMap<>(this.files);
+
+                for (String key : this.pendingKeys) {
+                    Map<VirtualFile, T> keyValues = this.keyValues.get(key);
+                    if(keyValues == null) {
+                        values.remove(key);
+                        files.remove(key);
+                    } else {
+                        values.put(key, Collections.unmodifiableList(new ArrayList<>(keyValues.values())));
+                        files.put(key, Collections.unmodifiableMap(new LinkedHashMap<>(keyValues)));
+                    }
+                }
+
+                this.pendingKeys.clear();
+                publish(values, files);
+            }
+        }
+    }
+
+    private void publish(@NotNull Map<String, List<T>> values, @NotNull Map<String, Map<VirtualFile, T>> files) {
+        this.files = Collections.unmodifiableMap(files);
+        this.values = Collections.unmodifiableMap(values);
+        this.generation++;
+    }
+}
@@ -0,0 +1,121 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.*;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Feeds changed files of PSI and VFS events into all IncrementalFileIndexCache of a project
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+class IncrementalFileIndexCacheListener extends PsiTreeChangeAdapter implements BulkFileListener, DumbService.DumbModeListener {
+
+    @NotNull
+    private final Project project;
+
+    private IncrementalFileIndexCacheListener(@NotNull Project project) {
+        this.project = project;
+    }
+
+    static void register(@NotNull Project project) {
+        IncrementalFileIndexCacheListener listener = new IncrementalFileIndexCacheListener(project);
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(listener, project);
+
+        MessageBusConnection connection = project.getMessageBus().connect(project);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, listener);
+        connection.subscribe(DumbService.DUMB_MODE, listener);
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            visitFile(event.getFile());
+        }
+    }
+
+    @Override
+    public void enteredDumbMode() {
+    }
+
+    @Override
+    public void exitDumbMode() {
+        // indexes can be changed without any event we are able to track
+        for (IncrementalFileIndexCache<?> cache : IncrementalFileIndexCache.getInstances(project)) {
+            cache.markInvalid();
+        }
+    }
+
+    private void visitPsiEvent(@NotNull PsiTreeChangeEvent event) {
+        PsiFile psiFile = event.getFile();
+        if(psiFile != null) {
+            visitFile(psiFile.getVirtualFile());
+            return;
+        }
+
+        // file or directory level events: added, removed, moved or renamed
+        PsiElement element = event.getChild() != null ? event.getChild() : event.getElement();
+        if(element instanceof PsiFile) {
+            visitFile(((PsiFile) element).getVirtualFile());
+        } else if(element instanceof PsiDirectory) {
+            visitFile(((PsiDirectory) element).getVirtualFile());
+        }
+    }
+
+    private void visitFile(@Nullable VirtualFile virtualFile) {
+        Iterable<IncrementalFileIndexCache<?>> caches = IncrementalFileIndexCache.getInstances(project);
+
+        // unknown scope of change; directory move or delete can affect any file below
+        if(virtualFile == null || virtualFile.isDirectory()) {
+            for (IncrementalFileIndexCache<?> cache : caches) {
+                cache.markInvalid();
+            }
+
+            return;
+        }
+
+        for (IncrementalFileIndexCache<?> cache : caches) {
+            cache.markDirty(virtualFile);
+        }
+    }
+}
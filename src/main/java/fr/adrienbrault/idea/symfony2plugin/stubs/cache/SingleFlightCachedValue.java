@@ -0,0 +1,186 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.util.containers.ContainerUtil;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Project cache which replaces a "synchronized" CachedValue access.
+ *
+ * Up-to-date values are read without any lock. If the tracker changed, the first thread computes the value
+ * and all other requesters share its result instead of blocking on a class monitor or computing the same again.
+ * While a computation is running the UI thread gets the previous value, background threads wait for the new one;
+ * so eg highlighting never works on outdated data.
+ *
+ * A provider which requests its own value again gets the previous value; without one the value is computed
+ * directly and not shared, instead of waiting for its own computation forever.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SingleFlightCachedValue<T> {
+
+    private static final Key<ConcurrentMap<Key<?>, SingleFlightCachedValue<?>>> CACHES = new Key<>("SYMFONY_SINGLE_FLIGHT_CACHES");
+
+    @NotNull
+    private final ModificationTracker tracker;
+
+    @NotNull
+    private final Supplier<T> provider;
+
+    @Nullable
+    private volatile Value<T> value;
+
+    @NotNull
+    private final AtomicReference<FutureTask<Value<T>>> computation = new AtomicReference<>();
+
+    @Nullable
+    private volatile Thread computingThread;
+
+    @NotNull
+    private final CacheMetric metric;
+
+    public SingleFlightCachedValue(@NotNull ModificationTracker tracker, @NotNull Supplier<T> provider) {
+        this(tracker, provider, CacheMetrics.get(SingleFlightCachedValue.class));
+    }
+
+    private SingleFlightCachedValue(@NotNull ModificationTracker tracker, @NotNull Supplier<T> provider, @NotNull CacheMetric metric) {
+        this.tracker = tracker;
+        this.provider = provider;
+        this.metric = metric;
+    }
+
+    /**
+     * Project wide instance for the given key; the provider of the first call is used
+     *
+     * @param key identity of the cache only, nothing is stored with it
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <T> SingleFlightCachedValue<T> getInstance(@NotNull Project project, @NotNull Key<?> key, @NotNull ModificationTracker tracker, @NotNull Supplier<T> provider) {
+        ConcurrentMap<Key<?>, SingleFlightCachedValue<?>> caches = project.getUserData(CACHES);
+        if(caches == null) {
+            caches = ((UserDataHolderEx) project).putUserDataIfAbsent(CACHES, ContainerUtil.newConcurrentMap());
+        }
+
+        return (SingleFlightCachedValue<T>) caches.computeIfAbsent(key, k -> new SingleFlightCachedValue<>(tracker, provider, CacheMetrics.get(SingleFlightCachedValue.class, key.toString())));
+    }
+
+    public T getValue() {
+        metric.request();
+
+        while (true) {
+            Value<T> current = this.value;
+            long modificationCount = tracker.getModificationCount();
+
+            if(current != null && current.modificationCount == modificationCount) {
+                return current.value;
+            }
+
+            FutureTask<Value<T>> task = this.computation.get();
+            if(task == null) {
+                FutureTask<Value<T>> created = new FutureTask<>(() -> {
+                    // stamp before computing; a change during computation only leads to one more computation
+                    long stamp = tracker.getModificationCount();
+
+                    long start = System.nanoTime();
+                    T value = provider.get();
+                    metric.rebuild(start, CacheMetrics.getSize(value));
+
+                    return new Value<>(stamp, value);
+                });
+
+                if(!this.computation.compareAndSet(null, created)) {
+                    continue;
+                }
+
+                // we are the one who computes
+                this.computingThread = Thread.currentThread();
+                try {
+                    created.run();
+                    return publish(created);
+                } finally {
+                    this.computingThread = null;
+                    this.computation.compareAndSet(created, null);
+                }
+            }
+
+            // provider needs its own value: the task we would wait for is running below us in the stack
+            if(this.computingThread == Thread.currentThread()) {
+                if(current != null) {
+                    return current.value;
+                }
+
+                return provider.get();
+            }
+
+            // dont freeze the UI; an outdated value is shown until the computation is done
+            if(current != null && ApplicationManager.getApplication().isDispatchThread()) {
+                return current.value;
+            }
+
+            try {
+                return await(task).value;
+            } catch (ProcessCanceledException e) {
+                // computing thread was canceled, not we; start over
+                ProgressManager.checkCanceled();
+            }
+        }
+    }
+
+    private T publish(@NotNull FutureTask<Value<T>> task) {
+        Value<T> computed = await(task);
+
+        Value<T> current = this.value;
+        if(current == null || current.modificationCount <= computed.modificationCount) {
+            this.value = computed;
+        }
+
+        return computed.value;
+    }
+
+    @NotNull
+    private static <T> Value<T> await(@NotNull Future<Value<T>> future) {
+        while (true) {
+            ProgressManager.checkCanceled();
+
+            try {
+                return future.get(10, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+            } catch (InterruptedException e) {
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    private static class Value<T> {
+        private final long modificationCount;
+        private final T value;
+
+        private Value(long modificationCount, T value) {
+            this.modificationCount = modificationCount;
+            this.value = value;
+        }
+    }
+}
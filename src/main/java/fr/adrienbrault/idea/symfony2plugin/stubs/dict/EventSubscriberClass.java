@@ -0,0 +1,69 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.dict;
+
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Own class hierarchy of a possible event subscriber; names are without leading backslash
+ *
+ * class FooSubscriber extends Foo implements EventSubscriberInterface
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberClass {
+
+    @Nullable
+    private final String superClass;
+
+    @NotNull
+    private final Collection<String> interfaces;
+
+    private final boolean subscribedEventsMethod;
+
+    /**
+     * @param interfaces implemented interfaces; or the extended ones for an interface
+     * @param subscribedEventsMethod class has its own static "getSubscribedEvents"
+     */
+    public EventSubscriberClass(@Nullable String superClass, @NotNull Collection<String> interfaces, boolean subscribedEventsMethod) {
+        this.superClass = superClass;
+        this.interfaces = interfaces;
+        this.subscribedEventsMethod = subscribedEventsMethod;
+    }
+
+    @Nullable
+    public String getSuperClass() {
+        return superClass;
+    }
+
+    @NotNull
+    public Collection<String> getInterfaces() {
+        return interfaces;
+    }
+
+    public boolean hasSubscribedEventsMethod() {
+        return subscribedEventsMethod;
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+            .append(this.superClass)
+            .append(this.interfaces)
+            .append(this.subscribedEventsMethod)
+            .toHashCode()
+        ;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EventSubscriberClass &&
+            Objects.equals(((EventSubscriberClass) obj).superClass, this.superClass) &&
+            Objects.equals(((EventSubscriberClass) obj).interfaces, this.interfaces) &&
+            ((EventSubscriberClass) obj).subscribedEventsMethod == this.subscribedEventsMethod
+        ;
+    }
+}
@@ -0,0 +1,79 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.dict;
+
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * One listener of "EventSubscriberInterface::getSubscribedEvents"
+ *
+ * 'pre.foo' => ['onPreFoo', 10]
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberMethod {
+
+    @NotNull
+    private final String fqnClassName;
+
+    @Nullable
+    private final String methodName;
+
+    private final int priority;
+
+    @Nullable
+    private final String signature;
+
+    /**
+     * @param methodName method or signature of its constant: "#K#C\Foo\Bar.METHOD"
+     * @param signature constant of the event name: "#K#C\Foo\Bar.BAR"; "null" for string keys
+     */
+    public EventSubscriberMethod(@NotNull String fqnClassName, @Nullable String methodName, int priority, @Nullable String signature) {
+        this.fqnClassName = fqnClassName;
+        this.methodName = methodName;
+        this.priority = priority;
+        this.signature = signature;
+    }
+
+    @NotNull
+    public String getFqnClassName() {
+        return fqnClassName;
+    }
+
+    @Nullable
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    @Nullable
+    public String getSignature() {
+        return signature;
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+            .append(this.fqnClassName)
+            .append(this.methodName)
+            .append(this.priority)
+            .append(this.signature)
+            .toHashCode()
+        ;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EventSubscriberMethod &&
+            Objects.equals(((EventSubscriberMethod) obj).fqnClassName, this.fqnClassName) &&
+            Objects.equals(((EventSubscriberMethod) obj).methodName, this.methodName) &&
+            ((EventSubscriberMethod) obj).priority == this.priority &&
+            Objects.equals(((EventSubscriberMethod) obj).signature, this.signature)
+        ;
+    }
+}
@@ -13,7 +13,7 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.doctrine.DoctrineUtil;
 import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModel;
 import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModelSerializable;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ObjectStreamDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DoctrineModelDataExternalizer;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.YAMLFileType;
@@ -28,7 +28,6 @@ public class DoctrineMetadataFileStubIndex extends FileBasedIndexExtension<Strin
 
     public static final ID<String, DoctrineModelSerializable> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.doctrine_metadata");
     private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
-    private static ObjectStreamDataExternalizer<DoctrineModelSerializable> EXTERNALIZER = new ObjectStreamDataExternalizer<>();
 
     private static int MAX_FILE_BYTE_SIZE = 1048576;
 
@@ -83,7 +82,7 @@ public class DoctrineMetadataFileStubIndex extends FileBasedIndexExtension<Strin
     @NotNull
     @Override
     public DataExternalizer<DoctrineModelSerializable> getValueExternalizer() {
-        return EXTERNALIZER;
+        return DoctrineModelDataExternalizer.INSTANCE;
     }
 
     @NotNull
@@ -106,7 +105,7 @@ public class DoctrineMetadataFileStubIndex extends FileBasedIndexExtension<Strin
 
     @Override
     public int getVersion() {
-        return 2;
+        return 3;
     }
 
     public static boolean isValidForIndex(FileContent inputData, PsiFile psiFile) {
@@ -20,7 +20,7 @@ import com.jetbrains.php.lang.psi.elements.StringLiteralExpression;
 import com.jetbrains.php.lang.psi.elements.impl.ClassConstImpl;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.DispatcherEvent;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ObjectStreamDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DispatcherEventDataExternalizer;
 import fr.adrienbrault.idea.symfony2plugin.stubs.util.EventDispatcherUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.apache.commons.lang.StringUtils;
@@ -36,7 +36,6 @@ public class EventAnnotationStubIndex extends FileBasedIndexExtension<String, Di
 
     public static final ID<String, DispatcherEvent> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.events_annotation");
     private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
-    private static ObjectStreamDataExternalizer<DispatcherEvent> EXTERNALIZER = new ObjectStreamDataExternalizer<>();
 
     @NotNull
     @Override
@@ -71,7 +70,7 @@ public class EventAnnotationStubIndex extends FileBasedIndexExtension<String, Di
     @NotNull
     @Override
     public DataExternalizer<DispatcherEvent> getValueExternalizer() {
-        return EXTERNALIZER;
+        return DispatcherEventDataExternalizer.INSTANCE;
     }
 
     @NotNull
@@ -88,7 +87,7 @@ public class EventAnnotationStubIndex extends FileBasedIndexExtension<String, Di
 
     @Override
     public int getVersion() {
-        return 2;
+        return 3;
     }
 
     private class MyPsiRecursiveElementWalkingVisitor extends PsiRecursiveElementVisitor {
@@ -0,0 +1,136 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.ClassReference;
+import com.jetbrains.php.lang.psi.elements.Method;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberClassDataExternalizer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Own "extends" and "implements" of classes which can take part of a subscriber hierarchy; so the consumer resolves
+ * "EventSubscriberInterface" and inherited "getSubscribedEvents" methods inside this index without the PhpIndex.
+ *
+ * Only files which contain "getSubscribedEvents" or a "Subscriber" name are visited, eg
+ * "class FooSubscriber extends AbstractSubscriber" or "abstract class AbstractSubscriber implements EventSubscriberInterface"
+ *
+ * @see fr.adrienbrault.idea.symfony2plugin.config.EventDispatcherSubscriberUtil#getSubscribedEvents
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberClassStubIndex extends FileBasedIndexExtension<String, EventSubscriberClass> {
+
+    public static final ID<String, EventSubscriberClass> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.event_subscriber_class");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public ID<String, EventSubscriberClass> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, EventSubscriberClass, FileContent> getIndexer() {
+        return inputData -> {
+            String contents = inputData.getContentAsText().toString();
+            if(!contents.contains("getSubscribedEvents") && !contents.contains("Subscriber")) {
+                return Collections.emptyMap();
+            }
+
+            PsiFile psiFile = inputData.getPsiFile();
+            if(!(psiFile instanceof PhpFile) || !Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, EventSubscriberClass> map = new HashMap<>();
+
+            for (PhpClass phpClass : PsiTreeUtil.findChildrenOfType(psiFile, PhpClass.class)) {
+                String fqn = phpClass.getPresentableFQN();
+                if(fqn.contains("\\Test\\") || fqn.contains("\\Tests\\")) {
+                    continue;
+                }
+
+                String superClass = null;
+                List<String> interfaces = new ArrayList<>();
+
+                for (ClassReference reference : phpClass.getExtendsList().getReferenceElements()) {
+                    String name = getName(reference);
+                    if(name == null) {
+                        continue;
+                    }
+
+                    if(phpClass.isInterface()) {
+                        interfaces.add(name);
+                    } else {
+                        superClass = name;
+                    }
+                }
+
+                for (ClassReference reference : phpClass.getImplementsList().getReferenceElements()) {
+                    String name = getName(reference);
+                    if(name != null) {
+                        interfaces.add(name);
+                    }
+                }
+
+                Method method = phpClass.findOwnMethodByName("getSubscribedEvents");
+                boolean subscribedEventsMethod = method != null && method.isStatic();
+
+                if(superClass != null || interfaces.size() > 0 || subscribedEventsMethod) {
+                    map.put(fqn, new EventSubscriberClass(superClass, interfaces, subscribedEventsMethod));
+                }
+            }
+
+            return map;
+        };
+    }
+
+    @Nullable
+    private static String getName(@NotNull ClassReference reference) {
+        String fqn = reference.getFQN();
+        return StringUtils.isNotBlank(fqn) ? StringUtils.stripStart(fqn, "\\") : null;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<EventSubscriberClass> getValueExternalizer() {
+        return EventSubscriberClassDataExternalizer.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return file ->
+            file.getFileType() == PhpFileType.INSTANCE;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+}
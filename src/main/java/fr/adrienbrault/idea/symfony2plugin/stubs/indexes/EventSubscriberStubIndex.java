@@ -0,0 +1,259 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.parser.PhpElementTypes;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.*;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberMethod;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberMethodsDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Event names of "EventSubscriberInterface::getSubscribedEvents" with their listening class, method and priority.
+ *
+ * Constants can not be resolved while indexing: "Bar::BAR => 'method'" is stored with the constant signature
+ * "#K#C\Foo\Bar.BAR" as key, global constants with "#D\FOO". "Bar::class" is stored as class name "Foo\Bar".
+ * Method names of constants "'foo' => self::METHOD" are stored with their signature in the same way.
+ *
+ * The class hierarchy is also not available here: every class with an own static method is indexed. Implementing
+ * the interface, inherited methods and PHPUnit test classes are resolved by the consumer with the EventSubscriberClassStubIndex.
+ *
+ * @see fr.adrienbrault.idea.symfony2plugin.config.EventDispatcherSubscriberUtil#getSubscribedEvents
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberStubIndex extends FileBasedIndexExtension<String, List<EventSubscriberMethod>> {
+
+    public static final ID<String, List<EventSubscriberMethod>> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.event_subscriber");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+
+    private static final String METHOD = "getSubscribedEvents";
+
+    @NotNull
+    @Override
+    public ID<String, List<EventSubscriberMethod>> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<String, List<EventSubscriberMethod>, FileContent> getIndexer() {
+        return inputData -> {
+            // most php files are no subscriber; dont build psi for them
+            if(!StringUtils.contains(inputData.getContentAsText().toString(), METHOD)) {
+                return Collections.emptyMap();
+            }
+
+            PsiFile psiFile = inputData.getPsiFile();
+            if(!(psiFile instanceof PhpFile) || !Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
+                return Collections.emptyMap();
+            }
+
+            Map<String, List<EventSubscriberMethod>> map = new HashMap<>();
+
+            for (PhpClass phpClass : PsiTreeUtil.findChildrenOfType(psiFile, PhpClass.class)) {
+                String fqn = phpClass.getPresentableFQN();
+                if(fqn.contains("\\Test\\") || fqn.contains("\\Tests\\")) {
+                    continue;
+                }
+
+                Method method = phpClass.findOwnMethodByName(METHOD);
+                if(method == null || !method.isStatic()) {
+                    continue;
+                }
+
+                PhpReturn phpReturn = PsiTreeUtil.findChildOfType(method, PhpReturn.class);
+                if(phpReturn != null && phpReturn.getFirstPsiChild() instanceof ArrayCreationExpression) {
+                    visitSubscribedEvents(map, fqn, (ArrayCreationExpression) phpReturn.getFirstPsiChild());
+                }
+            }
+
+            return map;
+        };
+    }
+
+    /**
+     * ['pre.foo' => 'method', Bar::BAR => ['method', 10]]
+     */
+    private static void visitSubscribedEvents(@NotNull Map<String, List<EventSubscriberMethod>> map, @NotNull String fqn, @NotNull ArrayCreationExpression array) {
+        for (ArrayHashElement arrayHashElement : array.getHashElements()) {
+            PsiElement arrayKey = arrayHashElement.getKey();
+
+            String key;
+            String signature = null;
+
+            if(arrayKey instanceof StringLiteralExpression) {
+                key = ((StringLiteralExpression) arrayKey).getContents();
+            } else if(arrayKey instanceof ClassConstantReference && "class".equals(((ClassConstantReference) arrayKey).getName())) {
+                // Bar::class
+                key = PhpElementsUtil.getClassConstantPhpFqn((ClassConstantReference) arrayKey);
+                signature = ((ClassConstantReference) arrayKey).getSignature();
+            } else if(arrayKey instanceof ClassConstantReference || arrayKey instanceof ConstantReference) {
+                key = signature = ((PhpReference) arrayKey).getSignature();
+            } else {
+                continue;
+            }
+
+            if(StringUtils.isBlank(key)) {
+                continue;
+            }
+
+            List<EventSubscriberMethod> methods = map.computeIfAbsent(key, s -> new ArrayList<>());
+
+            Map<String, Integer> subscriberMethods = getSubscriberMethods(arrayHashElement.getValue());
+            if(subscriberMethods.isEmpty()) {
+                // 'pre.foo' => []
+                methods.add(new EventSubscriberMethod(fqn, null, 0, signature));
+                continue;
+            }
+
+            for (Map.Entry<String, Integer> entry : subscriberMethods.entrySet()) {
+                methods.add(new EventSubscriberMethod(fqn, entry.getKey(), entry.getValue(), signature));
+            }
+        }
+    }
+
+    /**
+     * Method names with their priority in order of declaration
+     *
+     * 'pre.foo' => 'foo'
+     * 'pre.foo1' => ['onStoreOrder', 0]
+     * 'pre.foo2' => [['onStoreOrder', 0], ['onStoreOrder2', 10]]
+     */
+    @NotNull
+    private static Map<String, Integer> getSubscriberMethods(@Nullable PhpPsiElement value) {
+        Map<String, Integer> methods = new LinkedHashMap<>();
+
+        if(isMethodName(value)) {
+            addMethod(methods, value, null);
+            return methods;
+        }
+
+        if(!(value instanceof ArrayCreationExpression)) {
+            return methods;
+        }
+
+        List<PhpPsiElement> values = getArrayValues(value);
+        if(values.isEmpty()) {
+            return methods;
+        }
+
+        if(isMethodName(values.get(0))) {
+            // 'pre.foo' => ['method', 10]
+            addMethod(methods, values.get(0), values.size() > 1 ? values.get(1) : null);
+        } else {
+            // 'pre.foo' => [['method', 10], ['method2', 20]]
+            for (PhpPsiElement listener : values) {
+                if(!(listener instanceof ArrayCreationExpression)) {
+                    continue;
+                }
+
+                List<PhpPsiElement> listenerValues = getArrayValues(listener);
+                if(listenerValues.size() > 0 && isMethodName(listenerValues.get(0))) {
+                    addMethod(methods, listenerValues.get(0), listenerValues.size() > 1 ? listenerValues.get(1) : null);
+                }
+            }
+        }
+
+        return methods;
+    }
+
+    /**
+     * 'method' or a constant "self::METHOD"
+     */
+    private static boolean isMethodName(@Nullable PsiElement element) {
+        return element instanceof StringLiteralExpression
+            || (element instanceof ClassConstantReference && !"class".equals(((ClassConstantReference) element).getName()));
+    }
+
+    /**
+     * @param method string literal or constant; a constant is stored with its signature "#K#C\Foo\Bar.METHOD"
+     */
+    private static void addMethod(@NotNull Map<String, Integer> methods, @NotNull PsiElement method, @Nullable PsiElement priority) {
+        String contents = method instanceof StringLiteralExpression
+            ? ((StringLiteralExpression) method).getContents()
+            : ((ClassConstantReference) method).getSignature();
+
+        if(StringUtils.isNotBlank(contents)) {
+            methods.putIfAbsent(contents, getPriority(priority));
+        }
+    }
+
+    /**
+     * Priority of a number literal, also negative ones; everything else is the dispatcher default "0"
+     */
+    private static int getPriority(@Nullable PsiElement priority) {
+        if(priority == null) {
+            return 0;
+        }
+
+        String text = StringUtils.deleteWhitespace(priority.getText());
+        if(text.length() > 10 || !text.matches("-?\\d+")) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @NotNull
+    private static List<PhpPsiElement> getArrayValues(@NotNull PsiElement array) {
+        List<PhpPsiElement> values = new ArrayList<>();
+
+        for (PsiElement child = array.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if(child instanceof PhpPsiElement && child.getNode().getElementType() == PhpElementTypes.ARRAY_VALUE) {
+                PhpPsiElement value = ((PhpPsiElement) child).getFirstPsiChild();
+                if(value != null) {
+                    values.add(value);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<List<EventSubscriberMethod>> getValueExternalizer() {
+        return EventSubscriberMethodsDataExternalizer.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return file ->
+            file.getFileType() == PhpFileType.INSTANCE;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+}
@@ -10,13 +10,14 @@ import com.intellij.util.io.KeyDescriptor;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.util.ServiceContainerUtil;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ObjectStreamDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ServiceSerializableDataExternalizer;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.YAMLFileType;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -28,7 +29,6 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     public static final ID<String, ServiceSerializable> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.service_definition");
     private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
-    private static ObjectStreamDataExternalizer<ServiceSerializable> EXTERNALIZER = new ObjectStreamDataExternalizer<>();
 
     @NotNull
     @Override
@@ -44,7 +44,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
             }
 
             for (ServiceSerializable service : ServiceContainerUtil.getServicesInFile(psiFile)) {
-                map.put(service.getId().toLowerCase(), service);
+                map.put(service.getId().toLowerCase(Locale.ROOT), service);
             }
 
             return map;
@@ -66,7 +66,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     @NotNull
     public DataExternalizer<ServiceSerializable> getValueExternalizer() {
-        return EXTERNALIZER;
+        return ServiceSerializableDataExternalizer.INSTANCE;
     }
 
     @NotNull
@@ -83,7 +83,7 @@ public class ServicesDefinitionStubIndex extends FileBasedIndexExtension<String,
 
     @Override
     public int getVersion() {
-        return 4;
+        return 6;
     }
 
     public static boolean isValidForIndex(FileContent inputData, PsiFile psiFile) {
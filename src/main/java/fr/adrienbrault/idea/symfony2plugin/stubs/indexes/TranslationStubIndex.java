@@ -9,7 +9,7 @@ import com.intellij.util.io.KeyDescriptor;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.StringSetDataExternalizer;
 import fr.adrienbrault.idea.symfony2plugin.translation.collector.YamlTranslationVisitor;
-import fr.adrienbrault.idea.symfony2plugin.translation.dict.TranslationUtil;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser;
 import gnu.trove.THashMap;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
@@ -17,8 +17,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.yaml.YAMLFileType;
 import org.jetbrains.yaml.psi.YAMLFile;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.ByteArrayInputStream;
 import java.util.*;
 
 /**
@@ -107,14 +106,8 @@ public class TranslationStubIndex extends FileBasedIndexExtension<String, Set<St
                     return Collections.emptyMap();
                 }
 
-                InputStream inputStream;
-                try {
-                    inputStream = inputData.getFile().getInputStream();
-                } catch (IOException e) {
-                    return Collections.emptyMap();
-                }
-
-                Set<String> set = TranslationUtil.getXliffTranslations(inputStream);
+                // indexed content; no second read of the file
+                Set<String> set = XliffTranslationParser.getKeys(new ByteArrayInputStream(inputData.getContent()));
                 if(set.size() == 0) {
                     return Collections.emptyMap();
                 }
@@ -183,6 +176,6 @@ public class TranslationStubIndex extends FileBasedIndexExtension<String, Set<St
 
     @Override
     public int getVersion() {
-        return 6;
+        return 7;
     }
 }
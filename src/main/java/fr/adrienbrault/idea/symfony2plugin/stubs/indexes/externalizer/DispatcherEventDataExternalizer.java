@@ -0,0 +1,32 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.DispatcherEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class DispatcherEventDataExternalizer implements DataExternalizer<DispatcherEvent> {
+
+    public static final DispatcherEventDataExternalizer INSTANCE = new DispatcherEventDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, DispatcherEvent value) throws IOException {
+        ExternalizerUtil.writeNullableString(out, value.getFqn());
+        ExternalizerUtil.writeNullableString(out, value.getInstance());
+    }
+
+    @Override
+    public DispatcherEvent read(@NotNull DataInput in) throws IOException {
+        String fqn = ExternalizerUtil.readNullableString(in);
+        String instance = ExternalizerUtil.readNullableString(in);
+
+        // empty constructor keeps a "null" fqn as it was indexed
+        return fqn != null ? new DispatcherEvent(fqn, instance) : new DispatcherEvent();
+    }
+}
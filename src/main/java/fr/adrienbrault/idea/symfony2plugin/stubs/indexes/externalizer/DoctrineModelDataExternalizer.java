@@ -0,0 +1,29 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModel;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModelSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class DoctrineModelDataExternalizer implements DataExternalizer<DoctrineModelSerializable> {
+
+    public static final DoctrineModelDataExternalizer INSTANCE = new DoctrineModelDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, DoctrineModelSerializable value) throws IOException {
+        ExternalizerUtil.writeString(out, value.getClassName());
+        ExternalizerUtil.writeNullableString(out, value.getRepositoryClass());
+    }
+
+    @Override
+    public DoctrineModelSerializable read(@NotNull DataInput in) throws IOException {
+        return new DoctrineModel(ExternalizerUtil.readString(in), ExternalizerUtil.readNullableString(in));
+    }
+}
@@ -0,0 +1,44 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberClassDataExternalizer implements DataExternalizer<EventSubscriberClass> {
+
+    public static final EventSubscriberClassDataExternalizer INSTANCE = new EventSubscriberClassDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, EventSubscriberClass value) throws IOException {
+        ExternalizerUtil.writeNullableString(out, value.getSuperClass());
+
+        ExternalizerUtil.writeInt(out, value.getInterfaces().size());
+        for (String anInterface : value.getInterfaces()) {
+            ExternalizerUtil.writeString(out, anInterface);
+        }
+
+        out.writeBoolean(value.hasSubscribedEventsMethod());
+    }
+
+    @Override
+    public EventSubscriberClass read(@NotNull DataInput in) throws IOException {
+        String superClass = ExternalizerUtil.readNullableString(in);
+
+        int size = ExternalizerUtil.readInt(in);
+        List<String> interfaces = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            interfaces.add(ExternalizerUtil.readString(in));
+        }
+
+        return new EventSubscriberClass(superClass, interfaces, in.readBoolean());
+    }
+}
@@ -0,0 +1,50 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberMethod;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listeners of one event inside a file, in order of their declaration
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class EventSubscriberMethodsDataExternalizer implements DataExternalizer<List<EventSubscriberMethod>> {
+
+    public static final EventSubscriberMethodsDataExternalizer INSTANCE = new EventSubscriberMethodsDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, List<EventSubscriberMethod> value) throws IOException {
+        ExternalizerUtil.writeInt(out, value.size());
+
+        for (EventSubscriberMethod method : value) {
+            ExternalizerUtil.writeString(out, method.getFqnClassName());
+            ExternalizerUtil.writeNullableString(out, method.getMethodName());
+            ExternalizerUtil.writeInt(out, method.getPriority());
+            ExternalizerUtil.writeNullableString(out, method.getSignature());
+        }
+    }
+
+    @Override
+    public List<EventSubscriberMethod> read(@NotNull DataInput in) throws IOException {
+        int size = ExternalizerUtil.readInt(in);
+
+        List<EventSubscriberMethod> methods = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            methods.add(new EventSubscriberMethod(
+                ExternalizerUtil.readString(in),
+                ExternalizerUtil.readNullableString(in),
+                ExternalizerUtil.readInt(in),
+                ExternalizerUtil.readNullableString(in)
+            ));
+        }
+
+        return methods;
+    }
+}
@@ -0,0 +1,47 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Shared primitives for the hand written index value externalizers: varint numbers and length prefixed strings
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ExternalizerUtil {
+
+    public static void writeNullableString(@NotNull DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if(value != null) {
+            IOUtil.writeUTF(out, value);
+        }
+    }
+
+    @Nullable
+    public static String readNullableString(@NotNull DataInput in) throws IOException {
+        return in.readBoolean() ? IOUtil.readUTF(in) : null;
+    }
+
+    public static void writeString(@NotNull DataOutput out, @NotNull String value) throws IOException {
+        IOUtil.writeUTF(out, value);
+    }
+
+    @NotNull
+    public static String readString(@NotNull DataInput in) throws IOException {
+        return IOUtil.readUTF(in);
+    }
+
+    public static void writeInt(@NotNull DataOutput out, int value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value);
+    }
+
+    public static int readInt(@NotNull DataInput in) throws IOException {
+        return DataInputOutputUtil.readINT(in);
+    }
+}
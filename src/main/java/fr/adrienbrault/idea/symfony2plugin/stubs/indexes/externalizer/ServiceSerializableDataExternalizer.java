@@ -0,0 +1,90 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.SerializableService;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Flags are stored as one bitmask; optional strings are only written if their bit is set.
+ * Only non default values are persisted, like SerializableService does for its json representation.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ServiceSerializableDataExternalizer implements DataExternalizer<ServiceSerializable> {
+
+    public static final ServiceSerializableDataExternalizer INSTANCE = new ServiceSerializableDataExternalizer();
+
+    private static final int PRIVATE = 1;
+    private static final int LAZY = 1 << 1;
+    private static final int ABSTRACT = 1 << 2;
+    private static final int AUTOWIRE = 1 << 3;
+    private static final int DEPRECATED = 1 << 4;
+    private static final int CLASS_NAME = 1 << 5;
+    private static final int ALIAS = 1 << 6;
+    private static final int PARENT = 1 << 7;
+    private static final int DECORATES = 1 << 8;
+    private static final int DECORATION_INNER_NAME = 1 << 9;
+
+    @Override
+    public void save(@NotNull DataOutput out, ServiceSerializable value) throws IOException {
+        int flags = 0;
+
+        flags |= !value.isPublic() ? PRIVATE : 0;
+        flags |= value.isLazy() ? LAZY : 0;
+        flags |= value.isAbstract() ? ABSTRACT : 0;
+        flags |= value.isAutowire() ? AUTOWIRE : 0;
+        flags |= value.isDeprecated() ? DEPRECATED : 0;
+        flags |= value.getClassName() != null ? CLASS_NAME : 0;
+        flags |= value.getAlias() != null ? ALIAS : 0;
+        flags |= value.getParent() != null ? PARENT : 0;
+        flags |= value.getDecorates() != null ? DECORATES : 0;
+        flags |= value.getDecorationInnerName() != null ? DECORATION_INNER_NAME : 0;
+
+        ExternalizerUtil.writeInt(out, flags);
+        ExternalizerUtil.writeString(out, value.getId());
+
+        writeOptional(out, value.getClassName());
+        writeOptional(out, value.getAlias());
+        writeOptional(out, value.getParent());
+        writeOptional(out, value.getDecorates());
+        writeOptional(out, value.getDecorationInnerName());
+    }
+
+    @Override
+    public ServiceSerializable read(@NotNull DataInput in) throws IOException {
+        int flags = ExternalizerUtil.readInt(in);
+
+        // "null" keeps the default value of a property
+        return new SerializableService(ExternalizerUtil.readString(in))
+            .setIsPublic((flags & PRIVATE) != 0 ? false : null)
+            .setIsLazy((flags & LAZY) != 0 ? true : null)
+            .setIsAbstract((flags & ABSTRACT) != 0 ? true : null)
+            .setIsAutowire((flags & AUTOWIRE) != 0 ? true : null)
+            .setIsDeprecated((flags & DEPRECATED) != 0 ? true : null)
+            .setClassName(readOptional(in, flags, CLASS_NAME))
+            .setAlias(readOptional(in, flags, ALIAS))
+            .setParent(readOptional(in, flags, PARENT))
+            .setDecorates(readOptional(in, flags, DECORATES))
+            .setDecorationInnerName(readOptional(in, flags, DECORATION_INNER_NAME));
+    }
+
+    /**
+     * Presence is already part of the flags, so no marker byte is needed
+     */
+    private static void writeOptional(@NotNull DataOutput out, @Nullable String value) throws IOException {
+        if(value != null) {
+            ExternalizerUtil.writeString(out, value);
+        }
+    }
+
+    @Nullable
+    private static String readOptional(@NotNull DataInput in, int flags, int flag) throws IOException {
+        return (flags & flag) != 0 ? ExternalizerUtil.readString(in) : null;
+    }
+}
@@ -0,0 +1,90 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Http methods are enumerated as a bitmask; unknown methods are stored as strings afterwards
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class StubIndexedRouteDataExternalizer implements DataExternalizer<StubIndexedRoute> {
+
+    public static final StubIndexedRouteDataExternalizer INSTANCE = new StubIndexedRouteDataExternalizer();
+
+    private static final String[] METHODS = new String[] {
+        "get", "post", "put", "patch", "delete", "head", "options", "connect", "trace", "purge"
+    };
+
+    @Override
+    public void save(@NotNull DataOutput out, StubIndexedRoute value) throws IOException {
+        ExternalizerUtil.writeString(out, value.getName());
+        ExternalizerUtil.writeNullableString(out, value.getController());
+        ExternalizerUtil.writeNullableString(out, value.getPath());
+
+        int known = 0;
+        Collection<String> unknown = new ArrayList<>();
+
+        for (String method : value.getMethods()) {
+            int index = indexOf(method);
+            if(index >= 0) {
+                known |= 1 << index;
+            } else {
+                unknown.add(method);
+            }
+        }
+
+        ExternalizerUtil.writeInt(out, known);
+        ExternalizerUtil.writeInt(out, unknown.size());
+        for (String method : unknown) {
+            ExternalizerUtil.writeString(out, method);
+        }
+    }
+
+    @Override
+    public StubIndexedRoute read(@NotNull DataInput in) throws IOException {
+        StubIndexedRoute route = new StubIndexedRoute(ExternalizerUtil.readString(in));
+
+        route.setController(ExternalizerUtil.readNullableString(in));
+        route.setPath(ExternalizerUtil.readNullableString(in));
+
+        Set<String> methods = new HashSet<>();
+
+        int known = ExternalizerUtil.readInt(in);
+        for (int i = 0; i < METHODS.length; i++) {
+            if((known & (1 << i)) != 0) {
+                methods.add(METHODS[i]);
+            }
+        }
+
+        for (int i = ExternalizerUtil.readInt(in); i > 0; i--) {
+            methods.add(ExternalizerUtil.readString(in));
+        }
+
+        route.setMethods(methods);
+
+        return route;
+    }
+
+    /**
+     * Indexer provides lowercase methods; other cases must survive as they are
+     */
+    private static int indexOf(@NotNull String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if(METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
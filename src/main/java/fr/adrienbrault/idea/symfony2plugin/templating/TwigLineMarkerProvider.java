@@ -15,18 +15,15 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.presentation.java.SymbolPresentationUtil;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.ConstantFunction;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.lang.psi.elements.Function;
 import com.jetbrains.twig.TwigFile;
-import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.elements.TwigElementTypes;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.dic.RelatedPopupGotoLineMarker;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.twig.loader.FileImplementsLazyLoader;
 import fr.adrienbrault.idea.symfony2plugin.twig.loader.FileOverwritesLazyLoader;
@@ -114,27 +111,14 @@ public class TwigLineMarkerProvider implements LineMarkerProvider {
     }
 
     private LineMarkerInfo attachIncludes(@NotNull TwigFile twigFile) {
-        Collection<String> templateNames = TwigUtil.getTemplateNamesForFile(twigFile);
-
-        boolean found = false;
-        for(String templateName: templateNames) {
-            Project project = twigFile.getProject();
-
-            Collection<VirtualFile> containingFiles = FileBasedIndex.getInstance().getContainingFiles(
-                TwigIncludeStubIndex.KEY, templateName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE)
-            );
-
-            // stop on first target, we load them lazily afterwards
-            if(containingFiles.size() > 0) {
-                found = true;
-                break;
-            }
-        }
-
-        if(!found) {
+        VirtualFile virtualFile = twigFile.getVirtualFile();
+        if(virtualFile == null || TwigTemplateGraph.getInstance(twigFile.getProject()).getIncludingFiles(virtualFile).isEmpty()) {
             return null;
         }
 
+        // targets are loaded lazily afterwards
+        Collection<String> templateNames = TwigUtil.getTemplateNamesForFile(twigFile);
+
         NavigationGutterIconBuilder<PsiElement> builder = NavigationGutterIconBuilder.create(PhpIcons.IMPLEMENTED)
             .setTargets(new MyTemplateIncludeLazyValue(twigFile, templateNames))
             .setTooltipText("Navigate to includes")
@@ -307,18 +291,15 @@ public class TwigLineMarkerProvider implements LineMarkerProvider {
         @NotNull
         @Override
         protected Collection<? extends PsiElement> compute() {
-            Collection<VirtualFile> twigFiles = new ArrayList<>();
+            VirtualFile includedFile = twigFile.getVirtualFile();
+            if(includedFile == null) {
+                return Collections.emptyList();
+            }
 
             Project project = twigFile.getProject();
 
-            for(String templateName: this.templateNames) {
-                // collect files which contains given template name for inclusion
-                twigFiles.addAll(FileBasedIndex.getInstance().getContainingFiles(
-                    TwigIncludeStubIndex.KEY,
-                    templateName,
-                    GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE))
-                );
-            }
+            // collect files which contains given template name for inclusion
+            Collection<VirtualFile> twigFiles = TwigTemplateGraph.getInstance(project).getIncludingFiles(includedFile);
 
             Collection<PsiElement> targets = new ArrayList<>();
 
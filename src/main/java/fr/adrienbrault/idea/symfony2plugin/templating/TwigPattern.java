@@ -15,12 +15,11 @@ import com.jetbrains.twig.TwigTokenTypes;
 import com.jetbrains.twig.elements.TwigBlockTag;
 import com.jetbrains.twig.elements.TwigCompositeElement;
 import com.jetbrains.twig.elements.TwigElementTypes;
-import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
-import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.regex.Pattern;
+
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -860,14 +859,18 @@ public class TwigPattern {
             .withLanguage(TwigLanguage.INSTANCE);
     }
 
+    /**
+     * {# @var foo \Foo #}, {# @var \Foo foo #}, {# foo \Foo #}
+     */
     public static ElementPattern<PsiComment> getTwigTypeDocBlockPattern() {
-        Collection<ElementPattern> patterns = new ArrayList<>();
-
-        for (String s : TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE) {
-            patterns.add(PlatformPatterns.psiComment().withText(PlatformPatterns.string().matches(s)).withLanguage(TwigLanguage.INSTANCE));
-        }
-
-        return PlatformPatterns.or(patterns.toArray(new ElementPattern[patterns.size()]));
+        return PlatformPatterns.psiComment()
+            .withText(PlatformPatterns.string().with(new PatternCondition<String>("Twig type doc") {
+                @Override
+                public boolean accepts(@NotNull String text, ProcessingContext context) {
+                    return TwigDocPatterns.isTypeDoc(text);
+                }
+            }))
+            .withLanguage(TwigLanguage.INSTANCE);
     }
 
     /**
@@ -878,8 +881,8 @@ public class TwigPattern {
     @NotNull
     public static ElementPattern<PsiComment> getTwigDocSeePattern() {
         return PlatformPatterns.or(
-            PlatformPatterns.psiComment().withText(PlatformPatterns.string().matches(DOC_SEE_REGEX)).withLanguage(TwigLanguage.INSTANCE),
-            PlatformPatterns.psiComment().withText(PlatformPatterns.string().matches(TwigUtil.DOC_SEE_REGEX_WITHOUT_SEE)).withLanguage(TwigLanguage.INSTANCE)
+            getTwigDocBlockMatchPattern(TwigDocPatterns.DOC_SEE),
+            getTwigDocBlockMatchPattern(TwigDocPatterns.DOC_SEE_WITHOUT_SEE)
         );
     }
 
@@ -1327,6 +1330,20 @@ public class TwigPattern {
             .withLanguage(TwigLanguage.INSTANCE);
     }
 
+    /**
+     * Precompiled variant for patterns which are build on every call, eg inside navigation handlers
+     */
+    public static PsiElementPattern.Capture<PsiComment> getTwigDocBlockMatchPattern(@NotNull Pattern pattern) {
+        return PlatformPatterns
+            .psiComment().withText(PlatformPatterns.string().with(new PatternCondition<String>("matches") {
+                @Override
+                public boolean accepts(@NotNull String text, ProcessingContext context) {
+                    return pattern.matcher(text).matches();
+                }
+            }))
+            .withLanguage(TwigLanguage.INSTANCE);
+    }
+
     /**
      * {% form_theme form 'foobar.html.twig' %}
      */
@@ -23,13 +23,13 @@ import com.jetbrains.twig.elements.TwigTagWithFileReference;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigTypeContainer;
 import fr.adrienbrault.idea.symfony2plugin.translation.dict.TranslationUtil;
 import fr.adrienbrault.idea.symfony2plugin.twig.utils.TwigBlockUtil;
-import fr.adrienbrault.idea.symfony2plugin.twig.variable.collector.ControllerDocVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.apache.commons.lang.StringUtils;
@@ -156,7 +156,7 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
             targets.addAll(getTypeGoto(psiElement));
         }
 
-        if(TwigPattern.getTwigDocBlockMatchPattern(ControllerDocVariableCollector.DOC_PATTERN).accepts(psiElement)) {
+        if(TwigPattern.getTwigDocBlockMatchPattern(TwigDocPatterns.CONTROLLER).accepts(psiElement)) {
             targets.addAll(getControllerNameGoto(psiElement));
         }
 
@@ -367,14 +367,9 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
             return Collections.emptyList();
         }
 
-        for(String pattern: TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE) {
-            Matcher matcher = Pattern.compile(pattern).matcher(comment);
-            if (matcher.find()) {
-                String className = matcher.group("class");
-                if(StringUtils.isNotBlank(className)) {
-                    return PhpElementsUtil.getClassesInterface(psiElement.getProject(), className);
-                }
-            }
+        String className = TwigDocPatterns.getTypeDocClass(comment);
+        if(StringUtils.isNotBlank(className)) {
+            return PhpElementsUtil.getClassesInterface(psiElement.getProject(), className);
         }
 
         return Collections.emptyList();
@@ -389,8 +384,8 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
 
         Collection<PsiElement> psiElements = new ArrayList<>();
 
-        for(String pattern: new String[] {TwigPattern.DOC_SEE_REGEX, TwigUtil.DOC_SEE_REGEX_WITHOUT_SEE}) {
-            Matcher matcher = Pattern.compile(pattern).matcher(comment);
+        for(Pattern pattern: new Pattern[] {TwigDocPatterns.DOC_SEE, TwigDocPatterns.DOC_SEE_WITHOUT_SEE}) {
+            Matcher matcher = pattern.matcher(comment);
             if (!matcher.find()) {
                 continue;
             }
@@ -412,7 +407,7 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
                 }
             }
 
-            Matcher methodMatcher = Pattern.compile("([\\w\\\\-]+):+([\\w_\\-]+)").matcher(content);
+            Matcher methodMatcher = TwigDocPatterns.CONTROLLER_METHOD.matcher(content);
             if (methodMatcher.find()) {
                 for (PhpClass phpClass : PhpIndex.getInstance(psiElement.getProject()).getAnyByFQN(methodMatcher.group(1))) {
                     ContainerUtil.addIfNotNull(psiElements, phpClass.findMethodByName(methodMatcher.group(2)));
@@ -509,9 +504,7 @@ public class TwigTemplateGoToDeclarationHandler implements GotoDeclarationHandle
 
     @NotNull
     private Collection<PsiElement> getControllerNameGoto(@NotNull PsiElement psiElement) {
-        Pattern pattern = Pattern.compile(ControllerDocVariableCollector.DOC_PATTERN);
-
-        Matcher matcher = pattern.matcher(psiElement.getText());
+        Matcher matcher = TwigDocPatterns.CONTROLLER.matcher(psiElement.getText());
         if (!matcher.find()) {
             return Collections.emptyList();
         }
@@ -2,6 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.templating.completion;
 
 import com.intellij.codeInsight.completion.*;
 import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.lookup.LookupElementDecorator;
 import com.intellij.patterns.ElementPattern;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
@@ -57,14 +58,16 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                     return;
                 }
 
-                List<LookupElement> routesLookupElements = RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject());
-                for(LookupElement element: routesLookupElements) {
+                // lookup elements are shared; decorate instead of attaching the handler
+                for(LookupElement element: RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject())) {
                     if(element instanceof RouteLookupElement) {
-                        ((RouteLookupElement) element).withInsertHandler(TwigPathFunctionInsertHandler.getInstance());
+                        resultSet.addElement(LookupElementDecorator.withInsertHandler((RouteLookupElement) element, (context, item) ->
+                            TwigPathFunctionInsertHandler.getInstance().handleInsert(context, item.getDelegate())
+                        ));
+                    } else {
+                        resultSet.addElement(element);
                     }
                 }
-
-                resultSet.addAllElements(routesLookupElements);
             }
         });
 
@@ -0,0 +1,252 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.TwigPattern;
+import fr.adrienbrault.idea.symfony2plugin.twig.variable.collector.ControllerDocVariableCollector;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled patterns for Twig doc comments, shared by completion, navigation and variable collectors.
+ *
+ * "@var" comments are checked for every comment of a template, so they are parsed by hand instead of running
+ * the INLINE_DOC_REGEX / DOC_TYPE_PATTERN_SINGLE regular expressions; the results are the same.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class TwigDocPatterns {
+
+    /**
+     * {# @see Foo.html.twig #}, {# @see \Class #}
+     */
+    public static final Pattern DOC_SEE = Pattern.compile(TwigPattern.DOC_SEE_REGEX);
+
+    /**
+     * {# \Class #}, {# Foo.html.twig #}
+     */
+    public static final Pattern DOC_SEE_WITHOUT_SEE = Pattern.compile(TwigUtil.DOC_SEE_REGEX_WITHOUT_SEE);
+
+    /**
+     * {# @Controller FooBundle:Bar:index #}
+     */
+    public static final Pattern CONTROLLER = Pattern.compile(ControllerDocVariableCollector.DOC_PATTERN);
+
+    public static final Pattern CONTROLLER_COMPLETION = Pattern.compile(ControllerDocVariableCollector.DOC_PATTERN_COMPLETION);
+
+    /**
+     * "Foo\Bar::action", "FooBundle:Bar:action"
+     */
+    public static final Pattern CONTROLLER_METHOD = Pattern.compile("([\\w\\\\-]+):+([\\w_\\-]+)");
+
+    /**
+     * Visits all "@var" variables of a comment, in the same order as matching all INLINE_DOC_REGEX patterns:
+     *
+     * "@var foo \Foo", "@var \Foo foo", "{# foo \Foo #}"
+     *
+     * @param consumer variable name and class
+     */
+    public static void visitInlineDocVariables(@NotNull CharSequence text, @NotNull BiConsumer<String, String> consumer) {
+        // @var variable \Foo
+        for (int offset = indexOf(text, "@var", 0); offset >= 0; offset = indexOf(text, "@var", offset)) {
+            Tokens tokens = Tokens.read(text, offset + 4);
+            if(tokens != null && isWord(tokens.first)) {
+                consumer.accept(tokens.first, tokens.second);
+                offset = tokens.end;
+            } else {
+                offset++;
+            }
+        }
+
+        // @var \Foo variable
+        for (int offset = indexOf(text, "@var", 0); offset >= 0; offset = indexOf(text, "@var", offset)) {
+            Tokens tokens = Tokens.read(text, offset + 4);
+            int wordEnd = tokens != null ? skipWord(tokens.second, 0) : 0;
+
+            if(wordEnd > 0) {
+                consumer.accept(tokens.second.substring(0, wordEnd), tokens.first);
+                offset = tokens.secondStart + wordEnd;
+            } else {
+                offset++;
+            }
+        }
+
+        // {# variable \Foo #}
+        for (int offset = indexOf(text, "{#", 0); offset >= 0; offset = indexOf(text, "{#", offset)) {
+            Tokens tokens = Tokens.read(text, offset + 2);
+            if(tokens != null && isWord(tokens.first) && tokens.end > tokens.secondEnd && startsWith(text, tokens.end, "#}")) {
+                consumer.accept(tokens.first, tokens.second);
+                offset = tokens.end + 2;
+            } else {
+                offset++;
+            }
+        }
+    }
+
+    /**
+     * Class of a one line type comment; "null" if it is none. Same as DOC_TYPE_PATTERN_SINGLE
+     *
+     * "{# @var foo \Foo #}", "{# @var \Foo foo #}", "{# foo \Foo #}"
+     */
+    @Nullable
+    public static String getTypeDocClass(@NotNull CharSequence text) {
+        if(!startsWith(text, 0, "{#") || !isWhitespace(text, 2)) {
+            return null;
+        }
+
+        int start = skipWhitespace(text, 2);
+        boolean var = startsWith(text, start, "@var") && isWhitespace(text, start + 4);
+
+        Tokens tokens = Tokens.read(text, var ? start + 4 : 2);
+        if(tokens == null || tokens.end == tokens.secondEnd || tokens.end != text.length() - 2 || !startsWith(text, tokens.end, "#}")) {
+            return null;
+        }
+
+        // "{# @var foo \Foo #}" wins over "{# @var \Foo foo #}" for "{# @var Foo foo #}"
+        if(isWord(tokens.first)) {
+            return tokens.second;
+        }
+
+        return var && isWord(tokens.second) ? tokens.first : null;
+    }
+
+    public static boolean isTypeDoc(@NotNull CharSequence text) {
+        return getTypeDocClass(text) != null;
+    }
+
+    /**
+     * Two whitespace separated tokens of class characters: "\s+(first)\s+(second)\s*"
+     */
+    private static class Tokens {
+        @NotNull
+        private final String first;
+
+        @NotNull
+        private final String second;
+
+        private final int secondStart;
+
+        private final int secondEnd;
+
+        /**
+         * offset after trailing whitespace
+         */
+        private final int end;
+
+        private Tokens(@NotNull String first, @NotNull String second, int secondStart, int secondEnd, int end) {
+            this.first = first;
+            this.second = second;
+            this.secondStart = secondStart;
+            this.secondEnd = secondEnd;
+            this.end = end;
+        }
+
+        @Nullable
+        private static Tokens read(@NotNull CharSequence text, int offset) {
+            if(!isWhitespace(text, offset)) {
+                return null;
+            }
+
+            int firstStart = skipWhitespace(text, offset);
+            int firstEnd = skipClass(text, firstStart);
+            if(firstEnd == firstStart || !isWhitespace(text, firstEnd)) {
+                return null;
+            }
+
+            int secondStart = skipWhitespace(text, firstEnd);
+            int secondEnd = skipClass(text, secondStart);
+            if(secondEnd == secondStart) {
+                return null;
+            }
+
+            return new Tokens(
+                text.subSequence(firstStart, firstEnd).toString(),
+                text.subSequence(secondStart, secondEnd).toString(),
+                secondStart,
+                secondEnd,
+                skipWhitespace(text, secondEnd)
+            );
+        }
+    }
+
+    private static int indexOf(@NotNull CharSequence text, @NotNull String search, int offset) {
+        if(text instanceof String) {
+            return ((String) text).indexOf(search, offset);
+        }
+
+        for (int i = offset; i <= text.length() - search.length(); i++) {
+            if(startsWith(text, i, search)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean startsWith(@NotNull CharSequence text, int offset, @NotNull String prefix) {
+        if(offset < 0 || offset + prefix.length() > text.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if(text.charAt(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isWord(@NotNull CharSequence text) {
+        return skipWord(text, 0) == text.length();
+    }
+
+    private static int skipWord(@NotNull CharSequence text, int offset) {
+        while(offset < text.length() && isWordChar(text.charAt(offset))) {
+            offset++;
+        }
+
+        return offset;
+    }
+
+    private static int skipClass(@NotNull CharSequence text, int offset) {
+        while(offset < text.length()) {
+            char c = text.charAt(offset);
+            if(!isWordChar(c) && c != '\\' && c != '[' && c != ']') {
+                break;
+            }
+
+            offset++;
+        }
+
+        return offset;
+    }
+
+    private static int skipWhitespace(@NotNull CharSequence text, int offset) {
+        while(isWhitespace(text, offset)) {
+            offset++;
+        }
+
+        return offset;
+    }
+
+    /**
+     * regular expression "\w": ascii only
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * regular expression "\s": [ \t\n\x0B\f\r]
+     */
+    private static boolean isWhitespace(@NotNull CharSequence text, int offset) {
+        if(offset >= text.length()) {
+            return false;
+        }
+
+        char c = text.charAt(offset);
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
 import com.intellij.patterns.PlatformPatterns;
@@ -12,36 +13,35 @@ import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.parser.PhpElementTypes;
 import com.jetbrains.php.lang.psi.PhpPsiUtil;
 import com.jetbrains.php.lang.psi.elements.*;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.TwigExtension;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class TwigExtensionParser  {
 
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FUNCTION_CACHE = new Key<>("TWIG_EXTENSIONS_FUNCTION");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> TEST_CACHE = new Key<>("TWIG_EXTENSIONS_TEST");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FILTERS_CACHE = new Key<>("TWIG_EXTENSIONS_FILTERS");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> OPERATORS_CACHE = new Key<>("TWIG_EXTENSIONS_OPERATORS");
+    private static final Key<CachedValue<Extensions>> EXTENSIONS_CACHE = new Key<>("TWIG_EXTENSIONS");
+    private static final Key<CachedValue<Extensions>> CLASS_EXTENSIONS_CACHE = new Key<>("TWIG_EXTENSIONS_CLASS");
+
+    private static final Pattern WORD = Pattern.compile("\\w+");
 
     @NotNull
     private Project project;
 
-    private Map<String, TwigExtension> functions;
-    private Map<String, TwigExtension> simpleTest;
-    private Map<String, TwigExtension> filters;
-    private Map<String, TwigExtension> operators;
+    @Nullable
+    private Extensions extensions;
 
     public TwigExtensionParser(@NotNull Project project) {
         this.project = project;
@@ -49,167 +49,120 @@ public class TwigExtensionParser  {
 
     @NotNull
     public Map<String, TwigExtension> getFunctions() {
-        if(functions == null) {
-            this.parseElementType(TwigElementType.METHOD);
-        }
-        return functions;
+        return getExtensions().functions;
     }
 
     @NotNull
     public Map<String, TwigExtension> getFilters() {
-        if(filters == null) {
-            this.parseElementType(TwigElementType.FILTER);
-        }
-        return filters;
+        return getExtensions().filters;
     }
 
     @NotNull
     public Map<String, TwigExtension> getSimpleTest() {
-        if(simpleTest == null) {
-            this.parseElementType(TwigElementType.SIMPLE_TEST);
-        }
-        return simpleTest;
+        return getExtensions().tests;
     }
 
     @NotNull
     public Map<String, TwigExtension> getOperators() {
-        if(operators == null) {
-            this.parseElementType(TwigElementType.OPERATOR);
-        }
-        return operators;
-    }
-
-    private enum TwigElementType {
-        FILTER, METHOD, SIMPLE_TEST, OPERATOR
+        return getExtensions().operators;
     }
 
     public enum TwigExtensionType {
         FUNCTION_METHOD, FUNCTION_NODE, SIMPLE_FUNCTION, FILTER, SIMPLE_TEST, OPERATOR
     }
 
-    private void parseElementType(@NotNull TwigElementType type) {
-
-        if(type.equals(TwigElementType.FILTER)) {
-
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(FILTERS_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                    CachedValueProvider.Result.create(parseFilters(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-                    false
-                );
-
-                project.putUserData(FILTERS_CACHE, cache);
-            }
-
-            this.filters = cache.getValue();
-
-        } else if(type.equals(TwigElementType.METHOD)) {
-
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(FUNCTION_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                    CachedValueProvider.Result.create(parseFunctions(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-                    false
-                );
-
-                project.putUserData(FUNCTION_CACHE, cache);
-            }
-
-            this.functions = cache.getValue();
-
-        } else if(type.equals(TwigElementType.SIMPLE_TEST)) {
-
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(TEST_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                    CachedValueProvider.Result.create(parseTests(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-                    false
-                );
-
-                project.putUserData(TEST_CACHE, cache);
-            }
-
-            this.simpleTest = cache.getValue();
-
-        } else if(type.equals(TwigElementType.OPERATOR)) {
-
-            CachedValue<Map<String, TwigExtension>> cache = project.getUserData(OPERATORS_CACHE);
-            if(cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                    CachedValueProvider.Result.create(parseOperators(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-                    false
-                );
-
-                project.putUserData(OPERATORS_CACHE, cache);
-            }
-
-            this.operators = cache.getValue();
-        }
-    }
-
     @NotNull
-    private Map<String, TwigExtension> parseFilters(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
-
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getFilters");
-            if(method != null) {
-                parseFilter(method, extensions);
-            }
+    private Extensions getExtensions() {
+        if(extensions == null) {
+            extensions = getCachedExtensions();
         }
 
         return extensions;
     }
 
+    /**
+     * Merged extensions of all classes; the merge is redone on extension changes or changes of their class hierarchy,
+     * but only changed classes are parsed again
+     */
     @NotNull
-    private Map<String, TwigExtension> parseFunctions(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+    private Extensions getCachedExtensions() {
+        CacheMetric metric = CacheMetrics.get(TwigExtensionParser.class);
+        metric.request();
+
+        CachedValue<Extensions> cache = project.getUserData(EXTENSIONS_CACHE);
+        if(cache == null) {
+            cache = CachedValuesManager.getManager(project).createCachedValue(() -> {
+                long start = System.nanoTime();
+
+                Extensions extensions = new Extensions();
+                for (PhpClass phpClass : TwigUtil.getTwigExtensionClasses(project)) {
+                    extensions.addAll(getClassExtensions(phpClass));
+                }
 
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getFunctions");
-            if(method != null) {
-                parseFunctions(method, extensions);
-            }
-        }
+                metric.rebuild(start, extensions.size());
 
-        return extensions;
-    }
+                // parent classes are no extension themselves, so the extension tracker does not see their changes
+                extensions.dependencies.add(SymfonyModificationTrackers.getTwigExtensionTracker(project));
 
-    @NotNull
-    private Map<String, TwigExtension> parseTests(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+                return CachedValueProvider.Result.create(extensions, extensions.dependencies.toArray());
+            }, false);
 
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getTests");
-            if(method != null) {
-                method.acceptChildren(new TwigSimpleTestVisitor(extensions));
-            }
+            project.putUserData(EXTENSIONS_CACHE, cache);
         }
 
-        return extensions;
+        return cache.getValue();
     }
 
+    /**
+     * All extension types of a class in one pass; cached until a file of the class hierarchy changes, as the
+     * extension methods can be inherited. A change of any other extension must not drop this cache
+     */
     @NotNull
-    private Map<String, TwigExtension> parseOperators(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+    private static Extensions getClassExtensions(@NotNull PhpClass phpClass) {
+        return CachedValuesManager.getCachedValue(phpClass, CLASS_EXTENSIONS_CACHE, () -> {
+            Extensions extensions = new Extensions();
+            Set<Object> dependencies = extensions.dependencies;
+
+            Method filters = phpClass.findMethodByName("getFilters");
+            if(filters != null) {
+                filters.acceptChildren(new TwigFilterVisitor(filters, extensions.filters, phpClass));
+                dependencies.add(filters.getContainingFile());
+            }
 
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getOperators");
-            if(method != null) {
-                parseOperators(method, extensions);
+            Method functions = phpClass.findMethodByName("getFunctions");
+            if(functions != null) {
+                functions.acceptChildren(new TwigFunctionVisitor(functions, extensions.functions, phpClass));
+                dependencies.add(functions.getContainingFile());
             }
-        }
 
-        return extensions;
-    }
+            Method tests = phpClass.findMethodByName("getTests");
+            if(tests != null) {
+                tests.acceptChildren(new TwigSimpleTestVisitor(extensions.tests));
+                dependencies.add(tests.getContainingFile());
+            }
 
-    private void parseFunctions(@NotNull Method method, @NotNull Map<String, TwigExtension> filters) {
-        final PhpClass containingClass = method.getContainingClass();
-        if(containingClass == null) {
-            return;
-        }
+            Method operators = phpClass.findMethodByName("getOperators");
+            if(operators != null) {
+                parseOperators(operators, extensions.operators);
+                dependencies.add(operators.getContainingFile());
+            }
+
+            // a parent can add or override one of the methods above later
+            PhpClass current = phpClass;
+            for (int depth = 0; current != null && depth < 10; depth++, current = current.getSuperClass()) {
+                dependencies.add(current.getContainingFile());
+
+                for (PhpClass trait : current.getTraits()) {
+                    dependencies.add(trait.getContainingFile());
+                }
+            }
 
-        method.acceptChildren(new TwigFunctionVisitor(method, filters, containingClass));
+            // "new Twig_SimpleFilter" classes are resolved via PhpIndex and are part of the libraries
+            dependencies.add(ProjectRootManager.getInstance(phpClass.getProject()));
+            dependencies.remove(null);
+
+            return CachedValueProvider.Result.create(extensions, dependencies.toArray());
+        });
     }
 
     /**
@@ -251,21 +204,7 @@ public class TwigExtensionParser  {
         return null;
     }
 
-    private void parseFilter(@NotNull Method method, @NotNull Map<String, TwigExtension> filters) {
-        final PhpClass containingClass = method.getContainingClass();
-        if(containingClass == null) {
-            return;
-        }
-
-        method.acceptChildren(new TwigFilterVisitor(method, filters, containingClass));
-    }
-
-    private void parseOperators(@NotNull Method method, @NotNull Map<String, TwigExtension> filters) {
-        final PhpClass containingClass = method.getContainingClass();
-        if(containingClass == null) {
-            return;
-        }
-
+    private static void parseOperators(@NotNull Method method, @NotNull Map<String, TwigExtension> filters) {
         /*
         return array(
             array(
@@ -442,7 +381,7 @@ public class TwigExtensionParser  {
                     if(arrayHash instanceof ArrayHashElement) {
                         PsiElement arrayKey = ((ArrayHashElement) arrayHash).getKey();
                         String funcName = PhpElementsUtil.getStringValue(arrayKey);
-                        if(funcName != null && funcName.matches("\\w+")) {
+                        if(funcName != null && WORD.matcher(funcName).matches()) {
 
                             PsiElement[] parameters = element.getParameters();
                             String signature = null;
@@ -642,6 +581,41 @@ public class TwigExtensionParser  {
         }
     }
 
+    /**
+     * Filters, functions, tests and operators of one or many extension classes
+     */
+    private static class Extensions {
+        @NotNull
+        private final Map<String, TwigExtension> filters = new HashMap<>();
+
+        @NotNull
+        private final Map<String, TwigExtension> functions = new HashMap<>();
+
+        @NotNull
+        private final Map<String, TwigExtension> tests = new HashMap<>();
+
+        @NotNull
+        private final Map<String, TwigExtension> operators = new HashMap<>();
+
+        /**
+         * Files and trackers the extensions were parsed from
+         */
+        @NotNull
+        private final Set<Object> dependencies = new HashSet<>();
+
+        private void addAll(@NotNull Extensions extensions) {
+            filters.putAll(extensions.filters);
+            functions.putAll(extensions.functions);
+            tests.putAll(extensions.tests);
+            operators.putAll(extensions.operators);
+            dependencies.addAll(extensions.dependencies);
+        }
+
+        private int size() {
+            return filters.size() + functions.size() + tests.size() + operators.size();
+        }
+    }
+
     private static class PsiElementTypCondition implements Condition<PsiElement> {
         @Override
         public boolean value(PsiElement psiElement) {
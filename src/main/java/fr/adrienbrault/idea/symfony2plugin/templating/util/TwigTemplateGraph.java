@@ -0,0 +1,210 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.jetbrains.twig.TwigFileType;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalFileIndexCache;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigBlockIndexExtension;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Template relations of all Twig files on file level: parent <-> children, included by and block names per file.
+ *
+ * Edges are taken from the extends and include indexes, which are patched file by file; template names are resolved
+ * to files once while building the graph. Lookups are map traversals without any further index query or name
+ * resolving. A new graph is only built if one of the index snapshots or the template map changed.
+ *
+ * {% extends 'base.html.twig' %}: "base.html.twig" => children, child => parents
+ * {% include 'foo.html.twig' %}, {% embed 'foo.html.twig' %}, ...: "foo.html.twig" => included by
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class TwigTemplateGraph {
+
+    private static final Key<TwigTemplateGraph> TEMPLATE_GRAPH = new Key<>("SYMFONY_TWIG_TEMPLATE_GRAPH");
+
+    /**
+     * Inheritance depth for implementations; same as former recursive index lookup
+     */
+    private static final int MAX_DEPTH = 8;
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final Map<String, Set<VirtualFile>> templateMap;
+
+    private final long extendsGeneration;
+
+    private final long includeGeneration;
+
+    /**
+     * All files of the template map; for every other file names are resolved on request
+     */
+    @NotNull
+    private final Set<VirtualFile> nodes;
+
+    @NotNull
+    private final Map<VirtualFile, Set<VirtualFile>> children = new HashMap<>();
+
+    @NotNull
+    private final Map<VirtualFile, Set<VirtualFile>> parents = new HashMap<>();
+
+    @NotNull
+    private final Map<VirtualFile, Set<VirtualFile>> includedBy = new HashMap<>();
+
+    private TwigTemplateGraph(@NotNull Project project, @NotNull Map<String, Set<VirtualFile>> templateMap, @NotNull Set<VirtualFile> nodes, long extendsGeneration, long includeGeneration) {
+        this.project = project;
+        this.templateMap = templateMap;
+        this.nodes = nodes;
+        this.extendsGeneration = extendsGeneration;
+        this.includeGeneration = includeGeneration;
+    }
+
+    @NotNull
+    public static TwigTemplateGraph getInstance(@NotNull Project project) {
+        Map<String, Set<VirtualFile>> templateMap = TwigUtil.getTemplateMap(project);
+
+        // sync indexes first: the generation must not be newer than the snapshots we read after it
+        IncrementalFileIndexCache<Void> extendsCache = getExtendsCache(project);
+        extendsCache.getValues();
+
+        IncrementalFileIndexCache<Void> includeCache = getIncludeCache(project);
+        includeCache.getValues();
+
+        TwigTemplateGraph graph = project.getUserData(TEMPLATE_GRAPH);
+        if(graph != null && graph.templateMap == templateMap && graph.extendsGeneration == extendsCache.getGeneration() && graph.includeGeneration == includeCache.getGeneration()) {
+            return graph;
+        }
+
+        // nodes only depend on the template map; dont collect them again on a changed index
+        Set<VirtualFile> nodes;
+        if(graph != null && graph.templateMap == templateMap) {
+            nodes = graph.nodes;
+        } else {
+            nodes = new HashSet<>();
+            templateMap.values().forEach(nodes::addAll);
+        }
+
+        graph = new TwigTemplateGraph(project, templateMap, nodes, extendsCache.getGeneration(), includeCache.getGeneration());
+
+        for (String templateName : extendsCache.getKeys()) {
+            for (VirtualFile parent : templateMap.getOrDefault(templateName, Collections.emptySet())) {
+                for (VirtualFile child : extendsCache.getFileValues(templateName).keySet()) {
+                    graph.children.computeIfAbsent(parent, f -> new LinkedHashSet<>()).add(child);
+                    graph.parents.computeIfAbsent(child, f -> new LinkedHashSet<>()).add(parent);
+                }
+            }
+        }
+
+        for (String templateName : includeCache.getKeys()) {
+            for (VirtualFile included : templateMap.getOrDefault(templateName, Collections.emptySet())) {
+                graph.includedBy.computeIfAbsent(included, f -> new LinkedHashSet<>()).addAll(includeCache.getFileValues(templateName).keySet());
+            }
+        }
+
+        project.putUserData(TEMPLATE_GRAPH, graph);
+
+        return graph;
+    }
+
+    /**
+     * Files which directly extends the given file
+     */
+    @NotNull
+    public Collection<VirtualFile> getChildren(@NotNull VirtualFile virtualFile) {
+        if(nodes.contains(virtualFile)) {
+            return children.getOrDefault(virtualFile, Collections.emptySet());
+        }
+
+        return getFilesByTemplateNames(getExtendsCache(project), virtualFile);
+    }
+
+    /**
+     * Files which are extended by the given file
+     */
+    @NotNull
+    public Collection<VirtualFile> getParents(@NotNull VirtualFile virtualFile) {
+        return parents.getOrDefault(virtualFile, Collections.emptySet());
+    }
+
+    /**
+     * All files which extends the given file, also over multiple levels
+     */
+    @NotNull
+    public Collection<VirtualFile> getImplementations(@NotNull VirtualFile virtualFile) {
+        Set<VirtualFile> implementations = new LinkedHashSet<>();
+
+        Collection<VirtualFile> level = Collections.singletonList(virtualFile);
+        for (int depth = 0; depth < MAX_DEPTH && !level.isEmpty(); depth++) {
+            Collection<VirtualFile> nextLevel = new ArrayList<>();
+
+            for (VirtualFile file : level) {
+                for (VirtualFile child : getChildren(file)) {
+                    if(!child.equals(virtualFile) && implementations.add(child)) {
+                        nextLevel.add(child);
+                    }
+                }
+            }
+
+            level = nextLevel;
+        }
+
+        return implementations;
+    }
+
+    /**
+     * Files which includes, embeds or imports the given file
+     */
+    @NotNull
+    public Collection<VirtualFile> getIncludingFiles(@NotNull VirtualFile virtualFile) {
+        if(nodes.contains(virtualFile)) {
+            return includedBy.getOrDefault(virtualFile, Collections.emptySet());
+        }
+
+        return getFilesByTemplateNames(getIncludeCache(project), virtualFile);
+    }
+
+    /**
+     * Block names on file scope: {% block foo %}
+     */
+    @NotNull
+    public Collection<String> getBlockNames(@NotNull VirtualFile virtualFile) {
+        Set<String> blocks = getBlockCache(project).getFileValues("block").get(virtualFile);
+        return blocks != null ? blocks : Collections.emptySet();
+    }
+
+    /**
+     * Files outside the template map, eg nested deeper as the template visitor; resolve them by name
+     */
+    @NotNull
+    private Collection<VirtualFile> getFilesByTemplateNames(@NotNull IncrementalFileIndexCache<Void> cache, @NotNull VirtualFile virtualFile) {
+        Set<VirtualFile> files = new LinkedHashSet<>();
+
+        for (String templateName : TwigUtil.getTemplateNamesForFile(project, virtualFile)) {
+            files.addAll(cache.getFileValues(templateName).keySet());
+        }
+
+        return files;
+    }
+
+    @NotNull
+    private static IncrementalFileIndexCache<Void> getExtendsCache(@NotNull Project project) {
+        return IncrementalFileIndexCache.getInstance(project, TwigExtendsStubIndex.KEY, TwigFileType.INSTANCE);
+    }
+
+    @NotNull
+    private static IncrementalFileIndexCache<Void> getIncludeCache(@NotNull Project project) {
+        return IncrementalFileIndexCache.getInstance(project, TwigIncludeStubIndex.KEY, TwigFileType.INSTANCE);
+    }
+
+    @NotNull
+    private static IncrementalFileIndexCache<Set<String>> getBlockCache(@NotNull Project project) {
+        return IncrementalFileIndexCache.getInstance(project, TwigBlockIndexExtension.KEY, TwigFileType.INSTANCE);
+    }
+}
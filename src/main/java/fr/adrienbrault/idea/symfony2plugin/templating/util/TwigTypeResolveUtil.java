@@ -1,13 +1,21 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
+import com.intellij.lang.ASTNode;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiComment;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.impl.source.tree.TreeUtil;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.Field;
@@ -29,12 +37,12 @@ import fr.adrienbrault.idea.symfony2plugin.templating.variable.resolver.FormVars
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.resolver.TwigTypeResolver;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -60,13 +68,16 @@ public class TwigTypeResolveUtil {
      */
     private static final String DOC_TYPE_PATTERN_CLASS_FIRST = "@var[\\s]+(?<class>[\\w\\\\\\[\\]]+)[\\s]+(?<var>[\\w]+)[\\s]*";
 
+    /**
+     * @see TwigDocPatterns#visitInlineDocVariables for a faster scanner with the same result
+     */
     public static final Pattern[] INLINE_DOC_REGEX = {
         Pattern.compile(DOC_TYPE_PATTERN_CLASS_SECOND, Pattern.MULTILINE),
         Pattern.compile(DOC_TYPE_PATTERN_CLASS_FIRST, Pattern.MULTILINE),
         Pattern.compile(DEPRECATED_DOC_TYPE_PATTERN),
     };
 
-    // for supporting completion and navigation of one line element
+    // for supporting completion and navigation of one line element; see TwigDocPatterns#getTypeDocClass
     public static final String[] DOC_TYPE_PATTERN_SINGLE  = new String[] {
         "\\{#[\\s]+(?<var>[\\w]+)[\\s]+(?<class>[\\w\\\\\\[\\]]+)[\\s]+#}",
         "\\{#[\\s]+"+ DOC_TYPE_PATTERN_CLASS_SECOND + "[\\s]+#}",
@@ -79,6 +90,8 @@ public class TwigTypeResolveUtil {
         "fr.adrienbrault.idea.symfony2plugin.extension.TwigVariableCollector"
     );
 
+    private static final Key<CachedValue<ScopeVariables>> SCOPE_VARIABLES = new Key<>("SYMFONY_TWIG_SCOPE_VARIABLES");
+
     private static TwigTypeResolver[] TWIG_TYPE_RESOLVERS = new TwigTypeResolver[] {
         new FormVarsResolver(),
         new FormFieldResolver(),
@@ -212,12 +225,7 @@ public class TwigTypeResolveUtil {
                 continue;
             }
 
-            for (Pattern pattern : INLINE_DOC_REGEX) {
-                Matcher matcher = pattern.matcher(text);
-                while (matcher.find()) {
-                    variables.put(matcher.group("var"), matcher.group("class"));
-                }
-            }
+            TwigDocPatterns.visitInlineDocVariables(text, variables::put);
         }
 
         return variables;
@@ -248,12 +256,22 @@ public class TwigTypeResolveUtil {
             return controllerVars;
         }
 
-        visitedFiles.add(virtualFile);
+        // top level calls share the collected variables of their scope; nested include calls depend on the visited files
+        if(visitedFiles.isEmpty() && virtualFile != null && psiElement.getContainingFile() instanceof TwigFile) {
+            ScopeVariables scopeVariables = getScopeVariables(psiElement);
 
-        TwigFileVariableCollectorParameter collectorParameter = new TwigFileVariableCollectorParameter(psiElement, visitedFiles);
-        for(TwigFileVariableCollector collector: TWIG_FILE_VARIABLE_COLLECTORS.getExtensions()) {
-            collector.collect(collectorParameter, globalVars);
-            collector.collectPsiVariables(collectorParameter, controllerVars);
+            for (Map.Entry<String, Set<String>> entry : scopeVariables.globalVars.entrySet()) {
+                globalVars.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+
+            // type sets are extended below, eg by "for" scopes; the shared ones must stay untouched
+            for (Map.Entry<String, PsiVariable> entry : scopeVariables.psiVariables.entrySet()) {
+                PsiVariable variable = entry.getValue();
+                controllerVars.put(entry.getKey(), new PsiVariable(new HashSet<>(variable.getTypes()), variable.getElement()));
+            }
+        } else {
+            visitedFiles.add(virtualFile);
+            collectScopeVariables(getScopeElement(psiElement), visitedFiles, globalVars, controllerVars);
         }
 
         // globals first
@@ -277,6 +295,76 @@ public class TwigTypeResolveUtil {
         return controllerVars;
     }
 
+    private static void collectScopeVariables(@NotNull PsiElement scopeElement, @NotNull Set<VirtualFile> visitedFiles, @NotNull Map<String, Set<String>> globalVars, @NotNull Map<String, PsiVariable> controllerVars) {
+        TwigFileVariableCollectorParameter collectorParameter = new TwigFileVariableCollectorParameter(scopeElement, visitedFiles);
+        for(TwigFileVariableCollector collector: TWIG_FILE_VARIABLE_COLLECTORS.getExtensions()) {
+            collector.collect(collectorParameter, globalVars);
+            collector.collectPsiVariables(collectorParameter, controllerVars);
+        }
+    }
+
+    /**
+     * Variables of all collectors for the file or macro of the element; cached until the template, one of its
+     * including templates, the files of the resolved variables or the controllers and globals configuration changed
+     */
+    @NotNull
+    private static ScopeVariables getScopeVariables(@NotNull PsiElement psiElement) {
+        PsiElement scopeElement = getScopeElement(psiElement);
+        PsiElement cacheHolder = scopeElement instanceof PsiFile ? scopeElement : scopeElement.getParent();
+
+        return CachedValuesManager.getCachedValue(cacheHolder, SCOPE_VARIABLES, () -> {
+            Set<VirtualFile> visitedFiles = new HashSet<>();
+            visitedFiles.add(scopeElement.getContainingFile().getVirtualFile());
+
+            Map<String, Set<String>> globalVars = new HashMap<>();
+            Map<String, PsiVariable> psiVariables = new HashMap<>();
+            collectScopeVariables(scopeElement, visitedFiles, globalVars, psiVariables);
+
+            Project project = scopeElement.getProject();
+
+            Set<Object> dependencies = new HashSet<>();
+            dependencies.add(scopeElement.getContainingFile());
+            dependencies.add(SymfonyModificationTrackers.getTemplateTracker(project));
+            dependencies.add(SymfonyModificationTrackers.getTemplateUsageTracker(project));
+            dependencies.add(SymfonyModificationTrackers.getConfigTracker(project));
+            dependencies.add(SymfonyModificationTrackers.getTwigExtensionTracker(project));
+
+            // templates which were visited to resolve include context variables
+            for (VirtualFile visitedFile : visitedFiles) {
+                PsiFile file = visitedFile != null && visitedFile.isValid() ? PsiManager.getInstance(project).findFile(visitedFile) : null;
+                if(file != null) {
+                    dependencies.add(file);
+                }
+            }
+
+            // eg controller methods
+            for (PsiVariable psiVariable : psiVariables.values()) {
+                PsiElement element = psiVariable.getElement();
+                if(element != null && element.isValid() && element.getContainingFile() != null) {
+                    dependencies.add(element.getContainingFile());
+                }
+            }
+
+            return CachedValueProvider.Result.create(new ScopeVariables(globalVars, psiVariables), dependencies.toArray());
+        });
+    }
+
+    /**
+     * Collectors see a macro or the whole file: "{% macro foo(bar) %}" only adds its parameters inside the macro
+     */
+    @NotNull
+    private static PsiElement getScopeElement(@NotNull PsiElement psiElement) {
+        ASTNode macroStatement = TreeUtil.findParent(psiElement.getNode(), TwigElementTypes.MACRO_STATEMENT);
+        if(macroStatement != null) {
+            PsiElement macroTag = macroStatement.getPsi().getFirstChild();
+            if(macroTag != null) {
+                return macroTag;
+            }
+        }
+
+        return psiElement.getContainingFile();
+    }
+
     /**
      * Extract magic iterator implementation like "getIterator" or "__iterator"
      *
@@ -610,5 +698,17 @@ public class TwigTypeResolveUtil {
 
         return TwigTypeResolveUtil.formatPsiTypeName(afterInVarPsiElement);
     }
-}
 
+    private static class ScopeVariables {
+        @NotNull
+        private final Map<String, Set<String>> globalVars;
+
+        @NotNull
+        private final Map<String, PsiVariable> psiVariables;
+
+        private ScopeVariables(@NotNull Map<String, Set<String>> globalVars, @NotNull Map<String, PsiVariable> psiVariables) {
+            this.globalVars = globalVars;
+            this.psiVariables = psiVariables;
+        }
+    }
+}
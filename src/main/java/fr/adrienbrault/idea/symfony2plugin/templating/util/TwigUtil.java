@@ -3,7 +3,9 @@ package fr.adrienbrault.idea.symfony2plugin.templating.util;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
@@ -13,7 +15,9 @@ import com.intellij.openapi.vfs.VirtualFileVisitor;
 import com.intellij.patterns.ElementPattern;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.*;
+import com.intellij.psi.search.FileTypeIndex;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.*;
 import com.intellij.util.Consumer;
@@ -39,10 +43,9 @@ import fr.adrienbrault.idea.symfony2plugin.asset.AssetDirectoryReader;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtensionParameter;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SingleFlightCachedValue;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateUsage;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigBlockIndexExtension;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigMacroFunctionStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.templating.TemplateLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.TwigPattern;
@@ -58,6 +61,7 @@ import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 import fr.adrienbrault.idea.symfony2plugin.util.psi.PsiElementAssertUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import icons.TwigIcons;
 import org.apache.commons.lang.StringUtils;
@@ -80,6 +84,12 @@ import java.util.stream.Collectors;
 public class TwigUtil {
     public static final String DOC_SEE_REGEX_WITHOUT_SEE  = "\\{#[\\s]+([-@\\./\\:\\w\\\\\\[\\]]+)[\\s]*#}";
 
+    private static final Pattern MACRO_ALIAS = Pattern.compile("(\\w+)\\s+as\\s+(\\w+)");
+    private static final Pattern CONTROLLER_TEMPLATE = Pattern.compile(".*/(\\w+)\\.\\w+\\.twig");
+    private static final Pattern INVOKE_CONTROLLER_TEMPLATE = Pattern.compile("^(\\w+)\\.\\w+\\.twig");
+    private static final Pattern APP_RESOURCES_BUNDLE_TEMPLATE = Pattern.compile("app/Resources/([^/]*Bundle)/views/(.*)$");
+    private static final Pattern BUNDLE_TEMPLATE_NAME = Pattern.compile("^\\w+Bundle:.*");
+
     /**
      * Twig namespace for "non namespace"; its also a reserved value in Twig library
      */
@@ -96,9 +106,14 @@ public class TwigUtil {
         "fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension"
     );
 
-    private static final Key<CachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_TWIG = new Key<>("TEMPLATE_CACHE_TWIG");
+    private static final Key<SingleFlightCachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_TWIG = new Key<>("TEMPLATE_CACHE_TWIG");
 
-    private static final Key<CachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_ALL = new Key<>("TEMPLATE_CACHE_ALL");
+    private static final Key<SingleFlightCachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_ALL = new Key<>("TEMPLATE_CACHE_ALL");
+
+    /**
+     * Max directory depth of template files inside a namespace path
+     */
+    private static final int TEMPLATE_DIRECTORY_DEPTH = 5;
 
     public static String[] CSS_FILES_EXTENSIONS = new String[] { "css", "less", "sass", "scss" };
 
@@ -491,7 +506,7 @@ public class TwigUtil {
 
             for(String macroName : substring.split(",")) {
                 // not nice here search for as "macro as macro_alias"
-                Matcher asMatcher = Pattern.compile("(\\w+)\\s+as\\s+(\\w+)").matcher(macroName.trim());
+                Matcher asMatcher = MACRO_ALIAS.matcher(macroName.trim());
                 if(asMatcher.find()) {
                     macros.add(new TwigMacro(asMatcher.group(2), templateName, asMatcher.group(1)));
                 } else {
@@ -688,7 +703,7 @@ public class TwigUtil {
         String className = null;
         Collection<String> methodNames = new ArrayList<>();
 
-        Matcher methodMatcher = Pattern.compile(".*/(\\w+)\\.\\w+\\.twig").matcher(viewPath);
+        Matcher methodMatcher = CONTROLLER_TEMPLATE.matcher(viewPath);
         if(methodMatcher.find()) {
             // Foobar/Bar.html.twig" => FoobarController::barAction
             // Foobar/Bar.html.twig" => FoobarController::bar
@@ -702,7 +717,7 @@ public class TwigUtil {
             );
         } else {
             // Foobar.html.twig" => FoobarController::__invoke
-            Matcher invokeMatcher = Pattern.compile("^(\\w+)\\.\\w+\\.twig").matcher(viewPath);
+            Matcher invokeMatcher = INVOKE_CONTROLLER_TEMPLATE.matcher(viewPath);
             if(invokeMatcher.find()) {
                 className = String.format(
                     "%sController\\%sController",
@@ -877,36 +892,18 @@ public class TwigUtil {
      * foo.html.twig => ["views/foo.html.twig", "templates/foo.html.twig"]
      */
     @NotNull
-    public static synchronized Map<String, Set<VirtualFile>> getTemplateMap(@NotNull Project project, boolean usePhp) {
-        Map<String, Set<VirtualFile>> templateMapProxy;
-
-        // cache twig and all files,
-        // only PHP files we dont need to cache
-        if(!usePhp) {
-            // cache twig files only, most use case
-            CachedValue<Map<String, Set<VirtualFile>>> cache = project.getUserData(TEMPLATE_CACHE_TWIG);
-            if (cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new MyAllTemplateFileMapCachedValueProvider(project), false);
-                project.putUserData(TEMPLATE_CACHE_TWIG, cache);
-            }
-
-            templateMapProxy = cache.getValue();
-        } else {
-            // cache all files
-            CachedValue<Map<String, Set<VirtualFile>>> cache = project.getUserData(TEMPLATE_CACHE_ALL);
-            if (cache == null) {
-                cache = CachedValuesManager.getManager(project).createCachedValue(new MyAllTemplateFileMapCachedValueProvider(project, true), false);
-                project.putUserData(TEMPLATE_CACHE_ALL, cache);
-            }
-
-            templateMapProxy = cache.getValue();
-        }
-
-        return templateMapProxy;
+    public static Map<String, Set<VirtualFile>> getTemplateMap(@NotNull Project project, boolean usePhp) {
+        // cache twig and all files, twig files only is the most use case
+        return SingleFlightCachedValue.getInstance(project, usePhp ? TEMPLATE_CACHE_ALL : TEMPLATE_CACHE_TWIG, SymfonyModificationTrackers.getTemplateTracker(project, usePhp), () ->
+            getTemplateMapProxy(project, usePhp)
+        ).getValue();
     }
 
     /**
-     * Cache less visiting template files
+     * Cache less collecting of template files.
+     *
+     * Files are taken from the file type index for all namespace directories in one lookup; only directories
+     * which are not indexed, eg excluded ones, are still visited on the filesystem
      */
     @NotNull
     private static Map<String, Set<VirtualFile>> getTemplateMapProxy(@NotNull Project project, boolean usePhp) {
@@ -917,6 +914,12 @@ public class TwigUtil {
 
         Map<String, Set<VirtualFile>> templateNames = new HashMap<>();
 
+        // one directory is mostly shared by several namespaces: "@App", "::" and "App:"
+        Map<VirtualFile, List<TwigPath>> indexedDirectories = new HashMap<>();
+
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        boolean isDumb = DumbService.isDumb(project);
+
         for (TwigPath twigPath : twigPaths) {
             if(!twigPath.isEnabled()) {
                 continue;
@@ -927,6 +930,11 @@ public class TwigUtil {
                 continue;
             }
 
+            if(!isDumb && (fileIndex.isInContent(virtualDirectoryFile) || fileIndex.isInLibrary(virtualDirectoryFile))) {
+                indexedDirectories.computeIfAbsent(virtualDirectoryFile, virtualFile -> new ArrayList<>()).add(twigPath);
+                continue;
+            }
+
             Map<String, VirtualFile> visitor = MyLimitedVirtualFileVisitor.createResult(
                 virtualDirectoryFile,
                 project,
@@ -935,17 +943,48 @@ public class TwigUtil {
             );
 
             for (Map.Entry<String, VirtualFile> entry : visitor.entrySet()) {
-                if(!templateNames.containsKey(entry.getKey())) {
-                    templateNames.put(entry.getKey(), new HashSet<>());
-                }
-
-                templateNames.get(entry.getKey()).add(entry.getValue());
+                templateNames.computeIfAbsent(entry.getKey(), s -> new HashSet<>()).add(entry.getValue());
             }
         }
 
+        if(indexedDirectories.size() > 0) {
+            collectIndexedTemplateFiles(project, indexedDirectories, usePhp, templateNames);
+        }
+
         return templateNames;
     }
 
+    /**
+     * Visits the parents of all indexed Twig (and PHP) files inside the namespace directories;
+     * same depth limit as the filesystem visitor
+     */
+    private static void collectIndexedTemplateFiles(@NotNull Project project, @NotNull Map<VirtualFile, List<TwigPath>> directories, boolean usePhp, @NotNull Map<String, Set<VirtualFile>> templateNames) {
+        GlobalSearchScope scope = GlobalSearchScopesCore.directoriesScope(project, true, directories.keySet().toArray(new VirtualFile[0]));
+
+        Collection<VirtualFile> virtualFiles = new ArrayList<>(FileTypeIndex.getFiles(TwigFileType.INSTANCE, scope));
+        if(usePhp) {
+            virtualFiles.addAll(FileTypeIndex.getFiles(PhpFileType.INSTANCE, scope));
+        }
+
+        for (VirtualFile virtualFile : virtualFiles) {
+            VirtualFile parent = virtualFile.getParent();
+
+            for (int depth = 0; parent != null && depth < TEMPLATE_DIRECTORY_DEPTH; depth++, parent = parent.getParent()) {
+                List<TwigPath> twigPaths = directories.get(parent);
+                if(twigPaths == null) {
+                    continue;
+                }
+
+                for (TwigPath twigPath : twigPaths) {
+                    String templateName = getTemplateNameForTwigPath(twigPath, parent, virtualFile);
+                    if(templateName != null) {
+                        templateNames.computeIfAbsent(templateName, s -> new HashSet<>()).add(virtualFile);
+                    }
+                }
+            }
+        }
+    }
+
     @Nullable
     private static TwigNamespaceSetting findManagedTwigNamespace(@NotNull Project project, @NotNull TwigPath twigPath) {
         List<TwigNamespaceSetting> twigNamespaces = Settings.getInstance(project).twigNamespaces;
@@ -975,7 +1014,7 @@ public class TwigUtil {
         // force linux path style
         templateName = templateName.replace("\\", "/");
 
-        if(templateName.startsWith("@") || !templateName.matches("^.*?:.*?:.*?/.*?$")) {
+        if(templateName.startsWith("@") || !isBundleTemplateName(templateName)) {
             // Symfony 3.4 overwrite
             // {% extends '@!FOSUser/layout.html.twig' %}
             if(templateName.startsWith("@!")) {
@@ -994,7 +1033,21 @@ public class TwigUtil {
         String subFolder = templateName.substring(firstDoublePoint, lastDoublePoint);
         String file = templateName.substring(templateName.lastIndexOf("/") + 1);
 
-        return String.format("%s:%s:%s", bundle, StringUtils.strip(subFolder, "/"), file);
+        return bundle + ":" + StringUtils.strip(subFolder, "/") + ":" + file;
+    }
+
+    /**
+     * "FooBundle:Bar:foo/index.html.twig"; same as the former "^.*?:.*?:.*?/.*?$" which is called for every template name
+     */
+    private static boolean isBundleTemplateName(@NotNull String templateName) {
+        if(templateName.indexOf('\n') >= 0 || templateName.indexOf('\r') >= 0) {
+            return false;
+        }
+
+        int first = templateName.indexOf(':');
+        int second = first >= 0 ? templateName.indexOf(':', first + 1) : -1;
+
+        return second >= 0 && templateName.indexOf('/', second + 1) >= 0;
     }
 
     /**
@@ -1257,6 +1310,11 @@ public class TwigUtil {
             return null;
         }
 
+        return getTemplateNameForTwigPath(twigPath, directory, virtualFile);
+    }
+
+    @Nullable
+    private static String getTemplateNameForTwigPath(@NotNull TwigPath twigPath, @NotNull VirtualFile directory, @NotNull VirtualFile virtualFile) {
         String templatePath = VfsUtil.getRelativePath(virtualFile, directory, '/');
         if(templatePath == null) {
             return null;
@@ -2075,7 +2133,7 @@ public class TwigUtil {
         }
 
         // app/Resources/AcmeBlogBundle/views/Blog/index.html.twig
-        Matcher matcher = Pattern.compile("app/Resources/([^/]*Bundle)/views/(.*)$").matcher(relativePath);
+        Matcher matcher = APP_RESOURCES_BUNDLE_TEMPLATE.matcher(relativePath);
         if (matcher.find()) {
             return normalizeTemplateName(matcher.group(1) + ":" + matcher.group(2));
         }
@@ -2143,7 +2201,7 @@ public class TwigUtil {
                 if(i > 0 && templateName.substring(1, i).equals(twigPath.getNamespace())) {
                     paths.add(twigPath.getRelativePath(project) + "/" + templateName.substring(i + 1));
                 }
-            } else if(twigPath.getNamespaceType() == NamespaceType.BUNDLE && templateName.matches("^\\w+Bundle:.*")) {
+            } else if(twigPath.getNamespaceType() == NamespaceType.BUNDLE && BUNDLE_TEMPLATE_NAME.matcher(templateName).matches()) {
 
                 int i = templateName.indexOf("Bundle:");
                 String substring = templateName.substring(0, i + 6);
@@ -2164,49 +2222,19 @@ public class TwigUtil {
      */
     @NotNull
     public static Collection<VirtualFile> getTemplatesExtendingFile(@NotNull Project project, @NotNull VirtualFile virtualFile) {
-        Set<VirtualFile> twigChild = new HashSet<>();
-        getTemplatesExtendingFile(project, virtualFile, twigChild, 8);
-        return twigChild;
-    }
-
-    private static void getTemplatesExtendingFile(@NotNull Project project, @NotNull VirtualFile virtualFile, @NotNull Set<VirtualFile> twigChild, int depth) {
-        if(depth <= 0) {
-            return;
-        }
-
-        // use set here, we have multiple shortcut on one file, but only one is required
-        HashSet<VirtualFile> virtualFiles = new LinkedHashSet<>();
-
-        for(String templateName: getTemplateNamesForFile(project, virtualFile)) {
-            // getFilesWithKey dont support keyset with > 1 items (bug?), so we cant merge calls
-            FileBasedIndex.getInstance().getFilesWithKey(TwigExtendsStubIndex.KEY, new HashSet<>(Collections.singletonList(templateName)), myVirtualFile -> {
-                virtualFiles.add(myVirtualFile);
-                return true;
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE));
-        }
-
-        // finally resolve virtual file to twig files
-        for(VirtualFile myVirtualFile: virtualFiles) {
-            // stop if already inside
-            if(twigChild.contains(myVirtualFile)) {
-                continue;
-            }
-
-            twigChild.add(myVirtualFile);
-            getTemplatesExtendingFile(project, myVirtualFile, twigChild, --depth);
-        }
+        return TwigTemplateGraph.getInstance(project).getImplementations(virtualFile);
     }
 
     @NotNull
     public static Map<VirtualFile, Collection<String>> getBlockNamesForFiles(@NotNull Project project, @NotNull Collection<VirtualFile> virtualFiles) {
         Map<VirtualFile, Collection<String>> blocks = new HashMap<>();
 
+        TwigTemplateGraph templateGraph = TwigTemplateGraph.getInstance(project);
         for (VirtualFile virtualFile : virtualFiles) {
-            FileBasedIndex.getInstance().getValues(TwigBlockIndexExtension.KEY, "block", GlobalSearchScope.fileScope(project, virtualFile))
-                .forEach(strings -> {
-                    blocks.putIfAbsent(virtualFile, new HashSet<>());
-                    blocks.get(virtualFile).addAll(strings);
-                });
+            Collection<String> blockNames = templateGraph.getBlockNames(virtualFile);
+            if(!blockNames.isEmpty()) {
+                blocks.put(virtualFile, new HashSet<>(blockNames));
+            }
         }
 
         return blocks;
@@ -2628,12 +2656,9 @@ public class TwigUtil {
                 String text = psiElement.getText();
 
                 if(StringUtils.isNotBlank(text)) {
-                    for (Pattern pattern : TwigTypeResolveUtil.INLINE_DOC_REGEX) {
-                        Matcher matcher = pattern.matcher(text);
-                        while (matcher.find()) {
-                            consumer.consume(Pair.create(matcher.group("var"), psiElement));
-                        }
-                    }
+                    TwigDocPatterns.visitInlineDocVariables(text, (variable, className) ->
+                        consumer.consume(Pair.create(variable, psiElement))
+                    );
                 }
             } else if (psiElement instanceof TwigTagWithFileReference && includeDepth-- >= 0) {
                 // we dont support "with" and "context" modification for now
@@ -2766,28 +2791,6 @@ public class TwigUtil {
         }
     }
 
-    private static class MyAllTemplateFileMapCachedValueProvider implements CachedValueProvider<Map<String, Set<VirtualFile>>> {
-        @NotNull
-        private final Project project;
-
-        private final boolean includePhpFiles;
-
-        MyAllTemplateFileMapCachedValueProvider(@NotNull Project project) {
-            this(project, false);
-        }
-
-        MyAllTemplateFileMapCachedValueProvider(@NotNull Project project, boolean includePhpFiles) {
-            this.project = project;
-            this.includePhpFiles = includePhpFiles;
-        }
-
-        @Nullable
-        @Override
-        public Result<Map<String, Set<VirtualFile>>> compute() {
-            return Result.create(getTemplateMapProxy(project, includePhpFiles), PsiModificationTracker.MODIFICATION_COUNT);
-        }
-    }
-
     /**
      * Twig template visitor, which scan given TwigPath for template names
      *
@@ -2876,7 +2879,7 @@ public class TwigUtil {
 
         @NotNull
         static Map<String, VirtualFile> createResult(@NotNull VirtualFile virtualFile, @NotNull Project project, @NotNull TwigPath twigPath, boolean withPhp) {
-            MyLimitedVirtualFileVisitor visitor = new MyLimitedVirtualFileVisitor(project, twigPath, withPhp, 5, 150);
+            MyLimitedVirtualFileVisitor visitor = new MyLimitedVirtualFileVisitor(project, twigPath, withPhp, TEMPLATE_DIRECTORY_DEPTH, 150);
             VfsUtil.visitChildrenRecursively(virtualFile, visitor);
             return visitor.getResults();
         }
@@ -5,19 +5,16 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.twig.TwigFile;
-import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.TwigTokenTypes;
 import com.jetbrains.twig.elements.TwigCompositeElement;
 import com.jetbrains.twig.elements.TwigElementTypes;
 import com.jetbrains.twig.elements.TwigExtendsTag;
 import com.jetbrains.twig.elements.TwigTagWithFileReference;
 import fr.adrienbrault.idea.symfony2plugin.templating.TwigPattern;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
@@ -167,16 +164,12 @@ public class IncludeVariableCollector implements TwigFileVariableCollector {
     }
 
     private Collection<VirtualFile> getImplements(TwigFile twigFile) {
-        final Set<VirtualFile> targets = new HashSet<>();
-
-        for(String templateName: TwigUtil.getTemplateNamesForFile(twigFile)) {
-            FileBasedIndex.getInstance().getFilesWithKey(TwigIncludeStubIndex.KEY, new HashSet<>(Collections.singletonList(templateName)), virtualFile -> {
-                targets.add(virtualFile);
-                return true;
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(twigFile.getProject()), TwigFileType.INSTANCE));
+        VirtualFile virtualFile = twigFile.getVirtualFile();
+        if(virtualFile == null) {
+            return Collections.emptyList();
         }
 
-        return targets;
+        return TwigTemplateGraph.getInstance(twigFile.getProject()).getIncludingFiles(virtualFile);
     }
 
     private class MyPsiRecursiveElementWalkingVisitor extends PsiRecursiveElementWalkingVisitor {
@@ -1,64 +1,218 @@
 package fr.adrienbrault.idea.symfony2plugin.translation;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
-import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationPsiParser;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser;
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Compiled translation catalogues of a project; a project service, so nothing survives a closed project
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class TranslationIndex {
-
-    protected static Map<Project, TranslationIndex> instance = new HashMap<>();
+public class TranslationIndex implements Disposable {
 
     protected Project project;
 
     @Nullable
-    private TranslationStringMap translationStringMap;
-    private Long translationStringMapModified;
+    private volatile TranslationStringMap translationStringMap;
+    private volatile Long translationStringMapModified;
 
-    public static TranslationIndex getInstance(Project project){
+    /**
+     * Same instance for every call without translation directory; merged catalogues depend on its identity
+     */
+    private final TranslationStringMap emptyTranslationStringMap = new TranslationStringMap();
 
-        TranslationIndex projectInstance = instance.get(project);
-        if(projectInstance != null) {
-          return projectInstance;
-        }
+    /**
+     * Returned until the first background parse is done; its keys are not missing but unknown
+     */
+    private final TranslationStringMap pendingTranslationStringMap = new TranslationStringMap();
+
+    /**
+     * Parsed catalogue files with their modification time; only changed files are parsed again.
+     * Their keys are already merged into the translation map, so the memory can be given back under pressure.
+     */
+    private final Map<String, CatalogueFile> catalogueFiles = new ConcurrentHashMap<>();
 
-        projectInstance = new TranslationIndex(project);
-        instance.put(project, projectInstance);
+    private final AtomicBoolean parsing = new AtomicBoolean();
 
-        return projectInstance;
+    @NotNull
+    private final Executor executor;
 
+    private volatile boolean disposed;
+
+    public static TranslationIndex getInstance(Project project){
+        return ServiceManager.getService(project, TranslationIndex.class);
     }
 
     public TranslationIndex(Project project) {
-        this.project = project;
+        this(project, AppExecutorUtil.getAppExecutorService());
     }
 
+    /**
+     * @param executor runs the catalogue parser; a direct executor parses on the requesting thread
+     */
+    public TranslationIndex(Project project, @NotNull Executor executor) {
+        this.project = project;
+        this.executor = executor;
+    }
 
-    synchronized public TranslationStringMap getTranslationMap() {
+    /**
+     * Compiled translations; catalogue changes are parsed in background and the previous map is returned in the
+     * meantime, so highlighting never waits for the parser. Before the first parse is done the pending map is returned.
+     *
+     * @see #isPending
+     */
+    public TranslationStringMap getTranslationMap() {
+        CacheMetrics.get(TranslationIndex.class).request();
+
+        if(isDisposed()) {
+            return this.emptyTranslationStringMap;
+        }
 
-        if(this.translationStringMap != null && this.isCacheValid()) {
-            return this.translationStringMap;
+        TranslationStringMap translationStringMap = this.translationStringMap;
+        if(translationStringMap != null && this.isCacheValid()) {
+            return translationStringMap;
         }
 
         File translationDirectory = this.getTranslationRoot();
         if(null == translationDirectory) {
-            return new TranslationStringMap();
+            return this.emptyTranslationStringMap;
+        }
+
+        if(this.parsing.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        if(!isDisposed()) {
+                            parse(translationDirectory);
+                        }
+                    } finally {
+                        this.parsing.set(false);
+                    }
+
+                    if(isDisposed()) {
+                        return;
+                    }
+
+                    // highlighting was done on the previous or pending translations
+                    ApplicationManager.getApplication().invokeLater(this::restartHighlighting, project.getDisposed());
+                });
+            } catch (RejectedExecutionException e) {
+                this.parsing.set(false);
+            }
+        }
+
+        // already parsed for a direct executor
+        translationStringMap = this.translationStringMap;
+
+        return translationStringMap != null ? translationStringMap : this.pendingTranslationStringMap;
+    }
+
+    /**
+     * Translations are not parsed yet; callers must not report keys or domains as missing
+     */
+    public boolean isPending(@NotNull TranslationStringMap translationStringMap) {
+        return translationStringMap == this.pendingTranslationStringMap;
+    }
+
+    protected void restartHighlighting() {
+        DaemonCodeAnalyzer.getInstance(project).restart();
+    }
+
+    @NotNull
+    private synchronized TranslationStringMap parse(@NotNull File translationDirectory) {
+        // a parallel call already did the job
+        if(this.translationStringMap != null && this.isCacheValid()) {
+            return this.translationStringMap;
         }
 
         Symfony2ProjectComponent.getLogger().info("translations changed: " + translationDirectory.toString());
 
-        this.translationStringMapModified = translationDirectory.lastModified();
-        return this.translationStringMap = new TranslationPsiParser(project).parsePathMatcher(translationDirectory.getPath());
+        long start = System.nanoTime();
+
+        long directoryModified = translationDirectory.lastModified();
+
+        TranslationStringMap translationStringMap = new TranslationStringMap();
+        Map<String, CatalogueFile> catalogueFiles = new HashMap<>();
+
+        File[] files = translationDirectory.listFiles();
+        for (File fileEntry : files != null ? files : new File[0]) {
+            String fileName = fileEntry.getName();
+            if(fileEntry.isDirectory() || !fileName.startsWith("catalogue") || !fileName.endsWith("php")) {
+                continue;
+            }
+
+            long modified = fileEntry.lastModified();
+
+            CatalogueFile catalogueFile = this.catalogueFiles.get(fileName);
+            Map<String, Set<String>> domains = catalogueFile != null && catalogueFile.modified == modified ? catalogueFile.domains.get() : null;
+            if(domains == null) {
+                Symfony2ProjectComponent.getLogger().info("update translations: " + fileEntry.getPath());
+
+                try {
+                    domains = TranslationCatalogueParser.parse(FileUtil.loadFile(fileEntry, CharsetToolkit.UTF8));
+                } catch (IOException e) {
+                    continue;
+                }
+
+                catalogueFile = new CatalogueFile(modified, domains);
+            }
+
+            catalogueFiles.put(fileName, catalogueFile);
+
+            for (Map.Entry<String, Set<String>> domain : domains.entrySet()) {
+                translationStringMap.addDomain(domain.getKey());
+                for (String key : domain.getValue()) {
+                    translationStringMap.addString(domain.getKey(), key);
+                }
+            }
+
+            translationStringMap.addFile(fileName, modified);
+        }
+
+        // project was closed while parsing; dont fill the disposed service again
+        if(isDisposed()) {
+            return this.emptyTranslationStringMap;
+        }
+
+        this.catalogueFiles.keySet().retainAll(catalogueFiles.keySet());
+        this.catalogueFiles.putAll(catalogueFiles);
+
+        this.translationStringMapModified = directoryModified;
+        this.translationStringMap = translationStringMap;
+
+        // dispose happened after the check above
+        if(isDisposed()) {
+            clear();
+            return this.emptyTranslationStringMap;
+        }
+
+        CacheMetrics.get(TranslationIndex.class).rebuild(start, translationStringMap.getDomainList().size());
+
+        return translationStringMap;
     }
 
     protected boolean isCacheValid() {
@@ -133,5 +287,31 @@ public class TranslationIndex {
         return file;
     }
 
+    @Override
+    public void dispose() {
+        this.disposed = true;
+        clear();
+    }
+
+    private boolean isDisposed() {
+        return this.disposed || this.project.isDisposed();
+    }
+
+    private void clear() {
+        this.catalogueFiles.clear();
+        this.translationStringMap = null;
+        this.translationStringMapModified = null;
+    }
+
+    private static class CatalogueFile {
+        private final long modified;
+
+        @NotNull
+        private final SoftReference<Map<String, Set<String>>> domains;
 
+        CatalogueFile(long modified, @NotNull Map<String, Set<String>> domains) {
+            this.modified = modified;
+            this.domains = new SoftReference<>(domains);
+        }
+    }
 }
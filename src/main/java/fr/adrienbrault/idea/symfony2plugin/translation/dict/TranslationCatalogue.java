@@ -0,0 +1,205 @@
+package fr.adrienbrault.idea.symfony2plugin.translation.dict;
+
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalFileIndexCache;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TranslationStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.YAMLFileType;
+
+import java.util.*;
+
+/**
+ * All translation keys of a project merged per domain: compiled "catalogue.*.php" keys and indexed yaml / xliff keys.
+ *
+ * Keys are stored as sorted arrays, so lookups are a binary search instead of visiting every index value.
+ * Indexed keys are patched file by file; if one translation file changed only its domain is merged again, all other
+ * domains are taken over from the previous catalogue.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class TranslationCatalogue {
+
+    private static final Key<TranslationCatalogue> TRANSLATION_CATALOGUE = new Key<>("SYMFONY_TRANSLATION_CATALOGUE");
+
+    private static final String[] EMPTY = new String[0];
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final TranslationStringMap compiled;
+
+    private final boolean compiledPending;
+
+    private final long indexGeneration;
+
+    @NotNull
+    private final Map<String, Domain> domains;
+
+    private TranslationCatalogue(@NotNull Project project, @NotNull TranslationStringMap compiled, boolean compiledPending, long indexGeneration, @NotNull Map<String, Domain> domains) {
+        this.project = project;
+        this.compiled = compiled;
+        this.compiledPending = compiledPending;
+        this.indexGeneration = indexGeneration;
+        this.domains = domains;
+    }
+
+    @NotNull
+    public static TranslationCatalogue getInstance(@NotNull Project project) {
+        TranslationIndex translationIndex = TranslationIndex.getInstance(project);
+        TranslationStringMap compiled = translationIndex.getTranslationMap();
+
+        // sync index first: the generation must not be newer than the values we read after it
+        IncrementalFileIndexCache<Set<String>> indexCache = getIndexCache(project);
+        Map<String, List<Set<String>>> indexed = indexCache.getValues();
+        long indexGeneration = indexCache.getGeneration();
+
+        TranslationCatalogue catalogue = project.getUserData(TRANSLATION_CATALOGUE);
+        if(catalogue != null && catalogue.compiled == compiled && catalogue.indexGeneration == indexGeneration) {
+            return catalogue;
+        }
+
+        Set<String> domainNames = new HashSet<>(compiled.getDomainList());
+        domainNames.addAll(indexed.keySet());
+
+        Map<String, Domain> domains = new HashMap<>();
+        for (String domainName : domainNames) {
+            Set<String> compiledKeys = compiled.getDomainMap(domainName);
+            List<Set<String>> indexedKeys = indexed.get(domainName);
+
+            // index snapshots only replace the values of changed domains; unchanged ones can be taken over
+            Domain domain = catalogue != null ? catalogue.domains.get(domainName) : null;
+            if(domain == null || domain.compiledSource != compiledKeys || domain.indexedSource != indexedKeys) {
+                domain = new Domain(compiledKeys, indexedKeys);
+            }
+
+            domains.put(domainName, domain);
+        }
+
+        catalogue = new TranslationCatalogue(project, compiled, translationIndex.isPending(compiled), indexGeneration, domains);
+        project.putUserData(TRANSLATION_CATALOGUE, catalogue);
+
+        return catalogue;
+    }
+
+    /**
+     * Compiled catalogues are still parsed in background; a key or domain which is not found may exist
+     */
+    public boolean isCompiledPending() {
+        return compiledPending;
+    }
+
+    @NotNull
+    public Collection<String> getDomainNames() {
+        return Collections.unmodifiableSet(domains.keySet());
+    }
+
+    @Nullable
+    public Domain getDomain(@NotNull String domainName) {
+        return domains.get(domainName);
+    }
+
+    public boolean hasDomain(@NotNull String domainName) {
+        return domains.containsKey(domainName);
+    }
+
+    public boolean hasKey(@NotNull String domainName, @NotNull String key) {
+        Domain domain = domains.get(domainName);
+        return domain != null && domain.contains(key);
+    }
+
+    /**
+     * Indexed yaml / xliff files of a domain with their keys
+     */
+    @NotNull
+    public Map<VirtualFile, Set<String>> getIndexedFiles(@NotNull String domainName) {
+        return getIndexCache(project).getFileValues(domainName);
+    }
+
+    @NotNull
+    private static IncrementalFileIndexCache<Set<String>> getIndexCache(@NotNull Project project) {
+        // xliff files are indexed by extension; so they can also be plain text or unknown
+        return IncrementalFileIndexCache.getInstance(
+            project,
+            TranslationStubIndex.KEY,
+            YAMLFileType.YML, XmlFileType.INSTANCE, PlainTextFileType.INSTANCE, UnknownFileType.INSTANCE
+        );
+    }
+
+    public static class Domain {
+
+        @Nullable
+        private final Set<String> compiledSource;
+
+        @Nullable
+        private final List<Set<String>> indexedSource;
+
+        /**
+         * Keys of the compiled catalogue; sorted
+         */
+        @NotNull
+        private final String[] compiledKeys;
+
+        /**
+         * Indexed keys which are not part of the compiled catalogue; sorted
+         */
+        @NotNull
+        private final String[] weakKeys;
+
+        private Domain(@Nullable Set<String> compiledSource, @Nullable List<Set<String>> indexedSource) {
+            this.compiledSource = compiledSource;
+            this.indexedSource = indexedSource;
+
+            this.compiledKeys = compiledSource != null ? toSortedArray(compiledSource) : EMPTY;
+
+            Set<String> weakKeys = new HashSet<>();
+            if(indexedSource != null) {
+                for (Set<String> keys : indexedSource) {
+                    weakKeys.addAll(keys);
+                }
+            }
+
+            if(compiledSource != null) {
+                weakKeys.removeAll(compiledSource);
+            }
+
+            this.weakKeys = toSortedArray(weakKeys);
+        }
+
+        /**
+         * Domain is part of the compiled catalogue; its keys are valid and not only a guess of the index
+         */
+        public boolean isCompiled() {
+            return compiledSource != null;
+        }
+
+        public boolean contains(@NotNull String key) {
+            return Arrays.binarySearch(compiledKeys, key) >= 0 || Arrays.binarySearch(weakKeys, key) >= 0;
+        }
+
+        @NotNull
+        public List<String> getCompiledKeys() {
+            return Collections.unmodifiableList(Arrays.asList(compiledKeys));
+        }
+
+        @NotNull
+        public List<String> getWeakKeys() {
+            return Collections.unmodifiableList(Arrays.asList(weakKeys));
+        }
+
+        @NotNull
+        private static String[] toSortedArray(@NotNull Collection<String> keys) {
+            String[] array = keys.toArray(EMPTY);
+            Arrays.sort(array);
+            return array;
+        }
+    }
+}
@@ -2,26 +2,22 @@ package fr.adrienbrault.idea.symfony2plugin.translation.dict;
 
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.Consumer;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIndex;
-import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TranslationStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex;
 import fr.adrienbrault.idea.symfony2plugin.translation.TranslatorLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.translation.collector.YamlTranslationCollector;
 import fr.adrienbrault.idea.symfony2plugin.translation.collector.YamlTranslationVisitor;
 import fr.adrienbrault.idea.symfony2plugin.translation.parser.DomainMappings;
-import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser;
 import fr.adrienbrault.idea.symfony2plugin.util.MethodMatcher;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
@@ -33,22 +29,12 @@ import org.jetbrains.yaml.psi.YAMLDocument;
 import org.jetbrains.yaml.psi.YAMLFile;
 import org.jetbrains.yaml.psi.YAMLKeyValue;
 import org.jetbrains.yaml.psi.YAMLScalar;
-import org.w3c.dom.*;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -61,12 +47,6 @@ public class TranslationUtil {
         new MethodMatcher.CallToSignature("\\Symfony\\Contracts\\Translation\\TranslatorInterface", "transChoice")
     };
 
-    private static final String[] XLIFF_XPATH = {
-        "//xliff/file/body/trans-unit/source",
-        "//xliff/file/group/unit/segment/source",
-        "//xliff/file/unit/segment/source"
-    };
-
     static public VirtualFile[] getDomainFilePsiElements(Project project, String domainName) {
 
         DomainMappings domainMappings = ServiceXmlParserFactory.getInstance(project, DomainMappings.class);
@@ -124,15 +104,24 @@ public class TranslationUtil {
             return true;
         };
 
-        FileBasedIndex.getInstance().getFilesWithKey(TranslationStubIndex.KEY, new HashSet<>(Collections.singletonList(domain)), virtualFile -> {
+        for (Map.Entry<VirtualFile, Set<String>> entry : TranslationCatalogue.getInstance(project).getIndexedFiles(domain).entrySet()) {
+            VirtualFile virtualFile = entry.getKey();
+
             // prevent duplicate targets and dont walk same file twice
             if(virtualFilesFound.contains(virtualFile)) {
-                return true;
+                continue;
+            }
+
+            boolean hasKey = entry.getValue().contains(translationKey);
+
+            // yaml keys are indexed as they are; no need to walk a file without the key
+            if(!hasKey && virtualFile.getFileType() == YAMLFileType.YML) {
+                continue;
             }
 
             PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
             if(psiFile == null) {
-                return true;
+                continue;
             }
 
             if(psiFile instanceof YAMLFile) {
@@ -140,18 +129,12 @@ public class TranslationUtil {
             } else if(isSupportedXlfFile(psiFile)) {
                 // fine: xlf registered as XML file. try to find source value
                 psiFoundElements.addAll(getTargetForXlfAsXmlFile((XmlFile) psiFile, translationKey));
-            } else if(("xlf".equalsIgnoreCase(virtualFile.getExtension()) || "xliff".equalsIgnoreCase(virtualFile.getExtension()))) {
+            } else if(hasKey && ("xlf".equalsIgnoreCase(virtualFile.getExtension()) || "xliff".equalsIgnoreCase(virtualFile.getExtension()))) {
                 // xlf are plain text because not supported by jetbrains
                 // for now we can only set file target
-                psiFoundElements.addAll(FileBasedIndex.getInstance()
-                    .getValues(TranslationStubIndex.KEY, domain, GlobalSearchScope.filesScope(project, Collections.singletonList(virtualFile))).stream()
-                    .filter(string -> string.contains(translationKey)).map(string -> psiFile)
-                    .collect(Collectors.toList())
-                );
+                psiFoundElements.add(psiFile);
             }
-
-            return true;
-        }, GlobalSearchScope.allScope(project));
+        }
 
         return psiFoundElements.toArray(new PsiElement[psiFoundElements.size()]);
     }
@@ -217,68 +200,38 @@ public class TranslationUtil {
         return psiElements;
     }
 
+    /**
+     * Unknown domains are treated as existing while the compiled catalogues are parsed, so inspections dont report them
+     */
     public static boolean hasDomain(Project project, String domainName) {
-        return TranslationIndex.getInstance(project).getTranslationMap().getDomainList().contains(domainName) ||
-            FileBasedIndex.getInstance().getValues(
-                TranslationStubIndex.KEY,
-                domainName,
-                GlobalSearchScope.allScope(project)
-            ).size() > 0;
+        TranslationCatalogue catalogue = TranslationCatalogue.getInstance(project);
+        return catalogue.isCompiledPending() || catalogue.hasDomain(domainName);
     }
 
+    /**
+     * Unknown keys are treated as existing while the compiled catalogues are parsed, so inspections dont report them
+     */
     public static boolean hasTranslationKey(@NotNull Project project, String keyName, String domainName) {
-
-        if(!hasDomain(project, domainName)) {
-            return false;
-        }
-
-        Set<String> domainMap = TranslationIndex.getInstance(project).getTranslationMap().getDomainMap(domainName);
-        if(domainMap != null && domainMap.contains(keyName)) {
-            return true;
-        }
-
-        for(Set<String> keys: FileBasedIndex.getInstance().getValues(TranslationStubIndex.KEY, domainName, GlobalSearchScope.allScope(project))){
-            if(keys.contains(keyName)) {
-                return true;
-            }
-        }
-
-        return false;
+        TranslationCatalogue catalogue = TranslationCatalogue.getInstance(project);
+        return catalogue.isCompiledPending() || catalogue.hasKey(domainName, keyName);
     }
 
     @NotNull
     public static List<LookupElement> getTranslationLookupElementsOnDomain(@NotNull Project project, @NotNull String domainName) {
-
-        Set<String> keySet = new HashSet<>();
-        List<Set<String>> test = FileBasedIndex.getInstance().getValues(TranslationStubIndex.KEY, domainName, GlobalSearchScope.allScope(project));
-        for(Set<String> keys: test ){
-            keySet.addAll(keys);
+        TranslationCatalogue.Domain domain = TranslationCatalogue.getInstance(project).getDomain(domainName);
+        if(domain == null) {
+            return new ArrayList<>();
         }
 
         List<LookupElement> lookupElements = new ArrayList<>();
 
-        TranslationStringMap map = TranslationIndex.getInstance(project).getTranslationMap();
-        Collection<String> domainMap = map.getDomainMap(domainName);
-
-        if(domainMap != null) {
-
-            // php translation parser; are not weak and valid keys
-            for(String stringId : domainMap) {
-                lookupElements.add(new TranslatorLookupElement(stringId, domainName));
-            }
-
-            // attach weak translations keys on file index
-            for(String stringId : keySet) {
-                if(!domainMap.contains(stringId)) {
-                    lookupElements.add(new TranslatorLookupElement(stringId, domainName, true));
-                }
-            }
-
-            return lookupElements;
+        // php translation parser; are not weak and valid keys
+        for(String stringId : domain.getCompiledKeys()) {
+            lookupElements.add(new TranslatorLookupElement(stringId, domainName));
         }
 
-        // fallback on index
-        for(String stringId : keySet) {
+        // attach weak translations keys on file index
+        for(String stringId : domain.getWeakKeys()) {
             lookupElements.add(new TranslatorLookupElement(stringId, domainName, true));
         }
 
@@ -287,21 +240,14 @@ public class TranslationUtil {
 
     @NotNull
     public static List<LookupElement> getTranslationDomainLookupElements(Project project) {
+        TranslationCatalogue catalogue = TranslationCatalogue.getInstance(project);
 
         List<LookupElement> lookupElements = new ArrayList<>();
 
-        // domains on complied file
-        TranslationStringMap map = TranslationIndex.getInstance(project).getTranslationMap();
-        Set<String> domainList = map.getDomainList();
-        for(String domainKey : domainList) {
-            lookupElements.add(new TranslatorLookupElement(domainKey, domainKey));
-        }
-
-        // attach index domains as weak one
-        for(String domainKey: SymfonyProcessors.createResult(project, TranslationStubIndex.KEY, domainList)) {
-            if(!domainList.contains(domainKey)) {
-                lookupElements.add(new TranslatorLookupElement(domainKey, domainKey, true));
-            }
+        // domains on complied file; index domains as weak one
+        for(String domainKey : catalogue.getDomainNames()) {
+            TranslationCatalogue.Domain domain = catalogue.getDomain(domainKey);
+            lookupElements.add(new TranslatorLookupElement(domainKey, domainKey, domain == null || !domain.isCompiled()));
         }
 
         return lookupElements;
@@ -340,30 +286,7 @@ public class TranslationUtil {
 
     @NotNull
     public static Set<String> getXliffTranslations(@NotNull InputStream content) {
-        Set<String> set = new HashSet<>();
-
-        visitXliffTranslations(content, pair -> set.add(pair.getFirst()));
-
-        return set;
-    }
-
-    private static void visitXliffTranslations(@NotNull InputStream content, @NotNull Consumer<Pair<String, Node>> consumer) {
-        Document document;
-
-        try {
-            DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            document = documentBuilder.parse(content);
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            return;
-        }
-
-        if(document == null) {
-            return;
-        }
-
-        for (String s : XLIFF_XPATH) {
-            visitNodes(s, document, consumer);
-        }
+        return XliffTranslationParser.getKeys(content);
     }
 
     public static boolean isSupportedXlfFile(@NotNull PsiFile psiFile) {
@@ -439,7 +362,7 @@ public class TranslationUtil {
                 // dont visit file twice
                 if(!visitedXlf.contains(virtualFile)) {
                     try {
-                        visitXliffTranslations(
+                        XliffTranslationParser.visit(
                             element.getContainingFile().getVirtualFile().getInputStream(),
                             new MyXlfTranslationConsumer(placeholder, key)
                         );
@@ -454,52 +377,13 @@ public class TranslationUtil {
         return placeholder;
     }
 
-    private static void visitNodes(@NotNull String xpath, @NotNull Document document, @NotNull Consumer<Pair<String, Node>> consumer) {
-        Object result;
-        try {
-            // @TODO: xpath should not use "file/body"
-            XPathExpression xPathExpr = XPathFactory.newInstance().newXPath().compile(xpath);
-            result = xPathExpr.evaluate(document, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
-            return;
-        }
-
-        if(!(result instanceof NodeList)) {
-            return;
-        }
-
-        NodeList nodeList = (NodeList) result;
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String textContent = node.getTextContent();
-            if(org.apache.commons.lang.StringUtils.isNotBlank(textContent)) {
-                consumer.consume(Pair.create(textContent, node));
-            }
-
-            // <trans-unit id="1" resname="title.test">
-            Node transUnitNode = node.getParentNode();
-            if(transUnitNode != null) {
-                NamedNodeMap attributes = transUnitNode.getAttributes();
-                if(attributes != null) {
-                    Node resname = attributes.getNamedItem("resname");
-                    if(resname != null) {
-                        String textContentResname = resname.getTextContent();
-                        if(textContentResname != null && StringUtils.isNotBlank(textContentResname)) {
-                            consumer.consume(Pair.create(textContentResname, node));
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * <trans-unit id="29">
      *  <source>foo</source>
      *  <target>foo</target>
      * </trans-unit>
      */
-    private static class MyXlfTranslationConsumer implements Consumer<Pair<String, Node>> {
+    private static class MyXlfTranslationConsumer implements Consumer<XliffTranslationParser.XliffUnit> {
         @NotNull
         private final Set<String> placeholder;
 
@@ -512,33 +396,9 @@ public class TranslationUtil {
         }
 
         @Override
-        public void consume(Pair<String, Node> pair) {
-            if(!(pair.getSecond() instanceof Element) || !"source".equalsIgnoreCase(pair.getSecond().getNodeName())) {
-                return;
-            }
-
-            Element source = (Element) pair.getSecond();
-            if(!key.equalsIgnoreCase(source.getTextContent())) {
-                return;
-            }
-
-            visitNodeText(source);
-
-            Node transUnit = source.getParentNode();
-            if(transUnit instanceof Element) {
-                NodeList target = ((Element) transUnit).getElementsByTagName("target");
-                if(target.getLength() > 0) {
-                    visitNodeText(target.item(0));
-                }
-            }
-        }
-
-        private void visitNodeText(@NotNull Node target) {
-            String nodeValue = target.getTextContent();
-            if(StringUtils.isNotBlank(nodeValue)) {
-                placeholder.addAll(
-                    TranslationUtil.getPlaceholderFromTranslation(nodeValue)
-                );
+        public void consume(XliffTranslationParser.XliffUnit unit) {
+            if(key.equalsIgnoreCase(unit.getSource())) {
+                placeholder.addAll(unit.getPlaceholders());
             }
         }
     }
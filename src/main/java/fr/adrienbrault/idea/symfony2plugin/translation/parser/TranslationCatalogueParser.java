@@ -0,0 +1,175 @@
+package fr.adrienbrault.idea.symfony2plugin.translation.parser;
+
+import fr.adrienbrault.idea.symfony2plugin.util.PhpArrayLexer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts domains and keys of a compiled translation catalogue ("var/cache/dev/translations/catalogue.de.php")
+ * on token level.
+ *
+ * The files hold every message of a locale; so there is no PSI and no class resolving, the "MessageCatalogue" array
+ * literals are scanned and message values are skipped without reading them.
+ *
+ * $catalogue = new MessageCatalogue('de', array('messages' => array('foo' => 'bar')));
+ * $catalogueEn = new \Symfony\Component\Translation\MessageCatalogue('en', ['messages' => ['foo' => 'bar']]);
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class TranslationCatalogueParser {
+
+    private static final String MESSAGE_CATALOGUE = "MessageCatalogue";
+
+    /**
+     * Domain to its translation keys of all catalogues inside the content; also fallback catalogues
+     */
+    @NotNull
+    public static Map<String, Set<String>> parse(@NotNull CharSequence content) {
+        Map<String, Set<String>> domains = new HashMap<>();
+
+        String text = content.toString();
+
+        int offset = 0;
+        while((offset = text.indexOf(MESSAGE_CATALOGUE, offset)) >= 0) {
+            int start = offset;
+            offset += MESSAGE_CATALOGUE.length();
+
+            // "MessageCatalogueInterface", "FooMessageCatalogue"
+            if(offset < text.length() && Character.isJavaIdentifierPart(text.charAt(offset))) {
+                continue;
+            }
+
+            if(!isNewExpression(text, start)) {
+                continue;
+            }
+
+            PhpArrayLexer lexer = new PhpArrayLexer(text, offset);
+            collectDomains(lexer, domains);
+
+            offset = Math.max(offset, lexer.getOffset());
+        }
+
+        return domains;
+    }
+
+    /**
+     * "new MessageCatalogue", "new \Symfony\Component\Translation\MessageCatalogue"
+     */
+    private static boolean isNewExpression(@NotNull String text, int offset) {
+        // "FooMessageCatalogue"
+        if(offset > 0 && Character.isJavaIdentifierPart(text.charAt(offset - 1))) {
+            return false;
+        }
+
+        // namespace of the class name
+        while(offset > 0 && (Character.isJavaIdentifierPart(text.charAt(offset - 1)) || text.charAt(offset - 1) == '\\')) {
+            offset--;
+        }
+
+        int nameStart = offset;
+        while(offset > 0 && Character.isWhitespace(text.charAt(offset - 1))) {
+            offset--;
+        }
+
+        return offset < nameStart
+            && offset >= 3
+            && text.regionMatches(true, offset - 3, "new", 0, 3)
+            && (offset == 3 || !Character.isJavaIdentifierPart(text.charAt(offset - 4)));
+    }
+
+    /**
+     * ('de', array('messages' => array('foo' => 'bar')))
+     */
+    private static void collectDomains(@NotNull PhpArrayLexer lexer, @NotNull Map<String, Set<String>> domains) {
+        if(!lexer.isChar('(')) {
+            return;
+        }
+
+        // locale
+        lexer.next();
+        lexer.skipValue();
+
+        if(!lexer.isChar(',')) {
+            return;
+        }
+
+        lexer.next();
+
+        char close = lexer.openArray();
+        if(close == 0) {
+            return;
+        }
+
+        while(!lexer.isEof() && !lexer.isChar(close)) {
+            if(!lexer.isString()) {
+                return;
+            }
+
+            String domain = lexer.getText();
+
+            lexer.next();
+            if(!lexer.isArrow()) {
+                return;
+            }
+
+            lexer.next();
+
+            Set<String> keys = domains.computeIfAbsent(domain, s -> new HashSet<>());
+            if(!collectKeys(lexer, keys)) {
+                return;
+            }
+
+            if(lexer.isChar(',')) {
+                lexer.next();
+            } else if(!lexer.isChar(close)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * array('foo' => 'bar', 'foo.bar' => 'bar')
+     *
+     * @return "false" on broken syntax
+     */
+    private static boolean collectKeys(@NotNull PhpArrayLexer lexer, @NotNull Set<String> keys) {
+        char close = lexer.openArray();
+        if(close == 0) {
+            lexer.skipValue();
+            return true;
+        }
+
+        while(!lexer.isEof() && !lexer.isChar(close)) {
+            // integer keys are no translation keys; but the value needs to be skipped anyway
+            String key = lexer.isString() ? lexer.getText() : null;
+
+            lexer.skipValue();
+            if(lexer.isArrow()) {
+                lexer.next();
+                lexer.skipValue();
+
+                if(key != null) {
+                    keys.add(key);
+                }
+            }
+
+            if(lexer.isChar(',')) {
+                lexer.next();
+            } else if(!lexer.isChar(close)) {
+                return false;
+            }
+        }
+
+        if(lexer.isEof()) {
+            return false;
+        }
+
+        lexer.next();
+
+        return true;
+    }
+}
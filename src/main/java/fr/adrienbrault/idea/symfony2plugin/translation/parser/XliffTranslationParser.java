@@ -0,0 +1,281 @@
+package fr.adrienbrault.idea.symfony2plugin.translation.parser;
+
+import com.intellij.util.Consumer;
+import fr.adrienbrault.idea.symfony2plugin.translation.dict.TranslationUtil;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Streaming extractor for translation units of XLIFF 1.2 and 2.0 files, without building a DOM.
+ *
+ * 1.2 xliff -> file -> body -> trans-unit -> source
+ * 2.0 xliff -> file -> group -> unit -> segment -> source
+ * 2.0 xliff -> file -> unit -> segment -> source
+ *
+ * Elements are matched on their local name, so namespaces or prefixes do not matter. Units read before a syntax error
+ * are still visited.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class XliffTranslationParser {
+
+    private static final String[][] SOURCE_PARENTS = {
+        {"xliff", "file", "body", "trans-unit"},
+        {"xliff", "file", "group", "unit", "segment"},
+        {"xliff", "file", "unit", "segment"},
+    };
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    @NotNull
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        // vendor files must never trigger network or file access
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        return factory;
+    }
+
+    /**
+     * Translation keys: sources and "resname" attributes
+     */
+    @NotNull
+    public static Set<String> getKeys(@NotNull InputStream content) {
+        Set<String> keys = new HashSet<>();
+
+        visit(content, unit -> {
+            if(StringUtils.isNotBlank(unit.getSource())) {
+                keys.add(unit.getSource());
+            }
+
+            if(StringUtils.isNotBlank(unit.getResname())) {
+                keys.add(unit.getResname());
+            }
+        });
+
+        return keys;
+    }
+
+    public static void visit(@NotNull InputStream content, @NotNull Consumer<XliffUnit> consumer) {
+        XMLStreamReader reader;
+        try {
+            reader = FACTORY.createXMLStreamReader(content);
+        } catch (XMLStreamException e) {
+            return;
+        }
+
+        try {
+            visit(reader, consumer);
+        } catch (XMLStreamException ignored) {
+            // broken or incomplete file
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+            }
+        }
+    }
+
+    private static void visit(@NotNull XMLStreamReader reader, @NotNull Consumer<XliffUnit> consumer) throws XMLStreamException {
+        List<Element> stack = new ArrayList<>();
+
+        while(reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = reader.getLocalName();
+
+                    Element element = new Element(name);
+                    if("trans-unit".equals(name) || "unit".equals(name) || "segment".equals(name)) {
+                        element.id = reader.getAttributeValue(null, "id");
+                        element.resname = reader.getAttributeValue(null, "resname");
+                    }
+
+                    if(("source".equals(name) && isSourceParent(stack)) || "target".equals(name)) {
+                        element.text = new StringBuilder();
+                    }
+
+                    stack.add(element);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // same as "getTextContent" of the DOM: text of nested elements is included
+                    for (Element open : stack) {
+                        if(open.text != null) {
+                            open.text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if(stack.isEmpty()) {
+                        break;
+                    }
+
+                    Element closed = stack.remove(stack.size() - 1);
+                    if(closed.text == null) {
+                        if(closed.sources != null) {
+                            for (String source : closed.sources) {
+                                consumer.consume(new XliffUnit(getUnitId(stack, closed), closed.resname, source, closed.target));
+                            }
+                        }
+
+                        break;
+                    }
+
+                    if("source".equals(closed.name)) {
+                        Element parent = stack.get(stack.size() - 1);
+                        if(parent.sources == null) {
+                            parent.sources = new ArrayList<>();
+                        }
+
+                        parent.sources.add(closed.text.toString());
+                    } else {
+                        // first target of every surrounding element
+                        String target = closed.text.toString();
+                        for (Element open : stack) {
+                            if(open.target == null) {
+                                open.target = target;
+                            }
+                        }
+                    }
+
+                    break;
+            }
+        }
+    }
+
+    /**
+     * XPath "//xliff/file/body/trans-unit" on the open elements: "xliff" must not be the root
+     */
+    private static boolean isSourceParent(@NotNull List<Element> stack) {
+        for (String[] path : SOURCE_PARENTS) {
+            int offset = stack.size() - path.length;
+            if(offset < 0) {
+                continue;
+            }
+
+            boolean matches = true;
+            for (int i = 0; i < path.length && matches; i++) {
+                matches = path[i].equals(stack.get(offset + i).name);
+            }
+
+            if(matches) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * "trans-unit" holds the id itself; for 2.0 it is on the "unit" around the "segment"
+     */
+    @Nullable
+    private static String getUnitId(@NotNull List<Element> stack, @NotNull Element sourceParent) {
+        if(!"segment".equals(sourceParent.name) || stack.isEmpty()) {
+            return sourceParent.id;
+        }
+
+        return stack.get(stack.size() - 1).id;
+    }
+
+    private static class Element {
+        @NotNull
+        private final String name;
+
+        @Nullable
+        private String id;
+
+        @Nullable
+        private String resname;
+
+        /**
+         * Collected text of "source" and "target" elements
+         */
+        @Nullable
+        private StringBuilder text;
+
+        @Nullable
+        private List<String> sources;
+
+        @Nullable
+        private String target;
+
+        private Element(@NotNull String name) {
+            this.name = name;
+        }
+    }
+
+    public static class XliffUnit {
+        @Nullable
+        private final String id;
+
+        @Nullable
+        private final String resname;
+
+        @NotNull
+        private final String source;
+
+        @Nullable
+        private final String target;
+
+        XliffUnit(@Nullable String id, @Nullable String resname, @NotNull String source, @Nullable String target) {
+            this.id = id;
+            this.resname = resname;
+            this.source = source;
+            this.target = target;
+        }
+
+        @Nullable
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * <trans-unit id="1" resname="title.test">
+         */
+        @Nullable
+        public String getResname() {
+            return resname;
+        }
+
+        @NotNull
+        public String getSource() {
+            return source;
+        }
+
+        @Nullable
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * Placeholders of source and target: "%foo%", "{{ foo }}", "{foo}"
+         */
+        @NotNull
+        public Set<String> getPlaceholders() {
+            Set<String> placeholder = new HashSet<>();
+
+            if(StringUtils.isNotBlank(source)) {
+                placeholder.addAll(TranslationUtil.getPlaceholderFromTranslation(source));
+            }
+
+            if(StringUtils.isNotBlank(target)) {
+                placeholder.addAll(TranslationUtil.getPlaceholderFromTranslation(target));
+            }
+
+            return placeholder;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.PhpMethodVariableResolveUtil;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
@@ -22,8 +23,8 @@ import java.util.regex.Pattern;
  */
 public class ControllerDocVariableCollector implements TwigFileVariableCollector {
 
-    public static String DOC_PATTERN  = "\\{#[\\s]+@[C|c]ontroller[\\s]+([\\w\\\\\\[\\]:]+)[\\s]+#}";
-    public static String DOC_PATTERN_COMPLETION  = "\\{#[\\s]+@[C|c]ontroller[\\s]+.*#}";
+    public static final String DOC_PATTERN  = "\\{#[\\s]+@[C|c]ontroller[\\s]+([\\w\\\\\\[\\]:]+)[\\s]+#}";
+    public static final String DOC_PATTERN_COMPLETION  = "\\{#[\\s]+@[C|c]ontroller[\\s]+.*#}";
 
     @Override
     public void collectPsiVariables(@NotNull TwigFileVariableCollectorParameter parameter, @NotNull Map<String, PsiVariable> variables) {
@@ -49,7 +50,7 @@ public class ControllerDocVariableCollector implements TwigFileVariableCollector
 
     private static ArrayList<String> findFileControllerDocBlocks(TwigFile twigFile) {
 
-        Pattern pattern = Pattern.compile(DOC_PATTERN);
+        Pattern pattern = TwigDocPatterns.CONTROLLER;
 
         ArrayList<String> controller = new ArrayList<>();
 
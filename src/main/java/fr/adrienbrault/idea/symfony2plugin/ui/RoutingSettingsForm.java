@@ -16,6 +16,7 @@ import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutingFile;
 import fr.adrienbrault.idea.symfony2plugin.ui.utils.UiSettingsUtil;
 import fr.adrienbrault.idea.symfony2plugin.ui.utils.dict.UiPathColumnInfo;
 import fr.adrienbrault.idea.symfony2plugin.ui.utils.dict.WebServerFileDialogExtensionCallback;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.WebDeploymentUtil;
 import icons.WebDeploymentIcons;
 import org.jetbrains.annotations.Nls;
@@ -173,6 +174,7 @@ public class RoutingSettingsForm implements Configurable {
         }
 
         getSettings().routingFiles = containerFiles;
+        SymfonyModificationTrackers.incModificationCount(project);
         this.changed = false;
     }
 
@@ -0,0 +1,359 @@
+package fr.adrienbrault.idea.symfony2plugin.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal PHP tokenizer for array literals of generated cache files, without building any PSI.
+ *
+ * Strings are only unescaped if their text is requested, so skipping values of huge arrays does not allocate.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class PhpArrayLexer {
+
+    private static final int EOF = 0;
+    private static final int STRING = 1;
+    private static final int WORD = 2;
+    private static final int ARROW = 3;
+    private static final int CHAR = 4;
+
+    @NotNull
+    private final String content;
+
+    private int offset;
+
+    private int type;
+
+    /**
+     * Token range; for strings without the quotes
+     */
+    private int tokenStart;
+
+    private int tokenEnd;
+
+    private char character;
+
+    @Nullable
+    private String text;
+
+    public PhpArrayLexer(@NotNull String content, int offset) {
+        this.content = content;
+        this.offset = offset;
+        next();
+    }
+
+    /**
+     * Offset after the current token
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean isEof() {
+        return type == EOF;
+    }
+
+    public boolean isChar(char c) {
+        return type == CHAR && character == c;
+    }
+
+    public boolean isString() {
+        return type == STRING;
+    }
+
+    public boolean isArrow() {
+        return type == ARROW;
+    }
+
+    /**
+     * Case insensitive keyword or identifier: "array", "null", "\Foo\Bar"
+     */
+    public boolean isWord(@NotNull String word) {
+        return type == WORD && content.regionMatches(true, tokenStart, word, 0, word.length()) && tokenEnd - tokenStart == word.length();
+    }
+
+    /**
+     * Unescaped text of a string, text of a word; else "null"
+     */
+    @Nullable
+    public String getText() {
+        if(text == null) {
+            if(type == STRING) {
+                text = unescape(content.charAt(tokenStart - 1));
+            } else if(type == WORD) {
+                text = content.substring(tokenStart, tokenEnd);
+            }
+        }
+
+        return text;
+    }
+
+    /**
+     * Opening token of an array literal: "array (" or "["; moves behind it
+     *
+     * @return closing char or 0 if there is no array
+     */
+    public char openArray() {
+        if(isWord("array")) {
+            next();
+            if(isChar('(')) {
+                next();
+                return ')';
+            }
+
+            return 0;
+        }
+
+        if(isChar('[')) {
+            next();
+            return ']';
+        }
+
+        return 0;
+    }
+
+    /**
+     * Reads the value at the current token; string, ordered map or "null" for anything else or broken syntax
+     */
+    @Nullable
+    public Object value() {
+        if(isWord("array")) {
+            next();
+            if(isChar('(')) {
+                next();
+                return array(')');
+            }
+
+            return null;
+        }
+
+        if(isChar('[')) {
+            next();
+            return array(']');
+        }
+
+        if(type == STRING) {
+            String value = getText();
+            next();
+            return value;
+        }
+
+        skipExpression();
+        return null;
+    }
+
+    /**
+     * Moves behind the value at the current token without reading it
+     */
+    public void skipValue() {
+        char close = openArray();
+        if(close == 0) {
+            if(type == STRING) {
+                next();
+            } else {
+                skipExpression();
+            }
+
+            return;
+        }
+
+        int depth = 1;
+        while(type != EOF && depth > 0) {
+            if(isChar('(') || isChar('[')) {
+                depth++;
+            } else if(isChar(')') || isChar(']')) {
+                depth--;
+            }
+
+            next();
+        }
+    }
+
+    /**
+     * Ordered map of the array or "null" on broken syntax
+     */
+    @Nullable
+    private Map<String, Object> array(char close) {
+        Map<String, Object> array = new LinkedHashMap<>();
+
+        int index = 0;
+        while(type != EOF && !isChar(close)) {
+            String key = type == STRING || type == WORD ? getText() : null;
+
+            Object value = value();
+            if(type == ARROW) {
+                next();
+                value = value();
+
+                if(StringUtils.isNotEmpty(key) && StringUtils.isNumeric(key) && key.length() < 10) {
+                    index = Integer.parseInt(key) + 1;
+                }
+            } else {
+                key = String.valueOf(index++);
+            }
+
+            if(key != null) {
+                array.put(key, value);
+            }
+
+            if(isChar(',')) {
+                next();
+            } else if(!isChar(close)) {
+                return null;
+            }
+        }
+
+        // unclosed array; eg a file which is currently written
+        if(type == EOF) {
+            return null;
+        }
+
+        next();
+
+        return array;
+    }
+
+    /**
+     * Constants, numbers or calls: everything up to the next "," or closing bracket on the same level
+     */
+    private void skipExpression() {
+        int depth = 0;
+
+        while(type != EOF) {
+            if(depth == 0 && (type == ARROW || isChar(',') || isChar(')') || isChar(']') || isChar(';'))) {
+                return;
+            }
+
+            if(isChar('(') || isChar('[')) {
+                depth++;
+            } else if(isChar(')') || isChar(']')) {
+                depth--;
+            }
+
+            next();
+        }
+    }
+
+    public void next() {
+        skipWhitespaceAndComments();
+
+        text = null;
+
+        if(offset >= content.length()) {
+            type = EOF;
+            return;
+        }
+
+        char c = content.charAt(offset);
+
+        if(c == '\'' || c == '"') {
+            type = STRING;
+            skipString(c);
+            return;
+        }
+
+        if(c == '=' && offset + 1 < content.length() && content.charAt(offset + 1) == '>') {
+            type = ARROW;
+            offset += 2;
+            return;
+        }
+
+        if(Character.isJavaIdentifierPart(c) || c == '\\') {
+            tokenStart = offset;
+            while(offset < content.length() && (Character.isJavaIdentifierPart(content.charAt(offset)) || content.charAt(offset) == '\\' || content.charAt(offset) == '.')) {
+                offset++;
+            }
+
+            type = WORD;
+            tokenEnd = offset;
+            return;
+        }
+
+        type = CHAR;
+        character = c;
+        offset++;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while(offset < content.length()) {
+            char c = content.charAt(offset);
+
+            if(Character.isWhitespace(c)) {
+                offset++;
+            } else if(c == '#' || (c == '/' && offset + 1 < content.length() && content.charAt(offset + 1) == '/')) {
+                int end = content.indexOf('\n', offset);
+                offset = end < 0 ? content.length() : end + 1;
+            } else if(c == '/' && offset + 1 < content.length() && content.charAt(offset + 1) == '*') {
+                int end = content.indexOf("*/", offset + 2);
+                offset = end < 0 ? content.length() : end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipString(char quote) {
+        tokenStart = ++offset;
+
+        while(offset < content.length()) {
+            char c = content.charAt(offset);
+            if(c == quote) {
+                tokenEnd = offset++;
+                return;
+            }
+
+            // escaped char can never close the string
+            offset += c == '\\' ? 2 : 1;
+        }
+
+        // unclosed string
+        offset = tokenEnd = content.length();
+    }
+
+    /**
+     * 'foo\'bar\\' => "foo'bar\", "foo\"\n" => "foo"<newline>"; variables in double quotes are not resolved
+     */
+    @NotNull
+    private String unescape(char quote) {
+        // most strings are plain
+        if(content.indexOf('\\', tokenStart) < 0 || content.indexOf('\\', tokenStart) >= tokenEnd) {
+            return content.substring(tokenStart, tokenEnd);
+        }
+
+        StringBuilder builder = new StringBuilder(tokenEnd - tokenStart);
+
+        int i = tokenStart;
+        while(i < tokenEnd) {
+            char c = content.charAt(i++);
+
+            if(c != '\\' || i >= tokenEnd) {
+                builder.append(c);
+                continue;
+            }
+
+            char escaped = content.charAt(i);
+            if(escaped == quote || escaped == '\\') {
+                builder.append(escaped);
+                i++;
+            } else if(quote == '"' && escaped == 'n') {
+                builder.append('\n');
+                i++;
+            } else if(quote == '"' && escaped == 't') {
+                builder.append('\t');
+                i++;
+            } else if(quote == '"' && escaped == '$') {
+                builder.append('$');
+                i++;
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return builder.toString();
+    }
+}
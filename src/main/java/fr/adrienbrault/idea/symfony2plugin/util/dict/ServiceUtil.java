@@ -38,6 +38,7 @@ import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubI
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesTagStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
@@ -594,7 +595,7 @@ public class ServiceUtil {
 
         if(cache == null) {
             cache = CachedValuesManager.getManager(project).createCachedValue(() ->
-                CachedValueProvider.Result.create(getParameterParametersInner(project), PsiModificationTracker.MODIFICATION_COUNT),
+                CachedValueProvider.Result.create(getParameterParametersInner(project), SymfonyModificationTrackers.getKernelTracker(project)),
                 false
             );
 
@@ -0,0 +1,103 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Everything the container parsers need of one compiled container xml file, collected by a single read
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see ContainerXmlStreamParser
+ */
+public class ContainerXmlFile {
+
+    public static final ContainerXmlFile EMPTY = new ContainerXmlFile(Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+
+    @NotNull
+    private final Collection<XmlService> services;
+
+    @NotNull
+    private final Collection<Tag> tags;
+
+    @NotNull
+    private final Map<String, String> parameters;
+
+    public ContainerXmlFile(@NotNull Collection<XmlService> services, @NotNull Collection<Tag> tags, @NotNull Map<String, String> parameters) {
+        this.services = Collections.unmodifiableCollection(services);
+        this.tags = Collections.unmodifiableCollection(tags);
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * All "service" elements; aliases are not resolved
+     */
+    @NotNull
+    public Collection<XmlService> getServices() {
+        return services;
+    }
+
+    /**
+     * "/container/services/service[@id]/tag[@name]"
+     */
+    @NotNull
+    public Collection<Tag> getTags() {
+        return tags;
+    }
+
+    /**
+     * "/container/parameters/parameter[@key]"
+     */
+    @NotNull
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * A "tag" element with the class of its service
+     */
+    public static class Tag {
+        @Nullable
+        private final String name;
+
+        @Nullable
+        private final String event;
+
+        @Nullable
+        private final String serviceClass;
+
+        public Tag(@Nullable String name, @Nullable String event, @Nullable String serviceClass) {
+            this.name = name;
+            this.event = event;
+            this.serviceClass = serviceClass;
+        }
+
+        /**
+         * Value of the "name" attribute, null if not given
+         */
+        @Nullable
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Value of the "event" attribute, eg for "kernel.event_listener"
+         */
+        @Nullable
+        public String getEvent() {
+            return event;
+        }
+
+        /**
+         * Raw "class" attribute of the service, null if not given
+         */
+        @Nullable
+        public String getServiceClass() {
+            return serviceClass;
+        }
+    }
+}
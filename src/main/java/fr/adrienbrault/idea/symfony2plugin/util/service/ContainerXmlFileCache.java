@@ -0,0 +1,168 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+/**
+ * Parsed container files of a project shared by all container parsers.
+ *
+ * A file is only read again if its mtime or size changed, and only parsed again if also its content hash
+ * changed; eg "cache:clear" touches all files but mostly does not change all of them. Changed files are
+ * parsed in parallel. Parsed files are persisted as snapshot to survive IDE restarts; snapshots are written one
+ * after another on a pooled thread, so the parser lock is not held for disk io.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ContainerXmlFileCache {
+
+    private static final Key<ContainerXmlFileCache> CACHE = new Key<>("SYMFONY_CONTAINER_XML_FILE_CACHE");
+
+    private static final ExecutorService SNAPSHOT_EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Container Snapshot", 1);
+
+    @NotNull
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @NotNull
+    public static ContainerXmlFileCache getInstance(@NotNull Project project) {
+        ContainerXmlFileCache cache = project.getUserData(CACHE);
+        if(cache == null) {
+            cache = ((UserDataHolderEx) project).putUserDataIfAbsent(CACHE, new ContainerXmlFileCache());
+        }
+
+        return cache;
+    }
+
+    /**
+     * Parsed files in the given order; not existing or unreadable files are skipped
+     */
+    @NotNull
+    synchronized public List<ContainerXmlFile> getFiles(@NotNull Collection<File> files) {
+        List<File> changed = new ArrayList<>();
+        Set<String> paths = new HashSet<>();
+
+        for (File file : files) {
+            CacheMetrics.get(ContainerXmlFileCache.class).request();
+            paths.add(file.getAbsolutePath());
+
+            Entry entry = this.entries.get(file.getAbsolutePath());
+            if(entry == null || entry.lastModified != file.lastModified() || entry.length != file.length()) {
+                changed.add(file);
+            }
+        }
+
+        // dont hold removed container files, also not their snapshot
+        for (String path : new ArrayList<>(this.entries.keySet())) {
+            if(!paths.contains(path)) {
+                this.entries.remove(path);
+                SNAPSHOT_EXECUTOR.execute(() -> ContainerXmlFileSnapshot.delete(path));
+            }
+        }
+
+        if(changed.size() == 1) {
+            update(changed.get(0));
+        } else if(changed.size() > 1) {
+            JobLauncher.getInstance().invokeConcurrentlyUnderProgress(changed, ProgressManager.getInstance().getProgressIndicator(), file -> {
+                update(file);
+                return true;
+            });
+        }
+
+        List<ContainerXmlFile> containerFiles = new ArrayList<>();
+        for (File file : files) {
+            Entry entry = this.entries.get(file.getAbsolutePath());
+            if(entry != null) {
+                containerFiles.add(entry.containerFile);
+            }
+        }
+
+        return containerFiles;
+    }
+
+    private void update(@NotNull File file) {
+        String path = file.getAbsolutePath();
+
+        if(!file.exists()) {
+            this.entries.remove(path);
+            SNAPSHOT_EXECUTOR.execute(() -> ContainerXmlFileSnapshot.delete(path));
+            return;
+        }
+
+        // read attributes before the content; a write in between is detected on next access
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        Entry entry = this.entries.get(path);
+
+        // first access, eg after IDE start: a snapshot of the same file state saves the xml parsing
+        File snapshotFile = ContainerXmlFileSnapshot.getSnapshotFile(path);
+        if(entry == null) {
+            ContainerXmlFileSnapshot snapshot = ContainerXmlFileSnapshot.read(snapshotFile, path, lastModified, length);
+            if(snapshot != null) {
+                this.entries.put(path, new Entry(lastModified, length, snapshot.getHash(), snapshot.getContainerFile()));
+                return;
+            }
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            this.entries.remove(path);
+            return;
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        long hash = crc32.getValue();
+
+        ContainerXmlFile containerFile;
+        if(entry != null && entry.hash == hash) {
+            containerFile = entry.containerFile;
+        } else {
+            long start = System.nanoTime();
+            containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(content));
+
+            // files are parsed in parallel; dont log the shared last rebuild time
+            long millis = CacheMetrics.get(ContainerXmlFileCache.class).rebuild(start, containerFile.getServices().size());
+
+            Symfony2ProjectComponent.getLogger().info(String.format("parsed container file %s in %d ms", path, millis));
+        }
+
+        this.entries.put(path, new Entry(lastModified, length, hash, containerFile));
+
+        // unchanged content of a touched file still needs the new mtime in the snapshot header
+        SNAPSHOT_EXECUTOR.execute(() -> ContainerXmlFileSnapshot.write(snapshotFile, path, lastModified, length, hash, containerFile));
+    }
+
+    private static class Entry {
+        private final long lastModified;
+        private final long length;
+        private final long hash;
+
+        @NotNull
+        private final ContainerXmlFile containerFile;
+
+        private Entry(long lastModified, long length, long hash, @NotNull ContainerXmlFile containerFile) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+            this.containerFile = containerFile;
+        }
+    }
+}
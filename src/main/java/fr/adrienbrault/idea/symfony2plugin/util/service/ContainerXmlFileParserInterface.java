@@ -0,0 +1,13 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parser which is fed with already collected container files instead of reading the xml itself
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see ServiceXmlParserFactory
+ */
+public interface ContainerXmlFileParserInterface extends ServiceParserInterface {
+    void parser(@NotNull ContainerXmlFile containerFile);
+}
@@ -0,0 +1,275 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.io.FileUtil;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Binary snapshot of a parsed container file inside the IDE system directory; so after an IDE restart
+ * the container is served without parsing the xml again.
+ *
+ * A snapshot is only valid for the same container path, size and mtime. All strings are stored once
+ * in a table, services and tags only hold indexes into it.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ContainerXmlFileSnapshot {
+
+    private static final int MAGIC = 0x53464358;
+    private static final int VERSION = 1;
+
+    private static final int NULL_STRING = -1;
+
+    @NotNull
+    private final ContainerXmlFile containerFile;
+
+    private final long hash;
+
+    private ContainerXmlFileSnapshot(@NotNull ContainerXmlFile containerFile, long hash) {
+        this.containerFile = containerFile;
+        this.hash = hash;
+    }
+
+    @NotNull
+    public ContainerXmlFile getContainerFile() {
+        return containerFile;
+    }
+
+    /**
+     * Content hash of the container file the snapshot was created from
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    @NotNull
+    public static File getSnapshotFile(@NotNull String containerPath) {
+        File directory = new File(PathManager.getSystemPath(), "symfony2-plugin" + File.separator + "container");
+
+        // path is also part of the header, so collisions are detected on read
+        return new File(directory, Integer.toHexString(containerPath.hashCode()) + "_" + new File(containerPath).getName() + ".bin");
+    }
+
+    /**
+     * Reads the snapshot into the heap; null if missing, broken or not created for the current state of the container file.
+     * A mapped file would stay open until the buffer is collected, and block replacing it on Windows.
+     */
+    @Nullable
+    public static ContainerXmlFileSnapshot read(@NotNull File snapshotFile, @NotNull String containerPath, long lastModified, long length) {
+        if(!snapshotFile.isFile()) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+
+            if(!containerPath.equals(readString(buffer)) || buffer.getLong() != length || buffer.getLong() != lastModified) {
+                return null;
+            }
+
+            long hash = buffer.getLong();
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            int servicesCount = buffer.getInt();
+            Collection<XmlService> services = new ArrayList<>(servicesCount);
+            for (int i = 0; i < servicesCount; i++) {
+                String id = getString(strings, buffer.getInt());
+                String className = getString(strings, buffer.getInt());
+                String alias = getString(strings, buffer.getInt());
+                boolean isPublic = buffer.get() != 0;
+
+                XmlService service = XmlService.createFromAttributes(id, className, isPublic ? null : "false", alias);
+                if(service != null) {
+                    services.add(service);
+                }
+            }
+
+            int tagsCount = buffer.getInt();
+            Collection<ContainerXmlFile.Tag> tags = new ArrayList<>(tagsCount);
+            for (int i = 0; i < tagsCount; i++) {
+                tags.add(new ContainerXmlFile.Tag(
+                    getString(strings, buffer.getInt()),
+                    getString(strings, buffer.getInt()),
+                    getString(strings, buffer.getInt())
+                ));
+            }
+
+            int parametersCount = buffer.getInt();
+            Map<String, String> parameters = new LinkedHashMap<>();
+            for (int i = 0; i < parametersCount; i++) {
+                String key = getString(strings, buffer.getInt());
+                String value = getString(strings, buffer.getInt());
+                if(key != null && value != null) {
+                    parameters.put(key, value);
+                }
+            }
+
+            return new ContainerXmlFileSnapshot(new ContainerXmlFile(services, tags, parameters), hash);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            Symfony2ProjectComponent.getLogger().info("invalid container snapshot: " + snapshotFile.getAbsolutePath());
+            return null;
+        }
+    }
+
+    /**
+     * Writes into a unique temporary file which atomically replaces the snapshot; a failed write keeps the old or no snapshot.
+     * Projects sharing a container file write the same snapshot, so the temporary file must not be shared
+     */
+    public static void write(@NotNull File snapshotFile, @NotNull String containerPath, long lastModified, long length, long hash, @NotNull ContainerXmlFile containerFile) {
+        StringTable strings = new StringTable();
+
+        // resolve all strings first, the table is written before the records
+        for (XmlService service : containerFile.getServices()) {
+            strings.add(service.getId());
+            strings.add(service.getClassName());
+            strings.add(service.getAlias());
+        }
+
+        for (ContainerXmlFile.Tag tag : containerFile.getTags()) {
+            strings.add(tag.getName());
+            strings.add(tag.getEvent());
+            strings.add(tag.getServiceClass());
+        }
+
+        for (Map.Entry<String, String> entry : containerFile.getParameters().entrySet()) {
+            strings.add(entry.getKey());
+            strings.add(entry.getValue());
+        }
+
+        File directory = snapshotFile.getParentFile();
+        if(directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        File tempFile = null;
+
+        try {
+            tempFile = FileUtil.createTempFile(directory, snapshotFile.getName(), ".tmp", true, false);
+
+            try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                stream.writeInt(MAGIC);
+                stream.writeInt(VERSION);
+
+                writeString(stream, containerPath);
+                stream.writeLong(length);
+                stream.writeLong(lastModified);
+                stream.writeLong(hash);
+
+                stream.writeInt(strings.values.size());
+                for (String value : strings.values) {
+                    writeString(stream, value);
+                }
+
+                stream.writeInt(containerFile.getServices().size());
+                for (XmlService service : containerFile.getServices()) {
+                    stream.writeInt(strings.indexOf(service.getId()));
+                    stream.writeInt(strings.indexOf(service.getClassName()));
+                    stream.writeInt(strings.indexOf(service.getAlias()));
+                    stream.writeByte(service.isPublic() ? 1 : 0);
+                }
+
+                stream.writeInt(containerFile.getTags().size());
+                for (ContainerXmlFile.Tag tag : containerFile.getTags()) {
+                    stream.writeInt(strings.indexOf(tag.getName()));
+                    stream.writeInt(strings.indexOf(tag.getEvent()));
+                    stream.writeInt(strings.indexOf(tag.getServiceClass()));
+                }
+
+                stream.writeInt(containerFile.getParameters().size());
+                for (Map.Entry<String, String> entry : containerFile.getParameters().entrySet()) {
+                    stream.writeInt(strings.indexOf(entry.getKey()));
+                    stream.writeInt(strings.indexOf(entry.getValue()));
+                }
+            }
+
+            moveAtomic(tempFile, snapshotFile);
+        } catch (IOException e) {
+            // eg a snapshot locked by a virus scanner on Windows; we just parse again on next start
+            Symfony2ProjectComponent.getLogger().info("unable to write container snapshot: " + e.getMessage());
+
+            if(tempFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Readers must never see a half written snapshot
+     */
+    private static void moveAtomic(@NotNull File source, @NotNull File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes the snapshot of a container file which does not exist anymore
+     */
+    public static void delete(@NotNull String containerPath) {
+        File snapshotFile = getSnapshotFile(containerPath);
+        if(snapshotFile.isFile() && !snapshotFile.delete()) {
+            Symfony2ProjectComponent.getLogger().info("unable to delete container snapshot: " + snapshotFile.getAbsolutePath());
+        }
+    }
+
+    @Nullable
+    private static String getString(@NotNull String[] strings, int index) {
+        return index == NULL_STRING ? null : strings[index];
+    }
+
+    @NotNull
+    private static String readString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(@NotNull DataOutputStream stream, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stream.writeInt(bytes.length);
+        stream.write(bytes);
+    }
+
+    private static class StringTable {
+        @NotNull
+        private final List<String> values = new ArrayList<>();
+
+        @NotNull
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private void add(@Nullable String value) {
+            if(value != null && !indexes.containsKey(value)) {
+                indexes.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        private int indexOf(@Nullable String value) {
+            return value == null ? NULL_STRING : indexes.get(value);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects services, tags and parameters of a compiled container xml in one StAX pass.
+ *
+ * A debug container can be several MB, so we never build a DOM for it
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class ContainerXmlStreamParser {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    @NotNull
+    public static ContainerXmlFile parse(@NotNull InputStream inputStream) {
+        Collection<XmlService> services = new ArrayList<>();
+        Collection<ContainerXmlFile.Tag> tags = new ArrayList<>();
+        Map<String, String> parameters = new LinkedHashMap<>();
+
+        XMLStreamReader reader;
+        try {
+            reader = FACTORY.createXMLStreamReader(inputStream);
+        } catch (XMLStreamException e) {
+            return ContainerXmlFile.EMPTY;
+        }
+
+        // element names from root to current element
+        String[] path = new String[16];
+        int depth = 0;
+
+        // "service" at "/container/services/service[@id]"
+        String serviceClass = null;
+        boolean inServiceDefinition = false;
+
+        // "/container/parameters/parameter[@key]"
+        String parameterKey = null;
+        boolean isCollection = false;
+        StringBuilder parameterValue = new StringBuilder();
+
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if(event == XMLStreamReader.START_ELEMENT) {
+                    String name = reader.getLocalName();
+
+                    if(depth == path.length) {
+                        String[] newPath = new String[path.length * 2];
+                        System.arraycopy(path, 0, newPath, 0, path.length);
+                        path = newPath;
+                    }
+
+                    path[depth++] = name;
+
+                    if("service".equals(name)) {
+                        // services can be defined everywhere, eg inline as argument
+                        XmlService service = XmlService.createFromAttributes(
+                            reader.getAttributeValue(null, "id"),
+                            reader.getAttributeValue(null, "class"),
+                            reader.getAttributeValue(null, "public"),
+                            reader.getAttributeValue(null, "alias")
+                        );
+
+                        if(service != null) {
+                            services.add(service);
+                        }
+
+                        if(depth == 3 && isPath(path, "container", "services") && reader.getAttributeValue(null, "id") != null) {
+                            inServiceDefinition = true;
+                            serviceClass = reader.getAttributeValue(null, "class");
+                        }
+                    } else if(depth == 4 && inServiceDefinition && "tag".equals(name)) {
+                        String tagName = reader.getAttributeValue(null, "name");
+                        String tagEvent = reader.getAttributeValue(null, "event");
+
+                        // "event" without "name" is still a valid event tag; see XmlEventParser
+                        if(tagName != null || tagEvent != null) {
+                            tags.add(new ContainerXmlFile.Tag(tagName, tagEvent, serviceClass));
+                        }
+                    } else if(depth == 3 && "parameter".equals(name) && isPath(path, "container", "parameters")) {
+                        parameterKey = reader.getAttributeValue(null, "key");
+                        isCollection = "collection".equals(reader.getAttributeValue(null, "type"));
+                        parameterValue.setLength(0);
+                    }
+                } else if(event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.CDATA) {
+                    if(parameterKey != null && !isCollection) {
+                        parameterValue.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                } else if(event == XMLStreamReader.END_ELEMENT) {
+                    depth--;
+
+                    if(depth == 2) {
+                        if(inServiceDefinition) {
+                            inServiceDefinition = false;
+                            serviceClass = null;
+                        }
+
+                        if(parameterKey != null) {
+                            parameters.put(parameterKey, isCollection ? "collection" : parameterValue.toString());
+                            parameterKey = null;
+                        }
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            // invalid file; keep everything we got until the error, like a partially written container
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+            }
+        }
+
+        return new ContainerXmlFile(services, tags, parameters);
+    }
+
+    private static boolean isPath(@NotNull String[] path, @NotNull String... names) {
+        for (int i = 0; i < names.length; i++) {
+            if(!names[i].equals(path[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @NotNull
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        // compiled container never needs them; also dont resolve anything outside of the file
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+
+        return factory;
+    }
+}
@@ -1,149 +1,206 @@
 package fr.adrienbrault.idea.symfony2plugin.util.service;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.containers.ContainerUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
 import fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderArguments;
 import fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderFactory;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Parsed compiled container files per parser class.
+ *
+ * Project service: parsers are dropped with the project instead of being held in a static map for every project
+ * ever opened. Each parser class is locked on its own, so parsers dont wait for each other. Parsed instances are
+ * softly referenced; under memory pressure they are given back and the container files are parsed again on next access.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class ServiceXmlParserFactory {
+public class ServiceXmlParserFactory implements Disposable {
 
-    protected static Map<Project, Map<Class, ServiceXmlParserFactory>> instance = new HashMap<>();
-
-    private Project project;
-    private ServiceParserInterface serviceParserInstance;
-
-    private HashMap<String, Long> serviceFiles = new HashMap<>();
-
-    private Collection<CompiledServiceBuilderFactory.Builder> extensions = new ArrayList<>();
     private static final ExtensionPointName<CompiledServiceBuilderFactory> EXTENSIONS = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderFactory"
     );
 
-    public ServiceXmlParserFactory(Project project) {
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final ConcurrentMap<Class, ParserCache> parsers = ContainerUtil.newConcurrentMap();
+
+    public ServiceXmlParserFactory(@NotNull Project project) {
         this.project = project;
     }
 
-    private boolean isModified(Collection<File> serviceFiles) {
-        if(this.serviceFiles.size() != serviceFiles.size()) {
-            return true;
-        }
+    public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+        ServiceXmlParserFactory factory = ServiceManager.getService(project, ServiceXmlParserFactory.class);
 
-        for(File serviceFile: serviceFiles) {
-            if(serviceFile.exists()) {
-                if(!this.serviceFiles.containsKey(serviceFile.getAbsolutePath())) {
-                    return true;
-                }
-                if(!this.serviceFiles.get(serviceFile.getAbsolutePath()).equals(serviceFile.lastModified())) {
-                    return true;
-                }
-            } else {
-                Symfony2ProjectComponent.getLogger().warn("file not found: " + serviceFiles.toString());
+        ParserCache parserCache = factory.parsers.computeIfAbsent(serviceParser, aClass -> {
+            // add extension for new instance
+            Collection<CompiledServiceBuilderFactory.Builder> extensions = new ArrayList<>();
+            for (CompiledServiceBuilderFactory ext : EXTENSIONS.getExtensions()) {
+                extensions.add(ext.create());
             }
-        }
 
-        if(this.extensions.size() > 0) {
-            for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
-                if(builder.isModified(project)) {
-                    return true;
-                }
-            }
+            return new ParserCache(project, extensions);
+        });
+
+        return parserCache.parser(serviceParser);
+    }
+
+    public void setCacheInvalid() {
+        for (ParserCache parserCache : this.parsers.values()) {
+            parserCache.setCacheInvalid();
         }
+    }
 
-        return false;
+    @Override
+    public void dispose() {
+        this.parsers.clear();
     }
 
-    @Nullable
-    synchronized public <T extends ServiceParserInterface> T parser(Class<T> serviceParser) {
+    private static class ParserCache {
+        @NotNull
+        private final Project project;
 
-        Symfony2ProjectComponent symfony2ProjectComponent = this.project.getComponent(Symfony2ProjectComponent.class);
+        @NotNull
+        private SoftReference<ServiceParserInterface> serviceParserInstance = new SoftReference<>(null);
 
-        Collection<File> settingsServiceFiles = symfony2ProjectComponent.getContainerFiles();
+        @NotNull
+        private Map<String, Long> serviceFiles = new HashMap<>();
 
-        if (this.serviceParserInstance != null && !this.isModified(settingsServiceFiles)) {
-            return (T) this.serviceParserInstance;
-        }
+        @NotNull
+        private final Collection<CompiledServiceBuilderFactory.Builder> extensions;
 
-        try {
-            this.serviceParserInstance = serviceParser.newInstance();
-            Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
-        } catch (InstantiationException | IllegalAccessException ignored) {
+        private ParserCache(@NotNull Project project, @NotNull Collection<CompiledServiceBuilderFactory.Builder> extensions) {
+            this.project = project;
+            this.extensions = extensions;
         }
 
-        if (this.serviceParserInstance != null) {
+        private boolean isModified(Collection<File> serviceFiles) {
+            if(this.serviceFiles.size() != serviceFiles.size()) {
+                return true;
+            }
 
-            // extensions
-            if(this.extensions.size() > 0) {
-                CompiledServiceBuilderArguments args = new CompiledServiceBuilderArguments(project);
-                for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
-                    builder.build(args);
+            for(File serviceFile: serviceFiles) {
+                if(serviceFile.exists()) {
+                    if(!this.serviceFiles.containsKey(serviceFile.getAbsolutePath())) {
+                        return true;
+                    }
+                    if(!this.serviceFiles.get(serviceFile.getAbsolutePath()).equals(serviceFile.lastModified())) {
+                        return true;
+                    }
+                } else {
+                    Symfony2ProjectComponent.getLogger().warn("file not found: " + serviceFiles.toString());
                 }
+            }
 
-                for (InputStream inputStream : args.getStreams()) {
-                    this.serviceParserInstance.parser(inputStream);
+            if(this.extensions.size() > 0) {
+                for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
+                    if(builder.isModified(project)) {
+                        return true;
+                    }
                 }
             }
 
-            this.serviceFiles = new HashMap<>();
-            for(File settingsServiceFile: settingsServiceFiles) {
-                if(!settingsServiceFile.exists()) {
-                    continue;
-                }
+            return false;
+        }
 
-                try {
-                    this.serviceParserInstance.parser(new FileInputStream(settingsServiceFile));
-                } catch (FileNotFoundException e) {
-                    continue;
-                }
+        @Nullable
+        synchronized public <T extends ServiceParserInterface> T parser(Class<T> serviceParser) {
 
-                serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
-            }
-        }
+            Symfony2ProjectComponent symfony2ProjectComponent = this.project.getComponent(Symfony2ProjectComponent.class);
 
-        Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
+            Collection<File> settingsServiceFiles = symfony2ProjectComponent.getContainerFiles();
 
-        return (T) this.serviceParserInstance;
-    }
+            CacheMetric metric = CacheMetrics.get(ServiceXmlParserFactory.class, serviceParser.getSimpleName());
+            metric.request();
 
-    public void setCacheInvalid() {
-        this.serviceFiles = new HashMap<>();
-    }
+            ServiceParserInterface serviceParserInstance = this.serviceParserInstance.get();
+            if (serviceParserInstance != null && !this.isModified(settingsServiceFiles)) {
+                return (T) serviceParserInstance;
+            }
+
+            long start = System.nanoTime();
 
-    synchronized public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+            serviceParserInstance = null;
+            try {
+                serviceParserInstance = serviceParser.newInstance();
+                Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
+            } catch (InstantiationException | IllegalAccessException ignored) {
+            }
 
-        Map<Class, ServiceXmlParserFactory> projectInstance = instance.computeIfAbsent(project, k -> new HashMap<>());
+            if (serviceParserInstance != null) {
 
-        ServiceXmlParserFactory serviceXmlParserFactory = projectInstance.get(serviceParser);
-        if(serviceXmlParserFactory == null) {
-            serviceXmlParserFactory = new ServiceXmlParserFactory(project);
+                // extensions
+                if(this.extensions.size() > 0) {
+                    CompiledServiceBuilderArguments args = new CompiledServiceBuilderArguments(project);
+                    for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
+                        builder.build(args);
+                    }
 
-            // add extension for new instance
-            for (CompiledServiceBuilderFactory ext : EXTENSIONS.getExtensions()) {
-                serviceXmlParserFactory.extensions.add(ext.create());
+                    for (InputStream inputStream : args.getStreams()) {
+                        serviceParserInstance.parser(inputStream);
+                    }
+                }
+
+                this.serviceFiles = new HashMap<>();
+
+                if(serviceParserInstance instanceof ContainerXmlFileParserInterface) {
+                    // files are read and parsed once for all parsers; only changed files are parsed again
+                    Collection<File> existingServiceFiles = new ArrayList<>();
+                    for(File settingsServiceFile: settingsServiceFiles) {
+                        if(settingsServiceFile.exists()) {
+                            existingServiceFiles.add(settingsServiceFile);
+                            serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
+                        }
+                    }
+
+                    for (ContainerXmlFile containerFile : ContainerXmlFileCache.getInstance(project).getFiles(existingServiceFiles)) {
+                        ((ContainerXmlFileParserInterface) serviceParserInstance).parser(containerFile);
+                    }
+                } else {
+                    for(File settingsServiceFile: settingsServiceFiles) {
+                        if(!settingsServiceFile.exists()) {
+                            continue;
+                        }
+
+                        try {
+                            serviceParserInstance.parser(new FileInputStream(settingsServiceFile));
+                        } catch (FileNotFoundException e) {
+                            continue;
+                        }
+
+                        serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
+                    }
+                }
             }
 
-            projectInstance.put(serviceParser, serviceXmlParserFactory);
-        }
+            this.serviceParserInstance = new SoftReference<>(serviceParserInstance);
 
-        return serviceXmlParserFactory.parser(serviceParser);
+            metric.rebuild(start, -1);
 
-    }
+            Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
 
-    synchronized public static void cleanInstance(Project project){
-        if(instance.containsKey(project)) {
-            Symfony2ProjectComponent.getLogger().info("clean ServiceXmlParserFactory for " + project.getName());
-            instance.remove(project);
+            return (T) serviceParserInstance;
         }
-    }
 
+        private synchronized void setCacheInvalid() {
+            this.serviceFiles = new HashMap<>();
+        }
+    }
 }
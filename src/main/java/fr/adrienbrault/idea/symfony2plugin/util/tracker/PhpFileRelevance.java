@@ -0,0 +1,146 @@
+package fr.adrienbrault.idea.symfony2plugin.util.tracker;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.psi.PhpFile;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides if a changed PHP file affects an artifact.
+ *
+ * A file is relevant if it is relevant now or was relevant before; so also removing eg an "implements"
+ * or deleting a file is detected. Files which were relevant before the first change are collected once.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+abstract class PhpFileRelevance {
+
+    @Nullable
+    private Set<VirtualFile> relevantFiles = null;
+
+    /**
+     * Needs index access, so call in a read action and not in dumb mode
+     */
+    synchronized boolean isRelevantChange(@NotNull Project project, @NotNull VirtualFile virtualFile) {
+        if(this.relevantFiles == null) {
+            this.relevantFiles = new HashSet<>(collectFiles(project));
+        }
+
+        boolean relevant = virtualFile.isValid() && isRelevant(project, virtualFile);
+        boolean wasRelevant = relevant ? !this.relevantFiles.add(virtualFile) : this.relevantFiles.remove(virtualFile);
+
+        return relevant || wasRelevant;
+    }
+
+    synchronized void reset() {
+        this.relevantFiles = null;
+    }
+
+    @NotNull
+    abstract protected Collection<VirtualFile> collectFiles(@NotNull Project project);
+
+    abstract protected boolean isRelevant(@NotNull Project project, @NotNull VirtualFile virtualFile);
+
+    /**
+     * Files which contains a class which is an instance of one of the given classes
+     */
+    static class Subclass extends PhpFileRelevance {
+        @NotNull
+        private final Collection<String> classes;
+
+        Subclass(@NotNull String... classes) {
+            this.classes = Arrays.asList(classes);
+        }
+
+        @NotNull
+        @Override
+        protected Collection<VirtualFile> collectFiles(@NotNull Project project) {
+            Collection<VirtualFile> files = new HashSet<>();
+
+            PhpIndex phpIndex = PhpIndex.getInstance(project);
+            for (String aClass : classes) {
+                Collection<PhpClass> phpClasses = new HashSet<>(phpIndex.getAnyByFQN(aClass));
+                phpClasses.addAll(phpIndex.getAllSubclasses(aClass));
+
+                for (PhpClass phpClass : phpClasses) {
+                    PsiFile psiFile = phpClass.getContainingFile();
+                    if(psiFile != null && psiFile.getVirtualFile() != null) {
+                        files.add(psiFile.getVirtualFile());
+                    }
+                }
+            }
+
+            return files;
+        }
+
+        @Override
+        protected boolean isRelevant(@NotNull Project project, @NotNull VirtualFile virtualFile) {
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(virtualFile);
+            if(!(psiFile instanceof PhpFile)) {
+                return false;
+            }
+
+            for (PhpClass phpClass : PsiTreeUtil.findChildrenOfType(psiFile, PhpClass.class)) {
+                for (String aClass : classes) {
+                    if(PhpElementsUtil.isInstanceOf(phpClass, aClass)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Files which provides values for the given index, eg route annotations
+     */
+    static class Indexed extends PhpFileRelevance {
+        @NotNull
+        private final ID<String, ?> id;
+
+        Indexed(@NotNull ID<String, ?> id) {
+            this.id = id;
+        }
+
+        @NotNull
+        @Override
+        protected Collection<VirtualFile> collectFiles(@NotNull Project project) {
+            FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+            GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+
+            Collection<String> keys = new HashSet<>();
+            fileBasedIndex.processAllKeys(id, key -> {
+                keys.add(key);
+                return true;
+            }, project);
+
+            Collection<VirtualFile> files = new HashSet<>();
+            for (String key : keys) {
+                files.addAll(fileBasedIndex.getContainingFiles(id, key, scope));
+            }
+
+            return files;
+        }
+
+        @Override
+        protected boolean isRelevant(@NotNull Project project, @NotNull VirtualFile virtualFile) {
+            return !FileBasedIndex.getInstance().getFileData(id, virtualFile, project).isEmpty();
+        }
+    }
+}
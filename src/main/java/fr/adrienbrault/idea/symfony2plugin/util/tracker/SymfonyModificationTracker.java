@@ -0,0 +1,184 @@
+package fr.adrienbrault.idea.symfony2plugin.util.tracker;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.IndexNotReadyException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Modification count of one Symfony artifact, eg Twig files or routing files; see SymfonyModificationTrackers
+ *
+ * Plain files are matched on every event. PHP files are only collected on change and checked in a background
+ * read action, as eg "is this a Twig extension" needs the index and we dont want to resolve anything on every
+ * keystroke or inside the event. Reading the modification count never resolves anything; a relevant PHP change
+ * increments the count as soon as it is checked and restarts the highlighting, which possibly worked on the
+ * previous state.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyModificationTracker implements ModificationTracker {
+
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Modification Tracker", 1);
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final Predicate<VirtualFile> fileFilter;
+
+    /**
+     * only file create, delete, move or rename; content changes are not relevant
+     */
+    private final boolean fileLevelOnly;
+
+    @Nullable
+    private final PhpFileRelevance phpFileRelevance;
+
+    private final boolean externalPhpChanges;
+
+    @NotNull
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    @NotNull
+    private final Set<VirtualFile> pendingPhpFiles = ContainerUtil.newConcurrentSet();
+
+    @NotNull
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SymfonyModificationTracker(@NotNull Project project, @NotNull Predicate<VirtualFile> fileFilter, boolean fileLevelOnly, @Nullable PhpFileRelevance phpFileRelevance, boolean externalPhpChanges) {
+        this.project = project;
+        this.fileFilter = fileFilter;
+        this.fileLevelOnly = fileLevelOnly;
+        this.phpFileRelevance = phpFileRelevance;
+        this.externalPhpChanges = externalPhpChanges;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    public void incModificationCount() {
+        this.modificationCount.incrementAndGet();
+    }
+
+    /**
+     * @param fileLevel file was created, deleted, moved or renamed
+     * @param external change was not done inside the editor, eg by "cache:clear" or a vcs update
+     */
+    void visitFile(@NotNull VirtualFile virtualFile, boolean fileLevel, boolean external) {
+        if("php".equalsIgnoreCase(virtualFile.getExtension())) {
+            if(this.phpFileRelevance != null) {
+                this.pendingPhpFiles.add(virtualFile);
+                schedulePendingPhpFiles();
+            }
+
+            // eg compiled routes; not part of any index
+            if(external && this.externalPhpChanges) {
+                incModificationCount();
+                return;
+            }
+        }
+
+        // eg PHP templates are matched as plain files
+        if((fileLevel || !this.fileLevelOnly) && this.fileFilter.test(virtualFile)) {
+            incModificationCount();
+        }
+    }
+
+    /**
+     * Index was rebuild; we are not able to say what is changed
+     */
+    void reset() {
+        this.pendingPhpFiles.clear();
+
+        if(this.phpFileRelevance != null) {
+            this.phpFileRelevance.reset();
+        }
+
+        incModificationCount();
+    }
+
+    private void schedulePendingPhpFiles() {
+        if(project.isDisposed() || !this.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        // a write action cancels the read action, it is restarted afterwards; checked files are already removed
+        ReadAction.nonBlocking(this::processPendingPhpFiles)
+            .expireWith(project)
+            .submit(EXECUTOR)
+            .onProcessed(o -> {
+                this.scheduled.set(false);
+
+                // files added while we were running
+                if(!this.pendingPhpFiles.isEmpty()) {
+                    schedulePendingPhpFiles();
+                }
+            })
+            .onError(throwable -> this.scheduled.set(false));
+    }
+
+    /**
+     * PHP files are collected but not checked yet
+     */
+    @TestOnly
+    boolean hasPendingPhpFiles() {
+        return this.scheduled.get() || !this.pendingPhpFiles.isEmpty();
+    }
+
+    private void processPendingPhpFiles() {
+        if(this.phpFileRelevance == null || project.isDisposed()) {
+            return;
+        }
+
+        if(DumbService.isDumb(project)) {
+            // on exit of dumb mode we are reset; until then everything is outdated
+            this.pendingPhpFiles.clear();
+            incModificationCount();
+            return;
+        }
+
+        boolean changed = false;
+        try {
+            for (VirtualFile virtualFile : new ArrayList<>(this.pendingPhpFiles)) {
+                ProgressManager.checkCanceled();
+
+                boolean relevant = this.phpFileRelevance.isRelevantChange(project, virtualFile);
+                this.pendingPhpFiles.remove(virtualFile);
+
+                if(relevant) {
+                    incModificationCount();
+                    changed = true;
+                }
+            }
+        } catch (IndexNotReadyException e) {
+            reset();
+            changed = true;
+        } finally {
+            if(changed) {
+                ApplicationManager.getApplication().invokeLater(
+                    () -> DaemonCodeAnalyzer.getInstance(project).restart(),
+                    project.getDisposed()
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package fr.adrienbrault.idea.symfony2plugin.util.tracker;
+
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.*;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Feeds PSI and VFS events into all SymfonyModificationTracker of a project
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+class SymfonyModificationTrackerListener extends PsiTreeChangeAdapter implements BulkFileListener, DumbService.DumbModeListener {
+
+    @NotNull
+    private final Collection<SymfonyModificationTracker> trackers;
+
+    private SymfonyModificationTrackerListener(@NotNull Collection<SymfonyModificationTracker> trackers) {
+        this.trackers = trackers;
+    }
+
+    static void register(@NotNull Project project, @NotNull Collection<SymfonyModificationTracker> trackers) {
+        SymfonyModificationTrackerListener listener = new SymfonyModificationTrackerListener(trackers);
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(listener, project);
+
+        MessageBusConnection connection = project.getMessageBus().connect(project);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, listener);
+        connection.subscribe(DumbService.DUMB_MODE, listener);
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+        visitPsiEvent(event);
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            // saving a document; its changes are already known by PSI events
+            if(event.isFromSave()) {
+                continue;
+            }
+
+            visitFile(event.getFile(), !(event instanceof VFileContentChangeEvent), true);
+        }
+    }
+
+    @Override
+    public void enteredDumbMode() {
+    }
+
+    @Override
+    public void exitDumbMode() {
+        // indexes can be changed without any event we are able to track
+        for (SymfonyModificationTracker tracker : trackers) {
+            tracker.reset();
+        }
+    }
+
+    private void visitPsiEvent(@NotNull PsiTreeChangeEvent event) {
+        PsiFile psiFile = event.getFile();
+        if(psiFile != null) {
+            // eg completion copies of a file
+            if(psiFile.isPhysical()) {
+                visitFile(psiFile.getVirtualFile(), false, false);
+            }
+
+            return;
+        }
+
+        // file or directory level events: added, removed, moved or renamed
+        PsiElement element = event.getChild() != null ? event.getChild() : event.getElement();
+        if(element instanceof PsiFile) {
+            visitFile(((PsiFile) element).getVirtualFile(), true, false);
+        } else if(element instanceof PsiDirectory) {
+            visitFile(((PsiDirectory) element).getVirtualFile(), true, false);
+        }
+    }
+
+    private void visitFile(@Nullable VirtualFile virtualFile, boolean fileLevel, boolean external) {
+        // unknown scope of change; directory move or delete can affect any file below
+        if(virtualFile == null || virtualFile.isDirectory()) {
+            for (SymfonyModificationTracker tracker : trackers) {
+                tracker.incModificationCount();
+            }
+
+            return;
+        }
+
+        for (SymfonyModificationTracker tracker : trackers) {
+            tracker.visitFile(virtualFile, fileLevel, external);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package fr.adrienbrault.idea.symfony2plugin.util.tracker;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.TimeoutUtil;
+import com.intellij.util.ui.UIUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Modification trackers for project caches which only depend on a few files.
+ *
+ * Caches bound to "PsiModificationTracker.MODIFICATION_COUNT" are dropped on every keystroke in any file;
+ * these trackers are only incremented if a file of their artifact changed.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyModificationTrackers {
+
+    private static final Key<SymfonyModificationTrackers> TRACKERS = new Key<>("SYMFONY_MODIFICATION_TRACKERS");
+
+    private static final Collection<String> CONFIG_EXTENSIONS = new HashSet<>(Arrays.asList("yml", "yaml", "xml", "json"));
+    private static final Collection<String> ROUTING_EXTENSIONS = new HashSet<>(Arrays.asList("yml", "yaml", "xml"));
+
+    @NotNull
+    private final SymfonyModificationTracker config;
+
+    @NotNull
+    private final SymfonyModificationTracker twigFiles;
+
+    @NotNull
+    private final SymfonyModificationTracker phpFiles;
+
+    @NotNull
+    private final SymfonyModificationTracker twigExtension;
+
+    @NotNull
+    private final SymfonyModificationTracker templateUsage;
+
+    @NotNull
+    private final SymfonyModificationTracker routing;
+
+    @NotNull
+    private final SymfonyModificationTracker dotEnv;
+
+    @NotNull
+    private final SymfonyModificationTracker eventSubscriber;
+
+    @NotNull
+    private final SymfonyModificationTracker kernel;
+
+    @NotNull
+    private final SymfonyModificationTracker bundle;
+
+    @NotNull
+    private final Collection<SymfonyModificationTracker> trackers;
+
+    private SymfonyModificationTrackers(@NotNull Project project) {
+        this.config = new SymfonyModificationTracker(project, file -> CONFIG_EXTENSIONS.contains(getExtension(file)), false, null, false);
+        this.twigFiles = new SymfonyModificationTracker(project, file -> "twig".equals(getExtension(file)), true, null, false);
+        this.phpFiles = new SymfonyModificationTracker(project, file -> "php".equals(getExtension(file)), true, null, false);
+        this.routing = new SymfonyModificationTracker(project, file -> ROUTING_EXTENSIONS.contains(getExtension(file)), false, new PhpFileRelevance.Indexed(RoutesStubIndex.KEY), true);
+        this.templateUsage = new SymfonyModificationTracker(project, file -> false, false, new PhpFileRelevance.Indexed(PhpTwigTemplateUsageStubIndex.KEY), false);
+        this.dotEnv = new SymfonyModificationTracker(project, SymfonyModificationTrackers::isEnvironmentFile, false, null, false);
+
+        this.twigExtension = createPhpClassTracker(project, "\\Twig_ExtensionInterface", "\\Twig\\Extension\\ExtensionInterface");
+        this.eventSubscriber = createPhpClassTracker(project, "\\Symfony\\Component\\EventDispatcher\\EventSubscriberInterface");
+        this.kernel = createPhpClassTracker(project, "\\Symfony\\Component\\HttpKernel\\Kernel");
+        this.bundle = createPhpClassTracker(project, "\\Symfony\\Component\\HttpKernel\\Bundle\\Bundle");
+
+        this.trackers = Arrays.asList(config, twigFiles, phpFiles, twigExtension, templateUsage, routing, dotEnv, eventSubscriber, kernel, bundle);
+    }
+
+    @NotNull
+    private static SymfonyModificationTrackers getInstance(@NotNull Project project) {
+        SymfonyModificationTrackers trackers = project.getUserData(TRACKERS);
+        if(trackers == null) {
+            SymfonyModificationTrackers created = new SymfonyModificationTrackers(project);
+            trackers = ((UserDataHolderEx) project).putUserDataIfAbsent(TRACKERS, created);
+
+            if(trackers == created) {
+                SymfonyModificationTrackerListener.register(project, created.trackers);
+            }
+        }
+
+        return trackers;
+    }
+
+    /**
+     * Yaml, xml and json configuration files
+     */
+    @NotNull
+    public static ModificationTracker getConfigTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).config);
+    }
+
+    /**
+     * Template names: Twig files, namespace configuration and bundles; Twig file content is not relevant
+     */
+    @NotNull
+    public static ModificationTracker getTemplateTracker(@NotNull Project project) {
+        return getTemplateTracker(project, false);
+    }
+
+    /**
+     * @param usePhp PHP templates are also part of the template names; any created, deleted or moved PHP file is a change
+     */
+    @NotNull
+    public static ModificationTracker getTemplateTracker(@NotNull Project project, boolean usePhp) {
+        SymfonyModificationTrackers trackers = getInstance(project);
+        if(usePhp) {
+            return withProjectRoots(project, trackers.twigFiles, trackers.phpFiles, trackers.config, trackers.bundle);
+        }
+
+        return withProjectRoots(project, trackers.twigFiles, trackers.config, trackers.bundle);
+    }
+
+    /**
+     * Created, deleted or moved PHP files; content changes are not tracked
+     */
+    @NotNull
+    public static ModificationTracker getPhpFileTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).phpFiles);
+    }
+
+    @NotNull
+    public static ModificationTracker getTwigExtensionTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).twigExtension);
+    }
+
+    /**
+     * PHP files which render templates, eg controllers providing Twig variables
+     */
+    @NotNull
+    public static ModificationTracker getTemplateUsageTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).templateUsage);
+    }
+
+    /**
+     * Routing files, route annotations and compiled routes
+     */
+    @NotNull
+    public static ModificationTracker getRoutingTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).routing);
+    }
+
+    /**
+     * ".env", "docker-compose.yml" and "Dockerfile"
+     */
+    @NotNull
+    public static ModificationTracker getDotEnvTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).dotEnv);
+    }
+
+    @NotNull
+    public static ModificationTracker getEventSubscriberTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).eventSubscriber);
+    }
+
+    @NotNull
+    public static ModificationTracker getKernelTracker(@NotNull Project project) {
+        return withProjectRoots(project, getInstance(project).kernel);
+    }
+
+    /**
+     * Routes changed without a file event of the routing tracker, eg compiled routes were parsed in background
+     */
+    public static void incRoutingModificationCount(@NotNull Project project) {
+        getInstance(project).routing.incModificationCount();
+    }
+
+    /**
+     * Changes which are not visible as file change, eg plugin settings
+     */
+    public static void incModificationCount(@NotNull Project project) {
+        for (SymfonyModificationTracker tracker : getInstance(project).trackers) {
+            tracker.incModificationCount();
+        }
+    }
+
+    /**
+     * Waits until all changed PHP files are checked on the tracker executor; tests expect a change on next access
+     */
+    @TestOnly
+    public static void waitForPendingChanges(@NotNull Project project) {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        for (SymfonyModificationTracker tracker : getInstance(project).trackers) {
+            while (tracker.hasPendingPhpFiles()) {
+                if(System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Pending PHP files of modification tracker were not checked");
+                }
+
+                // the read action is restarted on the UI thread after a write action
+                if(ApplicationManager.getApplication().isDispatchThread()) {
+                    UIUtil.dispatchAllInvocationEvents();
+                }
+
+                TimeoutUtil.sleep(10);
+            }
+        }
+    }
+
+    @NotNull
+    private static ModificationTracker withProjectRoots(@NotNull Project project, @NotNull ModificationTracker... trackers) {
+        ModificationTracker projectRoots = ProjectRootManager.getInstance(project);
+
+        // all counters only increase, so the sum changes on every change of one of them
+        return () -> {
+            long modificationCount = projectRoots.getModificationCount();
+            for (ModificationTracker tracker : trackers) {
+                modificationCount += tracker.getModificationCount();
+            }
+
+            return modificationCount;
+        };
+    }
+
+    @NotNull
+    private static SymfonyModificationTracker createPhpClassTracker(@NotNull Project project, @NotNull String... classes) {
+        return new SymfonyModificationTracker(project, file -> false, false, new PhpFileRelevance.Subclass(classes), false);
+    }
+
+    @NotNull
+    private static String getExtension(@NotNull VirtualFile virtualFile) {
+        String extension = virtualFile.getExtension();
+        return extension != null ? extension.toLowerCase() : "";
+    }
+
+    private static boolean isEnvironmentFile(@NotNull VirtualFile virtualFile) {
+        String name = virtualFile.getName();
+
+        return "env".equals(getExtension(virtualFile))
+            || name.startsWith(".env")
+            || "docker-compose.yml".equals(name)
+            || "Dockerfile".equalsIgnoreCase(name);
+    }
+}
@@ -0,0 +1,259 @@
+package fr.adrienbrault.idea.symfony2plugin.util.warmup;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.concurrency.CancellablePromise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Precomputes the expensive project models (templates, routes, services and Twig extensions) in background
+ * after indexing finished or after a large VFS change like a branch switch or a "composer install".
+ *
+ * Every task is a non-blocking read action: a write action cancels and restarts it, so the warm-up never
+ * blocks typing. The number of tasks running in parallel is limited by "Settings.warmupConcurrency"; "0" disables the warm-up.
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class SymfonyWarmupScheduler implements BulkFileListener, DumbService.DumbModeListener, Disposable {
+
+    private static final Key<SymfonyWarmupScheduler> SCHEDULER = new Key<>("SYMFONY_WARMUP_SCHEDULER");
+
+    /**
+     * Number of VFS events in one batch which are handled as large change
+     */
+    static final int LARGE_VFS_CHANGE = 100;
+
+    /**
+     * Merges events of eg a running indexer and a VFS refresh into one warm-up
+     */
+    private static final int DELAY = 2000;
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final Alarm alarm;
+
+    @NotNull
+    private final Set<CancellablePromise<?>> running = ContainerUtil.newConcurrentSet();
+
+    @NotNull
+    private final Supplier<List<WarmupTask>> tasks;
+
+    private final int delay;
+
+    /**
+     * Bounded executor of the current concurrency setting; only replaced if the setting changed
+     */
+    @Nullable
+    private Executor executor;
+
+    private int executorConcurrency;
+
+    private SymfonyWarmupScheduler(@NotNull Project project) {
+        this(project, SymfonyWarmupScheduler::getTasks, DELAY);
+    }
+
+    /**
+     * @param tasks tasks of every warm-up run
+     * @param delay ms between the last schedule request and the warm-up
+     */
+    SymfonyWarmupScheduler(@NotNull Project project, @NotNull Supplier<List<WarmupTask>> tasks, int delay) {
+        this.project = project;
+        this.tasks = tasks;
+        this.delay = delay;
+        this.alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    }
+
+    /**
+     * Attaches the scheduler to the project lifecycle and queues a first warm-up as soon as indexes are ready.
+     *
+     * Also for projects where the plugin is not enabled yet; it can be enabled in the settings at any time,
+     * the warm-up itself checks the plugin state.
+     */
+    public static void register(@NotNull Project project) {
+        SymfonyWarmupScheduler created = new SymfonyWarmupScheduler(project);
+        if(((UserDataHolderEx) project).putUserDataIfAbsent(SCHEDULER, created) != created) {
+            return;
+        }
+
+        Disposer.register(project, created);
+
+        MessageBusConnection connection = project.getMessageBus().connect(created);
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, created);
+        connection.subscribe(DumbService.DUMB_MODE, created);
+
+        DumbService.getInstance(project).runWhenSmart(created::schedule);
+    }
+
+    @Nullable
+    public static SymfonyWarmupScheduler getInstance(@NotNull Project project) {
+        return project.getUserData(SCHEDULER);
+    }
+
+    /**
+     * Queues a warm-up for projects with a registered scheduler; eg after settings changed
+     */
+    public static void schedule(@NotNull Project project) {
+        SymfonyWarmupScheduler scheduler = getInstance(project);
+        if(scheduler != null) {
+            scheduler.schedule();
+        }
+    }
+
+    public void schedule() {
+        if(project.isDisposed() || alarm.isDisposed()) {
+            return;
+        }
+
+        alarm.cancelAllRequests();
+        alarm.addRequest(this::warmup, delay);
+    }
+
+    /**
+     * A warm-up is queued but not started yet
+     */
+    public boolean isScheduled() {
+        return !alarm.isDisposed() && alarm.getActiveRequestCount() > 0;
+    }
+
+    /**
+     * Cancels all running tasks; a pending warm-up is still executed
+     */
+    public void cancel() {
+        for (CancellablePromise<?> promise : running) {
+            promise.cancel();
+        }
+
+        running.clear();
+    }
+
+    /**
+     * Number of warm-up tasks which are queued or running
+     */
+    public int getRunningCount() {
+        return running.size();
+    }
+
+    @Override
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        if(events.size() >= LARGE_VFS_CHANGE) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void enteredDumbMode() {
+        // models are rebuilt after indexing anyway; dont compete with the indexer
+        cancel();
+    }
+
+    @Override
+    public void exitDumbMode() {
+        schedule();
+    }
+
+    @Override
+    public void dispose() {
+        cancel();
+    }
+
+    private void warmup() {
+        // a previous run works on an outdated state
+        cancel();
+
+        if(project.isDisposed() || !Symfony2ProjectComponent.isEnabled(project)) {
+            return;
+        }
+
+        int concurrency = Settings.getInstance(project).warmupConcurrency;
+        if(concurrency <= 0) {
+            return;
+        }
+
+        // bounded executor is FIFO, so submitting in priority order starts the important models first
+        Executor executor = getExecutor(concurrency);
+
+        for (WarmupTask task : tasks.get()) {
+            CancellablePromise<Void> promise = ReadAction.nonBlocking(() -> run(task))
+                .inSmartMode(project)
+                .expireWith(this)
+                .submit(executor);
+
+            running.add(promise);
+            promise.onProcessed(o -> running.remove(promise));
+        }
+    }
+
+    /**
+     * Warm-ups only run one after another on the alarm thread
+     */
+    @NotNull
+    private Executor getExecutor(int concurrency) {
+        if(this.executor == null || this.executorConcurrency != concurrency) {
+            this.executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Symfony Warm-up", concurrency);
+            this.executorConcurrency = concurrency;
+        }
+
+        return this.executor;
+    }
+
+    private void run(@NotNull WarmupTask task) {
+        long start = System.currentTimeMillis();
+
+        task.run(project);
+
+        if(Symfony2ProjectComponent.getLogger().isDebugEnabled()) {
+            Symfony2ProjectComponent.getLogger().debug(String.format("Symfony warm-up '%s' finished in %d ms", task.getName(), System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * All warm-up tasks, sorted by priority: the models of the first completion in Twig and YAML files are preferred
+     */
+    @NotNull
+    public static List<WarmupTask> getTasks() {
+        List<WarmupTask> tasks = new ArrayList<>(Arrays.asList(
+            new WarmupTask("Templates", 10, TwigUtil::getTemplateMap),
+            new WarmupTask("Routes", 20, RouteHelper::getAllRoutes),
+            new WarmupTask("Services", 30, ContainerCollectionResolver::getServices),
+            new WarmupTask("Twig Extensions", 40, project -> {
+                TwigExtensionParser parser = new TwigExtensionParser(project);
+                parser.getFunctions();
+                parser.getFilters();
+                parser.getSimpleTest();
+                parser.getOperators();
+            })
+        ));
+
+        tasks.sort(WarmupTask.PRIORITY_COMPARATOR);
+
+        return tasks;
+    }
+}
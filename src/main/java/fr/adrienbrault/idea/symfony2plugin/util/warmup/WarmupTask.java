@@ -0,0 +1,50 @@
+package fr.adrienbrault.idea.symfony2plugin.util.warmup;
+
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Model which is precomputed in background, so that the first user interaction is served by a warm cache
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ */
+public class WarmupTask {
+
+    /**
+     * Lower priority values are started first
+     */
+    public static final Comparator<WarmupTask> PRIORITY_COMPARATOR = Comparator.comparingInt(WarmupTask::getPriority);
+
+    @NotNull
+    private final String name;
+
+    private final int priority;
+
+    @NotNull
+    private final Consumer<Project> consumer;
+
+    public WarmupTask(@NotNull String name, int priority, @NotNull Consumer<Project> consumer) {
+        this.name = name;
+        this.priority = priority;
+        this.consumer = consumer;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Runs inside a read action in smart mode, a canceled task is restarted by the platform
+     */
+    public void run(@NotNull Project project) {
+        consumer.accept(project);
+    }
+}
@@ -46,6 +46,7 @@ import com.jetbrains.php.lang.psi.elements.Function;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.php.lang.psi.elements.PhpReference;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
@@ -59,6 +60,10 @@ public abstract class SymfonyLightCodeInsightFixtureTestCase extends LightCodeIn
     public void setUp() throws Exception {
         super.setUp();
         Settings.getInstance(myFixture.getProject()).pluginEnabled = true;
+
+        // light project is shared: drop caches of files of previous tests, which are checked in background
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+        SymfonyModificationTrackers.incModificationCount(getProject());
     }
 
     public void assertCompletionContains(LanguageFileType languageFileType, String configureByText, String... lookupStrings) {
@@ -2,7 +2,10 @@ package fr.adrienbrault.idea.symfony2plugin.tests.config;
 
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementPresentation;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiFile;
 import com.intellij.util.containers.ContainerUtil;
 import com.jetbrains.php.lang.PhpFileType;
@@ -10,8 +13,14 @@ import com.jetbrains.php.lang.psi.elements.PhpClass;
 import fr.adrienbrault.idea.symfony2plugin.config.EventDispatcherSubscriberUtil;
 import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedEvent;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -55,6 +64,7 @@ public class EventDispatcherSubscriberUtilTest extends SymfonyLightCodeInsightFi
         EventDispatcherSubscribedEvent event4 = EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "pre.foo2").iterator().next();
         assertEquals("pre.foo2", event4.getStringValue());
         assertEquals("onKernelResponseMid", event4.getMethodName());
+        assertEquals(10, event4.getPriority());
 
         EventDispatcherSubscribedEvent event5 = EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "pre.foo3").iterator().next();
         assertEquals("pre.foo3", event5.getStringValue());
@@ -65,6 +75,69 @@ public class EventDispatcherSubscriberUtilTest extends SymfonyLightCodeInsightFi
         assertNull( event6.getMethodName());
     }
 
+    /**
+     * @see EventDispatcherSubscriberUtil#getSubscribedEvents
+     */
+    public void testGetSubscribedEventOfInheritedMethodAndConstantKeys() {
+        Set<String> classes = EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "parent.foo").stream()
+            .map(EventDispatcherSubscribedEvent::getFqnClassName)
+            .collect(Collectors.toSet());
+
+        assertEquals(new HashSet<>(Arrays.asList("ParentEventSubscriber", "ChildEventSubscriber")), classes);
+
+        assertTrue(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "global.foo").stream().anyMatch(event -> "onGlobalFoo".equals(event.getMethodName())));
+        assertTrue(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "My\\MyFooEvent").stream().anyMatch(event -> "onClassFoo".equals(event.getMethodName())));
+
+        // no EventSubscriberInterface
+        assertTrue(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "no_subscriber.foo").isEmpty());
+
+        // interface of an abstract parent
+        assertEquals("AbstractChildEventSubscriber", EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "abstract_child.foo").iterator().next().getFqnClassName());
+    }
+
+    /**
+     * @see EventDispatcherSubscriberUtil#getSubscribedEvents
+     */
+    public void testGetSubscribedEventWithMethodNameOfConstant() {
+        Set<String> methods = EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "parent.constant_method").stream()
+            .map(EventDispatcherSubscribedEvent::getMethodName)
+            .collect(Collectors.toSet());
+
+        assertEquals(new HashSet<>(Collections.singletonList("onParentConstant")), methods);
+    }
+
+    /**
+     * @see EventDispatcherSubscriberUtil#getSubscribedEvents
+     */
+    public void testGetSubscribedEventIsRefreshedOnChangedEventConstant() {
+        PsiFile events = myFixture.addFileToProject("Events.php", "<?php\n" +
+            "namespace Events { class Events { const PRE = 'events.pre'; } }"
+        );
+
+        myFixture.addFileToProject("EventsSubscriber.php", "<?php\n" +
+            "use Events\\Events;\n" +
+            "use Symfony\\Component\\EventDispatcher\\EventSubscriberInterface;\n" +
+            "class EventsSubscriber implements EventSubscriberInterface {\n" +
+            "    public static function getSubscribedEvents() { return [Events::PRE => 'onPre']; }\n" +
+            "}"
+        );
+
+        assertFalse(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "events.pre").isEmpty());
+
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(events);
+        assertNotNull(document);
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText(document.getText().replace("events.pre", "events.pre_changed"));
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+
+        assertTrue(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "events.pre").isEmpty());
+        assertFalse(EventDispatcherSubscriberUtil.getSubscribedEvent(getProject(), "events.pre_changed").isEmpty());
+    }
+
     /**
      * @see EventDispatcherSubscriberUtil#getEventNameLookupElements
      */
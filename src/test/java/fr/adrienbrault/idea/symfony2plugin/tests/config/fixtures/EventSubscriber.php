@@ -50,3 +50,49 @@ namespace {
         public function postFoo() {}
     }
 }
+
+namespace {
+
+    use Symfony\Component\EventDispatcher\EventSubscriberInterface;
+
+    const GLOBAL_EVENT = 'global.foo';
+
+    class ParentEventSubscriber implements EventSubscriberInterface
+    {
+        const METHOD = 'onParentConstant';
+
+        public static function getSubscribedEvents()
+        {
+            return [
+                'parent.foo' => 'onParentFoo',
+                'parent.constant_method' => self::METHOD,
+                GLOBAL_EVENT => 'onGlobalFoo',
+                \My\MyFooEvent::class => 'onClassFoo',
+            ];
+        }
+    }
+
+    class ChildEventSubscriber extends ParentEventSubscriber
+    {
+    }
+
+    abstract class AbstractEventSubscriber implements EventSubscriberInterface
+    {
+    }
+
+    class AbstractChildEventSubscriber extends AbstractEventSubscriber
+    {
+        public static function getSubscribedEvents()
+        {
+            return ['abstract_child.foo' => 'onFoo'];
+        }
+    }
+
+    class NoEventSubscriber
+    {
+        public static function getSubscribedEvents()
+        {
+            return ['no_subscriber.foo' => 'onFoo'];
+        }
+    }
+}
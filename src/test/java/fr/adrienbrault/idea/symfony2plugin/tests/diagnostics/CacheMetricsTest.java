@@ -0,0 +1,70 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.diagnostics;
+
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics
+ */
+public class CacheMetricsTest extends Assert {
+
+    @Test
+    public void testHitsAndMisses() {
+        CacheMetric metric = CacheMetrics.get(CacheMetricsTest.class, "hits");
+
+        metric.request();
+        metric.request();
+        metric.request();
+        metric.rebuild(System.nanoTime(), 12);
+
+        assertEquals(3, metric.getRequests());
+        assertEquals(1, metric.getMisses());
+        assertEquals(2, metric.getHits());
+        assertEquals(12, metric.getEntries());
+    }
+
+    @Test
+    public void testRebuildDurationIsAddedToHistogram() {
+        CacheMetric metric = CacheMetrics.get(CacheMetricsTest.class, "histogram");
+
+        assertTrue(metric.rebuild(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(70), -1) >= 70);
+        metric.rebuild(System.nanoTime() - TimeUnit.SECONDS.toNanos(10), -1);
+
+        long[] histogram = metric.getHistogram();
+
+        // "<100" and ">=5000"
+        assertEquals(1, histogram[4]);
+        assertEquals(1, histogram[histogram.length - 1]);
+        assertTrue(metric.getMaxRebuildMillis() >= 10000);
+        assertEquals(-1, metric.getEntries());
+    }
+
+    @Test
+    public void testDumpContainsMetrics() {
+        CacheMetrics.get(CacheMetricsTest.class, "dump").request();
+
+        String dump = CacheMetrics.dump();
+        assertTrue(dump.contains("CacheMetricsTest:dump"));
+        assertTrue(dump.contains(">=5000"));
+    }
+
+    @Test
+    public void testNameOfOwnerAndQualifier() {
+        assertEquals("CacheMetricsTest", CacheMetrics.get(CacheMetricsTest.class).getName());
+        assertEquals("CacheMetricsTest:name", CacheMetrics.get(CacheMetricsTest.class, "name").getName());
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(2, CacheMetrics.getSize(Arrays.asList("foo", "bar")));
+        assertEquals(1, CacheMetrics.getSize(Collections.singletonMap("foo", "bar")));
+        assertEquals(-1, CacheMetrics.getSize("foo"));
+    }
+}
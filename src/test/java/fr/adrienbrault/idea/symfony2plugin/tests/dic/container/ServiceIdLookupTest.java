@@ -0,0 +1,69 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.dic.container;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceIdLookup;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceIdLookup
+ */
+public class ServiceIdLookupTest extends Assert {
+    @Test
+    public void testContainsIsCaseInsensitive() {
+        ServiceIdLookup lookup = ServiceIdLookup.create(Arrays.asList(
+            Arrays.asList("foo", "Foo_Upper"),
+            Collections.singletonList("app.bar")
+        ));
+
+        assertTrue(lookup.contains("foo"));
+        assertTrue(lookup.contains("FOO"));
+        assertTrue(lookup.contains("foo_upper"));
+        assertTrue(lookup.contains("App.Bar"));
+
+        assertFalse(lookup.contains("fo"));
+        assertFalse(lookup.contains("app.bar.inner"));
+    }
+
+    @Test
+    public void testGetIdProvidesFirstDefinedId() {
+        ServiceIdLookup lookup = ServiceIdLookup.create(Arrays.asList(
+            Collections.singletonList("Foo_Upper"),
+            Collections.singletonList("foo_upper")
+        ));
+
+        assertEquals(1, lookup.size());
+        assertEquals("Foo_Upper", lookup.getId("FOO_UPPER"));
+        assertNull(lookup.getId("bar"));
+    }
+
+    @Test
+    public void testContainsDoesNotDependOnDefaultLocale() {
+        Locale locale = Locale.getDefault();
+
+        // turkish "I" is lowercased to a dotless "ı"
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            ServiceIdLookup lookup = ServiceIdLookup.create(Collections.singletonList(
+                Collections.singletonList("TWIG.EXTENSION.INTL")
+            ));
+
+            assertTrue(lookup.contains("twig.extension.intl"));
+            assertEquals("TWIG.EXTENSION.INTL", lookup.getId("twig.extension.intl"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        ServiceIdLookup lookup = ServiceIdLookup.create(Collections.emptyList());
+
+        assertSame(ServiceIdLookup.EMPTY, lookup);
+        assertFalse(lookup.contains("foo"));
+    }
+}
@@ -0,0 +1,211 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.profiler;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Ref;
+import com.sun.net.httpserver.HttpServer;
+import fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerRequestService;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Profiler requests against a local stub server; requests of "/gated" paths are answered after the gate is opened
+ *
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.profiler.ProfilerRequestService
+ */
+public class ProfilerRequestServiceTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ExecutorService callerExecutor;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private final Semaphore arrived = new Semaphore(0);
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        serverExecutor = Executors.newCachedThreadPool();
+        callerExecutor = Executors.newCachedThreadPool();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            arrived.release();
+
+            try {
+                if(exchange.getRequestURI().getPath().startsWith("/gated")) {
+                    gate.await(10, TimeUnit.SECONDS);
+                }
+
+                byte[] body = ("profiler" + exchange.getRequestURI().getPath()).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } catch (InterruptedException | IOException ignored) {
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+
+        server.start();
+    }
+
+    public void tearDown() throws Exception {
+        gate.countDown();
+
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        callerExecutor.shutdownNow();
+
+        super.tearDown();
+    }
+
+    public void testContentIsFetched() {
+        ProfilerRequestService service = createService(1000);
+
+        assertEquals("profiler/_profiler/foo", service.getContent(getUrl("/_profiler/foo")));
+        assertNull(service.getContent("http://127.0.0.1:1/_profiler/foo"));
+    }
+
+    public void testParallelFetchesOfSameUrlAreCoalesced() throws Exception {
+        ProfilerRequestService service = createService(10000);
+
+        // first fetch is held by the server, so all others find it in flight
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        futures.add(service.fetch(getUrl("/gated/foo")));
+        assertTrue(arrived.tryAcquire(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            futures.add(service.fetch(getUrl("/gated/foo")));
+        }
+
+        gate.countDown();
+
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("profiler/gated/foo", future.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, hits.get());
+    }
+
+    public void testInvokeAllIsBoundedAndKeepsTaskOrder() throws Exception {
+        ProfilerRequestService service = createService(10000);
+
+        Collection<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            String url = getUrl("/gated/" + i);
+            tasks.add(() -> service.getContent(url));
+        }
+
+        Future<List<String>> results = callerExecutor.submit(() -> service.invokeAll(tasks));
+
+        // all connections are held by the server; no other request can be started
+        assertTrue(arrived.tryAcquire(3, 5, TimeUnit.SECONDS));
+        assertEquals(3, active.get());
+        assertFalse(results.isDone());
+
+        gate.countDown();
+
+        List<String> contents = results.get(10, TimeUnit.SECONDS);
+        assertEquals(12, contents.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals("profiler/gated/" + i, contents.get(i));
+        }
+
+        assertEquals(3, maxActive.get());
+    }
+
+    public void testSlowRequestTimesOut() {
+        ProfilerRequestService service = createService(200);
+
+        // gate stays closed; the server would answer after its own timeout
+        assertNull(service.getContent(getUrl("/gated/slow")));
+    }
+
+    public void testCancelOnlyStopsRequestsOfTheOwner() throws Exception {
+        ProfilerRequestService service = createService(10000);
+
+        Object widget = new Object();
+        Object toolWindow = new Object();
+
+        Future<String> widgetContent = getContent(service, widget, getUrl("/gated/widget"));
+        Future<String> toolWindowContent = getContent(service, toolWindow, getUrl("/gated/tool-window"));
+        assertTrue(arrived.tryAcquire(2, 5, TimeUnit.SECONDS));
+
+        service.cancel(widget);
+
+        assertNull(widgetContent.get(5, TimeUnit.SECONDS));
+        assertFalse(toolWindowContent.isDone());
+
+        gate.countDown();
+        assertEquals("profiler/gated/tool-window", toolWindowContent.get(5, TimeUnit.SECONDS));
+
+        // canceled request is not shared with new ones
+        assertEquals("profiler/gated/widget", service.getContent(getUrl("/gated/widget")));
+    }
+
+    public void testCanceledFetchWithoutWaitersIsClosed() throws Exception {
+        ProfilerRequestService service = createService(10000);
+
+        Object owner = new Object();
+        CompletableFuture<String> fetch = service.fetch(getUrl("/gated/foo"));
+        Future<String> content = getContent(service, owner, getUrl("/gated/foo"));
+        assertTrue(arrived.tryAcquire(5, TimeUnit.SECONDS));
+
+        service.cancel(owner);
+
+        assertNull(content.get(5, TimeUnit.SECONDS));
+        assertTrue(fetch.isCancelled());
+    }
+
+    /**
+     * Caller with its own progress, as the widget popup or tool window
+     */
+    private Future<String> getContent(ProfilerRequestService service, Object owner, String url) {
+        return callerExecutor.submit(() -> {
+            Ref<String> content = new Ref<>();
+
+            try {
+                ProgressManager.getInstance().runProcess(
+                    () -> content.set(service.compute(owner, () -> service.getContent(url))),
+                    new EmptyProgressIndicator()
+                );
+            } catch (RuntimeException ignored) {
+                // canceled
+            }
+
+            return content.get();
+        });
+    }
+
+    private ProfilerRequestService createService(int readTimeout) {
+        ProfilerRequestService service = new ProfilerRequestService(3, 3, 1000, readTimeout, 10000);
+        Disposer.register(getTestRootDisposable(), service);
+
+        return service;
+    }
+
+    private String getUrl(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
@@ -0,0 +1,78 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.profiler.reader;
+
+import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerDumpScanner;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerDumpScanner
+ */
+public class ProfilerDumpScannerTest extends Assert {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String DUMP = "a:2:{s:11:\"_controller\";s:33:\"App\\Controller\\FooController::foo\";" +
+        "s:6:\"_route\";s:8:\"foo_bär\";}" +
+        "s:25:\"template.twig (foo.css)\";" +
+        "s:37:\"template.twig (foo/index.html.twig)\";" +
+        "\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:10:\"Hello\nMail\";" +
+        "\u0000Swift_Mime_SimpleMimeEntity\u0000_body\";s:0:\"\";";
+
+    @Test
+    public void testRequestFieldsAreExtracted() {
+        ProfilerDumpScanner.Result result = ProfilerDumpScanner.scan(DUMP.getBytes(StandardCharsets.UTF_8), ProfilerDumpScanner.REQUEST_FIELDS);
+
+        assertEquals("App\\Controller\\FooController::foo", result.getController());
+        assertEquals("foo_bär", result.getRoute());
+        assertEquals("foo/index.html.twig", result.getTemplate());
+        assertTrue(result.getMails().isEmpty());
+    }
+
+    @Test
+    public void testMailBodiesAreExtracted() {
+        ProfilerDumpScanner.Result result = ProfilerDumpScanner.scan(DUMP.getBytes(StandardCharsets.UTF_8), EnumSet.of(ProfilerDumpScanner.Field.MAIL));
+
+        assertEquals(Arrays.asList("Hello\nMail", ""), result.getMails());
+        assertNull(result.getController());
+    }
+
+    @Test
+    public void testInvalidSerializedValueIsSkipped() {
+        ProfilerDumpScanner.Result result = ProfilerDumpScanner.scan(
+            "_controller\";s:foo\"; _controller\";s:3:\"Foo\";".getBytes(StandardCharsets.UTF_8),
+            ProfilerDumpScanner.REQUEST_FIELDS
+        );
+
+        assertEquals("Foo", result.getController());
+    }
+
+    @Test
+    public void testLargeDumpIsScannedMapped() throws IOException {
+        File file = folder.newFile("18e6b8");
+
+        byte[] padding = new byte[1024 * 1024];
+        Arrays.fill(padding, (byte) 'x');
+
+        byte[] dump = DUMP.getBytes(StandardCharsets.UTF_8);
+        byte[] content = Arrays.copyOf(padding, padding.length + dump.length);
+        System.arraycopy(dump, 0, content, padding.length, dump.length);
+        Files.write(file.toPath(), content);
+
+        ProfilerDumpScanner.Result result = ProfilerDumpScanner.scan(file, EnumSet.allOf(ProfilerDumpScanner.Field.class));
+
+        assertEquals("foo_bär", result.getRoute());
+        assertEquals("foo/index.html.twig", result.getTemplate());
+        assertEquals(2, result.getMails().size());
+    }
+}
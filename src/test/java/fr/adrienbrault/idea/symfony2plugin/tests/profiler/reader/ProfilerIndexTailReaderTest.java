@@ -0,0 +1,82 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.profiler.reader;
+
+import fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerIndexTailReader;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.profiler.reader.ProfilerIndexTailReader
+ */
+public class ProfilerIndexTailReaderTest extends Assert {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLastLinesAreReadNewestFirst() throws IOException {
+        File file = createIndex("a,1\nb,2\nc,3\n");
+
+        ProfilerIndexTailReader reader = new ProfilerIndexTailReader(file, 2);
+        assertEquals(Arrays.asList("c,3", "b,2"), reader.readLines());
+    }
+
+    @Test
+    public void testOnlyAppendedLinesAreAdded() throws IOException {
+        File file = createIndex("a,1\nb,2\n");
+
+        ProfilerIndexTailReader reader = new ProfilerIndexTailReader(file, 3);
+        assertEquals(Arrays.asList("b,2", "a,1"), reader.readLines());
+
+        append(file, "c,3\nd,4\n");
+        assertEquals(Arrays.asList("d,4", "c,3", "b,2"), reader.readLines());
+    }
+
+    @Test
+    public void testLineInWriteIsVisibleWhenCompleted() throws IOException {
+        File file = createIndex("a,1\n");
+
+        ProfilerIndexTailReader reader = new ProfilerIndexTailReader(file, 3);
+        reader.readLines();
+
+        append(file, "b,");
+        assertEquals(Collections.singletonList("a,1"), reader.readLines());
+
+        append(file, "2\r\n");
+        assertEquals(Arrays.asList("b,2", "a,1"), reader.readLines());
+    }
+
+    @Test
+    public void testPurgedFileIsReadAgain() throws IOException {
+        File file = createIndex("a,1\nb,2\nc,3\n");
+
+        ProfilerIndexTailReader reader = new ProfilerIndexTailReader(file, 3);
+        reader.readLines();
+
+        Files.write(file.toPath(), "d,4\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList("d,4"), reader.readLines());
+
+        assertTrue(file.delete());
+        assertTrue(reader.readLines().isEmpty());
+    }
+
+    private File createIndex(String content) throws IOException {
+        File file = folder.newFile("index.csv");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
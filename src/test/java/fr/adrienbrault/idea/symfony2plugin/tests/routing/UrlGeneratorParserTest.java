@@ -0,0 +1,88 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.UrlGeneratorParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.UrlGeneratorParser
+ */
+public class UrlGeneratorParserTest extends Assert {
+
+    @Test
+    public void testStaticFieldArray() throws Exception {
+        Map<String, Route> routes = UrlGeneratorParser.parse(getFixture("appTestUrlGenerator.php"));
+
+        assertEquals("Lol\\CoreBundle\\Controller\\FeedbackController::feedbackAction", routes.get("feedback").getController());
+        assertEquals("Lol\\ApiBundle\\Controller\\UsersController::getInfoAction", routes.get("api_users_getInfo").getController());
+        assertNull(routes.get("ru__RG__page"));
+        assertNull(routes.get("_assetic_91dd2a8"));
+
+        Route page = routes.get("page");
+        assertEquals(".[a-zA-Z0-9\\-]+", page.getRequirements().get("alias"));
+        assertEquals("/en/{alias}/", RouteHelper.getRouteUrl(page));
+    }
+
+    @Test
+    public void testConstructorAssignment() throws Exception {
+        Map<String, Route> routes = UrlGeneratorParser.parse(getFixture("appDevUrlGenerator-28.php"));
+
+        Route wdt = routes.get("_wdt");
+        assertEquals("web_profiler.controller.profiler:toolbarAction", wdt.getController());
+        assertEquals(1, wdt.getVariables().size());
+        assertEquals(1, wdt.getDefaults().size());
+        assertEquals(2, wdt.getTokens().size());
+        assertEquals("/_wdt/{token}", RouteHelper.getRouteUrl(wdt));
+    }
+
+    @Test
+    public void testShortArraySyntax() {
+        Map<String, Route> routes = UrlGeneratorParser.parse("<?php\n" +
+            "class srcDevDebugProjectContainerUrlGenerator extends Symfony\\Component\\Routing\\Generator\\UrlGenerator\n" +
+            "{\n" +
+            "    private static $declaredRoutes;\n" +
+            "    public function __construct()\n" +
+            "    {\n" +
+            "        // generated\n" +
+            "        if (null === self::$declaredRoutes) {\n" +
+            "            self::$declaredRoutes = [\n" +
+            "        'blog_show' => [['slug'], ['_controller' => 'App\\\\Controller\\\\BlogController::show', 'page' => 1, '_locale' => null], ['slug' => '[^/]++'], [['variable', '/', '[^/]++', 'slug', true], ['text', '/blog']], [], []],\n" +
+            "        'home' => [[], ['_controller' => \"App\\\\Controller\\\\HomeController::index\"], [], [['text', '/']], [], []],\n" +
+            "    ];\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        assertEquals(2, routes.size());
+
+        Route blogShow = routes.get("blog_show");
+        assertEquals("App\\Controller\\BlogController::show", blogShow.getController());
+        assertEquals(1, blogShow.getDefaults().size());
+        assertEquals("[^/]++", blogShow.getRequirements().get("slug"));
+        assertEquals("/blog/{slug}", RouteHelper.getRouteUrl(blogShow));
+
+        assertEquals("App\\Controller\\HomeController::index", routes.get("home").getController());
+        assertEquals("/", RouteHelper.getRouteUrl(routes.get("home")));
+    }
+
+    @Test
+    public void testBrokenContentIsIgnored() {
+        assertTrue(UrlGeneratorParser.parse("<?php self::$declaredRoutes = [").isEmpty());
+        assertTrue(UrlGeneratorParser.parse("<?php self::$declaredRoutes = ['foo' => [[], [], ; ").isEmpty());
+        assertTrue(UrlGeneratorParser.parse("<?php $declaredRoutesFoo = ['foo' => [[], [], [], []]];").isEmpty());
+    }
+
+    private static String getFixture(String name) throws Exception {
+        File file = new File("src/test/java/fr/adrienbrault/idea/symfony2plugin/tests/routing/fixtures/" + name);
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing.engine;
+
+import com.google.common.collect.ImmutableMap;
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.util.containers.ContainerUtil;
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteLookupElement;
+import fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.engine.RouteEngine
+ */
+public class RouteEngineTest extends Assert {
+
+    @Test
+    public void testRoutesByName() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(7, engine.getRoutes().size());
+        assertEquals(7, engine.getLookupElements().size());
+        assertNotNull(engine.getRoute("blog_show"));
+        assertNull(engine.getRoute("foo"));
+    }
+
+    @Test
+    public void testStaticPathIsPreferredOverPlaceholder() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(Arrays.asList("blog_index", "blog_show"), getNames(engine.match("/blog/index")));
+        assertEquals(Collections.singletonList("blog_show"), getNames(engine.match("/blog/my-post")));
+        assertEquals(Collections.singletonList("home"), getNames(engine.match("/")));
+    }
+
+    @Test
+    public void testRequirementsAreMatched() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(Collections.singletonList("page"), getNames(engine.match("/page/12")));
+        assertTrue(engine.match("/page/foo").isEmpty());
+
+        assertEquals(Collections.singletonList("api"), getNames(engine.match("/api/12.json")));
+        assertTrue(engine.match("/api/12.html").isEmpty());
+    }
+
+    @Test
+    public void testOptionalTrailingPlaceholder() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(Collections.singletonList("page"), getNames(engine.match("/page")));
+    }
+
+    @Test
+    public void testCatchAllPlaceholder() {
+        assertEquals(Collections.singletonList("files"), getNames(createEngine().match("/files/foo/bar.txt")));
+    }
+
+    @Test
+    public void testUrlIsNormalized() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(Collections.singletonList("page"), getNames(engine.match("http://127.0.0.1:8000/app_dev.php/page/12?foo=bar#top")));
+        assertEquals(Collections.singletonList("page"), getNames(engine.match("/index.php/page/12")));
+    }
+
+    @Test
+    public void testRoutesByController() {
+        RouteEngine engine = createEngine();
+
+        assertEquals(Collections.singletonList("blog_show"), getNames(engine.getRoutesByController("BlogController::showAction")));
+        assertTrue(engine.getRoutesByController("Foo::bar").isEmpty());
+    }
+
+    @Test
+    public void testCompiledRoutesOverwriteIndexedRoutes() {
+        Map<String, Route> compiled = ImmutableMap.of("home", createRoute("home", "/"));
+
+        StubIndexedRoute weak = new StubIndexedRoute("home");
+        weak.setPath("/weak");
+
+        RouteEngine engine = new RouteEngine(compiled, ImmutableMap.of("home", new Route(weak)));
+        assertTrue(engine.match("/weak").isEmpty());
+        assertEquals(Collections.singletonList("home"), getNames(engine.match("/")));
+    }
+
+    @Test
+    public void testLookupElementsAreShared() {
+        RouteEngine engine = createEngine();
+
+        List<LookupElement> lookupElements = engine.getLookupElements();
+        assertSame(lookupElements, engine.getLookupElements());
+        assertEquals(7, lookupElements.size());
+
+        RouteLookupElement element = (RouteLookupElement) ContainerUtil.find(lookupElements, lookupElement -> "blog_show".equals(lookupElement.getLookupString()));
+        assertNotNull(element);
+        assertSame(engine.getRoute("blog_show"), element.getRoute());
+    }
+
+    @NotNull
+    private static RouteEngine createEngine() {
+        Map<String, Route> compiled = new HashMap<>();
+
+        compiled.put("home", createRoute("home", "/"));
+
+        // compiled tokens are in reverse order: "/page/{page}"
+        compiled.put("page", new Route(
+            "page",
+            new HashSet<>(Collections.singletonList("page")),
+            ImmutableMap.of("page", "1"),
+            ImmutableMap.of("page", "\\d+"),
+            Arrays.asList(Arrays.asList("variable", "/", "\\d+", "page"), Arrays.asList("text", "/page"))
+        ));
+
+        Map<String, Route> indexed = new HashMap<>();
+
+        indexed.put("blog_index", createRoute("blog_index", "/blog/index"));
+
+        StubIndexedRoute blogShow = new StubIndexedRoute("blog_show");
+        blogShow.setPath("/blog/{slug}");
+        blogShow.setController("BlogController::showAction");
+        indexed.put("blog_show", new Route(blogShow));
+
+        indexed.put("api", createRoute("api", "/api/{id<\\d+>}.{_format<json|xml>}"));
+        indexed.put("files", createRoute("files", "/files/{path<.+>}"));
+        indexed.put("no_path", new Route("no_path"));
+
+        return new RouteEngine(compiled, indexed);
+    }
+
+    @NotNull
+    private static Route createRoute(@NotNull String name, @NotNull String path) {
+        StubIndexedRoute route = new StubIndexedRoute(name);
+        route.setPath(path);
+
+        return new Route(route);
+    }
+
+    @NotNull
+    private static List<String> getNames(@NotNull Collection<Route> routes) {
+        List<String> names = new ArrayList<>();
+        for (Route route : routes) {
+            names.add(route.getName());
+        }
+
+        return names;
+    }
+}
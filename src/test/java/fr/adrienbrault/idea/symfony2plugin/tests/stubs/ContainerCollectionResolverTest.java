@@ -1,5 +1,10 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.stubs;
 
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerParameter;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
@@ -132,4 +137,43 @@ public class ContainerCollectionResolverTest extends SymfonyLightCodeInsightFixt
     public void testThatGetKernelParametersAreCollected() {
         assertContainsElements(ContainerCollectionResolver.getParameters(getProject()).keySet(), "kernel.foobar");
     }
+
+    public void testThatChangedServiceFileIsPatchedIntoServiceMap() {
+        PsiFile psiFile = myFixture.configureByText("foo5.yml", "" +
+            "services:\n" +
+            "    foo_incremental:\n" +
+            "        class: DateTime\n"
+        );
+
+        assertTrue(ContainerCollectionResolver.hasServiceNames(getProject(), "foo_incremental"));
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+            document.setText("" +
+                "services:\n" +
+                "    foo_incremental_changed:\n" +
+                "        class: DateTime\n"
+            );
+
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertFalse(ContainerCollectionResolver.hasServiceNames(getProject(), "foo_incremental"));
+        assertTrue(ContainerCollectionResolver.hasServiceNames(getProject(), "foo_incremental_changed"));
+        assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo").getClassName());
+    }
+
+    public void testThatServicesOfFileRenamedToUnknownTypeAreRemoved() throws Exception {
+        PsiFile psiFile = myFixture.configureByText("foo6.yml", "" +
+            "services:\n" +
+            "    foo_renamed:\n" +
+            "        class: DateTime\n"
+        );
+
+        assertTrue(ContainerCollectionResolver.hasServiceNames(getProject(), "foo_renamed"));
+
+        WriteAction.runAndWait(() -> psiFile.getVirtualFile().rename(this, "foo6.yml.bak"));
+
+        assertFalse(ContainerCollectionResolver.hasServiceNames(getProject(), "foo_renamed"));
+    }
 }
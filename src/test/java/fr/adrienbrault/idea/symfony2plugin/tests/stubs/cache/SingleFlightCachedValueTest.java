@@ -0,0 +1,107 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import com.intellij.openapi.util.SimpleModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.SingleFlightCachedValue;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.SingleFlightCachedValue
+ */
+public class SingleFlightCachedValueTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testConcurrentRequestersShareOneComputation() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        SingleFlightCachedValue<String> cachedValue = new SingleFlightCachedValue<>(new SimpleModificationTracker(), () -> {
+            computations.incrementAndGet();
+            started.countDown();
+
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+
+            return "foo";
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            futures.add(executor.submit(cachedValue::getValue));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(cachedValue::getValue));
+            }
+
+            release.countDown();
+
+            for (Future<String> future : futures) {
+                assertEquals("foo", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, computations.get());
+    }
+
+    public void testValueIsComputedAgainOnTrackerChange() {
+        SimpleModificationTracker tracker = new SimpleModificationTracker();
+        AtomicInteger computations = new AtomicInteger();
+
+        SingleFlightCachedValue<Integer> cachedValue = new SingleFlightCachedValue<>(tracker, computations::incrementAndGet);
+
+        assertEquals(1, (int) cachedValue.getValue());
+        assertEquals(1, (int) cachedValue.getValue());
+
+        tracker.incModificationCount();
+
+        assertEquals(2, (int) cachedValue.getValue());
+    }
+
+    public void testRecursiveRequestGetsPreviousValueInsteadOfWaitingForItself() {
+        SimpleModificationTracker tracker = new SimpleModificationTracker();
+        AtomicInteger computations = new AtomicInteger();
+        AtomicReference<SingleFlightCachedValue<Integer>> self = new AtomicReference<>();
+
+        self.set(new SingleFlightCachedValue<>(tracker, () -> {
+            int computation = computations.incrementAndGet();
+            return computation == 1 ? 1 : self.get().getValue() + 1;
+        }));
+
+        assertEquals(1, (int) self.get().getValue());
+
+        tracker.incModificationCount();
+
+        assertEquals(2, (int) self.get().getValue());
+        assertEquals(2, computations.get());
+    }
+
+    public void testRecursiveRequestWithoutPreviousValueIsComputedDirectly() {
+        AtomicInteger computations = new AtomicInteger();
+        AtomicReference<SingleFlightCachedValue<Integer>> self = new AtomicReference<>();
+
+        self.set(new SingleFlightCachedValue<>(new SimpleModificationTracker(), () -> {
+            int computation = computations.incrementAndGet();
+            return computation == 1 ? self.get().getValue() + 1 : computation;
+        }));
+
+        // inner request computes without the shared task and is not waiting for itself
+        assertEquals(3, (int) self.get().getValue());
+        assertEquals(2, computations.get());
+
+        // only the outer result is cached
+        assertEquals(3, (int) self.get().getValue());
+        assertEquals(2, computations.get());
+    }
+}
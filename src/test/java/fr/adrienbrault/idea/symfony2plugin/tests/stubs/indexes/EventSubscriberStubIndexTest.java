@@ -0,0 +1,111 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes;
+
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.FileBasedIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberMethod;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventSubscriberClassStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventSubscriberStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.List;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ *
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.EventSubscriberStubIndex
+ */
+public class EventSubscriberStubIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+
+        myFixture.configureFromExistingVirtualFile(myFixture.copyFileToProject("EventSubscriberStubIndex.php"));
+    }
+
+    public String getTestDataPath() {
+        return "src/test/java/fr/adrienbrault/idea/symfony2plugin/tests/stubs/indexes/fixtures";
+    }
+
+    public void testThatSubscribedEventsAreInIndex() {
+        assertIndexContains(EventSubscriberStubIndex.KEY, "foo.post", "foo.multiple", "#K#C\\Foo\\Events.PRE", "Foo\\Events");
+        assertIndexNotContains(EventSubscriberStubIndex.KEY, "foo.test");
+
+        // interface is checked on reading the index
+        assertIndexContains(EventSubscriberStubIndex.KEY, "foo.no_subscriber");
+    }
+
+    public void testGlobalConstantIsIndexedWithItsSignature() {
+        String key = ContainerUtil.find(
+            FileBasedIndex.getInstance().getAllKeys(EventSubscriberStubIndex.KEY, getProject()),
+            s -> s.startsWith("#D") && s.endsWith("FOO_GLOBAL")
+        );
+
+        assertNotNull(key);
+        assertEquals("onFooGlobal", getMethods(key).get(0).getMethodName());
+        assertEquals(key, getMethods(key).get(0).getSignature());
+
+        EventSubscriberMethod classKey = getMethods("Foo\\Events").get(0);
+        assertEquals("onFooClass", classKey.getMethodName());
+        assertNotNull(classKey.getSignature());
+    }
+
+    public void testMethodAndPriorityExtraction() {
+        EventSubscriberMethod post = getMethods("foo.post").get(0);
+        assertEquals("App\\EventSubscriber\\FooSubscriber", post.getFqnClassName());
+        assertEquals("onFooPost", post.getMethodName());
+        assertEquals(0, post.getPriority());
+        assertNull(post.getSignature());
+
+        EventSubscriberMethod pre = getMethods("#K#C\\Foo\\Events.PRE").get(0);
+        assertEquals("onFooPre", pre.getMethodName());
+        assertEquals(-10, pre.getPriority());
+        assertEquals("#K#C\\Foo\\Events.PRE", pre.getSignature());
+
+        List<EventSubscriberMethod> multiple = getMethods("foo.multiple");
+        assertEquals(2, multiple.size());
+        assertEquals("onFooFirst", multiple.get(0).getMethodName());
+        assertEquals(20, multiple.get(0).getPriority());
+        assertEquals("onFooSecond", multiple.get(1).getMethodName());
+        assertEquals(0, multiple.get(1).getPriority());
+    }
+
+    public void testMethodNameOfConstantIsIndexedWithItsSignature() {
+        EventSubscriberMethod method = getMethods("foo.constant_method").get(0);
+        assertEquals("#K#C\\App\\EventSubscriber\\FooSubscriber.METHOD", method.getMethodName());
+        assertEquals(5, method.getPriority());
+    }
+
+    public void testOwnClassHierarchyIsIndexed() {
+        EventSubscriberClass subscriber = getClass("App\\EventSubscriber\\FooSubscriber");
+        assertNull(subscriber.getSuperClass());
+        assertContainsElements(subscriber.getInterfaces(), "Symfony\\Component\\EventDispatcher\\EventSubscriberInterface");
+        assertTrue(subscriber.hasSubscribedEventsMethod());
+
+        EventSubscriberClass child = getClass("App\\EventSubscriber\\ChildSubscriber");
+        assertEquals("App\\EventSubscriber\\AbstractSubscriber", child.getSuperClass());
+        assertEmpty(child.getInterfaces());
+        assertFalse(child.hasSubscribedEventsMethod());
+
+        assertTrue(getClass("App\\Listener\\NoSubscriber").hasSubscribedEventsMethod());
+
+        assertIndexNotContains(EventSubscriberClassStubIndex.KEY, "Foo\\Events", "App\\Tests\\EventSubscriber\\TestSubscriber");
+    }
+
+    private EventSubscriberClass getClass(String fqn) {
+        return ContainerUtil.getFirstItem(FileBasedIndex.getInstance().getValues(
+            EventSubscriberClassStubIndex.KEY,
+            fqn,
+            GlobalSearchScope.allScope(getProject()))
+        );
+    }
+
+    private List<EventSubscriberMethod> getMethods(String key) {
+        return ContainerUtil.getFirstItem(FileBasedIndex.getInstance().getValues(
+            EventSubscriberStubIndex.KEY,
+            key,
+            GlobalSearchScope.allScope(getProject()))
+        );
+    }
+}
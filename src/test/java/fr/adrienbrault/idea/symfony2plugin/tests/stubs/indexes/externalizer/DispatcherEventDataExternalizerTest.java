@@ -0,0 +1,43 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.DispatcherEvent;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DispatcherEventDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DispatcherEventDataExternalizer
+ */
+public class DispatcherEventDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        DispatcherEvent event = new DispatcherEvent("Symfony\\Component\\Form\\FormEvents.PRE_SUBMIT", "Symfony\\Component\\Form\\FormEvent");
+
+        DispatcherEvent read = saveAndRead(event);
+
+        assertEquals(event, read);
+        assertEquals("Symfony\\Component\\Form\\FormEvents.PRE_SUBMIT", read.getFqn());
+        assertEquals("Symfony\\Component\\Form\\FormEvent", read.getInstance());
+    }
+
+    @Test
+    public void testNullableValues() throws IOException {
+        DispatcherEvent read = saveAndRead(new DispatcherEvent("Foo.BAR", null));
+        assertEquals("Foo.BAR", read.getFqn());
+        assertNull(read.getInstance());
+
+        DispatcherEvent empty = saveAndRead(new DispatcherEvent());
+        assertNull(empty.getFqn());
+        assertNull(empty.getInstance());
+    }
+
+    private static DispatcherEvent saveAndRead(DispatcherEvent event) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DispatcherEventDataExternalizer.INSTANCE.save(new DataOutputStream(stream), event);
+
+        return DispatcherEventDataExternalizer.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+}
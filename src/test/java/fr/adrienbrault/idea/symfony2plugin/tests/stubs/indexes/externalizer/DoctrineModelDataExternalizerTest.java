@@ -0,0 +1,41 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModel;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModelSerializable;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DoctrineModelDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DoctrineModelDataExternalizer
+ */
+public class DoctrineModelDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        DoctrineModel model = new DoctrineModel("App\\Entity\\Foo", "App\\Repository\\FooRepository");
+
+        DoctrineModelSerializable read = saveAndRead(model);
+
+        assertEquals(model, read);
+        assertEquals("App\\Entity\\Foo", read.getClassName());
+        assertEquals("App\\Repository\\FooRepository", read.getRepositoryClass());
+    }
+
+    @Test
+    public void testNullableValues() throws IOException {
+        DoctrineModelSerializable read = saveAndRead(new DoctrineModel("App\\Entity\\Foo"));
+
+        assertEquals("App\\Entity\\Foo", read.getClassName());
+        assertNull(read.getRepositoryClass());
+    }
+
+    private static DoctrineModelSerializable saveAndRead(DoctrineModelSerializable model) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DoctrineModelDataExternalizer.INSTANCE.save(new DataOutputStream(stream), model);
+
+        return DoctrineModelDataExternalizer.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+}
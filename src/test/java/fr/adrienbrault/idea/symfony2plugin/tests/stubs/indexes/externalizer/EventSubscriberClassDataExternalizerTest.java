@@ -0,0 +1,43 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberClassDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberClassDataExternalizer
+ */
+public class EventSubscriberClassDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        EventSubscriberClass subscriberClass = new EventSubscriberClass(
+            "App\\AbstractSubscriber",
+            Arrays.asList("Symfony\\Component\\EventDispatcher\\EventSubscriberInterface", "App\\FooInterface"),
+            true
+        );
+
+        assertEquals(subscriberClass, saveAndRead(subscriberClass));
+    }
+
+    @Test
+    public void testWithoutSuperClass() throws IOException {
+        EventSubscriberClass read = saveAndRead(new EventSubscriberClass(null, Collections.emptyList(), false));
+
+        assertNull(read.getSuperClass());
+        assertTrue(read.getInterfaces().isEmpty());
+        assertFalse(read.hasSubscribedEventsMethod());
+    }
+
+    private static EventSubscriberClass saveAndRead(EventSubscriberClass subscriberClass) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        EventSubscriberClassDataExternalizer.INSTANCE.save(new DataOutputStream(stream), subscriberClass);
+
+        return EventSubscriberClassDataExternalizer.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+}
@@ -0,0 +1,49 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.EventSubscriberMethod;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberMethodsDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.EventSubscriberMethodsDataExternalizer
+ */
+public class EventSubscriberMethodsDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndReadKeepsOrder() throws IOException {
+        List<EventSubscriberMethod> methods = Arrays.asList(
+            new EventSubscriberMethod("App\\FooSubscriber", "onFirst", 20, "#K#C\\Foo\\Events.PRE"),
+            new EventSubscriberMethod("App\\FooSubscriber", "onSecond", -10, "#K#C\\Foo\\Events.PRE")
+        );
+
+        List<EventSubscriberMethod> read = saveAndRead(methods);
+
+        assertEquals(methods, read);
+        assertEquals("onFirst", read.get(0).getMethodName());
+        assertEquals(-10, read.get(1).getPriority());
+    }
+
+    @Test
+    public void testNullableValues() throws IOException {
+        EventSubscriberMethod read = saveAndRead(Collections.singletonList(new EventSubscriberMethod("App\\FooSubscriber", null, 0, null))).get(0);
+
+        assertEquals("App\\FooSubscriber", read.getFqnClassName());
+        assertNull(read.getMethodName());
+        assertNull(read.getSignature());
+
+        assertTrue(saveAndRead(Collections.emptyList()).isEmpty());
+    }
+
+    private static List<EventSubscriberMethod> saveAndRead(List<EventSubscriberMethod> methods) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        EventSubscriberMethodsDataExternalizer.INSTANCE.save(new DataOutputStream(stream), methods);
+
+        return EventSubscriberMethodsDataExternalizer.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+}
@@ -0,0 +1,38 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ExternalizerUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ExternalizerUtil
+ */
+public class ExternalizerUtilTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stream);
+
+        ExternalizerUtil.writeString(out, "fooä€");
+        ExternalizerUtil.writeNullableString(out, null);
+        ExternalizerUtil.writeNullableString(out, "");
+        ExternalizerUtil.writeInt(out, 0);
+        ExternalizerUtil.writeInt(out, 191);
+        ExternalizerUtil.writeInt(out, Integer.MAX_VALUE);
+        ExternalizerUtil.writeInt(out, -10);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(stream.toByteArray()));
+
+        assertEquals("fooä€", ExternalizerUtil.readString(in));
+        assertNull(ExternalizerUtil.readNullableString(in));
+        assertEquals("", ExternalizerUtil.readNullableString(in));
+        assertEquals(0, ExternalizerUtil.readInt(in));
+        assertEquals(191, ExternalizerUtil.readInt(in));
+        assertEquals(Integer.MAX_VALUE, ExternalizerUtil.readInt(in));
+        assertEquals(-10, ExternalizerUtil.readInt(in));
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,71 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.SerializableService;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ObjectStreamDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ServiceSerializableDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.ServiceSerializableDataExternalizer
+ */
+public class ServiceSerializableDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        SerializableService service = new SerializableService("foo.bar")
+            .setClassName("Foo\\Bar")
+            .setIsPublic(false)
+            .setIsLazy(true)
+            .setIsAutowire(true)
+            .setAlias("foo")
+            .setDecorates("bar")
+            .setDecorationInnerName("bar.inner");
+
+        ServiceSerializable read = ServiceSerializableDataExternalizer.INSTANCE.read(
+            new DataInputStream(new ByteArrayInputStream(save(service)))
+        );
+
+        assertEquals("foo.bar", read.getId());
+        assertEquals("Foo\\Bar", read.getClassName());
+        assertFalse(read.isPublic());
+        assertTrue(read.isLazy());
+        assertTrue(read.isAutowire());
+        assertFalse(read.isAbstract());
+        assertFalse(read.isDeprecated());
+        assertEquals("foo", read.getAlias());
+        assertNull(read.getParent());
+        assertEquals("bar", read.getDecorates());
+        assertEquals("bar.inner", read.getDecorationInnerName());
+    }
+
+    @Test
+    public void testDefaultValuesAreKept() throws IOException {
+        ServiceSerializable read = ServiceSerializableDataExternalizer.INSTANCE.read(
+            new DataInputStream(new ByteArrayInputStream(save(new SerializableService("foo"))))
+        );
+
+        assertEquals(new SerializableService("foo"), read);
+        assertTrue(read.isPublic());
+        assertNull(read.getClassName());
+    }
+
+    @Test
+    public void testThatValueIsSmallerThenJavaSerialization() throws IOException {
+        SerializableService service = new SerializableService("foo.bar").setClassName("Foo\\Bar");
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new ObjectStreamDataExternalizer<ServiceSerializable>().save(new DataOutputStream(stream), service);
+
+        assertTrue(save(service).length * 10 < stream.size());
+    }
+
+    private static byte[] save(ServiceSerializable service) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ServiceSerializableDataExternalizer.INSTANCE.save(new DataOutputStream(stream), service);
+        return stream.toByteArray();
+    }
+}
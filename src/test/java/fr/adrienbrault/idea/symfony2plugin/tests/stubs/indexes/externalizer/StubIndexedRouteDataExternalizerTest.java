@@ -0,0 +1,48 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.StubIndexedRouteDataExternalizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.StubIndexedRouteDataExternalizer
+ */
+public class StubIndexedRouteDataExternalizerTest extends Assert {
+    @Test
+    public void testSaveAndRead() throws IOException {
+        StubIndexedRoute route = new StubIndexedRoute("foo_bar");
+        route.setController("Foo\\Bar::fooAction");
+        route.setPath("/foo/{bar}");
+        route.setMethods(new HashSet<>(Arrays.asList("get", "post", "FOOBAR")));
+
+        StubIndexedRoute read = saveAndRead(route);
+
+        assertEquals(route, read);
+        assertEquals("foo_bar", read.getName());
+        assertEquals("Foo\\Bar::fooAction", read.getController());
+        assertEquals("/foo/{bar}", read.getPath());
+        assertEquals(new HashSet<>(Arrays.asList("get", "post", "FOOBAR")), new HashSet<>(read.getMethods()));
+    }
+
+    @Test
+    public void testNullableValues() throws IOException {
+        StubIndexedRoute read = saveAndRead(new StubIndexedRoute("foo"));
+
+        assertNull(read.getController());
+        assertNull(read.getPath());
+        assertEquals(0, read.getMethods().size());
+    }
+
+    private static StubIndexedRoute saveAndRead(StubIndexedRoute route) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        StubIndexedRouteDataExternalizer.INSTANCE.save(new DataOutputStream(stream), route);
+
+        return StubIndexedRouteDataExternalizer.INSTANCE.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())));
+    }
+}
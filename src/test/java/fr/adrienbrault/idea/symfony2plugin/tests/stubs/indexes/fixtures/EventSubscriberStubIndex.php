@@ -0,0 +1,68 @@
+<?php
+
+namespace Foo {
+    class Events {
+        const PRE = 'foo.pre';
+    }
+}
+
+namespace App\EventSubscriber {
+
+    use Foo\Events;
+    use Symfony\Component\EventDispatcher\EventSubscriberInterface;
+
+    class FooSubscriber implements EventSubscriberInterface
+    {
+        const METHOD = 'onFooConstant';
+
+        public static function getSubscribedEvents()
+        {
+            return [
+                'foo.post' => 'onFooPost',
+                'foo.constant_method' => [self::METHOD, 5],
+                Events::PRE => ['onFooPre', -10],
+                'foo.multiple' => [
+                    ['onFooFirst', 20],
+                    ['onFooSecond'],
+                ],
+                FOO_GLOBAL => 'onFooGlobal',
+                Events::class => 'onFooClass',
+            ];
+        }
+    }
+}
+
+namespace App\EventSubscriber {
+
+    abstract class AbstractSubscriber implements \Symfony\Component\EventDispatcher\EventSubscriberInterface
+    {
+    }
+
+    class ChildSubscriber extends AbstractSubscriber
+    {
+    }
+}
+
+namespace App\Listener {
+
+    class NoSubscriber
+    {
+        public static function getSubscribedEvents()
+        {
+            return ['foo.no_subscriber' => 'onNoSubscriber'];
+        }
+    }
+}
+
+namespace App\Tests\EventSubscriber {
+
+    use Symfony\Component\EventDispatcher\EventSubscriberInterface;
+
+    class TestSubscriber implements EventSubscriberInterface
+    {
+        public static function getSubscribedEvents()
+        {
+            return ['foo.test' => 'onTest'];
+        }
+    }
+}
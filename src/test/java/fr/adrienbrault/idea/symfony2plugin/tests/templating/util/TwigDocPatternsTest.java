@@ -0,0 +1,93 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigDocPatterns
+ */
+public class TwigDocPatternsTest extends Assert {
+
+    private static final String[] COMMENTS = {
+        "{# @var foo \\Foo\\Bar #}",
+        "{# @var \\Foo\\Bar[] foo #}",
+        "{# @var Foo foo #}",
+        "{# foo \\Foo\\Bar #}",
+        "{#  foo  \\Foo\\Bar  #}",
+        "{#foo \\Foo\\Bar #}",
+        "{# foo \\Foo\\Bar#}",
+        "{# @var foo #}",
+        "{# @variable foo \\Foo #}",
+        "{# @var foo\\bar \\Foo #}",
+        "{# @var \\Foo foo\\bar #}",
+        "{# @var foo \\Foo @var bar \\Bar #}",
+        "{#\n    @var foo \\Foo\n    @var \\Bar bar\n#}",
+        "{# @var foo \\Foo #}{# bar \\Bar #}",
+        "{#{# foo \\Foo #}",
+        "{# todo: foo bar #}",
+        "{# @see foo.html.twig #}",
+        "foo@var bar \\Bar",
+        "@var",
+        "{#",
+        "",
+    };
+
+    @Test
+    public void testInlineDocVariablesMatchRegularExpressions() {
+        for (String comment : COMMENTS) {
+            List<String> expected = new ArrayList<>();
+            for (Pattern pattern : TwigTypeResolveUtil.INLINE_DOC_REGEX) {
+                Matcher matcher = pattern.matcher(comment);
+                while (matcher.find()) {
+                    expected.add(matcher.group("var") + ":" + matcher.group("class"));
+                }
+            }
+
+            List<String> actual = new ArrayList<>();
+            TwigDocPatterns.visitInlineDocVariables(comment, (variable, className) -> actual.add(variable + ":" + className));
+
+            assertEquals(comment, expected, actual);
+        }
+    }
+
+    @Test
+    public void testTypeDocClassMatchRegularExpressions() {
+        for (String comment : COMMENTS) {
+            assertEquals(comment, getTypeDocClass(comment), TwigDocPatterns.getTypeDocClass(comment));
+        }
+    }
+
+    @Test
+    public void testTypeDocClass() {
+        assertEquals("\\Foo\\Bar", TwigDocPatterns.getTypeDocClass("{# @var foo \\Foo\\Bar #}"));
+        assertEquals("\\Foo\\Bar[]", TwigDocPatterns.getTypeDocClass("{# @var \\Foo\\Bar[] foo #}"));
+        assertEquals("\\Foo\\Bar", TwigDocPatterns.getTypeDocClass("{# foo \\Foo\\Bar #}"));
+        assertNull(TwigDocPatterns.getTypeDocClass("{# @var foo \\Foo #} "));
+        assertNull(TwigDocPatterns.getTypeDocClass("{# \\Foo\\Bar foo #}"));
+    }
+
+    /**
+     * Former implementation of the navigation: full match and first pattern wins
+     */
+    @Nullable
+    private static String getTypeDocClass(@NotNull String comment) {
+        for (String pattern : TwigTypeResolveUtil.DOC_TYPE_PATTERN_SINGLE) {
+            Matcher matcher = Pattern.compile(pattern).matcher(comment);
+            if(matcher.matches()) {
+                return matcher.group("class");
+            }
+        }
+
+        return null;
+    }
+}
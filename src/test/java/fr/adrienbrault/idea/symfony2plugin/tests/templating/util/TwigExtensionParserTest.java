@@ -1,7 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
 
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -118,4 +123,49 @@ public class TwigExtensionParserTest extends SymfonyLightCodeInsightFixtureTestC
             extensionParser.getSimpleTest().get("iterable_3").getSignature()
         );
     }
+
+    public void testAddedExtensionClassIsMergedWithExistingExtensions() {
+        assertNull(new TwigExtensionParser(getProject()).getFilters().get("my_new_filter"));
+
+        myFixture.addFileToProject("my_extension.php", "<?php\n" +
+            "class MyExtension implements \\Twig_ExtensionInterface {\n" +
+            "    public function getFilters() { return [new \\Twig\\TwigFilter('my_new_filter', 'my_filter')]; }\n" +
+            "    public function getTests() { return [new \\Twig\\TwigTest('my_new_test', 'my_test')]; }\n" +
+            "}\n"
+        );
+
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+
+        TwigExtensionParser extensionParser = new TwigExtensionParser(getProject());
+
+        assertEquals("#Fmy_filter", extensionParser.getFilters().get("my_new_filter").getSignature());
+        assertEquals("#Fmy_test", extensionParser.getSimpleTest().get("my_new_test").getSignature());
+        assertEquals("#M#C\\Twig\\Extensions.foobar", extensionParser.getFilters().get("trans").getSignature());
+    }
+
+    public void testChangedParentClassOfExtensionIsParsedAgain() {
+        PsiFile parentFile = myFixture.addFileToProject("parent_filters.php", "<?php\n" +
+            "class ParentFilters {\n" +
+            "    public function getFilters() { return [new \\Twig\\TwigFilter('parent_filter', 'parent_filter')]; }\n" +
+            "}\n"
+        );
+
+        myFixture.addFileToProject("child_extension.php", "<?php\n" +
+            "class ChildExtension extends ParentFilters implements \\Twig_ExtensionInterface {}\n"
+        );
+
+        assertNotNull(new TwigExtensionParser(getProject()).getFilters().get("parent_filter"));
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            Document document = PsiDocumentManager.getInstance(getProject()).getDocument(parentFile);
+            document.setText(document.getText().replace("'parent_filter', 'parent_filter'", "'changed_filter', 'parent_filter'"));
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+
+        TwigExtensionParser extensionParser = new TwigExtensionParser(getProject());
+        assertNull(extensionParser.getFilters().get("parent_filter"));
+        assertEquals("#Fparent_filter", extensionParser.getFilters().get("changed_filter").getSignature());
+    }
 }
@@ -14,6 +14,7 @@ import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureT
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -84,6 +85,64 @@ public class TwigTypeResolveUtilTest extends SymfonyLightCodeInsightFixtureTestC
         assertContainsElements(stringPsiVariableMap.get("b").getTypes(), "\\Foo\\Bar");
     }
 
+    /**
+     * @see TwigTypeResolveUtil#collectScopeVariables
+     */
+    public void testCollectScopeVariablesOfMacroIsSeparatedFromFileScope() {
+        myFixture.configureByText(TwigFileType.INSTANCE,
+            "{# @var b \\Foo\\Bar #}" +
+                "{% macro foo(macro_arg) %}{{ foo }}{% endmacro %}\n" +
+                "{{ bar }}"
+        );
+
+        PsiElement macroElement = myFixture.getFile().findElementAt(myFixture.getFile().getText().indexOf("{{ foo }}") + 3);
+        PsiElement fileElement = myFixture.getFile().findElementAt(myFixture.getFile().getText().indexOf("{{ bar }}") + 3);
+
+        assertTrue(TwigTypeResolveUtil.collectScopeVariables(macroElement).containsKey("macro_arg"));
+        assertFalse(TwigTypeResolveUtil.collectScopeVariables(fileElement).containsKey("macro_arg"));
+
+        // second call is served from the scope cache and must not leak types of the first caller
+        Map<String, PsiVariable> variables = TwigTypeResolveUtil.collectScopeVariables(fileElement);
+        variables.get("b").getTypes().add("\\Foo\\Other");
+
+        assertFalse(TwigTypeResolveUtil.collectScopeVariables(fileElement).get("b").getTypes().contains("\\Foo\\Other"));
+    }
+
+    /**
+     * @see TwigTypeResolveUtil#collectScopeVariables
+     */
+    public void testCollectScopeVariablesOfControllerIsNotExtendedByForScope() {
+        myFixture.addFileToProject("src/FooController.php", "<?php\n" +
+            "namespace App;\n" +
+            "class Item {}\n" +
+            "class Other {}\n" +
+            "class FooController {\n" +
+            "    public function fooAction() {\n" +
+            "        /** @var Item[] $items */\n" +
+            "        $items = [];\n" +
+            "        $this->render('for.html.twig', ['items' => $items, 'item' => new Other()]);\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        PsiFile psiFile = myFixture.addFileToProject("app/Resources/views/for.html.twig",
+            "{% for item in items %}{{ inner }}{% endfor %}\n" +
+            "{{ outer }}"
+        );
+
+        String content = psiFile.getText();
+        PsiElement forElement = psiFile.findElementAt(content.indexOf("{{ inner }}") + 3);
+        PsiElement fileElement = psiFile.findElementAt(content.indexOf("{{ outer }}") + 3);
+
+        for (int i = 0; i < 2; i++) {
+            assertContainsElements(TwigTypeResolveUtil.collectScopeVariables(forElement).get("item").getTypes(), "\\App\\Other", "\\App\\Item");
+
+            Set<String> types = TwigTypeResolveUtil.collectScopeVariables(fileElement).get("item").getTypes();
+            assertContainsElements(types, "\\App\\Other");
+            assertDoesntContain(types, "\\App\\Item");
+        }
+    }
+
     private void assertMatches(@NotNull String content, @NotNull String... regularExpressions) {
         for (String regularExpression : regularExpressions) {
             if(content.matches(regularExpression)) {
@@ -1,5 +1,6 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -8,12 +9,14 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyTempCodeInsightFixtureTestCase;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlPsiElementFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.psi.YAMLFile;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -130,6 +133,31 @@ public class TwigUtilTempTest extends SymfonyTempCodeInsightFixtureTestCase {
         );
     }
 
+    /**
+     * @see TwigUtil#getTemplateMap
+     */
+    public void testTemplateMapFollowsFileCreateAndDelete() {
+        createFiles("res/foobar/foo.html.twig", "res/1/2/3/4/5/6/deep.html.twig");
+
+        Settings.getInstance(getProject()).twigNamespaces.addAll(createTwigNamespaceSettings());
+
+        assertContainsElements(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/foo.html.twig", "FooBundle:foobar:foo.html.twig");
+        assertDoesntContain(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/1/2/3/4/5/6/deep.html.twig");
+
+        VirtualFile file = createFile("res/foobar/bar.html.twig");
+        assertContainsElements(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/bar.html.twig", "foobar/bar.html.twig");
+
+        ApplicationManager.getApplication().runWriteAction(() -> {
+            try {
+                file.delete(this);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertDoesntContain(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/bar.html.twig");
+    }
+
     /**
      * @see TwigUtil#getTemplateNavigationOnOffset
      */
@@ -213,6 +241,32 @@ public class TwigUtilTempTest extends SymfonyTempCodeInsightFixtureTestCase {
     }
 
     @NotNull
+    /**
+     * @see TwigTemplateGraph
+     */
+    public void testTemplateGraphFollowsExtendsAndIncludes() {
+        Settings.getInstance(getProject()).twigNamespaces.addAll(createTwigNamespaceSettings());
+
+        VirtualFile base = createFile("res/base.html.twig", "{% block body %}{% endblock %}");
+        VirtualFile child = createFile("res/foobar/child.html.twig", "{% extends '@Foo/base.html.twig' %}{% block body %}{% endblock %}");
+        VirtualFile grandChild = createFile("res/foobar/grand_child.html.twig", "{% extends 'foobar/child.html.twig' %}");
+        VirtualFile deep = createFile("res/1/2/3/4/5/6/deep.html.twig", "{% extends 'base.html.twig' %}{% include 'foobar/grand_child.html.twig' %}");
+        VirtualFile include = createFile("res/include.html.twig", "{% include 'base.html.twig' %}{% embed '@Foo/base.html.twig' %}{% endembed %}");
+
+        TwigTemplateGraph templateGraph = TwigTemplateGraph.getInstance(getProject());
+
+        assertSameElements(templateGraph.getChildren(base), child, deep);
+        assertSameElements(templateGraph.getParents(grandChild), child);
+        assertSameElements(TwigUtil.getTemplatesExtendingFile(getProject(), base), child, grandChild, deep);
+        assertSameElements(templateGraph.getIncludingFiles(base), include);
+        assertSameElements(templateGraph.getIncludingFiles(grandChild), deep);
+        assertContainsElements(templateGraph.getBlockNames(child), "body");
+
+        VirtualFile newChild = createFile("res/foobar/new_child.html.twig", "{% extends 'base.html.twig' %}");
+        assertContainsElements(TwigUtil.getTemplatesExtendingFile(getProject(), base), newChild);
+        assertSameElements(TwigUtil.getTemplatesExtendingFile(getProject(), child), grandChild);
+    }
+
     private List<TwigNamespaceSetting> createTwigNamespaceSettings() {
         return Arrays.asList(
             new TwigNamespaceSetting("Foo", "res", true, TwigUtil.NamespaceType.ADD_PATH, true),
@@ -0,0 +1,104 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.translation;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.ui.UIUtil;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex;
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationStringMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex
+ */
+public class TranslationIndexTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    private String pathToTranslation;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        pathToTranslation = Settings.getInstance(getProject()).pathToTranslation;
+    }
+
+    public void tearDown() throws Exception {
+        Settings.getInstance(getProject()).pathToTranslation = pathToTranslation;
+        super.tearDown();
+    }
+
+    public void testTranslationsAreParsedOnExecutorAndHighlightingIsRestarted() throws Exception {
+        File directory = FileUtil.createTempDirectory("translations", null);
+        FileUtil.writeToFile(new File(directory, "catalogue.de.php"), "<?php\n" +
+            "$catalogue = new \\Symfony\\Component\\Translation\\MessageCatalogue('de', ['messages' => ['foo.bar' => 'Foo']]);\n" +
+            "return $catalogue;\n"
+        );
+
+        Settings.getInstance(getProject()).pathToTranslation = directory.getPath();
+
+        List<Runnable> parser = new ArrayList<>();
+        CountDownLatch restarted = new CountDownLatch(1);
+        TranslationIndex translationIndex = new TranslationIndex(getProject(), parser::add) {
+            @Override
+            protected void restartHighlighting() {
+                restarted.countDown();
+            }
+        };
+        Disposer.register(getTestRootDisposable(), translationIndex);
+
+        // nothing parsed yet: keys are unknown, not missing
+        TranslationStringMap pending = translationIndex.getTranslationMap();
+        assertTrue(translationIndex.isPending(pending));
+        assertNull(pending.getDomainMap("messages"));
+
+        // running parse is not queued twice
+        assertTrue(translationIndex.isPending(translationIndex.getTranslationMap()));
+        assertSize(1, parser);
+
+        ApplicationManager.getApplication().executeOnPooledThread(parser.get(0));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while(restarted.getCount() > 0 && System.currentTimeMillis() < deadline) {
+            UIUtil.dispatchAllInvocationEvents();
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, restarted.getCount());
+
+        TranslationStringMap parsed = translationIndex.getTranslationMap();
+        assertFalse(translationIndex.isPending(parsed));
+        assertContainsElements(parsed.getDomainMap("messages"), "foo.bar");
+    }
+
+    public void testDisposedIndexIsNotFilledAgain() throws Exception {
+        File directory = FileUtil.createTempDirectory("translations", null);
+        FileUtil.writeToFile(new File(directory, "catalogue.de.php"), "<?php\n" +
+            "$catalogue = new \\Symfony\\Component\\Translation\\MessageCatalogue('de', ['messages' => ['foo.bar' => 'Foo']]);\n" +
+            "return $catalogue;\n"
+        );
+
+        Settings.getInstance(getProject()).pathToTranslation = directory.getPath();
+
+        TranslationIndex translationIndex = new TranslationIndex(getProject(), Runnable::run);
+        assertContainsElements(translationIndex.getTranslationMap().getDomainMap("messages"), "foo.bar");
+
+        Disposer.dispose(translationIndex);
+
+        assertNull(translationIndex.getTranslationMap().getDomainMap("messages"));
+    }
+
+    public void testMissingTranslationDirectoryIsNotPending() {
+        Settings.getInstance(getProject()).pathToTranslation = "foo/translations";
+
+        TranslationIndex translationIndex = new TranslationIndex(getProject(), AppExecutorUtil.getAppExecutorService());
+        Disposer.register(getTestRootDisposable(), translationIndex);
+
+        assertFalse(translationIndex.isPending(translationIndex.getTranslationMap()));
+    }
+}
@@ -1,5 +1,6 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.translation.dict;
 
+import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.lang.xml.XMLLanguage;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -15,6 +16,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -202,4 +204,21 @@ public class TranslationUtilTest extends SymfonyLightCodeInsightFixtureTestCase
 
         assertContainsElements(placeholder, "%yaml_foobar%", "%xliff_foobar%");
     }
+
+    public void testTranslationKeysFollowAddedTranslationFile() {
+        assertTrue(TranslationUtil.hasTranslationKey(getProject(), "foo_yaml.symfony.great", "car"));
+        assertFalse(TranslationUtil.hasTranslationKey(getProject(), "foo_yaml.symfony.great", "apple"));
+        assertFalse(TranslationUtil.hasDomain(getProject(), "boat"));
+
+        myFixture.addFileToProject("Resources/translations/boat.de.yml", "boat_yaml:\n  sail: 'Sail'\n");
+
+        assertTrue(TranslationUtil.hasDomain(getProject(), "boat"));
+        assertTrue(TranslationUtil.hasTranslationKey(getProject(), "boat_yaml.sail", "boat"));
+        assertTrue(TranslationUtil.hasTranslationKey(getProject(), "foo_yaml.symfony.great", "car"));
+
+        assertContainsElements(
+            TranslationUtil.getTranslationLookupElementsOnDomain(getProject(), "boat").stream().map(LookupElement::getLookupString).collect(Collectors.toList()),
+            "boat_yaml.sail"
+        );
+    }
 }
@@ -0,0 +1,67 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.translation.parser;
+
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.parser.TranslationCatalogueParser
+ */
+public class TranslationCatalogueParserTest extends Assert {
+
+    @Test
+    public void testCatalogueWithFallbackCatalogue() {
+        Map<String, Set<String>> domains = TranslationCatalogueParser.parse("<?php\n" +
+            "\n" +
+            "use Symfony\\Component\\Translation\\MessageCatalogue;\n" +
+            "\n" +
+            "$catalogue = new MessageCatalogue('de', array (\n" +
+            "  'messages' => \n" +
+            "  array (\n" +
+            "    'foo.bar' => 'Foo \\'bar\\'',\n" +
+            "    'foo[baz]' => 'Foo',\n" +
+            "    0 => 'integer keys are skipped',\n" +
+            "  ),\n" +
+            "  'validators' => \n" +
+            "  array (\n" +
+            "    'This value should be false.' => 'Dieser Wert sollte false sein.',\n" +
+            "  ),\n" +
+            "  'empty' => array (),\n" +
+            "));\n" +
+            "\n" +
+            "$catalogueEn = new \\Symfony\\Component\\Translation\\MessageCatalogue('en', [\n" +
+            "  'messages+intl-icu' => ['en.only' => 'Only {count}'],\n" +
+            "]);\n" +
+            "$catalogue->addFallbackCatalogue($catalogueEn);\n" +
+            "\n" +
+            "return $catalogue;\n"
+        );
+
+        assertEquals(new HashSet<>(Arrays.asList("messages", "validators", "empty", "messages+intl-icu")), domains.keySet());
+        assertEquals(new HashSet<>(Arrays.asList("foo.bar", "foo[baz]")), domains.get("messages"));
+        assertEquals(Collections.singleton("This value should be false."), domains.get("validators"));
+        assertEquals(Collections.singleton("en.only"), domains.get("messages+intl-icu"));
+        assertTrue(domains.get("empty").isEmpty());
+    }
+
+    @Test
+    public void testOtherClassesAreIgnored() {
+        assertTrue(TranslationCatalogueParser.parse("<?php new FooMessageCatalogue('de', ['messages' => ['foo' => 'bar']]);").isEmpty());
+        assertTrue(TranslationCatalogueParser.parse("<?php /** @var MessageCatalogue $foo */ MessageCatalogue::foo('de', ['messages' => ['foo' => 'bar']]);").isEmpty());
+    }
+
+    @Test
+    public void testBrokenContentKeepsReadKeys() {
+        Map<String, Set<String>> domains = TranslationCatalogueParser.parse("<?php $catalogue = new MessageCatalogue('de', array('messages' => array('foo' => 'bar', 'car' => ");
+        assertTrue(domains.get("messages").contains("foo"));
+
+        assertTrue(TranslationCatalogueParser.parse("<?php $catalogue = new MessageCatalogue(").isEmpty());
+    }
+}
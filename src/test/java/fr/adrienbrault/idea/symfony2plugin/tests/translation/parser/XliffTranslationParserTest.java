@@ -0,0 +1,109 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.translation.parser;
+
+import fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.parser.XliffTranslationParser
+ */
+public class XliffTranslationParserTest extends Assert {
+
+    @Test
+    public void testXliff12Units() {
+        List<XliffTranslationParser.XliffUnit> units = visit("<?xml version=\"1.0\"?>\n" +
+            "<xliff version=\"1.2\" xmlns=\"urn:oasis:names:tc:xliff:document:1.2\">\n" +
+            "    <file source-language=\"en\" datatype=\"plaintext\" original=\"file.ext\">\n" +
+            "        <body>\n" +
+            "            <trans-unit id=\"1\" resname=\"index.hello_world\">\n" +
+            "                <source>Hello %name%</source>\n" +
+            "                <target>Hallo <![CDATA[{{ name }}]]></target>\n" +
+            "            </trans-unit>\n" +
+            "            <trans-unit id=\"2\">\n" +
+            "                <source>foo &amp; bar</source>\n" +
+            "            </trans-unit>\n" +
+            "        </body>\n" +
+            "    </file>\n" +
+            "</xliff>\n"
+        );
+
+        assertEquals(2, units.size());
+
+        assertEquals("1", units.get(0).getId());
+        assertEquals("index.hello_world", units.get(0).getResname());
+        assertEquals("Hello %name%", units.get(0).getSource());
+        assertEquals("Hallo {{ name }}", units.get(0).getTarget());
+        assertTrue(units.get(0).getPlaceholders().containsAll(Arrays.asList("%name%", "{{ name }}")));
+
+        assertEquals("2", units.get(1).getId());
+        assertNull(units.get(1).getResname());
+        assertEquals("foo & bar", units.get(1).getSource());
+        assertNull(units.get(1).getTarget());
+    }
+
+    @Test
+    public void testXliff20Units() {
+        List<XliffTranslationParser.XliffUnit> units = visit("<?xml version=\"1.0\"?>\n" +
+            "<xliff xmlns=\"urn:oasis:names:tc:xliff:document:2.0\" version=\"2.0\" srcLang=\"en\" trgLang=\"de\">\n" +
+            "    <file id=\"messages.de\">\n" +
+            "        <unit id=\"foo\">\n" +
+            "            <segment><source>foo.bar</source><target>Foo {count}</target></segment>\n" +
+            "        </unit>\n" +
+            "        <group id=\"grouped\">\n" +
+            "            <unit id=\"car\">\n" +
+            "                <segment><source>car.bar</source></segment>\n" +
+            "            </unit>\n" +
+            "        </group>\n" +
+            "    </file>\n" +
+            "</xliff>\n"
+        );
+
+        assertEquals(2, units.size());
+
+        assertEquals("foo", units.get(0).getId());
+        assertEquals("foo.bar", units.get(0).getSource());
+        assertEquals("Foo {count}", units.get(0).getTarget());
+
+        assertEquals("car", units.get(1).getId());
+        assertEquals("car.bar", units.get(1).getSource());
+    }
+
+    @Test
+    public void testKeysOfSourcesAndResnames() {
+        Set<String> keys = XliffTranslationParser.getKeys(stream("<xliff><file><body>" +
+            "<trans-unit id=\"1\" resname=\"title\"><source>  </source></trans-unit>" +
+            "<trans-unit id=\"2\"><source>foo</source></trans-unit>" +
+            "<trans-unit id=\"3\"><note><source>nested</source></note></trans-unit>" +
+            "</body></file></xliff>"
+        ));
+
+        assertEquals(new HashSet<>(Arrays.asList("title", "foo")), keys);
+    }
+
+    @Test
+    public void testBrokenContentKeepsReadUnits() {
+        Set<String> keys = XliffTranslationParser.getKeys(stream("<xliff><file><body>" +
+            "<trans-unit id=\"1\"><source>foo</source></trans-unit>" +
+            "<trans-unit id=\"2\"><source>bar</sour"
+        ));
+
+        assertEquals(Collections.singleton("foo"), keys);
+        assertTrue(XliffTranslationParser.getKeys(stream("foo")).isEmpty());
+    }
+
+    private static List<XliffTranslationParser.XliffUnit> visit(String content) {
+        List<XliffTranslationParser.XliffUnit> units = new ArrayList<>();
+        XliffTranslationParser.visit(stream(content), units::add);
+        return units;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFileSnapshot
+ */
+public class ContainerXmlFileSnapshotTest extends Assert {
+
+    private static final String CONTAINER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<container>" +
+            "<parameters><parameter key=\"foo.class\">Foo\\Bar</parameter></parameters>" +
+            "<services>" +
+                "<service id=\"foo\" class=\"Foo\\Bar\"><tag name=\"kernel.event_listener\" event=\"kernel.request\"/></service>" +
+                "<service id=\"foo_private\" alias=\"foo\" public=\"false\"/>" +
+            "</services>" +
+        "</container>";
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File directory = Files.createTempDirectory("symfony-snapshot").toFile();
+        File snapshotFile = new File(directory, "container.bin");
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(CONTAINER.getBytes()));
+        ContainerXmlFileSnapshot.write(snapshotFile, "/var/cache/container.xml", 1000L, 200L, 42L, containerFile);
+
+        ContainerXmlFileSnapshot snapshot = ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/container.xml", 1000L, 200L);
+        assertNotNull(snapshot);
+        assertEquals(42L, snapshot.getHash());
+
+        ContainerXmlFile snapshotContainer = snapshot.getContainerFile();
+        assertEquals("Foo\\Bar", snapshotContainer.getParameters().get("foo.class"));
+
+        XmlService foo = snapshotContainer.getServices().stream().filter(s -> "foo".equals(s.getId())).findFirst().get();
+        assertEquals("Foo\\Bar", foo.getClassName());
+        assertTrue(foo.isPublic());
+
+        XmlService alias = snapshotContainer.getServices().stream().filter(s -> "foo_private".equals(s.getId())).findFirst().get();
+        assertEquals("foo", alias.getAlias());
+        assertNull(alias.getClassName());
+        assertFalse(alias.isPublic());
+
+        ContainerXmlFile.Tag tag = snapshotContainer.getTags().iterator().next();
+        assertEquals("kernel.event_listener", tag.getName());
+        assertEquals("kernel.request", tag.getEvent());
+        assertEquals("Foo\\Bar", tag.getServiceClass());
+    }
+
+    @Test
+    public void testSnapshotOfOtherFileStateIsIgnored() throws Exception {
+        File directory = Files.createTempDirectory("symfony-snapshot").toFile();
+        File snapshotFile = new File(directory, "container.bin");
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(CONTAINER.getBytes()));
+        ContainerXmlFileSnapshot.write(snapshotFile, "/var/cache/container.xml", 1000L, 200L, 42L, containerFile);
+
+        assertNull(ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/container.xml", 1001L, 200L));
+        assertNull(ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/container.xml", 1000L, 201L));
+        assertNull(ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/other.xml", 1000L, 200L));
+        assertNull(ContainerXmlFileSnapshot.read(new File(directory, "unknown.bin"), "/var/cache/container.xml", 1000L, 200L));
+    }
+
+    @Test
+    public void testSnapshotIsNotHeldOpenAfterRead() throws Exception {
+        File directory = Files.createTempDirectory("symfony-snapshot").toFile();
+        File snapshotFile = new File(directory, "container.bin");
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(CONTAINER.getBytes()));
+        ContainerXmlFileSnapshot.write(snapshotFile, "/var/cache/container.xml", 1000L, 200L, 42L, containerFile);
+        assertNotNull(ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/container.xml", 1000L, 200L));
+
+        // replacing or deleting a still mapped file fails on Windows
+        ContainerXmlFileSnapshot.write(snapshotFile, "/var/cache/container.xml", 2000L, 200L, 43L, containerFile);
+
+        ContainerXmlFileSnapshot snapshot = ContainerXmlFileSnapshot.read(snapshotFile, "/var/cache/container.xml", 2000L, 200L);
+        assertNotNull(snapshot);
+        assertEquals(43L, snapshot.getHash());
+        assertTrue(snapshotFile.delete());
+    }
+}
@@ -0,0 +1,74 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlFile;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ContainerXmlStreamParser
+ */
+public class ContainerXmlStreamParserTest extends Assert {
+
+    @Test
+    public void testParse() throws Exception {
+        File testFile = new File("src/test/java/fr/adrienbrault/idea/symfony2plugin/tests/dic/appDevDebugProjectContainer.xml");
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new FileInputStream(testFile));
+
+        assertEquals("My\\Class", containerFile.getParameters().get("foo.class"));
+        assertEquals("MyFoo", containerFile.getParameters().get("foo_bar"));
+
+        assertTrue(containerFile.getServices().stream().anyMatch(s -> "data_collector.router".equals(s.getId())));
+
+        ContainerXmlFile.Tag tag = containerFile.getTags().stream().filter(t -> "kernel.controller".equals(t.getEvent())).findFirst().get();
+        assertEquals("kernel.event_listener", tag.getName());
+        assertEquals("Symfony\\Bundle\\FrameworkBundle\\DataCollector\\RouterDataCollector", tag.getServiceClass());
+    }
+
+    @Test
+    public void testParseOnlyDirectServiceTagsAndParameters() {
+        String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<container>" +
+                "<parameters>" +
+                    "<parameter key=\"collection\" type=\"collection\"><parameter key=\"inner\">foo</parameter></parameter>" +
+                "</parameters>" +
+                "<services>" +
+                    "<service id=\"foo\" class=\"\\Foo\\Bar\">" +
+                        "<tag name=\"foo.tag\"/>" +
+                        "<argument type=\"service\"><service class=\"Foo\\Inline\"><tag name=\"inline.tag\"/></service></argument>" +
+                    "</service>" +
+                    "<service id=\"alias\" alias=\"foo\" public=\"false\"/>" +
+                "</services>" +
+            "</container>";
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(xmlString.getBytes()));
+
+        assertEquals("collection", containerFile.getParameters().get("collection"));
+        assertFalse(containerFile.getParameters().containsKey("inner"));
+
+        assertEquals(1, containerFile.getTags().size());
+        assertEquals("foo.tag", containerFile.getTags().iterator().next().getName());
+
+        XmlService foo = containerFile.getServices().stream().filter(s -> "foo".equals(s.getId())).findFirst().get();
+        assertEquals("Foo\\Bar", foo.getClassName());
+
+        XmlService alias = containerFile.getServices().stream().filter(s -> "alias".equals(s.getId())).findFirst().get();
+        assertEquals("foo", alias.getAlias());
+        assertFalse(alias.isPublic());
+    }
+
+    @Test
+    public void testInvalidXmlReturnsPartialResult() {
+        String xmlString = "<container><services><service id=\"foo\" class=\"Foo\"/><service";
+
+        ContainerXmlFile containerFile = ContainerXmlStreamParser.parse(new ByteArrayInputStream(xmlString.getBytes()));
+        assertEquals(1, containerFile.getServices().size());
+    }
+}
@@ -0,0 +1,38 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ex.ProjectManagerEx;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.LeakHunter;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import fr.adrienbrault.idea.symfony2plugin.util.service.XmlServiceParser;
+
+import java.io.File;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory
+ * @see fr.adrienbrault.idea.symfony2plugin.translation.TranslationIndex
+ */
+public class ProjectServiceLeakTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testClosedProjectsAreNotRetainedByParserCaches() throws Exception {
+        File directory = FileUtil.createTempDirectory("symfony-leak", null);
+
+        for (int i = 0; i < 3; i++) {
+            Project project = ProjectManagerEx.getInstanceEx().newProject("leak" + i, new File(directory, "leak" + i).getPath(), false, false);
+            assertNotNull(project);
+
+            assertNotNull(ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class));
+            assertNotNull(TranslationIndex.getInstance(project).getTranslationMap());
+
+            ApplicationManager.getApplication().runWriteAction(() -> Disposer.dispose(project));
+        }
+
+        LeakHunter.checkProjectLeak();
+    }
+}
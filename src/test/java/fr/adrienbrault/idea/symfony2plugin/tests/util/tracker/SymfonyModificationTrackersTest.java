@@ -0,0 +1,90 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.tracker;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.util.tracker.SymfonyModificationTrackers
+ */
+public class SymfonyModificationTrackersTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testConfigTrackerIgnoresPhpChanges() {
+        PsiFile phpFile = myFixture.configureByText("Foo.php", "<?php\nclass Foo {}\n");
+        PsiFile ymlFile = myFixture.configureByText("services.yml", "services: ~\n");
+
+        ModificationTracker tracker = SymfonyModificationTrackers.getConfigTracker(getProject());
+
+        long modificationCount = tracker.getModificationCount();
+        setText(phpFile, "<?php\nclass Foo { public function bar() {} }\n");
+        assertEquals(modificationCount, tracker.getModificationCount());
+
+        setText(ymlFile, "services:\n    foo: ~\n");
+        assertTrue(modificationCount < tracker.getModificationCount());
+    }
+
+    public void testTemplateTrackerIgnoresTwigContentChanges() {
+        PsiFile twigFile = myFixture.configureByText("foo.html.twig", "{{ foo }}");
+
+        ModificationTracker tracker = SymfonyModificationTrackers.getTemplateTracker(getProject());
+
+        long modificationCount = tracker.getModificationCount();
+        setText(twigFile, "{{ bar }}");
+        assertEquals(modificationCount, tracker.getModificationCount());
+
+        myFixture.addFileToProject("bar.html.twig", "{{ foo }}");
+        assertTrue(modificationCount < tracker.getModificationCount());
+    }
+
+    public void testTemplateTrackerWithPhpTemplatesChangesForCreatedPhpFiles() {
+        ModificationTracker twigTracker = SymfonyModificationTrackers.getTemplateTracker(getProject());
+        ModificationTracker tracker = SymfonyModificationTrackers.getTemplateTracker(getProject(), true);
+
+        long twigModificationCount = twigTracker.getModificationCount();
+        long modificationCount = tracker.getModificationCount();
+
+        myFixture.addFileToProject("foo.html.php", "<?php echo $foo;");
+
+        assertTrue(modificationCount < tracker.getModificationCount());
+        assertEquals(twigModificationCount, twigTracker.getModificationCount());
+    }
+
+    public void testTwigExtensionTrackerOnlyChangesForTwigExtensionClasses() {
+        myFixture.addFileToProject("Twig.php", "<?php\ninterface Twig_ExtensionInterface {}\n");
+        PsiFile extensionFile = myFixture.configureByText("MyExtension.php", "<?php\nclass MyExtension implements Twig_ExtensionInterface {}\n");
+        PsiFile phpFile = myFixture.configureByText("Foo.php", "<?php\nclass Foo {}\n");
+
+        ModificationTracker tracker = SymfonyModificationTrackers.getTwigExtensionTracker(getProject());
+
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+
+        long modificationCount = tracker.getModificationCount();
+        setText(phpFile, "<?php\nclass Foo { public function bar() {} }\n");
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+        assertEquals(modificationCount, tracker.getModificationCount());
+
+        setText(extensionFile, "<?php\nclass MyExtension implements Twig_ExtensionInterface { public function bar() {} }\n");
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+        long extensionModificationCount = tracker.getModificationCount();
+        assertTrue(modificationCount < extensionModificationCount);
+
+        // no extension anymore; also a change
+        setText(extensionFile, "<?php\nclass MyExtension {}\n");
+        SymfonyModificationTrackers.waitForPendingChanges(getProject());
+        assertTrue(extensionModificationCount < tracker.getModificationCount());
+    }
+
+    private void setText(@NotNull PsiFile psiFile, @NotNull String text) {
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+            document.setText(text);
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+    }
+}
@@ -0,0 +1,164 @@
+package fr.adrienbrault.idea.symfony2plugin.util.warmup;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Disposer;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetric;
+import fr.adrienbrault.idea.symfony2plugin.diagnostics.CacheMetrics;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Daniel Espendiller <daniel@espendiller.net>
+ * @see fr.adrienbrault.idea.symfony2plugin.util.warmup.SymfonyWarmupScheduler
+ */
+public class SymfonyWarmupSchedulerTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testTasksAreSortedByPriority() {
+        List<WarmupTask> tasks = SymfonyWarmupScheduler.getTasks();
+        assertFalse(tasks.isEmpty());
+
+        for (int i = 1; i < tasks.size(); i++) {
+            assertTrue(tasks.get(i - 1).getPriority() <= tasks.get(i).getPriority());
+        }
+    }
+
+    public void testTasksWarmUpProjectModels() {
+        myFixture.addFileToProject("app/Resources/views/base.html.twig", "");
+
+        for (WarmupTask task : SymfonyWarmupScheduler.getTasks()) {
+            task.run(getProject());
+        }
+
+        // template map is served from the cache which was built by the warm-up
+        long misses = getTemplateMetricMisses();
+        assertTrue(TwigUtil.getTemplateMap(getProject()).containsKey("base.html.twig"));
+        assertEquals(misses, getTemplateMetricMisses());
+    }
+
+    public void testScheduleRequestsAreMergedIntoOneWarmup() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        SymfonyWarmupScheduler scheduler = createScheduler(Collections.singletonList(new WarmupTask("count", 0, project -> {
+            runs.incrementAndGet();
+            finished.countDown();
+        })), 500);
+
+        scheduler.schedule();
+        scheduler.schedule();
+        scheduler.schedule();
+        assertTrue(scheduler.isScheduled());
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        waitForWarmup(scheduler);
+
+        assertEquals(1, runs.get());
+    }
+
+    public void testCancelStopsRunningTasks() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        SymfonyWarmupScheduler scheduler = createScheduler(Collections.singletonList(new WarmupTask("endless", 0, project -> {
+            started.countDown();
+            try {
+                while (true) {
+                    ProgressManager.checkCanceled();
+                    Thread.yield();
+                }
+            } finally {
+                stopped.countDown();
+            }
+        })), 0);
+
+        scheduler.schedule();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        scheduler.cancel();
+
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    public void testRunningTasksAreLimitedByConcurrencySetting() throws Exception {
+        Settings settings = Settings.getInstance(getProject());
+        int concurrency = settings.warmupConcurrency;
+        settings.warmupConcurrency = 2;
+
+        try {
+            AtomicInteger active = new AtomicInteger();
+            AtomicInteger maxActive = new AtomicInteger();
+            CountDownLatch limitReached = new CountDownLatch(2);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(5);
+
+            List<WarmupTask> tasks = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                tasks.add(new WarmupTask("task" + i, i, project -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    limitReached.countDown();
+
+                    try {
+                        // the first tasks hold their slot until all others are queued
+                        while (!release.await(10, TimeUnit.MILLISECONDS)) {
+                            ProgressManager.checkCanceled();
+                        }
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        active.decrementAndGet();
+                    }
+
+                    finished.countDown();
+                }));
+            }
+
+            SymfonyWarmupScheduler scheduler = createScheduler(tasks, 0);
+            scheduler.schedule();
+
+            // both slots are blocked, so no other task can be active
+            assertTrue(limitReached.await(10, TimeUnit.SECONDS));
+            assertEquals(2, active.get());
+
+            release.countDown();
+
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            assertEquals(2, maxActive.get());
+        } finally {
+            settings.warmupConcurrency = concurrency;
+        }
+    }
+
+    private SymfonyWarmupScheduler createScheduler(List<WarmupTask> tasks, int delay) {
+        SymfonyWarmupScheduler scheduler = new SymfonyWarmupScheduler(getProject(), () -> tasks, delay);
+        Disposer.register(getTestRootDisposable(), scheduler);
+
+        return scheduler;
+    }
+
+    private static void waitForWarmup(SymfonyWarmupScheduler scheduler) throws InterruptedException {
+        for (int i = 0; i < 1000 && (scheduler.isScheduled() || scheduler.getRunningCount() > 0); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(scheduler.isScheduled());
+    }
+
+    private static long getTemplateMetricMisses() {
+        long misses = 0;
+        for (CacheMetric metric : CacheMetrics.getMetrics()) {
+            if(metric.getName().contains("TEMPLATE")) {
+                misses += metric.getMisses();
+            }
+        }
+
+        return misses;
+    }
+}